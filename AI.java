@@ -1,7 +1,11 @@
 package ataxx;
 
-import java.util.Random;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.Function;
 
+import static ataxx.PieceColor.*;
 
 /**
  * A Player that computes its own moves.
@@ -10,10 +14,6 @@ import java.util.Random;
  */
 class AI extends Player {
 
-    /**
-     * Maximum minimax search depth before going to static evaluation.
-     */
-    private static final int MAX_DEPTH = 4;
     /**
      * A position magnitude indicating a win (for red if positive, blue
      * if negative).
@@ -24,16 +24,75 @@ class AI extends Player {
      */
     private static final int INFTY = Integer.MAX_VALUE;
     /**
-     * Value of losing on a board.
+     * Maximum number of plies from the root of a search.
+     */
+    static final int MAX_PLY = 64;
+    /**
+     * Depth of the search that predicts the opponent's reply when
+     * pondering.
+     */
+    private static final int PREDICT_DEPTH = 2;
+    /**
+     * Interval in milliseconds at which a wait for a ponder search checks
+     * for requests to the game.
+     */
+    private static final long PONDER_POLL_MILLIS = 10;
+    /**
+     * Number of positions the endgame solver may visit before findMove
+     * gives up on solving and searches instead.
+     */
+    static final long SOLVE_NODES = 1_000_000;
+    /**
+     * The search checks the clock when _nodes & CLOCK_MASK is 0.
      */
-    private static final double LOSS_VALUE = -1000.0;
+    private static final long CLOCK_MASK = 1023;
 
 
     /**
      * A new AI for GAME that will play MYCOLOR.
      */
     AI(Game game, PieceColor myColor) {
+        this(game, myColor, Evaluator.STANDARD, SearchParams.STANDARD);
+    }
+
+    /**
+     * A new AI for GAME that will play MYCOLOR, evaluating positions with
+     * EVAL and searching according to PARAMS.
+     */
+    AI(Game game, PieceColor myColor, Evaluator eval, SearchParams params) {
         super(game, myColor);
+        _eval = eval;
+        _depth = params.get(SearchParams.DEPTH);
+        _lmrMoves = params.get(SearchParams.LMR_MOVES);
+        _lmrReduction = params.get(SearchParams.LMR_REDUCTION);
+        _captureWeight = params.get(SearchParams.CAPTURE_WEIGHT);
+        _jumpPenalty = params.get(SearchParams.JUMP_PENALTY);
+        _endgameEmpties = params.get(SearchParams.ENDGAME_EMPTIES);
+        _params = params;
+    }
+
+    /**
+     * A new AI that is not attached to any game, for use by offline tools
+     * through findMove.  MYCOLOR is nominal: findMove searches for the
+     * side to move.
+     */
+    AI(PieceColor myColor) {
+        this(null, myColor);
+    }
+
+    /**
+     * A new AI like AI(MYCOLOR) that evaluates positions with EVAL.
+     */
+    AI(PieceColor myColor, Evaluator eval) {
+        this(null, myColor, eval, SearchParams.STANDARD);
+    }
+
+    /**
+     * A new AI like AI(MYCOLOR) that evaluates positions with EVAL and
+     * searches according to PARAMS.
+     */
+    AI(PieceColor myColor, Evaluator eval, SearchParams params) {
+        this(null, myColor, eval, params);
     }
 
     /**
@@ -42,125 +101,845 @@ class AI extends Player {
      */
     @Override
     Move myMove() {
-        Move move = findMove(myColor(), game().board(), MAX_DEPTH);
+        Move move = ponderResult();
+        if (move == null) {
+            SearchPool pool = game().searchPool();
+            move = pool == null ? chooseMove() : pool.call(this::chooseMove,
+                                                       this::stop);
+        }
+        if (game().pondering()) {
+            ponder(move);
+        }
         return move;
     }
 
+    @Override
+    SearchStats lastSearch() {
+        return _lastSearch;
+    }
+
+    /**
+     * Return a move for me as for searchMove, recording the cost of
+     * finding it in _lastSearch and reporting its progress to the game's
+     * search listener, if any.  If the game is interrupted (see
+     * Game.control), the search stops with the best move found so far.
+     */
+    private Move chooseMove() {
+        long start = System.nanoTime(), cpu = SearchStats.cpuTime(),
+            nodes = _nodes, probes = _tableProbes, hits = _tableHits,
+            cutoffs = _cutoffs, firstCutoffs = _firstCutoffs;
+        Board board = new Board(board());
+        _depthReached = 0;
+        _stopped = false;
+        _listener = game().searchListener();
+        if (_listener != null) {
+            _listener.searchStarted();
+        }
+        Move move = searchMove(board);
+        if (_listener != null) {
+            _listener.searchEnded(move);
+            _listener = null;
+        }
+        _lastSearch = new SearchStats(_nodes - nodes, _depthReached,
+                                      SearchStats.cpuTime() - cpu,
+                                      board.makeMoveCalls(),
+                                      board.legalMovesCalls(),
+                                      board.samePiecesCalls());
+        if (Metrics.enabled()) {
+            Metrics.searched(_nodes - nodes, System.nanoTime() - start,
+                             _depthReached, _tableProbes - probes,
+                             _tableHits - hits, _cutoffs - cutoffs,
+                             _firstCutoffs - firstCutoffs);
+        }
+        return move;
+    }
+
+    /**
+     * Return a move for me from the position on BOARD, a copy of the
+     * current position, taken from the opening book or the search cache
+     * if possible, and otherwise searched for.
+     */
+    private Move searchMove(Board board) {
+        OpeningBookProber book = game().book();
+        if (book != null) {
+            FlightEvents.TableLookup event = new FlightEvents.TableLookup();
+            event.begin();
+            Move move = book.probe(board, game()::nextRandom);
+            lookedUp(event, "book", move);
+            if (move != null) {
+                return move;
+            }
+        }
+        SearchCache cache = game().cache();
+        if (cache != null) {
+            FlightEvents.TableLookup event = new FlightEvents.TableLookup();
+            event.begin();
+            Move move = cache.probe(board, _depth, null);
+            lookedUp(event, "cache", move);
+            _tableProbes += 1;
+            if (move != null) {
+                _tableHits += 1;
+                return move;
+            }
+        }
+        Move move = findMove(board, _depth);
+        if (cache != null && _depth >= SearchCache.MIN_DEPTH && !_stopped) {
+            try {
+                cache.store(board, _depth, _lastValue, move);
+            } catch (IOException excp) {
+                game().reportError("Cannot write search cache: %s",
+                                   excp.getMessage());
+            }
+        }
+        return move;
+    }
+
+    /**
+     * Commit EVENT, begun before a lookup in TABLE that found MOVE (null
+     * if none), if it is to be recorded.
+     */
+    private static void lookedUp(FlightEvents.TableLookup event,
+                                 String table, Move move) {
+        if (event.shouldCommit()) {
+            event.table = table;
+            event.hit = move != null;
+            event.commit();
+        }
+    }
+
+    /**
+     * Start pondering after my move MOVE: on a background thread,
+     * predict the opponent's reply with a shallow search and search the
+     * position after it, so that if the opponent does reply that way,
+     * my next move is ready (or nearly so) when it is wanted.
+     */
+    private void ponder(Move move) {
+        Board board = new Board(board());
+        board.makeMove(move);
+        if (board.gameOver()) {
+            return;
+        }
+        if (_ponderer == null) {
+            _ponderer = new AI(null, myColor(), _eval, _params);
+        }
+        _ponderPosition = null;
+        _ponderMove = null;
+        _ponderer.limit(0, 0);
+        _ponderThread = new Thread(() -> {
+            Move reply = _ponderer.findMove(board, PREDICT_DEPTH);
+            if (!board.legalMove(reply)) {
+                return;
+            }
+            board.makeMove(reply);
+            if (board.gameOver()) {
+                return;
+            }
+            _ponderPosition = board.position();
+            _ponderMove = _ponderer.findMove(board, _depth);
+        }, "ponder");
+        _ponderThread.setDaemon(true);
+        _ponderThread.start();
+    }
+
+    /**
+     * Return the move found by pondering if the opponent made the
+     * predicted reply (a ponder hit), waiting for the search to finish if
+     * need be, and otherwise stop the search and return null.  A reply
+     * made before the prediction is finished is a miss.  A request to
+     * the game (see Game.control) while waiting stops the search, whose
+     * best move so far is then used.
+     */
+    private Move ponderResult() {
+        if (_ponderThread == null) {
+            return null;
+        }
+        boolean hit = board().position().equals(_ponderPosition);
+        if (!hit) {
+            _ponderer.stop();
+        }
+        try {
+            while (_ponderThread.isAlive()) {
+                if (game().interrupted()) {
+                    _ponderer.stop();
+                }
+                _ponderThread.join(PONDER_POLL_MILLIS);
+            }
+        } catch (InterruptedException excp) {
+            _ponderer.stop();
+            Thread.currentThread().interrupt();
+            hit = false;
+        }
+        _ponderThread = null;
+        if (!hit || _ponderMove == null
+            || !board().legalMove(_ponderMove)) {
+            return null;
+        }
+        _lastSearch = new SearchStats(0, 0, 0, 0, 0, 0);
+        _lastValue = _ponderer.lastValue();
+        return _ponderMove;
+    }
+
     /**
      * Used to communicate best moves found by findMove, when asked for.
      */
     private Move _lastFoundMove;
 
+    /**
+     * Value of the last position searched by findMove.
+     */
+    private int _lastValue;
+
+    /**
+     * Number of positions visited by searches since my creation.
+     */
+    private long _nodes;
+
+    /**
+     * Number of beta cutoffs made by my searches, and the number of
+     * those made by the first move tried.
+     */
+    private long _cutoffs, _firstCutoffs;
+
+    /**
+     * Number of transposition-table lookups made by my searches (in the
+     * search cache and the endgame solver's table), and the number that
+     * succeeded.
+     */
+    private long _tableProbes, _tableHits;
+
+    /**
+     * The static evaluation.
+     */
+    private final Evaluator _eval;
+
+    /**
+     * Search depth used by myMove.
+     */
+    private final int _depth;
+
+    /**
+     * Number of moves at each node searched to full depth before the
+     * remainder are searched to reduced depth (see SearchParams).
+     */
+    private final int _lmrMoves;
+
+    /**
+     * Depth reduction of late moves, which are still searched at least
+     * one ply.
+     */
+    private final int _lmrReduction;
+
+    /**
+     * Move-ordering weight of each piece captured by a move.
+     */
+    private final int _captureWeight;
+
+    /**
+     * Move-ordering penalty of a jump.
+     */
+    private final int _jumpPenalty;
+
+    /**
+     * Number of empty squares at or below which positions are solved
+     * exactly.
+     */
+    private final int _endgameEmpties;
+
+    /**
+     * The endgame solver, created when first needed.
+     */
+    private volatile EndgameSolver _solver;
+
+    /**
+     * The search parameters.
+     */
+    private final SearchParams _params;
+
+    /**
+     * The AI that searches while I ponder, created when first needed.
+     */
+    private AI _ponderer;
+
+    /**
+     * The thread on which my ponderer searches, or null if I am not
+     * pondering.
+     */
+    private Thread _ponderThread;
+
+    /**
+     * The position (see Board.position) my ponderer is searching, or
+     * null if it is still predicting the opponent's reply.
+     */
+    private volatile String _ponderPosition;
+
+    /**
+     * The move found by my ponderer, once it has finished.
+     */
+    private volatile Move _ponderMove;
+
+    /**
+     * True iff my current search is to be abandoned, in which case it
+     * returns at once with a meaningless result.
+     */
+    private volatile boolean _stopped;
+
+    /**
+     * The listener to the progress of my current search for a move in
+     * a game, or null if none.
+     */
+    private SearchListener _listener;
+
+    /**
+     * Value of _nodes at which my searches stop.
+     */
+    private long _nodeLimit = Long.MAX_VALUE;
+
+    /**
+     * Time (as given by System.nanoTime) at which my searches stop.
+     */
+    private long _deadline = Long.MAX_VALUE;
+
+    /**
+     * Greatest distance from the root reached by my current search.
+     */
+    private int _depthReached;
 
     /**
-     * Return a heuristic value for BOARD.
+     * Statistics of the search for my last move.
+     */
+    private SearchStats _lastSearch;
+
+    /**
+     * When tracing, the index of the move that caused a cutoff at each
+     * ply of the current search path, or -1 if none.
+     */
+    private final int[] _cutoffAt =
+        SearchTrace.TRACE == null ? null : new int[MAX_PLY + 1];
+
+    /**
+     * When tracing, the number of my current search.
+     */
+    private int _traceSearch;
+
+    /**
+     * When tracing, the records of my current search not yet queued for
+     * writing, or null if none.
+     */
+    private ByteBuffer _traceBuffer;
+
+    /**
+     * Scratch position for deciding whether to use the endgame solver.
+     */
+    private final Bitboard _position = new Bitboard(0);
+
+    /**
+     * Move lists for each ply of the search, allocated as needed, so
+     * that an AI that has not searched deeply is small.
+     */
+    private final Move[][] _moves = new Move[MAX_PLY][];
+
+    /**
+     * Principal variations: _pv[P][P .. _pvLength[P] - 1] is the best line
+     * found from the current position P plies from the root.  Rows are
+     * allocated as needed.
+     */
+    private final Move[][] _pv = new Move[MAX_PLY + 1][];
+
+    /**
+     * Ends of the principal variations in _pv.
+     */
+    private final int[] _pvLength = new int[MAX_PLY + 1];
+
+    /**
+     * Move-ordering keys for each ply of the search, allocated as
+     * needed.
+     */
+    private final int[][] _keys = new int[MAX_PLY][];
+
+    /**
+     * Return the value, from the point of view of the side to move, of
+     * the last position searched by findMove.
+     */
+    int lastValue() {
+        return _lastValue;
+    }
+
+    /**
+     * Return the number of positions visited by my searches so far.
+     */
+    long nodes() {
+        return _nodes;
+    }
+
+    /**
+     * Return a heuristic value for BOARD, from the point of view of the
+     * side to move.
      */
     private int staticScore(Board board) {
-        if (board.samepieces(board.whoseMove())) {
-            return Integer.MAX_VALUE;
-        } else if (board.samepieces(board.whoseMove().opposite())) {
-            return Integer.MIN_VALUE;
+        return _eval.evaluate(board);
+    }
+
+    /**
+     * Return the value, from the point of view of the side to move, of
+     * the finished game on BOARD, reached PLY plies from the root of the
+     * search.  Quicker wins are worth more.
+     */
+    private int finalScore(Board board, int ply) {
+        PieceColor side = board.whoseMove();
+        int diff = board.numPieces(side) - board.numPieces(side.opposite());
+        if (diff > 0) {
+            return WINNING_VALUE - ply;
+        } else if (diff < 0) {
+            return -WINNING_VALUE + ply;
         } else {
-            Random r = new Random();
-            return r.nextInt();
+            return 0;
         }
     }
 
     /**
-     * Find a move from position BOARD and return its value, recording
-     * the move found in _lastFoundMove. Searches up to depth
-     * levels before using a static estimate.
-     * @param side **represents piececolor**
+     * Find a move for the side to move from position BOARD and return it,
+     * recording it in _lastFoundMove and its value in _lastValue.
+     * Searches up to DEPTH levels before using a static estimate, unless
+     * BOARD has few enough empty squares to be solved exactly and the
+     * solver succeeds within SOLVE_NODES positions.
+     * BOARD is left as it was found.  Returns a pass if the side to move
+     * has no other move.
      * @param board **the board to make move on**
      * @param depth **the depth of search**
      */
-    private Move findMove(PieceColor side, Board board, int depth) {
-        guessMove(side, board, depth, Double.POSITIVE_INFINITY);
+    Move findMove(Board board, int depth) {
+        if (_endgameEmpties > 0) {
+            _position.copy(board);
+            if (Long.bitCount(_position.empty()) <= _endgameEmpties
+                && !_position.gameOver() && !_stopped && solve()) {
+                return _lastFoundMove;
+            }
+        }
+        _lastFoundMove = Move.pass();
+        FlightEvents.SearchIteration event =
+            new FlightEvents.SearchIteration();
+        event.begin();
+        long nodes = _nodes;
+        depth = Math.min(depth, MAX_PLY - 1);
+        traceSearch();
+        _lastValue = guessMove(board, depth, 0, -INFTY, INFTY);
+        endTrace();
+        iterated(event, depth, _lastValue, _nodes - nodes);
         return _lastFoundMove;
     }
 
     /**
-     * Helper Function. Find a move from position BOARD
-     * and return its value, recording
-     * the move found in _lastFoundMove. Searches up to
-     * DEPTH levels before using a static estimate.
-     * @param side **represents piececolor**
-     * @param cutoff **the cutoff value to stop the tree search**
+     * Solve _position exactly, recording the best move in _lastFoundMove
+     * and its value in _lastValue, and return true, unless the solver
+     * gives up, in which case return false.  Won positions are valued
+     * below the wins found by guessMove, by less for larger margins.
+     */
+    private boolean solve() {
+        if (_solver == null) {
+            _solver = new EndgameSolver();
+        }
+        Game game = game();
+        _solver.limit(SOLVE_NODES, game == null ? null : game::interrupted);
+        if (_stopped) {
+            _solver.stop();
+        }
+        long nodes = _solver.nodes(), probes = _solver.probes(),
+            hits = _solver.hits();
+        _depthReached = Long.bitCount(_position.empty());
+        FlightEvents.EndgameSolve event = new FlightEvents.EndgameSolve();
+        event.begin();
+        int diff = _solver.solve(_position);
+        if (event.shouldCommit()) {
+            event.empties = _depthReached;
+            event.score = diff;
+            event.nodes = _solver.nodes() - nodes;
+            event.commit();
+        }
+        _nodes += _solver.nodes() - nodes;
+        _tableProbes += _solver.probes() - probes;
+        _tableHits += _solver.hits() - hits;
+        if (_solver.stopped()) {
+            return false;
+        }
+        _lastFoundMove = _solver.bestMove();
+        int margin = MAX_PLY + GameArchive.SQUARES - Math.abs(diff);
+        _lastValue = diff > 0 ? WINNING_VALUE - margin
+            : diff < 0 ? -WINNING_VALUE + margin : 0;
+        return true;
+    }
+
+    /**
+     * Helper Function. Return the value of BOARD for the side to move,
+     * searching DEPTH levels before using a static estimate, and
+     * recording the best move found in _lastFoundMove if PLY (the
+     * distance from the root of the search) is 0.  Values at or below
+     * ALPHA or at or above BETA are only bounds on the true value.
      * @param board **the board to make move on**
      * @param depth **the depth of search**
+     * @param ply **the distance from the root**
+     * @param alpha **the value already guaranteed to the side to move**
+     * @param beta **the value already guaranteed to the opponent**
+     */
+    private int guessMove(Board board, int depth, int ply,
+                          int alpha, int beta) {
+        if (SearchTrace.TRACE == null) {
+            return searchNode(board, depth, ply, alpha, beta);
+        }
+        long start = _nodes + 1;
+        _cutoffAt[ply] = -1;
+        int value = searchNode(board, depth, ply, alpha, beta);
+        if (ply < SearchTrace.PLIES
+            || SearchTrace.SAMPLE > 0 && start % SearchTrace.SAMPLE == 0) {
+            if (_traceBuffer == null
+                || _traceBuffer.remaining() < SearchTrace.RECORD_SIZE) {
+                if (_traceBuffer != null) {
+                    SearchTrace.TRACE.write(_traceBuffer);
+                }
+                _traceBuffer = SearchTrace.TRACE.buffer();
+            }
+            SearchTrace.record(_traceBuffer, _traceSearch, start,
+                               _nodes - start + 1, alpha, beta, value,
+                               board.allMoves(), _cutoffAt[ply], ply, depth);
+        }
+        return value;
+    }
+
+    /**
+     * Return the value of BOARD as for guessMove(BOARD, DEPTH, PLY,
+     * ALPHA, BETA), which adds tracing (see SearchTrace) to this.
      */
-    private double guessMove(PieceColor side, Board board, int depth,
-                             double cutoff) {
-        double bestValue = Double.NEGATIVE_INFINITY;
-        Move bestSoFar = null;
-        if (board.samepieces(side)) {
-            return Double.POSITIVE_INFINITY;
-        } else if (board.samepieces(side.opposite())) {
-            return Double.NEGATIVE_INFINITY;
+    private int searchNode(Board board, int depth, int ply,
+                           int alpha, int beta) {
+        _nodes += 1;
+        _pvLength[ply] = ply;
+        if (ply > _depthReached) {
+            _depthReached = ply;
+        }
+        if (_nodes >= _nodeLimit
+            || (_nodes & CLOCK_MASK) == 0
+               && (System.nanoTime() > _deadline
+                   || game() != null && game().interrupted())) {
+            _stopped = true;
+        }
+        if (_stopped) {
+            return 0;
+        }
+        if (board.gameOver()) {
+            return finalScore(board, ply);
         }
         if (depth == 0) {
-            return movevalue(side, board);
-        }
-        for (Move move : board.legalmoves(side)) {
-            Board newboard = new Board(board);
-            newboard.makeMove(move);
-            double value = -guessMove(side.opposite(), newboard,
-                    depth - 1, -bestValue);
-            if (bestSoFar == null || value > bestValue) {
-                bestSoFar = move;
+            return staticScore(board);
+        }
+        if (_moves[ply] == null) {
+            _moves[ply] = new Move[Board.MAX_MOVES];
+            _keys[ply] = new int[Board.MAX_MOVES];
+        }
+        Move[] moves = _moves[ply];
+        int n = board.legalMoves(moves);
+        if (n == 0) {
+            board.makeMove(Move.pass());
+            int value = -guessMove(board, depth - 1, ply + 1, -beta, -alpha);
+            board.undo();
+            updatePV(ply, Move.pass());
+            return value;
+        }
+        orderMoves(board, moves, _keys[ply], n);
+        if (ply == 0) {
+            _lastFoundMove = moves[0];
+        }
+        int bestValue = -INFTY;
+        for (int i = 0; i < n; i += 1) {
+            board.makeMove(moves[i]);
+            int value;
+            if (i >= _lmrMoves && depth > 2 && _lmrReduction > 0) {
+                value = -guessMove(board,
+                                   Math.max(1, depth - 1 - _lmrReduction),
+                                   ply + 1, -alpha - 1, -alpha);
+                if (value > alpha) {
+                    value = -guessMove(board, depth - 1, ply + 1,
+                                       -beta, -alpha);
+                }
+            } else {
+                value = -guessMove(board, depth - 1, ply + 1, -beta, -alpha);
+            }
+            board.undo();
+            if (_stopped) {
+                break;
+            }
+            if (value > bestValue) {
                 bestValue = value;
-                if (value > cutoff) {
-                    break;
+                if (ply == 0) {
+                    _lastFoundMove = moves[i];
+                }
+                if (value > alpha) {
+                    alpha = value;
+                    updatePV(ply, moves[i]);
+                    if (alpha >= beta) {
+                        _cutoffs += 1;
+                        if (i == 0) {
+                            _firstCutoffs += 1;
+                        }
+                        if (SearchTrace.TRACE != null) {
+                            _cutoffAt[ply] = i;
+                        }
+                        break;
+                    }
                 }
             }
+            if (ply == 0 && _listener != null) {
+                _listener.candidate(moves[i], value, _lastFoundMove, _nodes);
+            }
         }
-        _lastFoundMove = bestSoFar;
         return bestValue;
     }
 
     /**
-     * Returns a heuristic value of the Board.
-     * @param side **represents piececolor**
-     * @param board **the board to make move on**
+     * Record MOVE, followed by the principal variation just found PLY + 1
+     * plies from the root, as the principal variation PLY plies from the
+     * root.
      */
-    private static double movevalue(PieceColor side, Board board) {
-        if (board.samepieces(side)) {
-            return Double.POSITIVE_INFINITY;
-        } else if (board.samepieces(side.opposite())) {
-            return Double.NEGATIVE_INFINITY;
+    private void updatePV(int ply, Move move) {
+        if (_pv[ply] == null) {
+            _pv[ply] = new Move[MAX_PLY + 1];
+        }
+        Move[] pv = _pv[ply];
+        pv[ply] = move;
+        int len = _pvLength[ply + 1];
+        if (len > ply + 1) {
+            System.arraycopy(_pv[ply + 1], ply + 1, pv, ply + 1,
+                             len - ply - 1);
         }
-        return treemideval(side, board);
+        _pvLength[ply] = len;
     }
 
     /**
-     * Helper Function to Function that returns Heuristic
-     * Value, Divides Game Tree.
-     * @param side **represents piececolor**
-     * @param board **the board to make move on**
+     * Analyze BOARD (which is left as it was found) by iterative
+     * deepening to MAXDEPTH plies, reporting on REPORTER after each depth
+     * the best LINES moves, each with its value, the nodes searched so
+     * far, the search speed, and its principal variation.  Each move is
+     * searched with a window whose lower edge is the LINESth best value
+     * so far, so only the values of the reported moves are exact; the
+     * others are upper bounds, used to order the next iteration.
      */
-    private static Double treemideval(PieceColor side, Board board) {
-        double value = 0;
-        for (char c = 'a'; c <= 'g'; c++) {
-            for (char r = '1'; r <= '7'; r++) {
-                if (board.get(c, r) == side) {
-                    value -= nodevalue(c, r);
-                } else if (board.get(c, r) == side.opposite()) {
-                    value += nodevalue(c, r);
+    void analyze(Board board, int lines, int maxDepth, Reporter reporter) {
+        analyze(board, lines, maxDepth, reporter, AI::moveString);
+    }
+
+    /**
+     * Analyze BOARD as for analyze(BOARD, LINES, MAXDEPTH, REPORTER),
+     * writing moves in the NOTATION given, and return the best move found
+     * by the last iteration completed.  If the search is stopped (see
+     * stop and limit), the iteration in progress is abandoned.  Returns
+     * null if the game on BOARD is over.
+     */
+    Move analyze(Board board, int lines, int maxDepth, Reporter reporter,
+                 Function<Move, String> notation) {
+        if (board.gameOver()) {
+            return null;
+        }
+        Move[] moves = new Move[Board.MAX_MOVES];
+        int n = board.legalMoves(moves);
+        if (n == 0) {
+            moves[0] = Move.pass();
+            n = 1;
+        }
+        lines = Math.min(lines, n);
+        maxDepth = Math.min(maxDepth, MAX_PLY - 1);
+        int[] values = new int[n];
+        Move[][] pvs = new Move[n][];
+        long start = System.nanoTime(), nodes0 = _nodes;
+        traceSearch();
+        for (int depth = 1; depth <= maxDepth && !_stopped; depth += 1) {
+            FlightEvents.SearchIteration event =
+                new FlightEvents.SearchIteration();
+            event.begin();
+            long iterationNodes = _nodes;
+            for (int i = 0; i < n && !_stopped; i += 1) {
+                int floor = i < lines ? -INFTY : kthLargest(values, i, lines);
+                board.makeMove(moves[i]);
+                values[i] = -guessMove(board, depth - 1, 1, -INFTY,
+                                       floor == -INFTY ? INFTY : -floor);
+                board.undo();
+                pvs[i] = new Move[_pvLength[1]];
+                pvs[i][0] = moves[i];
+                if (pvs[i].length > 1) {
+                    System.arraycopy(_pv[1], 1, pvs[i], 1,
+                                     pvs[i].length - 1);
                 }
             }
+            if (_stopped) {
+                break;
+            }
+            sortMoves(moves, values, pvs, n);
+            _lastFoundMove = moves[0];
+            _lastValue = values[0];
+            iterated(event, depth, _lastValue, _nodes - iterationNodes);
+            long nodes = _nodes - nodes0, nanos = System.nanoTime() - start;
+            for (int i = 0; i < lines; i += 1) {
+                reporter.infoMsg("info depth %d multipv %d score %s nodes %d"
+                                 + " nps %d time %d pv %s", depth, i + 1,
+                                 scoreString(values[i]), nodes,
+                                 nodes * 1_000_000_000L / Math.max(1, nanos),
+                                 nanos / 1_000_000,
+                                 pvString(pvs[i], notation));
+            }
         }
-        return value;
+        endTrace();
+        return moves[0];
     }
 
     /**
-     * Helper Function to Function that returns Heuristic Value.
-     * Finds value of node on Game Tree.
-     * @param c **the column character**
-     * @param r **the row character**
+     * If tracing (see SearchTrace), give the search about to start a
+     * new number.
      */
-    static Double nodevalue(char c, char r) {
-        return Math.abs(c - (double) (Board.SIDE / 2))
-                + Math.abs(r - (double) (Board.SIDE / 2));
+    private void traceSearch() {
+        if (SearchTrace.TRACE != null) {
+            _traceSearch = SearchTrace.TRACE.nextSearch();
+        }
+    }
+
+    /**
+     * If tracing, queue the records of the search just ended for
+     * writing.
+     */
+    private void endTrace() {
+        if (SearchTrace.TRACE != null && _traceBuffer != null) {
+            SearchTrace.TRACE.write(_traceBuffer);
+            _traceBuffer = null;
+        }
+    }
+
+    /**
+     * Commit EVENT, begun before a search to DEPTH that found the value
+     * SCORE, visiting NODES positions, if it is to be recorded.
+     */
+    private static void iterated(FlightEvents.SearchIteration event,
+                                 int depth, int score, long nodes) {
+        if (event.shouldCommit()) {
+            event.depth = depth;
+            event.score = score;
+            event.nodes = nodes;
+            event.commit();
+        }
+    }
+
+    /**
+     * Make my searches stop after visiting NODES more positions or after
+     * MILLIS milliseconds, whichever comes first (0 meaning no limit),
+     * and cancel any earlier stop.
+     */
+    void limit(long nodes, long millis) {
+        _nodeLimit = nodes > 0 ? _nodes + nodes : Long.MAX_VALUE;
+        _deadline = millis > 0 ? System.nanoTime() + millis * 1_000_000
+            : Long.MAX_VALUE;
+        _stopped = false;
+    }
+
+    /**
+     * Stop my current search as soon as possible.  It may be called from
+     * any thread.
+     */
+    void stop() {
+        _stopped = true;
+        EndgameSolver solver = _solver;
+        if (solver != null) {
+            solver.stop();
+        }
     }
-}
 
+    /**
+     * Return the Kth largest of the first N entries of VALUES.
+     */
+    private static int kthLargest(int[] values, int n, int k) {
+        int[] sorted = Arrays.copyOf(values, n);
+        Arrays.sort(sorted);
+        return sorted[n - k];
+    }
+
+    /**
+     * Sort the first N entries of MOVES into decreasing order of VALUES,
+     * keeping VALUES and PVS in step and equal values in their current
+     * order.
+     */
+    private static void sortMoves(Move[] moves, int[] values, Move[][] pvs,
+                                  int n) {
+        for (int i = 1; i < n; i += 1) {
+            Move move = moves[i];
+            int value = values[i];
+            Move[] pv = pvs[i];
+            int j;
+            for (j = i; j > 0 && values[j - 1] < value; j -= 1) {
+                moves[j] = moves[j - 1];
+                values[j] = values[j - 1];
+                pvs[j] = pvs[j - 1];
+            }
+            moves[j] = move;
+            values[j] = value;
+            pvs[j] = pv;
+        }
+    }
+
+    /**
+     * Return VALUE as it appears in analysis output: "mate N" or "mate
+     * -N" for a forced win or loss in N of the winner's moves, and
+     * otherwise "cp" and the number.
+     */
+    private static String scoreString(int value) {
+        if (value > WINNING_VALUE - MAX_PLY) {
+            return "mate " + (WINNING_VALUE - value + 1) / 2;
+        } else if (value < -WINNING_VALUE + MAX_PLY) {
+            return "mate -" + (WINNING_VALUE + value) / 2;
+        } else {
+            return "cp " + value;
+        }
+    }
+
+    /**
+     * Return MOVE in the notation of move commands.
+     */
+    private static String moveString(Move move) {
+        return move.isPass() ? "-" : move.toString();
+    }
+
+    /**
+     * Return the moves of PV in NOTATION, separated by blanks.
+     */
+    private static String pvString(Move[] pv,
+                                   Function<Move, String> notation) {
+        StringBuilder result = new StringBuilder();
+        for (Move move : pv) {
+            if (result.length() > 0) {
+                result.append(' ');
+            }
+            result.append(notation.apply(move));
+        }
+        return result.toString();
+    }
+
+    /**
+     * Sort the first N entries of MOVES, which are legal on BOARD, into
+     * decreasing order of their ordering keys (captures less the jump
+     * penalty), using KEYS as scratch space.
+     */
+    void orderMoves(Board board, Move[] moves, int[] keys, int n) {
+        PieceColor opp = board.whoseMove().opposite();
+        for (int i = 0; i < n; i += 1) {
+            Move move = moves[i];
+            int to = move.toIndex(), captures = 0;
+            for (int d : Board.EXTEND_OFFSETS) {
+                if (board.get(to + d) == opp) {
+                    captures += 1;
+                }
+            }
+            int key = _captureWeight * captures
+                - (move.isJump() ? _jumpPenalty : 0);
+            int j;
+            for (j = i; j > 0 && keys[j - 1] < key; j -= 1) {
+                keys[j] = keys[j - 1];
+                moves[j] = moves[j - 1];
+            }
+            keys[j] = key;
+            moves[j] = move;
+        }
+    }
+}
@@ -5,10 +5,14 @@ import ucb.gui2.Pad;
 import java.awt.Color;
 import java.awt.BasicStroke;
 import java.awt.Graphics2D;
-import java.awt.Rectangle;
 import java.awt.Image;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.Observer;
 import java.util.Observable;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 import javax.imageio.ImageIO;
 import java.io.InputStream;
 import java.io.IOException;
@@ -16,10 +20,22 @@ import java.awt.event.MouseEvent;
 
 /**
  * Widget for displaying an Ataxx board.
+ * <p>
+ * Images are decoded once and kept scaled to the sizes drawn, and the
+ * pieces are drawn once as sprites.  The display is composed in a frame
+ * image: when the board changes, only the squares whose contents differ
+ * from those in the frame are redrawn into it, and painting copies the
+ * frame to the screen.  So a fast game costs a few squares per move
+ * however often the widget is repainted.
+ * <p>
+ * While an AI searches, the widget is its SearchListener: it shows over
+ * the frame the best value found so far for a move to each square, and
+ * an arrow for the best move, repainting at most once per REFRESH_NANOS
+ * however fast the search reports.
  *
  * @author Shrey Malhotra
  */
-class AtaxxBoardWidget extends Pad implements Observer {
+class AtaxxBoardWidget extends Pad implements Observer, SearchListener {
 
     /**
      * Length of side of one square, in pixels.
@@ -69,10 +85,31 @@ class AtaxxBoardWidget extends Pad implements Observer {
      * Displayed dimensions of a piece image.
      */
     static final int PIECE_SIZE = 80;
+    /**
+     * Dimensions of the frame in which the display is composed.
+     */
+    static final int FRAME_WIDTH = FFLOC1 + FF_W, FRAME_HEIGHT = BOARD_SIZE;
+    /**
+     * Shortest interval between repaints of the analysis overlay, in
+     * nanoseconds (about one display refresh).
+     */
+    static final long REFRESH_NANOS = 1_000_000_000L / 60;
+    /**
+     * Color of the analysis overlay.
+     */
+    private static final Color OVERLAY_COLOR = Color.BLACK;
+    /**
+     * Value of a square in the overlay with no candidate move.
+     */
+    private static final int NO_SCORE = Integer.MIN_VALUE;
     /**
      * Stroke for lines.
      */
     private static final BasicStroke LINE_STROKE = new BasicStroke(1.0f);
+    /**
+     * Stroke for the arrow of the best move in the analysis overlay.
+     */
+    private static final BasicStroke ARROW_STROKE = new BasicStroke(3.0f);
     /**
      * Dimension of current drawing surface in pixels.
      */
@@ -81,7 +118,7 @@ class AtaxxBoardWidget extends Pad implements Observer {
     /**
      * Model being displayed.
      */
-    private static Board _model;
+    private final Board _model;
 
     /**
      * A new widget displaying MODEL.
@@ -92,18 +129,59 @@ class AtaxxBoardWidget extends Pad implements Observer {
         _model.addObserver(this);
         dsd = SQDIM * SIDE;
         setPreferredSize(dsd, dsd);
+        readModel();
+        clearOverlay();
     }
 
     @Override
     public synchronized void paintComponent(Graphics2D g) {
-        g.setColor(BLANK_COLOR);
-        Rectangle b = g.getClipBounds();
-        g.fillRect(0, 0, dsd, dsd);
-        g.drawImage(extractimage("board.png"), 0, 0,
-                BOARD_SIZE, BOARD_SIZE, null);
-        g.drawImage(extractimage(dirface), FFLOC1, FFLOC2,
-                FF_H, FF_W, null);
-        putpieceonpoint(g, _model);
+        if (_frame == null) {
+            _frame = new BufferedImage(FRAME_WIDTH, FRAME_HEIGHT,
+                                       BufferedImage.TYPE_INT_RGB);
+            Graphics2D f = _frame.createGraphics();
+            f.drawImage(background(), 0, 0, null);
+            f.dispose();
+        }
+        Graphics2D f = null;
+        for (int k = 0; k < _shown.length; k += 1) {
+            if (_pending[k] != _shown[k]) {
+                if (f == null) {
+                    f = _frame.createGraphics();
+                }
+                paintSquare(f, k, _pending[k]);
+                _shown[k] = _pending[k];
+            }
+        }
+        if (f != null) {
+            f.dispose();
+        }
+        g.drawImage(_frame, 0, 0, null);
+        paintOverlay(g);
+    }
+
+    @Override
+    public void searchStarted() {
+        clearOverlay();
+    }
+
+    @Override
+    public void candidate(Move move, int value, Move best, long nodes) {
+        if (!move.isPass()) {
+            _scores.accumulateAndGet(square(move.col1(), move.row1()),
+                                     value, Math::max);
+        }
+        _best = best;
+        long now = System.nanoTime();
+        if (now - _overlayTime >= REFRESH_NANOS) {
+            _overlayTime = now;
+            repaint();
+        }
+    }
+
+    @Override
+    public void searchEnded(Move move) {
+        clearOverlay();
+        repaint();
     }
 
     /**
@@ -120,8 +198,8 @@ class AtaxxBoardWidget extends Pad implements Observer {
         int x = where.getX(), y = where.getY();
         char mouseCol, mouseRow;
         if (where.getButton() == MouseEvent.BUTTON1) {
-            mouseCol = (char) (x / SQDIM + 'a');
-            mouseRow = (char) ((SQDIM * SIDE - y) / SQDIM + '1');
+            mouseCol = (char) (x / PIECE_SIZE + 'a');
+            mouseRow = (char) (SIDE - 1 - y / PIECE_SIZE + '1');
             if (mouseCol >= 'a' && mouseCol <= 'g'
                     && mouseRow >= '1' && mouseRow <= '7') {
                 setChanged();
@@ -132,19 +210,173 @@ class AtaxxBoardWidget extends Pad implements Observer {
 
     @Override
     public synchronized void update(Observable model, Object arg) {
-        repaint();
+        if (readModel()) {
+            repaint();
+        }
+    }
+
+    /**
+     * Remove all candidates from the analysis overlay.
+     */
+    private void clearOverlay() {
+        for (int k = 0; k < _scores.length(); k += 1) {
+            _scores.set(k, NO_SCORE);
+        }
+        _best = null;
+    }
+
+    /**
+     * Draw the analysis overlay on G: the value of each square's best
+     * candidate move, and an arrow for the best move, if any.
+     */
+    private void paintOverlay(Graphics2D g) {
+        g.setColor(OVERLAY_COLOR);
+        for (int k = 0; k < _scores.length(); k += 1) {
+            int score = _scores.get(k);
+            if (score != NO_SCORE) {
+                g.drawString(Integer.toString(score),
+                             (k % SIDE) * PIECE_SIZE + PIECE_SIZE / 8,
+                             (SIDE - 1 - k / SIDE) * PIECE_SIZE
+                             + PIECE_SIZE / 4);
+            }
+        }
+        Move best = _best;
+        if (best != null && !best.isPass()) {
+            int from = square(best.col0(), best.row0()),
+                to = square(best.col1(), best.row1());
+            g.setStroke(ARROW_STROKE);
+            g.drawLine(centerX(from), centerY(from), centerX(to), centerY(to));
+            g.fillOval(centerX(to) - PIECE_SIZE / 10,
+                       centerY(to) - PIECE_SIZE / 10,
+                       PIECE_SIZE / 5, PIECE_SIZE / 5);
+        }
+    }
+
+    /**
+     * Return the index (see paintSquare) of the square at column C and
+     * row R.
+     */
+    private static int square(char c, char r) {
+        return (r - '1') * SIDE + c - 'a';
+    }
+
+    /**
+     * Return the x coordinate of the center of square K.
+     */
+    private static int centerX(int k) {
+        return (k % SIDE) * PIECE_SIZE + PIECE_SIZE / 2;
+    }
+
+    /**
+     * Return the y coordinate of the center of square K.
+     */
+    private static int centerY(int k) {
+        return (SIDE - 1 - k / SIDE) * PIECE_SIZE + PIECE_SIZE / 2;
+    }
+
+    /**
+     * Record the contents of the model's squares to be displayed, and
+     * return true iff any differ from those last recorded.
+     */
+    synchronized boolean readModel() {
+        boolean changed = false;
+        for (char c = 'a'; c <= 'g'; c++) {
+            for (char r = '1'; r <= '7'; r++) {
+                int k = square(c, r);
+                PieceColor p = _model.get(c, r);
+                if (p != _pending[k]) {
+                    _pending[k] = p;
+                    changed = true;
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Return the number of squares whose contents to be displayed differ
+     * from those in the frame, which the next paint redraws.
+     */
+    synchronized int dirtySquares() {
+        int n = 0;
+        for (int k = 0; k < _shown.length; k += 1) {
+            if (_pending[k] != _shown[k]) {
+                n += 1;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Draw square K (SIDE * row + column, from 0) of the board on G,
+     * holding P: the background, and the piece if any.
+     */
+    private void paintSquare(Graphics2D g, int k, PieceColor p) {
+        int x = (k % SIDE) * PIECE_SIZE,
+            y = (SIDE - 1 - k / SIDE) * PIECE_SIZE;
+        g.drawImage(background(), x, y, x + PIECE_SIZE, y + PIECE_SIZE,
+                    x, y, x + PIECE_SIZE, y + PIECE_SIZE, null);
+        paintPiece(g, p, x, y);
+    }
+
+    /**
+     * Return the display without pieces, drawing it if need be.
+     */
+    private BufferedImage background() {
+        if (_background == null) {
+            _background = new BufferedImage(FRAME_WIDTH, FRAME_HEIGHT,
+                                            BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = _background.createGraphics();
+            g.setColor(BLANK_COLOR);
+            g.fillRect(0, 0, FRAME_WIDTH, FRAME_HEIGHT);
+            g.drawImage(image("board.png", BOARD_SIZE, BOARD_SIZE), 0, 0,
+                        null);
+            g.drawImage(image(dirface, FF_W, FF_H), FFLOC1, FFLOC2, null);
+            g.dispose();
+        }
+        return _background;
+    }
+
+    /**
+     * Return the image named NAME scaled to WIDTH x HEIGHT, or null if
+     * there is none.  Images are decoded and scaled once for each size.
+     */
+    private Image image(String name, int width, int height) {
+        String key = name + "@" + width + "x" + height;
+        if (!SCALED.containsKey(key)) {
+            if (!DECODED.containsKey(name)) {
+                DECODED.put(name, extractimage(name));
+            }
+            Image image = DECODED.get(name);
+            BufferedImage scaled = null;
+            if (image != null) {
+                scaled = new BufferedImage(width, height,
+                                           BufferedImage.TYPE_INT_ARGB);
+                Graphics2D g = scaled.createGraphics();
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                                   RenderingHints
+                                   .VALUE_INTERPOLATION_BILINEAR);
+                g.drawImage(image, 0, 0, width, height, null);
+                g.dispose();
+            }
+            SCALED.put(key, scaled);
+        }
+        return SCALED.get(key);
     }
 
     /**
      * Method for Image Extraction.
      * @param name ** Represents Name Of string.**
-     * @return **Exxtracted Image**
+     * @return **Exxtracted Image, or null if there is none**
      */
     private Image extractimage(String name) {
         InputStream input =
                 getClass().getResourceAsStream("/ataxx/pictures" + name);
-        try {
-            return ImageIO.read(input);
+        if (input == null) {
+            return null;
+        }
+        try (InputStream in = input) {
+            return ImageIO.read(in);
         } catch (IOException exception) {
             return null;
         }
@@ -153,10 +385,31 @@ class AtaxxBoardWidget extends Pad implements Observer {
     /**
      * Method for PieceColor Extraction.
      * @param p **represents piececolor**
-     * @return **Exxtracted Image**
+     * @return **The sprite for P, drawn once: its image, or if there is
+     *           none, a disk of its color**
      */
     private Image getPieceColor(PieceColor p) {
-        return extractimage("piececolors/" + p + ".png");
+        if (!SPRITES.containsKey(p)) {
+            BufferedImage sprite =
+                new BufferedImage(PIECE_SIZE, PIECE_SIZE,
+                                  BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = sprite.createGraphics();
+            Image image = image("piececolors/" + p + ".png",
+                                PIECE_SIZE, PIECE_SIZE);
+            if (image != null) {
+                g.drawImage(image, 0, 0, null);
+            } else {
+                g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                                   RenderingHints.VALUE_ANTIALIAS_ON);
+                g.setColor(p == PieceColor.RED ? RED_COLOR : BLUE_COLOR);
+                g.fillOval(PIECE_SIZE / 2 - PIECE_RADIUS,
+                           PIECE_SIZE / 2 - PIECE_RADIUS,
+                           2 * PIECE_RADIUS, 2 * PIECE_RADIUS);
+            }
+            g.dispose();
+            SPRITES.put(p, sprite);
+        }
+        return SPRITES.get(p);
     }
 
     /**
@@ -168,25 +421,54 @@ class AtaxxBoardWidget extends Pad implements Observer {
      */
     private void paintPiece(Graphics2D g, PieceColor p, int x, int y) {
         if (p == PieceColor.RED || p == PieceColor.BLUE) {
-            g.drawImage(getPieceColor(p), x, y,
-                    PIECE_SIZE, PIECE_SIZE, null);
+            g.drawImage(getPieceColor(p), x, y, null);
         }
     }
 
     /**
-     * Method to draw the PieceColor .
-     * @param b **the board to make move on**
-     * @param g **Represents 2D Graphics Package.**
+     * Decoded images by name (null for those missing).
      */
-    void putpieceonpoint(Graphics2D g, Board b) {
-        for (char c = 'a'; c <= 'g'; c++) {
-            for (char r = '1'; r <= '7'; r++) {
-                PieceColor p = b.get(c, r);
-                if (p != PieceColor.EMPTY) {
-                    paintPiece(g, p, (c - 1) * PIECE_SIZE,
-                            (7 - r) * PIECE_SIZE);
-                }
-            }
-        }
-    }
+    private static final HashMap<String, Image> DECODED = new HashMap<>();
+    /**
+     * Scaled images by name and size (null for those missing).
+     */
+    private static final HashMap<String, BufferedImage> SCALED =
+        new HashMap<>();
+    /**
+     * Piece sprites by color.
+     */
+    private static final EnumMap<PieceColor, BufferedImage> SPRITES =
+        new EnumMap<>(PieceColor.class);
+
+    /**
+     * The display without pieces, or null if not yet drawn.
+     */
+    private BufferedImage _background;
+    /**
+     * The display as last composed, or null if not yet drawn.
+     */
+    private BufferedImage _frame;
+    /**
+     * Contents of each square (see paintSquare) in _frame.
+     */
+    private final PieceColor[] _shown = new PieceColor[SIDE * SIDE];
+    /**
+     * Contents of each square to be displayed.
+     */
+    private final PieceColor[] _pending = new PieceColor[SIDE * SIDE];
+    /**
+     * Best value of a candidate move to each square in the current
+     * search, or NO_SCORE.
+     */
+    private final AtomicIntegerArray _scores =
+        new AtomicIntegerArray(SIDE * SIDE);
+    /**
+     * The best move of the current search so far, or null.
+     */
+    private volatile Move _best;
+    /**
+     * Time (as given by System.nanoTime) of the last repaint requested
+     * by candidate.  Used only on the searching thread.
+     */
+    private long _overlayTime;
 }
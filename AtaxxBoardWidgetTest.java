@@ -0,0 +1,65 @@
+package ataxx;
+
+import org.junit.Test;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the board display's tracking of changed squares.
+ *
+ * @author Shrey Malhotra
+ */
+public class AtaxxBoardWidgetTest {
+
+    /** Paint WIDGET on an offscreen image. */
+    private static void paint(AtaxxBoardWidget widget) {
+        BufferedImage screen =
+            new BufferedImage(AtaxxBoardWidget.FRAME_WIDTH,
+                              AtaxxBoardWidget.FRAME_HEIGHT,
+                              BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = screen.createGraphics();
+        widget.paintComponent(g);
+        g.dispose();
+    }
+
+    @Test
+    public void testDirtySquares() {
+        Board board = new Board();
+        AtaxxBoardWidget widget = new AtaxxBoardWidget(board);
+        assertEquals("initial board not drawn", Board.SIDE * Board.SIDE,
+                     widget.dirtySquares());
+        paint(widget);
+        assertEquals("frame not up to date", 0, widget.dirtySquares());
+        assertFalse("unchanged model read as changed", widget.readModel());
+        board.makeMove(Move.move('a', '7', 'b', '6'));
+        assertEquals("extend not seen", 1, widget.dirtySquares());
+        board.makeMove(Move.move('a', '1', 'a', '3'));
+        assertEquals("jump not seen", 3, widget.dirtySquares());
+        paint(widget);
+        assertEquals("frame not up to date", 0, widget.dirtySquares());
+    }
+
+    @Test
+    public void testFollowsGame() {
+        Board board = new Board();
+        AtaxxBoardWidget widget = new AtaxxBoardWidget(board);
+        paint(widget);
+        StringWriter text = new StringWriter();
+        PrintWriter out = new PrintWriter(text);
+        Game game = new Game(board,
+                             new ReaderSource(new StringReader(
+                                 "manual blue\nstart\na7-b6\na1-a3\nquit\n"),
+                                              false),
+                             new TextReporter(out), out);
+        game.process(false);
+        assertSame("game plays on another board", board, game.board());
+        assertEquals("moves not shown", 3, widget.dirtySquares());
+    }
+
+}
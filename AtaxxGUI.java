@@ -49,7 +49,14 @@ class AtaxxGUI extends TopLevel implements Observer, Reporter {
      */
     AtaxxGUI(String title, Board model, Writer outCommands) {
         super(title, true);
+        addMenuButton("Game->New Game", this::newGame);
+        addMenuButton("Game->Pass", this::pass);
+        addMenuButton("Game->Move Now", this::moveNow);
         addMenuButton("Game->Quit", this::quit);
+        addMenuButton("Options->Red AI", s -> setPlayer("auto red"));
+        addMenuButton("Options->Red Manual", s -> setPlayer("manual red"));
+        addMenuButton("Options->Blue AI", s -> setPlayer("auto blue"));
+        addMenuButton("Options->Blue Manual", s -> setPlayer("manual blue"));
         addMenuButton("Options->Seed...", this::setSeed);
         _model = model;
         _widget = new AtaxxBoardWidget(model);
@@ -61,16 +68,63 @@ class AtaxxGUI extends TopLevel implements Observer, Reporter {
                         "ibottom", 5));
         setMinimumSize(MIN_SIZE, MIN_SIZE);
         _widget.addObserver(this);
-        _model.addObserver(this);
+    }
+
+    /**
+     * Display the progress of the AIs' searches in GAME, and send it
+     * requests that must not wait for its commands to be read (see
+     * Game.control).
+     */
+    void attach(Game game) {
+        _game = game;
+        game.setSearchListener(_widget);
+    }
+
+    /**
+     * Execute the "New Game" button function: abandon any game in
+     * progress and start a new one with the current players.
+     */
+    private synchronized void newGame(String unused) {
+        _selected = null;
+        _out.printf("clear%nstart%n");
+    }
+
+    /**
+     * Execute the "Pass" button function.
+     */
+    private synchronized void pass(String unused) {
+        _selected = null;
+        _out.printf("-%n");
+    }
+
+    /**
+     * Execute one of the player buttons by sending the game COMMAND,
+     * which makes a player an AI or manual.
+     */
+    private synchronized void setPlayer(String command) {
+        _out.printf("%s%n", command);
     }
 
     /**
      * Execute the "Quit" button function.
      */
     private synchronized void quit(String unused) {
+        if (_game != null) {
+            _game.control(Game.Control.QUIT);
+        }
         _out.printf("quit%n");
     }
 
+    /**
+     * Execute the "Move Now" button function: make an AI that is
+     * searching play the best move it has found.
+     */
+    private synchronized void moveNow(String unused) {
+        if (_game != null) {
+            _game.control(Game.Control.STOP);
+        }
+    }
+
     /**
      * Execute Seed... command.
      */
@@ -90,30 +144,48 @@ class AtaxxGUI extends TopLevel implements Observer, Reporter {
 
     @Override
     public void errMsg(String format, Object... args) {
+        showMessage(String.format(format, args), "Error", "error");
     }
 
     @Override
     public void outcomeMsg(String format, Object... args) {
+        showMessage(String.format(format, args), "Game Over",
+                    "information");
     }
 
     @Override
     public void moveMsg(String format, Object... args) {
     }
 
+    @Override
+    public void infoMsg(String format, Object... args) {
+    }
+
     @Override
     public void update(Observable obs, Object arg) {
-        if (obs == _model) {
-            return;
-        } else if (obs == _widget) {
-            return;
+        if (obs == _widget) {
+            movePiece((String) arg);
         }
     }
 
     /**
-     * Respond to a click on SQ while in "play" mode.
+     * Respond to a click on SQ: the first click selects a piece of the
+     * side to move, and the second sends the move from it to the square
+     * clicked (or, on the same square, cancels the selection).  Illegal
+     * moves are reported by the game.
      */
-    private void movePiece(String sq) {
-        return;
+    private synchronized void movePiece(String sq) {
+        if (_selected == null) {
+            if (_model.get(sq.charAt(0), sq.charAt(1))
+                == _model.whoseMove()) {
+                _selected = sq;
+            }
+        } else {
+            if (!sq.equals(_selected)) {
+                _out.printf("%s-%s%n", _selected, sq);
+            }
+            _selected = null;
+        }
     }
 
     /**
@@ -128,5 +200,13 @@ class AtaxxGUI extends TopLevel implements Observer, Reporter {
      * Output sink for sending commands to a game.
      */
     private PrintWriter _out;
+    /**
+     * The square of the piece selected to move, or null.
+     */
+    private String _selected;
+    /**
+     * The game displayed, once attached.
+     */
+    private volatile Game _game;
 
 }
@@ -0,0 +1,291 @@
+package ataxx;
+
+import static ataxx.PieceColor.*;
+import static ataxx.GameArchive.JUMP_CODE;
+import static ataxx.GameArchive.PASS_CODE;
+import static ataxx.GameArchive.SQUARES;
+
+/**
+ * A compact Ataxx position for the engines' inner loops.  The red, blue,
+ * and blocked squares are each held in a long, bit S denoting square S
+ * as numbered in GameArchive (row-major from a1), so that moves can be
+ * generated and made with a few shifts and masks.  Moves are denoted by
+ * GameArchive's move codes.  Positions may be changed by make and
+ * restored by unmake, or overwritten wholesale by copy; neither
+ * allocates.
+ * <p>
+ * Unlike Board, a Bitboard keeps no record of the moves made, does not
+ * notify observers, and does not check that moves are legal.
+ *
+ * @author Shrey Malhotra
+ */
+class Bitboard {
+
+    /** Mask of all squares. */
+    static final long FULL = (1L << SQUARES) - 1;
+    /** Mask of column a. */
+    static final long COL_A;
+    /** Mask of column g. */
+    static final long COL_G;
+    /** ADJACENT[S] is the mask of squares adjacent to square S. */
+    static final long[] ADJACENT = new long[SQUARES];
+    /** RING[S] is the mask of squares two rows or columns away from
+     *  square S. */
+    static final long[] RING = new long[SQUARES];
+
+    static {
+        long a = 0, g = 0;
+        for (int r = 0; r < Board.SIDE; r += 1) {
+            a |= 1L << (r * Board.SIDE);
+            g |= 1L << (r * Board.SIDE + Board.SIDE - 1);
+        }
+        COL_A = a;
+        COL_G = g;
+        for (int s = 0; s < SQUARES; s += 1) {
+            long bit = 1L << s, near = dilate(bit);
+            ADJACENT[s] = near & ~bit;
+            RING[s] = dilate(near) & ~near;
+        }
+    }
+
+    /** Upper bound on the number of moves produced by moves. */
+    static final int MAX_MOVES = Board.MAX_MOVES;
+
+    /** A Bitboard holding the initial position, with no blocks, whose
+     *  make/unmake history may be up to MAXPLY moves deep. */
+    Bitboard(int maxPly) {
+        _saved = new long[2 * maxPly];
+        _savedState = new int[maxPly];
+        _red = (1L << 42) | (1L << 6);
+        _blue = 1L | (1L << 48);
+    }
+
+    /** Return the mask of squares in X and those adjacent to them. */
+    static long dilate(long x) {
+        long h = (x | ((x << 1) & ~COL_A) | ((x >>> 1) & ~COL_G)) & FULL;
+        return (h | (h << Board.SIDE) | (h >>> Board.SIDE)) & FULL;
+    }
+
+    /** Set me to the position on BOARD, clearing my history. */
+    void copy(Board board) {
+        _red = _blue = _blocked = 0;
+        for (int s = 0; s < SQUARES; s += 1) {
+            PieceColor p = board.get(GameArchive.linearIndex(s));
+            if (p == RED) {
+                _red |= 1L << s;
+            } else if (p == BLUE) {
+                _blue |= 1L << s;
+            } else if (p == BLOCKED) {
+                _blocked |= 1L << s;
+            }
+        }
+        _blueToMove = board.whoseMove() == BLUE;
+        _jumps = board.numJumps();
+        _ply = 0;
+    }
+
+    /** Set me to the position in B, clearing my history. */
+    void copy(Bitboard b) {
+        _red = b._red;
+        _blue = b._blue;
+        _blocked = b._blocked;
+        _blueToMove = b._blueToMove;
+        _jumps = b._jumps;
+        _ply = 0;
+    }
+
+    /** Set me to the position with red pieces RED, blue pieces BLUE,
+     *  blocks BLOCKED, and JUMPS jumps since the last extend, with blue
+     *  to move iff BLUETOMOVE, clearing my history. */
+    void set(long red, long blue, long blocked, boolean blueToMove,
+             int jumps) {
+        _red = red;
+        _blue = blue;
+        _blocked = blocked;
+        _blueToMove = blueToMove;
+        _jumps = jumps;
+        _ply = 0;
+    }
+
+    /** Return the mask of red pieces. */
+    long red() {
+        return _red;
+    }
+
+    /** Return the mask of blue pieces. */
+    long blue() {
+        return _blue;
+    }
+
+    /** Return the mask of blocked squares. */
+    long blocked() {
+        return _blocked;
+    }
+
+    /** Return the mask of empty squares. */
+    long empty() {
+        return ~(_red | _blue | _blocked) & FULL;
+    }
+
+    /** Return the mask of the pieces of the side to move. */
+    long mine() {
+        return _blueToMove ? _blue : _red;
+    }
+
+    /** Return the mask of the pieces of the side not to move. */
+    long theirs() {
+        return _blueToMove ? _red : _blue;
+    }
+
+    /** Return true iff blue is to move. */
+    boolean blueToMove() {
+        return _blueToMove;
+    }
+
+    /** Return the number of jumps since the last extend. */
+    int jumps() {
+        return _jumps;
+    }
+
+    /** Return the number of moves made since the last copy or set. */
+    int ply() {
+        return _ply;
+    }
+
+    /** Return true iff the side whose pieces are PIECES has a move. */
+    boolean canMove(long pieces) {
+        return (dilate(dilate(pieces)) & empty()) != 0;
+    }
+
+    /** Return true iff the game is over. */
+    boolean gameOver() {
+        return _red == 0 || _blue == 0 || _jumps >= Board.JUMP_LIMIT
+            || (!canMove(_red) && !canMove(_blue));
+    }
+
+    /** Return the number of pieces of the side to move less those of its
+     *  opponent. */
+    int pieceDifference() {
+        return Long.bitCount(mine()) - Long.bitCount(theirs());
+    }
+
+    /** Store the distinct moves of the side to move into MOVES, returning
+     *  their number: extends (one per destination) followed by jumps.
+     *  Returns 0 if the side to move must pass (or the game is over). */
+    int moves(int[] moves) {
+        long empty = empty(), mine = mine();
+        int n = 0;
+        for (long x = dilate(mine) & empty; x != 0; x &= x - 1) {
+            moves[n] = Long.numberOfTrailingZeros(x);
+            n += 1;
+        }
+        for (long p = mine; p != 0; p &= p - 1) {
+            int from = Long.numberOfTrailingZeros(p);
+            for (long x = RING[from] & empty; x != 0; x &= x - 1) {
+                moves[n] = JUMP_CODE + (from << 6)
+                    + Long.numberOfTrailingZeros(x);
+                n += 1;
+            }
+        }
+        return n;
+    }
+
+    /** Return the number of extend destinations of the side to move. */
+    int extendCount() {
+        return Long.bitCount(dilate(mine()) & empty());
+    }
+
+    /** Make the move with code CODE, assumed legal, saving the current
+     *  position for unmake. */
+    void make(int code) {
+        _saved[2 * _ply] = _red;
+        _saved[2 * _ply + 1] = _blue;
+        _savedState[_ply] = _jumps << 1 | (_blueToMove ? 1 : 0);
+        _ply += 1;
+        apply(code);
+    }
+
+    /** Make the move with code CODE, assumed legal, without saving the
+     *  current position. */
+    void apply(int code) {
+        if (code != PASS_CODE) {
+            long mine = mine(), theirs = theirs();
+            int to = code & 0x3F;
+            if (code >= JUMP_CODE) {
+                mine &= ~(1L << ((code - JUMP_CODE) >> 6));
+                _jumps += 1;
+            } else {
+                _jumps = 0;
+            }
+            long flipped = ADJACENT[to] & theirs;
+            mine |= (1L << to) | flipped;
+            theirs &= ~flipped;
+            if (_blueToMove) {
+                _blue = mine;
+                _red = theirs;
+            } else {
+                _red = mine;
+                _blue = theirs;
+            }
+        }
+        _blueToMove = !_blueToMove;
+    }
+
+    /** Undo the last move made by make. */
+    void unmake() {
+        _ply -= 1;
+        _red = _saved[2 * _ply];
+        _blue = _saved[2 * _ply + 1];
+        _jumps = _savedState[_ply] >> 1;
+        _blueToMove = (_savedState[_ply] & 1) != 0;
+    }
+
+    /** Return the Move denoted by the move code CODE in my current
+     *  position, or null if it denotes no move. */
+    Move toMove(int code) {
+        if (code == PASS_CODE) {
+            return Move.pass();
+        }
+        int to = code & 0x3F, from;
+        if (code >= JUMP_CODE) {
+            from = (code - JUMP_CODE) >> 6;
+        } else {
+            long sources = ADJACENT[to] & mine();
+            if (sources == 0) {
+                return null;
+            }
+            from = Long.numberOfTrailingZeros(sources);
+        }
+        return Move.move(GameArchive.linearIndex(from),
+                         GameArchive.linearIndex(to));
+    }
+
+    /** Return the move code of MOVE. */
+    static int code(Move move) {
+        if (move.isPass()) {
+            return PASS_CODE;
+        }
+        int to = GameArchive.square(move.toIndex());
+        return move.isJump()
+            ? JUMP_CODE + (GameArchive.square(move.fromIndex()) << 6) + to
+            : to;
+    }
+
+    /** Mask of red pieces. */
+    private long _red;
+    /** Mask of blue pieces. */
+    private long _blue;
+    /** Mask of blocks. */
+    private long _blocked;
+    /** True iff blue is to move. */
+    private boolean _blueToMove;
+    /** Jumps since the last extend. */
+    private int _jumps;
+    /** Number of positions saved by make. */
+    private int _ply;
+    /** Red and blue masks saved by make, two per ply. */
+    private final long[] _saved;
+    /** Jump count (shifted left 1) and side to move saved by make. */
+    private final int[] _savedState;
+
+}
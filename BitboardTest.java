@@ -0,0 +1,63 @@
+package ataxx;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of Bitboard against Board.
+ *
+ * @author Shrey Malhotra
+ */
+public class BitboardTest {
+
+    @Test
+    public void testDilateRows() {
+        long g7 = 1L << 48, a1 = 1L, g1 = 1L << 6, a7 = 1L << 42;
+        assertEquals("g7 wraps", (1L << 40) | (1L << 41) | (1L << 47) | g7,
+                     Bitboard.dilate(g7));
+        assertEquals("a1 wraps", a1 | (1L << 1) | (1L << 7) | (1L << 8),
+                     Bitboard.dilate(a1));
+        assertEquals("g1 wraps", g1 | (1L << 5) | (1L << 12) | (1L << 13),
+                     Bitboard.dilate(g1));
+        assertEquals("a7 wraps", a7 | (1L << 43) | (1L << 35) | (1L << 36),
+                     Bitboard.dilate(a7));
+        assertEquals("spills off board", 0, Bitboard.dilate(Bitboard.FULL)
+                     & ~Bitboard.FULL);
+    }
+
+    @Test
+    public void testMovesMatchBoard() {
+        Random random = new Random(3);
+        Move[] scratch = new Move[Board.MAX_MOVES];
+        int[] codes = new int[Bitboard.MAX_MOVES];
+        Board board = new Board();
+        Bitboard b = new Bitboard(1);
+        for (int k = 0; k < 20; k += 1) {
+            SelfPlay.randomStart(board, random, scratch);
+            while (!board.gameOver()) {
+                b.copy(board);
+                int n = b.moves(codes);
+                assertEquals("wrong number of moves",
+                             board.legalMoves(scratch), n);
+                for (int i = 0; i < n; i += 1) {
+                    Move move = b.toMove(codes[i]);
+                    assertTrue("illegal move", board.legalMove(move));
+                    assertEquals("bad code", codes[i], Bitboard.code(move));
+                }
+                Move move = SelfPlay.randomMove(board, random, scratch);
+                b.make(Bitboard.code(move));
+                board.makeMove(move);
+                assertEquals("wrong red pieces", board.redPieces(),
+                             Long.bitCount(b.red()));
+                assertEquals("wrong blue pieces", board.bluePieces(),
+                             Long.bitCount(b.blue()));
+                assertEquals("wrong game end", board.gameOver(),
+                             b.gameOver());
+            }
+        }
+    }
+
+}
@@ -3,7 +3,6 @@ package ataxx;
 /** Author: P. N. Hilfinger, (C) 2008. */
 
 import java.util.Observable;
-import java.util.Stack;
 import java.util.ArrayList;
 import java.util.Arrays;
 import static ataxx.PieceColor.EMPTY;
@@ -53,6 +52,11 @@ class Board extends Observable {
      */
     static final int JUMP_LIMIT = 25;
 
+    /**
+     * Typical length of a position in position notation.
+     */
+    private static final int POSITION_LEN = 32;
+
     /**
      * A new, cleared board at the start of the game.
      */
@@ -62,28 +66,12 @@ class Board extends Observable {
      * A new, cleared board at the start of the game.
      */
     Board() {
-        _board = NEW_BOARD;
-        for (int k = 0; k < _board.length; k++) {
-            _board[k] = EMPTY;
-        }
-        for (char c0 = 'a'; c0 <= 'g'; c0++) {
-            for (char r0 = '1'; r0 <= '7'; r0++) {
-                _board[index(c0, r0)] = EMPTY;
-            }
-        }
-        _whoseMove = RED;
-        totaljumps = 0;
-        totalturns = 0;
+        _board = new PieceColor[NEW_BOARD.length];
         colorpcount = new int[2];
-        colorpcount[0] = 2;
-        colorpcount[1] = 2;
-        oldboardstate = new Stack<PieceColor[]>();
-        set(index('g', '7'), BLUE);
-        set(index('g', '1'), RED);
-        set(index('a', '7'), RED);
-        set(index('a', '1'), BLUE);
         movedict = new ArrayList<Move>();
-        oldboardstate = new Stack<PieceColor[]>();
+        _undoSquares = new int[INITIAL_UNDO];
+        _undoStarts = new int[INITIAL_UNDO];
+        _undoJumps = new int[INITIAL_UNDO];
         clear();
     }
 
@@ -91,11 +79,12 @@ class Board extends Observable {
      * A copy of B.
      */
     Board(Board b) {
-        colorpcount = new int[2];
-        colorpcount[0] = b.redPieces();
-        colorpcount[1] = b.bluePieces();
-        movedict = b.allMoves();
-        oldboardstate = b.boardHistory();
+        colorpcount = b.colorpcount.clone();
+        movedict = new ArrayList<Move>(b.allMoves());
+        _undoSquares = b._undoSquares.clone();
+        _undoStarts = b._undoStarts.clone();
+        _undoJumps = b._undoJumps.clone();
+        _undoTop = b._undoTop;
         totaljumps = b.numJumps();
         totalturns = b.numMoves();
         _board = b._board.clone();
@@ -125,13 +114,21 @@ class Board extends Observable {
      * positions and no blocks.
      */
     void clear() {
-        _whoseMove = RED;
-
-        while (!(oldboardstate.isEmpty())) {
-            undo();
+        Arrays.fill(_board, BLOCKED);
+        for (char c0 = 'a'; c0 <= 'g'; c0++) {
+            for (char r0 = '1'; r0 <= '7'; r0++) {
+                _board[index(c0, r0)] = EMPTY;
+            }
         }
-        setChanged();
-        notifyObservers();
+        _board[index('a', '7')] = _board[index('g', '1')] = RED;
+        _board[index('a', '1')] = _board[index('g', '7')] = BLUE;
+        colorpcount[0] = colorpcount[1] = 2;
+        _whoseMove = RED;
+        totaljumps = 0;
+        totalturns = 0;
+        movedict.clear();
+        _undoTop = 0;
+        announce();
     }
 
     /**
@@ -140,22 +137,12 @@ class Board extends Observable {
      * MAX_JUMPS consecutive jumps without intervening extends.
      */
     boolean gameOver() {
-        if (!(canMove(RED)) || canMove(RED)) {
+        if (numPieces(RED) == 0 || numPieces(BLUE) == 0) {
             return true;
-        } else if (!(canMove(BLUE))) {
-            return true;
-        } else if (!(canMove(RED))) {
-            return true;
-        } else if (numPieces(RED) == 0 || numPieces(BLUE) == 0) {
-            return true;
-        } else if (numPieces(BLUE) == 0) {
-            return true;
-        } else if (numPieces(RED) == 0) {
-            return true;
-        } else if (numJumps() > JUMP_LIMIT) {
+        } else if (numJumps() >= JUMP_LIMIT) {
             return true;
         }
-        return false;
+        return !canMove(RED) && !canMove(BLUE);
     }
 
     /**
@@ -231,25 +218,28 @@ class Board extends Observable {
      * undoable.
      */
     private void set(int sq, PieceColor v) {
-        int blength = _board.length;
-        PieceColor[] currBoard = new PieceColor[blength];
-        System.arraycopy(_board, 0, currBoard, 0, blength);
-        oldboardstate.push(currBoard);
-
-        _board[sq] = v;
+        addUndo(sq, v);
+        unrecordedSet(sq, v);
     }
 
     /**
      * Set square at C R to V (not undoable).
      */
     private void unrecordedSet(char c, char r, PieceColor v) {
-        _board[index(c, r)] = v;
+        unrecordedSet(index(c, r), v);
     }
 
     /**
      * Set square at linearized index SQ to V (not undoable).
      */
     private void unrecordedSet(int sq, PieceColor v) {
+        PieceColor old = _board[sq];
+        if (old.isPiece()) {
+            incrPieces(old, -1);
+        }
+        if (v.isPiece()) {
+            incrPieces(v, 1);
+        }
         _board[sq] = v;
     }
 
@@ -257,16 +247,13 @@ class Board extends Observable {
      * Return true iff MOVE is legal on the current board.
      */
     boolean legalMove(Move move) {
-        char col1  = move.col1();
-        char row1 = move.row1();
-        if (!(move.isExtend() || move.isJump() || move.isPass())) {
-            return false;
-        } else if (_board[index(col1, row1)] != EMPTY) {
-            return false;
-        } else if (_board[index(col1, row1)] == BLOCKED) {
+        if (move == null) {
             return false;
+        } else if (move.isPass()) {
+            return !canMove(_whoseMove);
         }
-        return true;
+        return _board[move.fromIndex()] == _whoseMove
+            && _board[move.toIndex()] == EMPTY;
     }
 
     /**
@@ -274,26 +261,18 @@ class Board extends Observable {
      * that player's move and whether the game is over.
      */
     boolean canMove(PieceColor who) {
-        for (char c0 = 'a'; c0 <= 'g'; c0++) {
-            for (char r0 = '1'; r0 <= '7'; r0++) {
-                {
-                    int index = index(c0, r0);
-                    if (_board[index] == who) {
-                        for (int c1 = c0 - 2; c1
-                                <= (int) (c0 + 2); c1++) {
-                            for (int r1 = r0 - 2; r1
-                                    <= (int) (r0 + 2); r1++) {
-                                if (c1 == c0 || r1 == r0) {
-                                    break;
-                                } else if (legalMove(Move.move(c0, r0,
-                                        (char) c1, (char) r1))) {
-                                    return true;
-                                }
-                            }
-                        }
+        for (int sq = FIRST_SQUARE; sq <= LAST_SQUARE; sq += 1) {
+            if (_board[sq] == who) {
+                for (int d : JUMP_OFFSETS) {
+                    if (_board[sq + d] == EMPTY) {
+                        return true;
+                    }
+                }
+                for (int d : EXTEND_OFFSETS) {
+                    if (_board[sq + d] == EMPTY) {
+                        return true;
                     }
                 }
-
             }
         }
         return false;
@@ -325,12 +304,6 @@ class Board extends Observable {
         return totaljumps;
     }
 
-    /** Accessor method for oldboardstate. Returns
-     * a Stack of board past states.*/
-    private Stack<PieceColor[]> boardHistory() {
-        return oldboardstate;
-    }
-
     /**
      * Perform the move C0R0-C1R1, or pass if C0 is '-'.  For moves
      * other than pass, assumes that legalMove(C0, R0, C1, R1).
@@ -348,29 +321,28 @@ class Board extends Observable {
      */
     void makeMove(Move move) {
         assert legalMove(move);
-        if (move.isPass()) {
-            pass();
-            return;
-        }
-        char col1  = move.col1();
-        char row1 = move.row1();
-        char row0 = move.row0();
-        char col0 = move.col0();
-        PieceColor nowcurr = _board[index(col0, row0)];
-        if (move.isExtend()) {
-            incrPieces(nowcurr, 1);
-            set(index(col1, row1), nowcurr);
-        }
-        if (move.isJump()) {
-            totaljumps += 1;
-            set(index(col0, row0), EMPTY);
-            set(index(col1, row1), nowcurr);
+        _makeMoveCalls += 1;
+        startUndo();
+        if (!move.isPass()) {
+            int to = move.toIndex();
+            PieceColor me = _whoseMove, opp = me.opposite();
+            if (move.isJump()) {
+                totaljumps += 1;
+                set(move.fromIndex(), EMPTY);
+            } else {
+                totaljumps = 0;
+            }
+            set(to, me);
+            for (int d : EXTEND_OFFSETS) {
+                if (_board[to + d] == opp) {
+                    set(to + d, me);
+                }
+            }
         }
         movedict.add(move);
         _whoseMove = _whoseMove.opposite();
         totalturns += 1;
-        setChanged();
-        notifyObservers();
+        announce();
     }
 
     /**
@@ -379,32 +351,95 @@ class Board extends Observable {
      */
     void pass() {
         assert !canMove(_whoseMove);
-        if (_whoseMove == RED) {
-            _whoseMove = BLUE;
-        } else if (_whoseMove == BLUE) {
-            _whoseMove = RED;
-        }
-        setChanged();
-        notifyObservers();
+        makeMove(Move.pass());
     }
 
     /**
      * Undo the last move.
      */
     void undo() {
-        PieceColor[] prevBoardState = oldboardstate.pop();
-        for (int len = 0; len < _board.length; len++) {
-            _board[len] = prevBoardState[len];
+        int last = movedict.size() - 1;
+        if (last < 0) {
+            return;
+        }
+        int start = _undoStarts[last];
+        while (_undoTop > start) {
+            _undoTop -= 1;
+            int entry = _undoSquares[_undoTop];
+            unrecordedSet(entry >> 2, COLORS[entry & 3]);
+        }
+        totaljumps = _undoJumps[last];
+        movedict.remove(last);
+        _whoseMove = _whoseMove.opposite();
+        totalturns -= 1;
+        announce();
+    }
+
+    /**
+     * Return the number of calls of makeMove on me (not counting those
+     * on the board I was copied from).
+     */
+    long makeMoveCalls() {
+        return _makeMoveCalls;
+    }
+
+    /**
+     * Return the number of calls of legalMoves and legalmoves on me.
+     */
+    long legalMovesCalls() {
+        return _legalMovesCalls;
+    }
+
+    /**
+     * Return the number of calls of samepieces on me.
+     */
+    long samePiecesCalls() {
+        return _samePiecesCalls;
+    }
+
+    /**
+     * Defer notifying my observers of changes until the matching call of
+     * endChanges.  Calls may nest.
+     */
+    void beginChanges() {
+        _deferrals += 1;
+    }
+
+    /**
+     * End a deferral begun by beginChanges, notifying my observers once
+     * if I changed during the outermost one.
+     */
+    void endChanges() {
+        _deferrals -= 1;
+        if (_deferrals == 0 && hasChanged()) {
+            notifyObservers();
         }
+    }
+
+    /**
+     * Record that I have changed, and notify my observers unless
+     * notifications are deferred.  Boards without observers (such as
+     * the copies searched by AIs) skip notifyObservers, which copies
+     * the list of observers even when it is empty.
+     */
+    private void announce() {
         setChanged();
-        notifyObservers();
+        if (_deferrals == 0 && countObservers() > 0) {
+            notifyObservers();
+        }
     }
 
     /**
      * Indicate beginning of a move in the undo stack.
      */
     private void startUndo() {
-        return;
+        int k = movedict.size();
+        if (k == _undoStarts.length) {
+            _undoStarts = Arrays.copyOf(_undoStarts, 2 * k);
+            _undoJumps = Arrays.copyOf(_undoJumps, 2 * k);
+        }
+        _undoStarts[k] = _undoTop;
+        _undoJumps[k] = totaljumps;
     }
 
     /**
@@ -412,7 +447,11 @@ class Board extends Observable {
      * board.
      */
     private void addUndo(int sq, PieceColor newColor) {
-        return;
+        if (_undoTop == _undoSquares.length) {
+            _undoSquares = Arrays.copyOf(_undoSquares, 2 * _undoTop);
+        }
+        _undoSquares[_undoTop] = (sq << 2) | _board[sq].ordinal();
+        _undoTop += 1;
     }
 
     /**
@@ -470,8 +509,7 @@ class Board extends Observable {
             _board[index((char) topright,
                     (char) (top + '0'))] = BLOCKED;
         }
-        setChanged();
-        notifyObservers();
+        announce();
     }
 
     /**
@@ -511,46 +549,175 @@ class Board extends Observable {
      * supply row and column numbers around the edges.
      */
     String toString(boolean legend) {
-        String astring = "";
+        StringBuilder out = new StringBuilder(2 * EXTENDED_SIDE * SIDE);
+        out.append("===");
         for (char r0 = '7'; r0 >= '1'; r0--) {
-            astring += "\n";
+            out.append('\n');
             if (legend) {
-                astring = astring + r0 + " ";
+                out.append(r0).append(' ');
             }
             for (char c0 = 'a'; c0 <= 'g'; c0++) {
-                PieceColor thePiecec0or = get(c0, r0);
-                if (thePiecec0or == BLUE) {
-                    if (c0 == 'a') {
-                        astring = astring + "  b ";
-                    } else {
-                        astring = astring + "b ";
-                    }
-                } else if (thePiecec0or == RED) {
-                    if (c0 == 'a') {
-                        astring = astring + "  r ";
-                    } else {
-                        astring = astring + "r ";
-                    }
-                } else if (thePiecec0or == BLOCKED) {
-                    if (c0 == 'a') {
-                        astring = astring + "  X ";
-                    } else {
-                        astring = astring + "X ";
+                if (c0 == 'a') {
+                    out.append("  ");
+                }
+                out.append(squareChar(get(c0, r0))).append(' ');
+            }
+            if (legend) {
+                out.append("\n  a b c d e f g");
+            }
+        }
+        return out.append("\n===").toString();
+    }
+
+    /**
+     * Return the character denoting a square containing P in board
+     * depictions.
+     */
+    private static char squareChar(PieceColor p) {
+        switch (p) {
+        case RED:
+            return 'r';
+        case BLUE:
+            return 'b';
+        case BLOCKED:
+            return 'X';
+        default:
+            return '-';
+        }
+    }
+
+    /**
+     * Return my position in position notation.  This is a single line
+     * made of three fields separated by blanks:
+     * <ol>
+     * <li> The contents of the rows from 7 down to 1, separated by '/'.
+     *      Within a row, squares go from column a to g, with 'r' for
+     *      red, 'b' for blue, 'X' for a block, and a digit giving the
+     *      length of each run of empty squares.
+     * <li> The side to move: 'r' or 'b'.
+     * <li> The current value of numJumps().
+     * </ol>
+     * For example, the initial position is "r5b/7/7/7/7/7/b5r r 0".
+     */
+    String position() {
+        StringBuilder out = new StringBuilder(POSITION_LEN);
+        appendPosition(out);
+        return out.toString();
+    }
+
+    /**
+     * Append my position in position notation (see position()) to OUT.
+     */
+    void appendPosition(StringBuilder out) {
+        for (int r = SIDE - 1; r >= 0; r -= 1) {
+            int sq = (r + 2) * EXTENDED_SIDE + 2;
+            int empties = 0;
+            for (int c = 0; c < SIDE; c += 1, sq += 1) {
+                PieceColor p = _board[sq];
+                if (p == EMPTY) {
+                    empties += 1;
+                } else {
+                    if (empties > 0) {
+                        out.append((char) ('0' + empties));
+                        empties = 0;
                     }
-                } else if (thePiecec0or == EMPTY) {
-                    if (c0 == 'a') {
-                        astring = astring + "  - ";
-                    } else {
-                        astring = astring + "- ";
+                    out.append(squareChar(p));
+                }
+            }
+            if (empties > 0) {
+                out.append((char) ('0' + empties));
+            }
+            if (r > 0) {
+                out.append('/');
+            }
+        }
+        out.append(' ').append(_whoseMove == BLUE ? 'b' : 'r')
+            .append(' ').append(totaljumps);
+    }
+
+    /**
+     * Set me to the position denoted by TEXT in position notation (see
+     * position()), clearing the record of moves made.  Leading and
+     * trailing blanks and extra blanks between fields are ignored.
+     */
+    void setPosition(CharSequence text) {
+        PieceColor[] squares = new PieceColor[_board.length];
+        Arrays.fill(squares, BLOCKED);
+        int n = text.length();
+        int i = skipBlanks(text, 0);
+        for (int r = SIDE - 1; r >= 0; r -= 1) {
+            int sq = (r + 2) * EXTENDED_SIDE + 2;
+            int c;
+            for (c = 0; c < SIDE && i < n; i += 1) {
+                char ch = text.charAt(i);
+                if (ch >= '1' && ch <= '7' && c + ch - '0' <= SIDE) {
+                    for (int k = ch - '0'; k > 0; k -= 1, c += 1) {
+                        squares[sq + c] = EMPTY;
                     }
+                } else if (ch == 'r' || ch == 'b' || ch == 'X') {
+                    squares[sq + c] =
+                        ch == 'r' ? RED : ch == 'b' ? BLUE : BLOCKED;
+                    c += 1;
+                } else {
+                    break;
                 }
             }
-            if (legend) {
-                astring += "\n" + "  a b c d e f g";
+            if (c != SIDE) {
+                throw error("bad row %d in position", r + 1);
+            }
+            if (r > 0) {
+                if (i >= n || text.charAt(i) != '/') {
+                    throw error("missing '/' after row %d in position",
+                                r + 1);
+                }
+                i += 1;
+            }
+        }
+        i = skipBlanks(text, i);
+        if (i >= n || (text.charAt(i) != 'r' && text.charAt(i) != 'b')) {
+            throw error("bad side to move in position");
+        }
+        PieceColor toMove = text.charAt(i) == 'r' ? RED : BLUE;
+        i = skipBlanks(text, i + 1);
+        int jumps = 0;
+        int start = i;
+        for (; i < n && text.charAt(i) >= '0' && text.charAt(i) <= '9';
+             i += 1) {
+            jumps = 10 * jumps + text.charAt(i) - '0';
+            if (jumps > JUMP_LIMIT) {
+                throw error("bad jump count in position");
             }
         }
-        String newstring = "===" + astring + "\n===";
-        return newstring;
+        if (i == start || skipBlanks(text, i) != n) {
+            throw error("bad jump count in position");
+        }
+
+        System.arraycopy(squares, 0, _board, 0, _board.length);
+        colorpcount[0] = colorpcount[1] = 0;
+        for (PieceColor p : _board) {
+            if (p == RED) {
+                colorpcount[0] += 1;
+            } else if (p == BLUE) {
+                colorpcount[1] += 1;
+            }
+        }
+        _whoseMove = toMove;
+        totaljumps = jumps;
+        totalturns = 0;
+        movedict.clear();
+        _undoTop = 0;
+        announce();
+    }
+
+    /**
+     * Return the index of the first non-blank character of TEXT at or
+     * after I.
+     */
+    private static int skipBlanks(CharSequence text, int i) {
+        while (i < text.length() && Character.isWhitespace(text.charAt(i))) {
+            i += 1;
+        }
+        return i;
     }
 
     /**
@@ -580,8 +747,20 @@ class Board extends Observable {
     /** A array of the number of R and B pieces.*/
     private int[] colorpcount;
 
-    /** A stack storing the previous states of the board.*/
-    private Stack<PieceColor[]> oldboardstate;
+    /** Undo records of the squares changed by the moves in movedict,
+     *  in order: each is (SQ << 2) | C, where C is the ordinal of the
+     *  previous contents of square SQ.*/
+    private int[] _undoSquares;
+
+    /** Number of records in _undoSquares. */
+    private int _undoTop;
+
+    /** _undoStarts[K] is the index in _undoSquares of the first record
+     *  for move K of movedict. */
+    private int[] _undoStarts;
+
+    /** _undoJumps[K] is numJumps() before move K of movedict. */
+    private int[] _undoJumps;
 
     /** Storer of the total turns made since the start of the
     * game.*/
@@ -595,31 +774,20 @@ class Board extends Observable {
     * game.*/
     private ArrayList<Move> movedict;
 
-    /** MY DECLARATIONS */
+    /** Number of calls of beginChanges not yet ended. */
+    private int _deferrals;
 
-    /**
-     * Checks iff SIDE's pieces are of the same color.
-     * @param row **row number**
-     * @param col **column number**
-     * @param myPieceColor **Current Playing Color**
-     */
-    void setaside(PieceColor myPieceColor, char col, char row) {
-        int myIndex = index(col, row);
-        for (int c0 = -1; c0 <= 1; c0++) {
-            for (int r0 = -1; r0 <= 1; r0++) {
-                if (_board[sidepiece(myIndex, c0, r0)] != EMPTY
-                        && (c0 != 0 && r0 != 0)) {
-                    unrecordedSet(sidepiece(myIndex, c0, r0), myPieceColor);
-                    incrPieces(myPieceColor, 1);
-                }
-            }
-        }
-    }
+    /** Numbers of calls of makeMove, legalMoves and legalmoves, and
+     *  samepieces, for timing mode. */
+    private long _makeMoveCalls, _legalMovesCalls, _samePiecesCalls;
+
+    /** MY DECLARATIONS */
 
     /**
      * Return true iff SIDE's pieces are of the same color.
      */
     boolean samepieces(PieceColor side) {
+        _samePiecesCalls += 1;
         for (char c = 'a'; c <= 'g'; c++) {
             for (char r = '1'; r <= '7'; r++) {
                 if (get(c, r) == side) {
@@ -680,32 +848,109 @@ class Board extends Observable {
      * @param who ** Indicates PieceColor.**
      * */
     ArrayList<Move> legalmoves(PieceColor who) {
-        Move move;
+        _legalMovesCalls += 1;
         ArrayList<Move> lm = new ArrayList<Move>();
-        for (char c0 = 'a'; c0 <= 'g'; c0++) {
-            for (char r0 = '1'; r0 <= '7'; r0++) {
-                {
-                    int index = index(c0, r0);
-                    if (_board[index] == who) {
-                        for (int c1 = c0 - 2; c1
-                                <= (int) (c0 + 2); c1++) {
-                            for (int r1 = r0 - 2; r1
-                                    <= (int) (r0 + 2); r1++) {
-                                if (c1 == c0 || r1 == r0) {
-                                    break;
-                                } else if (legalMove(Move.move(c0, r0,
-                                        (char) c1, (char) r1))) {
-                                    move = Move.move(c0, r0, (char)
-                                            c1, (char) r1);
-                                    lm.add(move);
-                                }
-                            }
-                        }
+        for (int sq = FIRST_SQUARE; sq <= LAST_SQUARE; sq += 1) {
+            if (_board[sq] == who) {
+                for (int d : EXTEND_OFFSETS) {
+                    if (_board[sq + d] == EMPTY) {
+                        lm.add(Move.move(sq, sq + d));
+                    }
+                }
+                for (int d : JUMP_OFFSETS) {
+                    if (_board[sq + d] == EMPTY) {
+                        lm.add(Move.move(sq, sq + d));
                     }
                 }
-
             }
         }
         return lm;
     }
+
+    /**
+     * Store the distinct legal moves for the side to move into MOVES,
+     * returning their number.  Distinct means that only one extend is
+     * produced for each destination square, since all extends to a
+     * square yield the same position.  Extends precede jumps, and no
+     * pass is produced.  MOVES must have room for MAX_MOVES moves.
+     */
+    int legalMoves(Move[] moves) {
+        _legalMovesCalls += 1;
+        PieceColor who = _whoseMove;
+        int n = 0;
+        for (int to = FIRST_SQUARE; to <= LAST_SQUARE; to += 1) {
+            if (_board[to] == EMPTY) {
+                for (int d : EXTEND_OFFSETS) {
+                    if (_board[to + d] == who) {
+                        moves[n] = Move.move(to + d, to);
+                        n += 1;
+                        break;
+                    }
+                }
+            }
+        }
+        for (int sq = FIRST_SQUARE; sq <= LAST_SQUARE; sq += 1) {
+            if (_board[sq] == who) {
+                for (int d : JUMP_OFFSETS) {
+                    if (_board[sq + d] == EMPTY) {
+                        moves[n] = Move.move(sq, sq + d);
+                        n += 1;
+                    }
+                }
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Upper bound on the number of moves produced by legalMoves.
+     */
+    static final int MAX_MOVES = SIDE * SIDE * 16 + SIDE * SIDE;
+
+    /**
+     * Linearized index of a1.
+     */
+    static final int FIRST_SQUARE = 2 * EXTENDED_SIDE + 2;
+
+    /**
+     * Linearized index of g7.
+     */
+    static final int LAST_SQUARE = (SIDE + 1) * EXTENDED_SIDE + SIDE + 1;
+
+    /**
+     * Differences between the linearized indices of a square and the
+     * eight squares adjacent to it.
+     */
+    static final int[] EXTEND_OFFSETS = {
+        -EXTENDED_SIDE - 1, -EXTENDED_SIDE, -EXTENDED_SIDE + 1, -1, 1,
+        EXTENDED_SIDE - 1, EXTENDED_SIDE, EXTENDED_SIDE + 1
+    };
+
+    /**
+     * Differences between the linearized indices of a square and the
+     * sixteen squares two rows or columns away from it.
+     */
+    static final int[] JUMP_OFFSETS = new int[16];
+
+    static {
+        int k = 0;
+        for (int dr = -2; dr <= 2; dr += 1) {
+            for (int dc = -2; dc <= 2; dc += 1) {
+                if (Math.abs(dr) == 2 || Math.abs(dc) == 2) {
+                    JUMP_OFFSETS[k] = dr * EXTENDED_SIDE + dc;
+                    k += 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * The values of PieceColor, indexed by ordinal.
+     */
+    private static final PieceColor[] COLORS = PieceColor.values();
+
+    /**
+     * Initial size of the undo arrays.
+     */
+    private static final int INITIAL_UNDO = 256;
 }
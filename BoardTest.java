@@ -39,4 +39,141 @@ public class BoardTest {
         assertEquals("second pass failed to reach same position", b2, b0);
     }
 
+    @Test
+    public void testPosition() {
+        String start = "r5b/7/7/7/7/7/b5r r 0",
+            mid = "rrX1XBb/2r4/7/X5X/7/1bb4/b1X1X1r b 12";
+        Board b = new Board();
+        b.setPosition(start);
+        assertEquals("bad start position", start, b.position());
+        assertEquals("bad red count", 2, b.redPieces());
+        b.setPosition("  rrX1Xbb/2r4/7/X5X/7/1bb4/b1X1X1r   b  12 ");
+        assertEquals("bad position round trip",
+                     "rrX1Xbb/2r4/7/X5X/7/1bb4/b1X1X1r b 12", b.position());
+        assertEquals("bad square", PieceColor.BLOCKED, b.get('c', '7'));
+        assertEquals("bad square", PieceColor.RED, b.get('c', '6'));
+        assertEquals("bad side to move", PieceColor.BLUE, b.whoseMove());
+        assertEquals("bad jump count", 12, b.numJumps());
+        assertEquals("bad blue count", 5, b.bluePieces());
+        for (String bad : new String[] { mid, "r5b/7/7/7/7/7 r 0",
+                                         "r6b/7/7/7/7/7/b5r r 0",
+                                         "r5b/7/7/7/7/7/b5r x 0",
+                                         "r5b/7/7/7/7/7/b5r r",
+                                         "r5b/7/7/7/7/7/b5r r 0 1" }) {
+            try {
+                b.setPosition(bad);
+                fail("accepted bad position " + bad);
+            } catch (GameException excp) {
+                /* Expected. */
+            }
+        }
+    }
+
+    @Test
+    public void testCapture() {
+        Board b = new Board();
+        b.setPosition("r5b/7/7/2bb3/1r1b3/7/b5r r 3");
+        b.makeMove(Move.move('b', '3', 'c', '3'));
+        assertEquals("bad extend", "r5b/7/7/2rr3/1rrr3/7/b5r b 0",
+                     b.position());
+        assertEquals("bad red count", 7, b.redPieces());
+        assertEquals("bad blue count", 2, b.bluePieces());
+        b.makeMove(Move.move('a', '1', 'a', '3'));
+        assertEquals("bad jump", "r5b/7/7/2rr3/bbrr3/7/6r r 1",
+                     b.position());
+        assertEquals("bad red count", 6, b.redPieces());
+        assertEquals("bad blue count", 3, b.bluePieces());
+        b.undo();
+        assertEquals("bad undo of jump", "r5b/7/7/2rr3/1rrr3/7/b5r b 0",
+                     b.position());
+        assertEquals("bad red count after undo", 7, b.redPieces());
+        b.undo();
+        assertEquals("bad undo of extend", "r5b/7/7/2bb3/1r1b3/7/b5r r 3",
+                     b.position());
+        assertEquals("bad blue count after undo", 5, b.bluePieces());
+        assertEquals("bad move count after undo", 0, b.numMoves());
+    }
+
+    @Test
+    public void testLegalMoves() {
+        Board b = new Board();
+        b.setPosition("r5b/7/7/7/7/7/b5r r 0");
+        assertTrue("extend not legal", b.legalMove(Move.move('a', '7',
+                                                              'b', '6')));
+        assertTrue("jump not legal", b.legalMove(Move.move('a', '7',
+                                                            'c', '5')));
+        assertFalse("move of opponent's piece legal",
+                    b.legalMove(Move.move('a', '1', 'a', '2')));
+        assertFalse("move to occupied square legal",
+                    b.legalMove(Move.move('g', '1', 'g', '7')));
+        assertFalse("pass legal", b.legalMove(Move.pass()));
+        assertFalse("null legal", b.legalMove(null));
+        Move[] moves = new Move[Board.MAX_MOVES];
+        int n = b.legalMoves(moves);
+        assertEquals("wrong number of moves", 2 * 3 + 2 * 5, n);
+        boolean jumped = false;
+        for (int i = 0; i < n; i += 1) {
+            assertTrue("illegal move " + moves[i], b.legalMove(moves[i]));
+            assertFalse("extend after jump", jumped && moves[i].isExtend());
+            jumped = moves[i].isJump();
+            for (int j = 0; j < i; j += 1) {
+                assertFalse("duplicate move",
+                            moves[j].toIndex() == moves[i].toIndex()
+                            && moves[i].isExtend() && moves[j].isExtend());
+            }
+        }
+        assertEquals("legalmoves disagrees", n, b.legalmoves(PieceColor.RED)
+                     .size());
+    }
+
+    @Test
+    public void testJumpLimit() {
+        Board b = new Board();
+        b.setPosition("r5b/7/7/7/7/7/b5r r "
+                      + (Board.JUMP_LIMIT - 1));
+        assertFalse("game over too soon", b.gameOver());
+        b.makeMove(Move.move('a', '7', 'b', '6'));
+        assertEquals("extend did not reset jumps", 0, b.numJumps());
+        assertFalse("game over after extend", b.gameOver());
+        b.undo();
+        b.makeMove(Move.move('a', '7', 'c', '7'));
+        assertEquals("bad jump count", Board.JUMP_LIMIT, b.numJumps());
+        assertTrue("game not over at jump limit", b.gameOver());
+        b.undo();
+        assertEquals("undo did not restore jumps", Board.JUMP_LIMIT - 1,
+                     b.numJumps());
+    }
+
+    @Test
+    public void testBlockedEnd() {
+        Board b = new Board();
+        String closed = "/XXXXXXX/XXXXXXX/XXXXXXX/XXXXXXX/XXXXXXX r 0";
+        b.setPosition("rrr1bb1/rrrXbbb" + closed);
+        assertFalse("game over with moves left", b.gameOver());
+        assertFalse("pass legal with moves", b.legalMove(Move.pass()));
+        b.setPosition("rrrXbb1/rrrXbbb" + closed);
+        assertFalse("red can move", b.canMove(PieceColor.RED));
+        assertTrue("blue cannot move", b.canMove(PieceColor.BLUE));
+        assertFalse("game over while blue can move", b.gameOver());
+        assertTrue("pass not legal", b.legalMove(Move.pass()));
+        b.makeMove(Move.pass());
+        assertEquals("pass changed jumps", 0, b.numJumps());
+        b.makeMove(Move.move('f', '7', 'g', '7'));
+        assertTrue("game not over with no moves for either side",
+                   b.gameOver());
+        assertEquals("empty squares left", 0, Long.bitCount(empties(b)));
+        b.setPosition("rrrXbbX/rrrXbbb/XXXXXXX/XXXXXXX/XXX1XXX/XXXXXXX"
+                      + "/XXXXXXX r 0");
+        assertTrue("game not over with both sides blocked", b.gameOver());
+        assertTrue("empty squares expected", empties(b) != 0);
+    }
+
+    /** Return the mask (numbered as in GameArchive) of the empty squares
+     *  of B. */
+    private static long empties(Board b) {
+        Bitboard bits = new Bitboard(0);
+        bits.copy(b);
+        return bits.empty();
+    }
+
 }
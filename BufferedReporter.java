@@ -0,0 +1,198 @@
+package ataxx;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Formatter;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/** A Reporter for batch runs, which hands its output to a background
+ *  thread rather than writing it as each message is made.  Messages are
+ *  formatted into a batch buffer; each full batch is queued for the
+ *  writer thread, and the buffer is returned for reuse once written.
+ *  A fixed number of buffers circulate, so a producer that outruns the
+ *  output waits for a free one rather than queueing without bound.
+ *  Output appears when a batch fills, and at flush, which the Game calls
+ *  at the end of each game.  Other output of the Game (help, boards,
+ *  winners) should go through writer(), so that it stays in order with
+ *  the messages.  This reporter is meant for non-interactive input:
+ *  nothing is shown while the Game waits for a command.
+ *  @author Shrey Malhotra
+ */
+class BufferedReporter implements Reporter, Closeable {
+
+    /** Size at which a batch is handed to the writer thread, in
+     *  characters. */
+    static final int BATCH_SIZE = 1 << 14;
+    /** Number of batch buffers. */
+    static final int BUFFERS = 4;
+
+    /** A reporter writing to OUT. */
+    BufferedReporter(OutputStream out) {
+        _out = new OutputStreamWriter(out);
+        for (int i = 0; i < BUFFERS; i += 1) {
+            _free.add(new StringBuilder(BATCH_SIZE + BATCH_SIZE / 4));
+        }
+        _batch = _free.poll();
+        _writer = new Thread(this::writeBatches, "reporter");
+        _writer.setDaemon(true);
+        _writer.start();
+    }
+
+    @Override
+    public void errMsg(String format, Object... args) {
+        message(format, args);
+    }
+
+    @Override
+    public void outcomeMsg(String format, Object... args) {
+        message(format, args);
+    }
+
+    @Override
+    public void moveMsg(String format, Object... args) {
+        message(format, args);
+    }
+
+    @Override
+    public void infoMsg(String format, Object... args) {
+        message(format, args);
+    }
+
+    /** Write out all output so far, waiting until it is written. */
+    @Override
+    public synchronized void flush() {
+        handOff();
+        try {
+            synchronized (_progress) {
+                while (_written < _handedOff) {
+                    _progress.wait();
+                }
+            }
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Return a Writer whose output goes, in order, with my messages.
+     *  Flushing it is not a flush point. */
+    Writer writer() {
+        return _textWriter;
+    }
+
+    /** Flush my output and stop my writer thread. */
+    @Override
+    public synchronized void close() {
+        flush();
+        _writer.interrupt();
+    }
+
+    /** Add the message formed from FORMAT and ARGS, and a newline, to the
+     *  current batch. */
+    private synchronized void message(String format, Object... args) {
+        _line.setLength(0);
+        _formatter.format(format, args);
+        _batch.append(_line).append('\n');
+        if (_batch.length() >= BATCH_SIZE) {
+            handOff();
+        }
+    }
+
+    /** Queue the current batch, if not empty, for writing, and start a
+     *  new one. */
+    private void handOff() {
+        if (_batch.length() == 0) {
+            return;
+        }
+        try {
+            _full.put(_batch);
+            _handedOff += 1;
+            _batch = _free.take();
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Write the batches queued by handOff until interrupted. */
+    private void writeBatches() {
+        try {
+            while (true) {
+                StringBuilder batch = _full.take();
+                try {
+                    _out.append(batch);
+                    if (_full.isEmpty()) {
+                        _out.flush();
+                    }
+                } catch (IOException excp) {
+                    /* Output lost, as with System.out. */
+                }
+                batch.setLength(0);
+                _free.put(batch);
+                synchronized (_progress) {
+                    _written += 1;
+                    _progress.notifyAll();
+                }
+            }
+        } catch (InterruptedException excp) {
+            return;
+        }
+    }
+
+    /** Appends text to the current batch. */
+    private final Writer _textWriter = new Writer() {
+        @Override
+        public void write(char[] buf, int off, int len) {
+            synchronized (BufferedReporter.this) {
+                _batch.append(buf, off, len);
+                if (_batch.length() >= BATCH_SIZE) {
+                    handOff();
+                }
+            }
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            synchronized (BufferedReporter.this) {
+                _batch.append(str, off, off + len);
+                if (_batch.length() >= BATCH_SIZE) {
+                    handOff();
+                }
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    /** Destination of the output. */
+    private final Writer _out;
+    /** Batches waiting to be written. */
+    private final BlockingQueue<StringBuilder> _full =
+        new ArrayBlockingQueue<>(BUFFERS);
+    /** Buffers available for new batches. */
+    private final BlockingQueue<StringBuilder> _free =
+        new ArrayBlockingQueue<>(BUFFERS);
+    /** The batch being filled. */
+    private StringBuilder _batch;
+    /** The message being formatted. */
+    private final StringBuilder _line = new StringBuilder();
+    /** Formats messages into _line. */
+    private final Formatter _formatter = new Formatter(_line);
+    /** Number of batches queued for writing. */
+    private long _handedOff;
+    /** Lock for _written, notified as batches are written. */
+    private final Object _progress = new Object();
+    /** Number of batches written. */
+    private long _written;
+    /** Writes the batches. */
+    private final Thread _writer;
+
+}
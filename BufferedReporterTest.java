@@ -0,0 +1,39 @@
+package ataxx;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintWriter;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the batching reporter.
+ *
+ * @author Shrey Malhotra
+ */
+public class BufferedReporterTest {
+
+    @Test
+    public void testOrderAndFlush() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BufferedReporter reporter = new BufferedReporter(bytes);
+        PrintWriter out = new PrintWriter(reporter.writer());
+        StringBuilder expected = new StringBuilder();
+        int n = 3 * BufferedReporter.BATCH_SIZE / 10;
+        for (int i = 0; i < n; i += 1) {
+            reporter.moveMsg("%d.", i);
+            out.println("=");
+            expected.append(i).append(".\n=").append(System.lineSeparator());
+        }
+        reporter.errMsg("done");
+        expected.append("done\n");
+        reporter.flush();
+        assertEquals("output lost or out of order", expected.toString(),
+                     bytes.toString());
+        reporter.outcomeMsg("more");
+        reporter.close();
+        assertTrue("close did not flush", bytes.toString().endsWith("more\n"));
+    }
+
+}
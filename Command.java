@@ -16,17 +16,23 @@ class Command {
      *  programmer writes. */
     static enum Type {
         /* Start-up state only. */
-        AUTO("(?i)auto\\s+(red|blue)"),
+        AUTO("(?i)auto\\s+(red|blue)(?:\\s+(mcts)(?:\\s+([0-9]+))?)?"),
         BLOCK("(?i)block\\s+([a-g][1-7])"),
         MANUAL("(?i)manual\\s+(red|blue)"),
         SEED("(?i)seed\\s+([0-9]+)"),
+        SETPOSITION("(?i)position\\s+(\\S+\\s+\\S+\\s+\\S+)"),
         START,
         /* Regular moves (set-up or play) */
         PASS("(?i)pass|-"),
         PIECEMOVE("([a-g])([1-7])-([a-g])([1-7])"),
         /* Valid at any time. */
-        LOAD("(?i)\\s+"),
-        QUIT, CLEAR, DUMP, HELP,
+        LOAD("(?i)load\\s+(\\S+)"),
+        RECORD("(?i)record\\s+(\\S+)"),
+        BOOK("(?i)book\\s+(\\S+)"),
+        ANALYZE("(?i)analy[sz]e(?:\\s+([0-9]+)(?:\\s+([0-9]+))?)?"),
+        PONDER("(?i)ponder\\s+(on|off)"),
+        CACHE("(?i)cache\\s+(\\S+)(?:\\s+([0-9]+))?"),
+        QUIT, CLEAR, DUMP, HELP, POSITION,
         /* Special "commands" internally generated. */
         /** Syntax error in command. */
         ERROR(".*"),
@@ -57,6 +63,15 @@ class Command {
     Command(Type type, String... operands) {
         _type = type;
         _operands = operands;
+        _move = null;
+    }
+
+    /** A new PIECEMOVE Command for MOVE, whose operands are made only
+     *  if asked for. */
+    private Command(Move move) {
+        _type = Type.PIECEMOVE;
+        _operands = null;
+        _move = move;
     }
 
     /** Return the type of this Command. */
@@ -66,21 +81,100 @@ class Command {
 
     /** Returns this Command's operands. */
     String[] operands() {
+        if (_operands == null) {
+            return new String[] {
+                String.valueOf(_move.col0()), String.valueOf(_move.row0()),
+                String.valueOf(_move.col1()), String.valueOf(_move.row1())
+            };
+        }
         return _operands;
     }
 
+    /** Return the move denoted by this PIECEMOVE Command, or null if its
+     *  squares are too far apart to form one (or it is not a
+     *  PIECEMOVE). */
+    Move move() {
+        return _move;
+    }
+
     /** Parse COMMAND, returning the command and its operands.
      *  COMMAND is assumed to be trimmed of all leading and
-     *  trailing whitespace.  */
+     *  trailing whitespace.  Optional trailing operands that are
+     *  absent are omitted.  Moves and commands without operands, which
+     *  make up nearly all of long scripts, are recognized directly,
+     *  with moves handed over as Moves; the rest are matched against the
+     *  patterns of each Type in turn. */
     static Command parseCommand(String command) {
         if (command == null) {
-            return new Command(Type.EOF);
+            return EOF_COMMAND;
         }
         command = command.trim();
+        if (command.length() == MOVE_LENGTH) {
+            Command move = moveCommand(command.charAt(0),
+                                       command.charAt(1),
+                                       command.charAt(2),
+                                       command.charAt(3),
+                                       command.charAt(4));
+            if (move != null) {
+                return move;
+            }
+        }
+        switch (command) {
+        case "-": case "pass":
+            return PASS_COMMAND;
+        case "start":
+            return START_COMMAND;
+        case "quit":
+            return QUIT_COMMAND;
+        case "clear":
+            return CLEAR_COMMAND;
+        case "dump":
+            return DUMP_COMMAND;
+        case "help":
+            return HELP_COMMAND;
+        case "position":
+            return POSITION_COMMAND;
+        default:
+            break;
+        }
+        return matchCommand(command);
+    }
+
+    /** Return the PIECEMOVE Command for the text C0 R0 SEP C1 R1, or
+     *  null if that text is not a move c0r0-c1r1 between squares at most
+     *  two rows and columns apart.  Move commands are shared, like
+     *  Moves. */
+    static Command moveCommand(char c0, char r0, char sep, char c1,
+                               char r1) {
+        if (sep != '-' || !isCol(c0) || !isRow(r0)
+            || !isCol(c1) || !isRow(r1)) {
+            return null;
+        }
+        Move move = Move.move(c0, r0, c1, r1);
+        return move == null ? null : moveCommand(move);
+    }
+
+    /** Return the PIECEMOVE Command for MOVE, which is not a pass. */
+    private static Command moveCommand(Move move) {
+        int k = move.fromIndex() * SQUARES + move.toIndex();
+        Command cmnd = MOVE_COMMANDS[k];
+        if (cmnd == null) {
+            cmnd = MOVE_COMMANDS[k] = new Command(move);
+        }
+        return cmnd;
+    }
+
+    /** Return COMMAND, which is trimmed, parsed by matching it against
+     *  the pattern of each Type in turn. */
+    private static Command matchCommand(String command) {
         for (Type type : Type.values()) {
             Matcher mat = type._pattern.matcher(command);
             if (mat.matches()) {
-                String[] operands = new String [mat.groupCount()];
+                int n = mat.groupCount();
+                while (n > 0 && mat.group(n) == null) {
+                    n -= 1;
+                }
+                String[] operands = new String [n];
                 for (int i = 1; i <= operands.length; i += 1) {
                     operands[i - 1] = mat.group(i);
                 }
@@ -90,8 +184,44 @@ class Command {
         throw new Error("Internal failure: error command did not match.");
     }
 
+    /** Return true iff C is a column letter. */
+    private static boolean isCol(char c) {
+        return c >= 'a' && c <= 'g';
+    }
+
+    /** Return true iff C is a row number. */
+    private static boolean isRow(char c) {
+        return c >= '1' && c <= '7';
+    }
+
+    /** Length of a move command, c0r0-c1r1. */
+    static final int MOVE_LENGTH = 5;
+
+    /** Number of squares on the extended board. */
+    private static final int SQUARES =
+        Move.EXTENDED_SIDE * Move.EXTENDED_SIDE;
+
+    /** MOVE_COMMANDS[F * SQUARES + T] is the Command for the move from
+     *  linearized index F to T, once made. */
+    private static final Command[] MOVE_COMMANDS =
+        new Command[SQUARES * SQUARES];
+
+    /** The commands without operands, shared by all parses. */
+    private static final Command
+        EOF_COMMAND = new Command(Type.EOF),
+        PASS_COMMAND = new Command(Type.PASS),
+        START_COMMAND = new Command(Type.START),
+        QUIT_COMMAND = new Command(Type.QUIT),
+        CLEAR_COMMAND = new Command(Type.CLEAR),
+        DUMP_COMMAND = new Command(Type.DUMP),
+        HELP_COMMAND = new Command(Type.HELP),
+        POSITION_COMMAND = new Command(Type.POSITION);
+
     /** The command name. */
     private final Type _type;
-    /** Command arguments. */
+    /** Command arguments, or null for a move whose operands have not
+     *  been asked for. */
     private final String[] _operands;
+    /** The move denoted by a PIECEMOVE command, or null. */
+    private final Move _move;
 }
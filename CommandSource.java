@@ -11,4 +11,26 @@ interface CommandSource {
      *  PROMPT suggests a prompt string that might be used, if
      *  appropriate to the input method. */
     String getLine(String prompt);
+
+    /** Read and return the next command, as for
+     *  Command.parseCommand(getLine(PROMPT)), but skipping blank lines
+     *  and removing comments and surrounding whitespace first.  Returns
+     *  an EOF command when input is exhausted.  Sources that can
+     *  recognize commands without making Strings of them may override
+     *  this. */
+    default Command getCommand(String prompt) {
+        while (true) {
+            String line = getLine(prompt);
+            if (line == null) {
+                return Command.parseCommand(null);
+            }
+            if (line.indexOf('#') != -1) {
+                line = line.substring(0, line.indexOf('#'));
+            }
+            line = line.trim();
+            if (line.length() > 0) {
+                return Command.parseCommand(line);
+            }
+        }
+    }
 }
@@ -31,6 +31,21 @@ class CommandSources implements CommandSource {
         return null;
     }
 
+    /** Read and return the next command from the most recent source
+     *  that is not exhausted, or an EOF command if all are.  PROMPT is
+     *  as for getLine. */
+    @Override
+    public Command getCommand(String prompt) {
+        while (!_inputs.isEmpty()) {
+            Command cmnd = _inputs.peek().getCommand(prompt);
+            if (cmnd.commandType() != Command.Type.EOF) {
+                return cmnd;
+            }
+            _inputs.pop();
+        }
+        return Command.parseCommand(null);
+    }
+
     /** Make SOURCE the latest input source from which subsequent input
      *  will be read. */
     void addSource(CommandSource source) {
@@ -31,6 +31,10 @@ public class CommandTest {
     @Test public void testAUTO() {
         check("auto red", AUTO, "red");
         check("auto blue", AUTO, "blue");
+        check("auto Red MCTS", AUTO, "Red", "MCTS");
+        check("auto blue mcts 250", AUTO, "blue", "mcts", "250");
+        checkError("auto red 250");
+        checkError("auto red mc");
         checkError("auto green");
         checkError("auto");
         checkError("auto red foo");
@@ -48,14 +52,51 @@ public class CommandTest {
         checkError("seed 142 foo");
     }
 
+    @Test public void testRECORD() {
+        check("record games.arc", RECORD, "games.arc");
+        checkError("record");
+    }
+
+    @Test public void testBOOK() {
+        check("book openings.book", BOOK, "openings.book");
+        checkError("book");
+    }
+
+    @Test public void testCACHE() {
+        check("cache /tmp/ataxx", CACHE, "/tmp/ataxx");
+        check("cache /tmp/ataxx 64", CACHE, "/tmp/ataxx", "64");
+        checkError("cache");
+    }
+
+    @Test public void testPONDER() {
+        check("ponder on", PONDER, "on");
+        check("Ponder OFF", PONDER, "OFF");
+        checkError("ponder");
+    }
+
+    @Test public void testANALYZE() {
+        check("analyze", ANALYZE);
+        check("analyse 4", ANALYZE, "4");
+        check("analyze 4 7", ANALYZE, "4", "7");
+        checkError("analyze x");
+    }
+
+    @Test public void testLOAD() {
+        check("load tests/game1.txt", LOAD, "tests/game1.txt");
+        checkError("load");
+    }
+
     @Test public void testSTART() {
         check("start", START);
+        check("  start", START);
+        checkError("Start");
         checkError("start foo");
     }
 
     @Test public void testPASS() {
         check("pass", PASS);
         check("-", PASS);
+        check("Pass", PASS);
         checkError("pass foo");
     }
 
@@ -71,6 +112,11 @@ public class CommandTest {
 
     @Test public void testMOVE() {
         check("a3-b3", PIECEMOVE, "a", "3", "b", "3");
+        assertSame("Move not handed over", Move.move('a', '3', 'c', '1'),
+                   Command.parseCommand(" a3-c1 ").move());
+        check("a1-g7", PIECEMOVE, "a", "1", "g", "7");
+        assertNull("Impossible move formed",
+                   Command.parseCommand("a1-g7").move());
         checkError("a3b3");
         checkError("a3-b3 foo");
         checkError("3a-3b");
@@ -79,4 +125,11 @@ public class CommandTest {
         checkError("a7-a8");
     }
 
+    @Test public void testPOSITION() {
+        check("position", POSITION);
+        check("position r5b/7/7/7/7/7/b5r r 0", SETPOSITION,
+              "r5b/7/7/7/7/7/b5r r 0");
+        checkError("position r5b/7/7/7/7/7/b5r r");
+    }
+
 }
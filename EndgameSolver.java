@@ -0,0 +1,447 @@
+package ataxx;
+
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+
+import static ataxx.GameArchive.JUMP_CODE;
+import static ataxx.GameArchive.PASS_CODE;
+import static ataxx.Bitboard.ADJACENT;
+import static ataxx.Bitboard.FULL;
+import static ataxx.Bitboard.RING;
+import static ataxx.Bitboard.dilate;
+
+/**
+ * An exact solver for positions with few empty squares.  The value of a
+ * position is the final number of pieces of the side to move less those
+ * of its opponent under best play by both sides, found by alpha-beta
+ * search to the end of the game.
+ * <p>
+ * Every legal move is searched, jumps included, and passes and the jump
+ * limit are handled as in Board, so values are exact.  Jumps do not fill
+ * squares, so the tree grows with the jump limit rather than with the
+ * number of empty squares.  The hash table merges the jump sequences
+ * that transpose into one another.  An entry normally holds only for the
+ * jump count with which it was found, but one whose search never reached
+ * the jump limit is also filed under its pieces alone and holds for any
+ * smaller jump count, since the same tree is then searched with more
+ * jumps to spare.  Even so, the jump sequences make most positions with
+ * more than two or three empty squares out of reach: those sequences
+ * change the pieces on many squares, so that few of the positions they
+ * lead to recur.  A search may therefore be given a budget of positions
+ * (see limit), and one that exceeds it, or is stopped (by stop, or by
+ * the condition given to limit), gives up; its result must then be
+ * ignored (see stopped).
+ * <p>
+ * The search works on pairs of masks (the pieces of the side to move
+ * and of its opponent, as for Bitboard), so that making a move is a
+ * matter of computing the successor masks and unmaking it is free.
+ * Moves are tried best-first: the move from the hash table, then by
+ * pieces gained, extends before all jumps, and moves into regions of empty
+ * squares of odd size (where the mover will get the last square) before
+ * the others.  When the side to move cannot move, its opponent's best
+ * result is at least what it gets by extending into every empty square
+ * it can reach, which often ends the search there; likewise, when only
+ * the side to move can move, what it gets that way may already be enough
+ * for a cutoff.
+ *
+ * @author Shrey Malhotra
+ */
+class EndgameSolver {
+
+    /** Default log2 of the number of hash-table entries. */
+    static final int DEFAULT_TABLE_BITS = 18;
+    /** Bound on the magnitude of a value. */
+    private static final int INFTY = Bitboard.MAX_MOVES;
+    /** Maximum number of plies searched. */
+    private static final int MAX_PLY =
+        (GameArchive.SQUARES + 1) * (Board.JUMP_LIMIT + 2);
+    /** Ordering-key bonus of extends, which puts them before any jump. */
+    private static final int EXTEND_KEY = 1 << 7;
+    /** The search checks its interrupt condition when _nodes &
+     *  CLOCK_MASK is 0. */
+    private static final long CLOCK_MASK = 1023;
+    /** Kinds of table entries: exact value, lower bound, upper bound. */
+    private static final int EXACT = 1, LOWER = 2, UPPER = 3;
+    /** Flag of table entries whose searches never reached the jump
+     *  limit. */
+    private static final int FREE = 1 << 30;
+    /** Jump count under which entries with FREE set are also filed. */
+    private static final int FREE_KEY = Board.JUMP_LIMIT + 1;
+
+    /** A solver with a hash table of 2**DEFAULT_TABLE_BITS entries. */
+    EndgameSolver() {
+        this(DEFAULT_TABLE_BITS);
+    }
+
+    /** A solver with a hash table of 2**TABLEBITS entries. */
+    EndgameSolver(int tableBits) {
+        _tableMine = new long[1 << tableBits];
+        _tableTheirs = new long[1 << tableBits];
+        _tableData = new int[1 << tableBits];
+        _shift = Long.SIZE - tableBits;
+    }
+
+    /** Return the exact value of BOARD for the side to move, recording
+     *  a best move for bestMove, unless the search is stopped. */
+    int solve(Board board) {
+        _board.copy(board);
+        return solve(_board);
+    }
+
+    /** Return the exact value of B for the side to move, recording a
+     *  best move for bestMove, unless the search is stopped, in which
+     *  case the result is meaningless and stopped() is true. */
+    int solve(Bitboard b) {
+        if (b.blocked() != _blocked) {
+            _blocked = b.blocked();
+            Arrays.fill(_tableData, 0);
+        }
+        _root.copy(b);
+        _bestCode = PASS_CODE;
+        _limited = false;
+        return search(b.mine(), b.theirs(), b.jumps(), 0, -INFTY, INFTY);
+    }
+
+    /** Make my searches give up after visiting NODES more positions (0
+     *  meaning no limit), and cancel any earlier stop. */
+    void limit(long nodes) {
+        limit(nodes, null);
+    }
+
+    /** Make my searches give up after visiting NODES more positions (0
+     *  meaning no limit) or once INTERRUPTED (if not null, and checked
+     *  every so often) is true, and cancel any earlier stop. */
+    void limit(long nodes, BooleanSupplier interrupted) {
+        _nodeLimit = nodes > 0 ? _nodes + nodes : Long.MAX_VALUE;
+        _interrupted = interrupted;
+        _stopped = false;
+    }
+
+    /** Make my current search give up as soon as possible.  It may be
+     *  called from any thread. */
+    void stop() {
+        _stopped = true;
+    }
+
+    /** Return true iff my last search gave up before finding the value
+     *  of its position. */
+    boolean stopped() {
+        return _stopped;
+    }
+
+    /** Return the best move found by the last solve. */
+    Move bestMove() {
+        return _root.toMove(_bestCode);
+    }
+
+    /** Return the number of positions visited by my searches so far. */
+    long nodes() {
+        return _nodes;
+    }
+
+    /** Return the number of hash-table lookups made by my searches so
+     *  far. */
+    long probes() {
+        return _probes;
+    }
+
+    /** Return the number of those lookups that found their position. */
+    long hits() {
+        return _hits;
+    }
+
+    /** Return the value for the side to move of the position with its
+     *  pieces MINE and its opponent's THEIRS, after JUMPS consecutive
+     *  jumps, PLY plies from the root.  Values at or below ALPHA or at or
+     *  above BETA are only bounds on the true value.  Sets _limited if
+     *  the value depends on the jump limit having been reached. */
+    private int search(long mine, long theirs, int jumps, int ply,
+                       int alpha, int beta) {
+        _nodes += 1;
+        if (_nodes >= _nodeLimit
+            || (_nodes & CLOCK_MASK) == 0 && _interrupted != null
+               && _interrupted.getAsBoolean()) {
+            _stopped = true;
+        }
+        if (_stopped) {
+            return 0;
+        }
+        long empty = ~(mine | theirs | _blocked) & FULL;
+        if (mine == 0 || theirs == 0) {
+            return Long.bitCount(mine) - Long.bitCount(theirs);
+        }
+        if (jumps >= Board.JUMP_LIMIT || ply == MAX_PLY - 1) {
+            _limited = true;
+            return Long.bitCount(mine) - Long.bitCount(theirs);
+        }
+        long reach = dilate(dilate(mine)) & empty;
+        if (reach == 0) {
+            if ((dilate(dilate(theirs)) & empty) == 0) {
+                return Long.bitCount(mine) - Long.bitCount(theirs);
+            }
+            int fill = -fillIn(theirs, mine, empty);
+            if (fill <= alpha) {
+                return fill;
+            }
+            if (ply == 0) {
+                _bestCode = PASS_CODE;
+            }
+            return -search(theirs, mine, jumps, ply + 1, -beta, -alpha);
+        }
+        if ((dilate(dilate(theirs)) & empty) == 0) {
+            int fill = fillIn(mine, theirs, empty);
+            if (fill >= beta) {
+                return fill;
+            }
+        }
+
+        int slot = (int) (hash(mine, theirs, jumps) >>> _shift),
+            freeSlot = (int) (hash(mine, theirs, FREE_KEY) >>> _shift);
+        int ttCode = PASS_CODE;
+        _probes += 1;
+        for (int s = slot; ; s = freeSlot) {
+            int data = _tableData[s];
+            if (data != 0 && _tableMine[s] == mine
+                && _tableTheirs[s] == theirs
+                && (entryJumps(data) == jumps
+                    || (data & FREE) != 0 && entryJumps(data) > jumps)) {
+                _hits += 1;
+                int value = entryValue(data), kind = entryKind(data);
+                if (ttCode == PASS_CODE) {
+                    ttCode = entryCode(data);
+                }
+                if (ply > 0 && (kind == EXACT
+                                || kind == LOWER && value >= beta
+                                || kind == UPPER && value <= alpha)) {
+                    _limited |= (data & FREE) == 0;
+                    return value;
+                }
+            }
+            if (s == freeSlot) {
+                break;
+            }
+        }
+
+        boolean limited = _limited;
+        _limited = false;
+        int n = generate(mine, theirs, empty, ply, ttCode);
+        int[] moves = _moves[ply];
+        int alpha0 = alpha, best = -INFTY, bestCode = moves[0];
+        for (int i = 0; i < n; i += 1) {
+            int code = moves[i], to = code & 0x3F;
+            long m = mine, bit = 1L << to;
+            int j;
+            if (code >= JUMP_CODE) {
+                m &= ~(1L << ((code - JUMP_CODE) >> 6));
+                j = jumps + 1;
+            } else {
+                j = 0;
+            }
+            long flipped = ADJACENT[to] & theirs;
+            int value = -search(theirs & ~flipped, m | bit | flipped, j,
+                                ply + 1, -beta, -alpha);
+            if (_stopped) {
+                return 0;
+            }
+            if (value > best) {
+                best = value;
+                bestCode = code;
+                if (value > alpha) {
+                    alpha = value;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        if (ply == 0) {
+            _bestCode = bestCode;
+        }
+        int kind = best <= alpha0 ? UPPER : best >= beta ? LOWER : EXACT;
+        int data = entry(jumps, kind, best, bestCode),
+            old = _tableData[freeSlot];
+        if (!_limited) {
+            data |= FREE;
+            if (_tableMine[freeSlot] != mine
+                || _tableTheirs[freeSlot] != theirs
+                || (old & FREE) == 0 || entryJumps(old) <= jumps) {
+                _tableMine[freeSlot] = mine;
+                _tableTheirs[freeSlot] = theirs;
+                _tableData[freeSlot] = data;
+            }
+        }
+        _tableMine[slot] = mine;
+        _tableTheirs[slot] = theirs;
+        _tableData[slot] = data;
+        _limited |= limited;
+        return best;
+    }
+
+    /** Store the moves of the side with pieces MINE against THEIRS, with
+     *  empty squares EMPTY, into _moves[PLY] in the order in which they
+     *  are to be tried, TTCODE first if it is among them and otherwise
+     *  all extends before all jumps.  Return their number. */
+    private int generate(long mine, long theirs, long empty, int ply,
+                         int ttCode) {
+        if (_moves[ply] == null) {
+            _moves[ply] = new int[Bitboard.MAX_MOVES];
+            _keys[ply] = new int[Bitboard.MAX_MOVES];
+        }
+        int[] moves = _moves[ply], keys = _keys[ply];
+        long odd = oddRegions(empty);
+        int n = 0;
+        for (long x = dilate(mine) & empty; x != 0; x &= x - 1) {
+            int to = Long.numberOfTrailingZeros(x);
+            n = insert(moves, keys, n, to,
+                       key(to, theirs, odd, EXTEND_KEY, ttCode == to));
+        }
+        for (long p = mine; p != 0; p &= p - 1) {
+            int from = Long.numberOfTrailingZeros(p);
+            for (long x = RING[from] & empty; x != 0; x &= x - 1) {
+                int to = Long.numberOfTrailingZeros(x),
+                    code = JUMP_CODE + (from << 6) + to;
+                n = insert(moves, keys, n, code,
+                           key(to, theirs, odd, 0, ttCode == code));
+            }
+        }
+        return n;
+    }
+
+    /** Return the ordering key of a move to square TO against pieces
+     *  THEIRS, where ODD is the mask of odd-sized empty regions, BONUS
+     *  (EXTEND_KEY for extends) is added, and FIRST indicates the table's
+     *  move. */
+    private static int key(int to, long theirs, long odd, int bonus,
+                           boolean first) {
+        if (first) {
+            return Integer.MAX_VALUE;
+        }
+        return 8 * Long.bitCount(ADJACENT[to] & theirs) + bonus
+            + (int) ((odd >>> to) & 1);
+    }
+
+    /** Insert CODE with key KEY into the first N entries of MOVES, kept
+     *  in decreasing order of their keys in KEYS, returning N + 1. */
+    private static int insert(int[] moves, int[] keys, int n, int code,
+                              int key) {
+        int j;
+        for (j = n; j > 0 && keys[j - 1] < key; j -= 1) {
+            keys[j] = keys[j - 1];
+            moves[j] = moves[j - 1];
+        }
+        keys[j] = key;
+        moves[j] = code;
+        return n + 1;
+    }
+
+    /** Return the mask of the empty squares of EMPTY lying in connected
+     *  regions of odd size. */
+    private static long oddRegions(long empty) {
+        long odd = 0;
+        while (empty != 0) {
+            long region = empty & -empty, prev;
+            do {
+                prev = region;
+                region = dilate(region) & empty;
+            } while (region != prev);
+            if ((Long.bitCount(region) & 1) != 0) {
+                odd |= region;
+            }
+            empty &= ~region;
+        }
+        return odd;
+    }
+
+    /** Return the piece difference for the side with pieces MINE against
+     *  THEIRS, with empty squares EMPTY, after it fills every empty square
+     *  it can reach by extends, if that ends the game, and otherwise
+     *  -INFTY.  The opponent is assumed unable to move, so that this is a
+     *  lower bound on the value of the position for the filling side. */
+    private int fillIn(long mine, long theirs, long empty) {
+        while (true) {
+            long filled = dilate(mine) & empty;
+            if (filled == 0) {
+                break;
+            }
+            long flipped = dilate(filled) & theirs;
+            mine |= filled | flipped;
+            theirs &= ~flipped;
+            empty &= ~filled;
+        }
+        if (theirs != 0 && (dilate(dilate(mine)) & empty) != 0) {
+            return -INFTY;
+        }
+        return Long.bitCount(mine) - Long.bitCount(theirs);
+    }
+
+    /** Return a hash of the position with pieces MINE and THEIRS after
+     *  JUMPS jumps. */
+    private static long hash(long mine, long theirs, int jumps) {
+        long h = mine * 0x9E3779B97F4A7C15L
+            ^ Long.rotateLeft(theirs * 0xC2B2AE3D27D4EB4FL, 31) ^ jumps;
+        return h * 0xFF51AFD7ED558CCDL;
+    }
+
+    /** Return a table entry recording JUMPS, an entry of kind KIND, value
+     *  VALUE, and best move CODE, without the FREE flag. */
+    private static int entry(int jumps, int kind, int value, int code) {
+        return jumps | kind << 5 | (value + 64) << 7
+            | (code - PASS_CODE) << 14;
+    }
+
+    /** Return the jump count recorded by entry DATA. */
+    private static int entryJumps(int data) {
+        return data & 0x1F;
+    }
+
+    /** Return the kind of entry DATA. */
+    private static int entryKind(int data) {
+        return (data >> 5) & 3;
+    }
+
+    /** Return the value recorded by entry DATA. */
+    private static int entryValue(int data) {
+        return ((data >> 7) & 0x7F) - 64;
+    }
+
+    /** Return the move code recorded by entry DATA. */
+    private static int entryCode(int data) {
+        return ((data & ~FREE) >>> 14) + PASS_CODE;
+    }
+
+    /** The position last solved, used to translate its best move. */
+    private final Bitboard _root = new Bitboard(0);
+    /** Scratch board for solving Boards. */
+    private final Bitboard _board = new Bitboard(0);
+    /** Blocked squares of the positions in the table. */
+    private long _blocked = -1;
+    /** True iff the value of the position being searched so far depends
+     *  on the jump limit. */
+    private boolean _limited;
+    /** Move code of the best move at the root. */
+    private int _bestCode;
+    /** Value of _nodes at which my searches give up. */
+    private long _nodeLimit = Long.MAX_VALUE;
+    /** Condition on which my searches give up, or null. */
+    private BooleanSupplier _interrupted;
+    /** True iff my current search is to give up. */
+    private volatile boolean _stopped;
+    /** Number of positions visited. */
+    private long _nodes;
+    /** Numbers of hash-table lookups and of those that succeeded. */
+    private long _probes, _hits;
+    /** Move lists for each ply, allocated as needed. */
+    private final int[][] _moves = new int[MAX_PLY][];
+    /** Ordering keys for each ply, allocated as needed. */
+    private final int[][] _keys = new int[MAX_PLY][];
+    /** Pieces of the side to move of each table entry. */
+    private final long[] _tableMine;
+    /** Pieces of the opponent of each table entry. */
+    private final long[] _tableTheirs;
+    /** Jump count, kind, value, move, and FREE flag of each table entry,
+     *  or 0 for an unused entry. */
+    private final int[] _tableData;
+    /** Shift reducing a hash to a table index. */
+    private final int _shift;
+
+}
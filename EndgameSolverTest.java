@@ -0,0 +1,177 @@
+package ataxx;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the endgame solver.
+ *
+ * @author Shrey Malhotra
+ */
+public class EndgameSolverTest {
+
+    /** Return the value of BOARD for the side to move by exhaustive
+     *  search over every legal move, remembering the values of positions
+     *  (which include the jump count) in MEMO. */
+    private static int exhaustive(Board board, HashMap<String, Integer> memo) {
+        if (board.gameOver()) {
+            PieceColor side = board.whoseMove();
+            return board.numPieces(side) - board.numPieces(side.opposite());
+        }
+        String key = board.position();
+        Integer known = memo.get(key);
+        if (known != null) {
+            return known;
+        }
+        Move[] moves = new Move[Board.MAX_MOVES];
+        int n = board.legalMoves(moves);
+        if (n == 0) {
+            moves[0] = Move.pass();
+            n = 1;
+        }
+        int best = -Bitboard.MAX_MOVES;
+        for (int i = 0; i < n; i += 1) {
+            board.makeMove(moves[i]);
+            best = Math.max(best, -exhaustive(board, memo));
+            board.undo();
+        }
+        memo.put(key, best);
+        return best;
+    }
+
+    /** Return a random position in position notation in which only the
+     *  squares of the SIDE x SIDE square at a1 are open, EMPTIES of them
+     *  empty and the rest holding random pieces, so that exhaustive
+     *  search of it is feasible even with jumps. */
+    private static String confined(Random random, int side, int empties) {
+        char[] squares = new char[Board.SIDE * Board.SIDE];
+        Arrays.fill(squares, 'X');
+        List<Integer> open = new ArrayList<>();
+        for (int r = 0; r < side; r += 1) {
+            for (int c = 0; c < side; c += 1) {
+                open.add(r * Board.SIDE + c);
+            }
+        }
+        Collections.shuffle(open, random);
+        for (int i = 0; i < open.size(); i += 1) {
+            squares[open.get(i)] =
+                i < empties ? '1' : random.nextBoolean() ? 'r' : 'b';
+        }
+        StringBuilder text = new StringBuilder();
+        for (int r = Board.SIDE - 1; r >= 0; r -= 1) {
+            text.append(squares, r * Board.SIDE, Board.SIDE);
+            text.append(r > 0 ? "/" : random.nextBoolean() ? " r" : " b");
+        }
+        return text.append(" 0").toString();
+    }
+
+    @Test
+    public void testFill() {
+        Board b = new Board();
+        b.setPosition("rrrrrrr/rrrrrrr/rrrrrrr/rrrrrrr/rrrrrrr/bbbbbb1/bbbbbbb"
+                      + " r 0");
+        EndgameSolver solver = new EndgameSolver(10);
+        assertEquals("wrong value", 29, solver.solve(b));
+        assertEquals("wrong move", Board.index('g', '2'),
+                     solver.bestMove().toIndex());
+    }
+
+    @Test
+    public void testJumpWins() {
+        Board b = new Board();
+        b.setPosition("rrrrrrr/rrbbbrr/rrb1brr/rrbbbrr/rrrrrrr/rrrrrrr/rrrrrr1"
+                      + " r 0");
+        EndgameSolver solver = new EndgameSolver(16);
+        assertEquals("wrong value", 47, solver.solve(b));
+        assertFalse("gave up", solver.stopped());
+        b.makeMove(solver.bestMove());
+        assertEquals("solver missed the win", 0, b.bluePieces());
+        b.undo();
+        AI ai = new AI(PieceColor.RED, Evaluator.STANDARD,
+                       SearchParams.STANDARD
+                       .with(SearchParams.ENDGAME_EMPTIES, 4));
+        b.makeMove(ai.findMove(b, 4));
+        assertEquals("AI missed the win", 0, b.bluePieces());
+    }
+
+    @Test
+    public void testLimit() {
+        Board b = new Board();
+        b.setPosition("rrrrrrr/rrrrrrr/rrrrrrr/rrrrrrr/rrrrrrr/bbbbbb1/bbbbbbb"
+                      + " r 0");
+        EndgameSolver solver = new EndgameSolver(10);
+        solver.limit(100);
+        solver.solve(b);
+        assertTrue("did not give up", solver.stopped());
+        solver.limit(0);
+        assertEquals("wrong value after giving up", 29, solver.solve(b));
+        assertFalse("gave up", solver.stopped());
+    }
+
+    @Test
+    public void testInterrupted() {
+        Board b = new Board();
+        b.setPosition("rrrrrrr/rrrrrrr/rrrrrrr/rrrrrrr/rrrrrrr/bbbbbb1/bbbbbbb"
+                      + " r 0");
+        EndgameSolver solver = new EndgameSolver(10);
+        long nodes = solver.nodes();
+        solver.limit(0, () -> true);
+        solver.solve(b);
+        assertTrue("did not give up", solver.stopped());
+        assertTrue("too slow to give up", solver.nodes() - nodes <= 1024);
+        solver.limit(0, () -> false);
+        assertEquals("wrong value after giving up", 29, solver.solve(b));
+        assertFalse("gave up", solver.stopped());
+    }
+
+    @Test
+    public void testNodeCount() {
+        String[] positions = {
+            "b1bbbbb/rrXbXbb/rrXrXbb/rrrrrrr/rrXrXrr/rrXbXrr/rrbbb1b b 0",
+            "bbbbbbb/bbbbbbb/bbbrrrr/bb1brr1/bbbbrrr/bbbrrrr/bbbrrrr b 0",
+        };
+        int[] values = { -5, 15 };
+        Board b = new Board();
+        for (int k = 0; k < positions.length; k += 1) {
+            b.setPosition(positions[k]);
+            EndgameSolver solver = new EndgameSolver();
+            solver.limit(25_000);
+            assertEquals("wrong value for " + positions[k], values[k],
+                         solver.solve(b));
+            assertFalse("too many positions for " + positions[k],
+                        solver.stopped());
+        }
+        assertTrue("two empty squares not solved by default",
+                   SearchParams.defaults().get(SearchParams.ENDGAME_EMPTIES)
+                   >= 2);
+    }
+
+    @Test
+    public void testAgainstExhaustiveSearch() {
+        Random random = new Random(5);
+        EndgameSolver solver = new EndgameSolver(12);
+        Board board = new Board();
+        for (int k = 0; k < 8; k += 1) {
+            board.setPosition(confined(random, 3, 2));
+            int value = solver.solve(board);
+            assertEquals("wrong value for " + board.position(),
+                         exhaustive(board, new HashMap<>()), value);
+            if (!board.gameOver()) {
+                Move move = solver.bestMove();
+                assertTrue("illegal move", board.legalMove(move));
+                board.makeMove(move);
+                assertEquals("move does not achieve value", -value,
+                             solver.solve(board));
+            }
+        }
+    }
+
+}
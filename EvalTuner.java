@@ -0,0 +1,289 @@
+package ataxx;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.file.StandardOpenOption.READ;
+import static ataxx.Evaluator.DISTANCES;
+import static ataxx.Evaluator.FEATURES;
+import static ataxx.Evaluator.TEMPO;
+
+/** Fits the weights of the Evaluator to labeled positions produced by
+ *  SelfPlay, by minimizing the mean squared difference between each
+ *  game's outcome (0, 1/2, or 1 for the side to move) and a logistic
+ *  function, sigmoid(K * evaluation), of the position's static value.
+ *  The scale K is fitted first with the starting weights, then held
+ *  fixed while the weights are fitted by gradient descent, with each
+ *  gradient computed in parallel over all processors.  Usage:
+ *  <pre>
+ *      java ataxx.EvalTuner OUT DATA... [-n ITERATIONS]
+ *  </pre>
+ *  The starting weights are Evaluator.STANDARD's, and the result is
+ *  written to OUT in the format Evaluator.load reads.
+ *  @author Shrey Malhotra
+ */
+class EvalTuner {
+
+    /** Default number of gradient steps. */
+    private static final int DEFAULT_ITERATIONS = 500;
+    /** Step size of the descent, in weight units. */
+    private static final double STEP = 0.25;
+    /** Decay rates of the first and second moment estimates. */
+    private static final double BETA1 = 0.9, BETA2 = 0.999;
+    /** Number of iterations between progress reports. */
+    private static final int REPORT_INTERVAL = 25;
+    /** Bounds on log10(K) during its fitting. */
+    private static final double MIN_LOG_SCALE = -4, MAX_LOG_SCALE = 0;
+
+    /** Run the tuner as described in the class comment with ARGS. */
+    public static void main(String[] args) throws Exception {
+        int iterations = DEFAULT_ITERATIONS;
+        List<Path> files = new ArrayList<>();
+        for (int i = 1; i < args.length; i += 1) {
+            if (args[i].equals("-n") && i + 1 < args.length) {
+                iterations = Integer.parseInt(args[i + 1]);
+                i += 1;
+            } else {
+                files.add(Paths.get(args[i]));
+            }
+        }
+        if (files.isEmpty()) {
+            System.err.println("Usage: java ataxx.EvalTuner OUT DATA..."
+                               + " [-n ITERATIONS]");
+            System.exit(1);
+        }
+        EvalTuner tuner =
+            new EvalTuner(Runtime.getRuntime().availableProcessors());
+        try {
+            for (Path file : files) {
+                tuner.load(file);
+            }
+            PrintWriter log = new PrintWriter(System.out, true);
+            log.printf("%d positions%n", tuner.size());
+            Evaluator result =
+                tuner.tune(Evaluator.STANDARD, iterations, log);
+            result.save(Paths.get(args[0]),
+                        String.format("Fitted to %d positions",
+                                      tuner.size()));
+        } finally {
+            tuner.shutdown();
+        }
+    }
+
+    /** A tuner that computes on THREADS threads. */
+    EvalTuner(int threads) {
+        _threads = threads;
+        _pool = Executors.newFixedThreadPool(threads);
+    }
+
+    /** Return the number of positions loaded. */
+    int size() {
+        return _size;
+    }
+
+    /** Add the positions in the training data file FILE. */
+    void load(Path file) throws IOException {
+        try (FileChannel in = FileChannel.open(file, READ)) {
+            long bytes = in.size() - TrainingData.HEADER_SIZE;
+            long count = bytes / TrainingData.RECORD_SIZE;
+            if (bytes < 0 || in.map(READ_ONLY, 0, TrainingData.HEADER_SIZE)
+                .getInt() != TrainingData.MAGIC) {
+                throw new IOException(file + " is not a training file");
+            }
+            if ((_size + count) * DISTANCES > Integer.MAX_VALUE) {
+                throw new IOException("too many positions");
+            }
+            ensureCapacity((int) (_size + count));
+            byte[] record = new byte[TrainingData.RECORD_SIZE];
+            long window = (Integer.MAX_VALUE / TrainingData.RECORD_SIZE)
+                * TrainingData.RECORD_SIZE;
+            for (long pos = 0; pos < count * TrainingData.RECORD_SIZE;
+                 pos += window) {
+                long len = Math.min(window,
+                                    count * TrainingData.RECORD_SIZE - pos);
+                MappedByteBuffer buf =
+                    in.map(READ_ONLY, TrainingData.HEADER_SIZE + pos, len);
+                while (buf.hasRemaining()) {
+                    buf.get(record);
+                    addPosition(record);
+                }
+            }
+        }
+    }
+
+    /** Add the position whose TrainingData record is RECORD. */
+    private void addPosition(byte[] record) {
+        int mine = TrainingData.blueToMove(record, 0)
+            ? PieceColor.BLUE.ordinal() : PieceColor.RED.ordinal();
+        int base = _size * DISTANCES;
+        for (int s = 0; s < GameArchive.SQUARES; s += 1) {
+            int code = TrainingData.square(record, 0, s);
+            if (code == mine) {
+                _features[base + Evaluator.distance(s)] += 1;
+            } else if (code >= PieceColor.RED.ordinal()) {
+                _features[base + Evaluator.distance(s)] -= 1;
+            }
+        }
+        _results[_size] = (byte) TrainingData.outcome(record, 0);
+        _size += 1;
+    }
+
+    /** Make room for N positions. */
+    private void ensureCapacity(int n) {
+        if (n > _results.length) {
+            byte[] features = new byte[n * DISTANCES];
+            byte[] results = new byte[n];
+            System.arraycopy(_features, 0, features, 0, _size * DISTANCES);
+            System.arraycopy(_results, 0, results, 0, _size);
+            _features = features;
+            _results = results;
+        }
+    }
+
+    /** Return the weights fitted by ITERATIONS gradient steps starting
+     *  from those of START, logging the fitted scale and the error every
+     *  so often to LOG, if not null. */
+    Evaluator tune(Evaluator start, int iterations, PrintWriter log)
+        throws InterruptedException, ExecutionException {
+        double[] w = new double[FEATURES];
+        for (int k = 0; k < FEATURES; k += 1) {
+            w[k] = start.weight(k);
+        }
+        double scale = fitScale(w);
+        if (log != null) {
+            log.printf("K = %.6f, error = %.6f%n",
+                       scale, error(w, scale, null));
+        }
+        double[] grad = new double[FEATURES],
+            m = new double[FEATURES], v = new double[FEATURES];
+        for (int t = 1; t <= iterations; t += 1) {
+            double err = error(w, scale, grad);
+            for (int k = 0; k < FEATURES; k += 1) {
+                m[k] = BETA1 * m[k] + (1 - BETA1) * grad[k];
+                v[k] = BETA2 * v[k] + (1 - BETA2) * grad[k] * grad[k];
+                double mHat = m[k] / (1 - Math.pow(BETA1, t)),
+                    vHat = v[k] / (1 - Math.pow(BETA2, t));
+                w[k] -= STEP * mHat / (Math.sqrt(vHat) + 1e-12);
+            }
+            if (log != null && (t % REPORT_INTERVAL == 0 || t == iterations)) {
+                log.printf("iteration %d: error = %.6f%n", t, err);
+            }
+        }
+        int[] result = new int[FEATURES];
+        for (int k = 0; k < FEATURES; k += 1) {
+            result[k] = (int) Math.round(w[k]);
+        }
+        return new Evaluator(result);
+    }
+
+    /** Return the scale K minimizing the error of weights W, found by
+     *  golden-section search on log10(K). */
+    double fitScale(double[] w)
+        throws InterruptedException, ExecutionException {
+        final double ratio = (Math.sqrt(5) - 1) / 2;
+        double lo = MIN_LOG_SCALE, hi = MAX_LOG_SCALE;
+        double x1 = hi - ratio * (hi - lo), x2 = lo + ratio * (hi - lo);
+        double e1 = error(w, Math.pow(10, x1), null),
+            e2 = error(w, Math.pow(10, x2), null);
+        while (hi - lo > 1e-3) {
+            if (e1 < e2) {
+                hi = x2;
+                x2 = x1;
+                e2 = e1;
+                x1 = hi - ratio * (hi - lo);
+                e1 = error(w, Math.pow(10, x1), null);
+            } else {
+                lo = x1;
+                x1 = x2;
+                e1 = e2;
+                x2 = lo + ratio * (hi - lo);
+                e2 = error(w, Math.pow(10, x2), null);
+            }
+        }
+        return Math.pow(10, (lo + hi) / 2);
+    }
+
+    /** Return the mean squared prediction error of weights W with scale
+     *  SCALE.  If GRAD is not null, set it to the gradient of the error
+     *  with respect to W. */
+    double error(double[] w, double scale, double[] grad)
+        throws InterruptedException, ExecutionException {
+        List<Future<double[]>> parts = new ArrayList<>();
+        int chunk = (_size + _threads - 1) / _threads;
+        for (int lo = 0; lo < _size; lo += chunk) {
+            final int from = lo, to = Math.min(_size, lo + chunk);
+            parts.add(_pool.submit(() -> partialError(w, scale, from, to,
+                                                      grad != null)));
+        }
+        double[] sum = new double[FEATURES + 1];
+        for (Future<double[]> part : parts) {
+            double[] p = part.get();
+            for (int k = 0; k <= FEATURES; k += 1) {
+                sum[k] += p[k];
+            }
+        }
+        int n = Math.max(_size, 1);
+        if (grad != null) {
+            for (int k = 0; k < FEATURES; k += 1) {
+                grad[k] = sum[k] / n;
+            }
+        }
+        return sum[FEATURES] / n;
+    }
+
+    /** Return the sums over positions FROM to TO-1 of the gradient terms
+     *  (if GRADIENT, otherwise 0) followed by the squared error, for
+     *  weights W and scale SCALE. */
+    private double[] partialError(double[] w, double scale, int from,
+                                  int to, boolean gradient) {
+        double[] sum = new double[FEATURES + 1];
+        byte[] features = _features;
+        for (int i = from; i < to; i += 1) {
+            int base = i * DISTANCES;
+            double eval = w[TEMPO];
+            for (int d = 0; d < DISTANCES; d += 1) {
+                eval += w[d] * features[base + d];
+            }
+            double s = 1 / (1 + Math.exp(-scale * eval));
+            double diff = _results[i] * 0.5 - s;
+            sum[FEATURES] += diff * diff;
+            if (gradient) {
+                double g = -2 * diff * s * (1 - s) * scale;
+                for (int d = 0; d < DISTANCES; d += 1) {
+                    sum[d] += g * features[base + d];
+                }
+                sum[TEMPO] += g;
+            }
+        }
+        return sum;
+    }
+
+    /** Release my threads. */
+    void shutdown() {
+        _pool.shutdown();
+    }
+
+    /** Number of threads used. */
+    private final int _threads;
+    /** Thread pool for error computations. */
+    private final ExecutorService _pool;
+    /** Number of positions loaded. */
+    private int _size;
+    /** Piece-count differences (side to move less opponent) for each
+     *  distance class, DISTANCES per position. */
+    private byte[] _features = new byte[0];
+    /** Outcome (TrainingData.LOSS, etc.) of each position. */
+    private byte[] _results = new byte[0];
+
+}
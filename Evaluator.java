@@ -0,0 +1,151 @@
+package ataxx;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+/**
+ * The static evaluation used by AI: a weighted count of pieces.  Each
+ * piece is worth the weight of its distance class (the number of rows
+ * plus the number of columns between it and the center square, from 0
+ * to 6) to its owner, and the side to move receives a further TEMPO
+ * weight.  Weights are in the units of AI's search values.
+ * <p>
+ * The weights are read from a Java properties file, one entry per
+ * feature named as in NAMES, by load; missing entries keep their
+ * default values.  STANDARD, the evaluator used by default, is loaded at
+ * startup from the file named by the system property ataxx.weights
+ * (default WEIGHTS_FILE), if it exists.
+ *
+ * @author Shrey Malhotra
+ */
+class Evaluator {
+
+    /** Number of distance classes. */
+    static final int DISTANCES = Board.SIDE;
+    /** Index of the tempo weight. */
+    static final int TEMPO = DISTANCES;
+    /** Number of weights. */
+    static final int FEATURES = DISTANCES + 1;
+    /** Names of the weights in weights files. */
+    static final String[] NAMES = {
+        "dist0", "dist1", "dist2", "dist3", "dist4", "dist5", "dist6",
+        "tempo"
+    };
+    /** The default weights: a piece is worth 16, plus 1 for each step
+     *  closer to the center than a corner. */
+    private static final int[] DEFAULT_WEIGHTS = {
+        22, 21, 20, 19, 18, 17, 16, 0
+    };
+    /** Default name of the weights file. */
+    static final String WEIGHTS_FILE = "ataxx-weights.properties";
+
+    /** An evaluator with weights WEIGHTS, indexed as in NAMES. */
+    Evaluator(int[] weights) {
+        assert weights.length == FEATURES;
+        _weights = weights.clone();
+        _squareWeights = new int[Board.EXTENDED_SIDE * Board.EXTENDED_SIDE];
+        for (int s = 0; s < GameArchive.SQUARES; s += 1) {
+            _squareWeights[GameArchive.linearIndex(s)] =
+                _weights[distance(s)];
+        }
+    }
+
+    /** Return an evaluator with the default weights. */
+    static Evaluator defaults() {
+        return new Evaluator(DEFAULT_WEIGHTS);
+    }
+
+    /** Return an evaluator with the weights in FILE, taking defaults for
+     *  those it lacks. */
+    static Evaluator load(Path file) throws IOException {
+        Properties props = new Properties();
+        try (Reader in = Files.newBufferedReader(file)) {
+            props.load(in);
+        }
+        int[] weights = DEFAULT_WEIGHTS.clone();
+        for (int k = 0; k < FEATURES; k += 1) {
+            String value = props.getProperty(NAMES[k]);
+            if (value != null) {
+                try {
+                    weights[k] = Integer.parseInt(value.trim());
+                } catch (NumberFormatException excp) {
+                    throw new IOException("bad weight for " + NAMES[k]);
+                }
+            }
+        }
+        return new Evaluator(weights);
+    }
+
+    /** Write my weights to FILE, headed by the comment COMMENT. */
+    void save(Path file, String comment) throws IOException {
+        Properties props = new Properties();
+        for (int k = 0; k < FEATURES; k += 1) {
+            props.setProperty(NAMES[k], Integer.toString(_weights[k]));
+        }
+        try (Writer out = Files.newBufferedWriter(file)) {
+            props.store(out, comment);
+        }
+    }
+
+    /** Return weight K (indexed as in NAMES). */
+    int weight(int k) {
+        return _weights[k];
+    }
+
+    /** Return a copy of my weights. */
+    int[] weights() {
+        return _weights.clone();
+    }
+
+    /** Return the value of BOARD for the side to move. */
+    int evaluate(Board board) {
+        PieceColor side = board.whoseMove(), opp = side.opposite();
+        int value = _weights[TEMPO];
+        for (int sq = Board.FIRST_SQUARE; sq <= Board.LAST_SQUARE;
+             sq += 1) {
+            PieceColor p = board.get(sq);
+            if (p == side) {
+                value += _squareWeights[sq];
+            } else if (p == opp) {
+                value -= _squareWeights[sq];
+            }
+        }
+        return value;
+    }
+
+    /** Return the distance class of square S (numbered as in
+     *  GameArchive). */
+    static int distance(int s) {
+        return Math.abs(s % Board.SIDE - Board.SIDE / 2)
+            + Math.abs(s / Board.SIDE - Board.SIDE / 2);
+    }
+
+    /** The evaluator used by AIs unless told otherwise. */
+    static final Evaluator STANDARD = loadStandard();
+
+    /** Return the evaluator described for STANDARD. */
+    private static Evaluator loadStandard() {
+        Path file = Paths.get(System.getProperty("ataxx.weights",
+                                                 WEIGHTS_FILE));
+        if (Files.isReadable(file)) {
+            try {
+                return load(file);
+            } catch (IOException excp) {
+                System.err.printf("Could not load weights from %s: %s%n",
+                                  file, excp.getMessage());
+            }
+        }
+        return defaults();
+    }
+
+    /** My weights. */
+    private final int[] _weights;
+    /** Weight of a piece on each square, indexed by linearized index. */
+    private final int[] _squareWeights;
+
+}
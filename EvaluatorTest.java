@@ -0,0 +1,146 @@
+package ataxx;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the static evaluation and its tuner.
+ *
+ * @author Shrey Malhotra
+ */
+public class EvaluatorTest {
+
+    /** Return the static value of BOARD for the side to move as AI
+     *  computed it before evaluations had weights: 16 per piece plus the
+     *  centrality of each square (6 less its distance from d4), mine less
+     *  my opponent's. */
+    private static int oldScore(Board board) {
+        PieceColor side = board.whoseMove();
+        int value = 16 * (board.numPieces(side)
+                          - board.numPieces(side.opposite()));
+        for (char c = 'a'; c <= 'g'; c += 1) {
+            for (char r = '1'; r <= '7'; r += 1) {
+                int centrality = 6 - Math.abs(c - 'd') - Math.abs(r - '4');
+                if (board.get(c, r) == side) {
+                    value += centrality;
+                } else if (board.get(c, r) == side.opposite()) {
+                    value -= centrality;
+                }
+            }
+        }
+        return value;
+    }
+
+    @Test
+    public void testDefaults() {
+        Evaluator eval = Evaluator.defaults();
+        Board board = new Board();
+        assertEquals("bad initial value", 0, eval.evaluate(board));
+        board.setPosition("rrX1Xbb/2r4/7/X5X/7/1bb4/b1X1X1r b 12");
+        assertEquals("bad value", oldScore(board), eval.evaluate(board));
+        Random random = new Random(3);
+        Move[] scratch = new Move[Board.MAX_MOVES];
+        for (int k = 0; k < 20; k += 1) {
+            SelfPlay.randomStart(board, random, scratch);
+            for (int i = random.nextInt(40); i > 0 && !board.gameOver();
+                 i -= 1) {
+                board.makeMove(SelfPlay.randomMove(board, random, scratch));
+                assertEquals("bad value of " + board.position(),
+                             oldScore(board), eval.evaluate(board));
+            }
+        }
+    }
+
+    @Test
+    public void testLoadSave() throws IOException {
+        Path file = Files.createTempFile("ataxx-weights", ".properties");
+        try {
+            Evaluator eval = new Evaluator(new int[] {
+                    30, 25, 20, 15, 10, 5, 1, -3 });
+            eval.save(file, "test");
+            assertArrayEquals("bad round trip", eval.weights(),
+                              Evaluator.load(file).weights());
+            Files.write(file, "tempo = 7\n".getBytes());
+            int[] expected = Evaluator.defaults().weights();
+            expected[Evaluator.TEMPO] = 7;
+            assertArrayEquals("missing weights not defaulted", expected,
+                              Evaluator.load(file).weights());
+            Files.write(file, "dist3 = x\n".getBytes());
+            try {
+                Evaluator.load(file);
+                fail("accepted bad weight");
+            } catch (IOException excp) {
+                /* Expected. */
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testTuner() throws Exception {
+        Path file = Files.createTempFile("ataxx-training", ".dat");
+        EvalTuner tuner = new EvalTuner(2);
+        try {
+            Random random = new Random(4);
+            Move[] scratch = new Move[Board.MAX_MOVES];
+            Board board = new Board();
+            int n = 200;
+            byte[] data = new byte[TrainingData.HEADER_SIZE
+                                   + n * TrainingData.RECORD_SIZE];
+            TrainingData.header(data);
+            for (int i = 0; i < n; i += 1) {
+                SelfPlay.randomStart(board, random, scratch);
+                for (int k = random.nextInt(30); k > 0 && !board.gameOver();
+                     k -= 1) {
+                    board.makeMove(SelfPlay.randomMove(board, random,
+                                                       scratch));
+                }
+                int pos = TrainingData.HEADER_SIZE
+                    + i * TrainingData.RECORD_SIZE;
+                TrainingData.encode(board, 0, data, pos);
+                PieceColor side = board.whoseMove();
+                int diff = board.numPieces(side)
+                    - board.numPieces(side.opposite());
+                TrainingData.setOutcome(data, pos,
+                                        diff > 0 ? TrainingData.WIN
+                                        : diff < 0 ? TrainingData.LOSS
+                                        : TrainingData.DRAW);
+            }
+            Files.write(file, data);
+            tuner.load(file);
+            assertEquals("wrong number of positions", n, tuner.size());
+            double[] zero = new double[Evaluator.FEATURES];
+            double[] grad = new double[Evaluator.FEATURES];
+            double err0 = tuner.error(zero, 1, grad);
+            assertTrue("bad error of zero weights", err0 > 0 && err0 <= 0.25);
+            double[] w = zero.clone();
+            for (int k = 0; k < Evaluator.FEATURES; k += 1) {
+                w[k] = -0.01 * grad[k] / Math.abs(grad[k] + 1e-12);
+            }
+            assertTrue("gradient does not descend",
+                       tuner.error(w, 1, null) < err0);
+            Evaluator tuned = tuner.tune(Evaluator.defaults(), 20, null);
+            double[] start = new double[Evaluator.FEATURES],
+                end = new double[Evaluator.FEATURES];
+            for (int k = 0; k < Evaluator.FEATURES; k += 1) {
+                start[k] = Evaluator.defaults().weight(k);
+                end[k] = tuned.weight(k);
+            }
+            double scale = tuner.fitScale(start);
+            assertTrue("tuning increased the error",
+                       tuner.error(end, scale, null)
+                       <= tuner.error(start, scale, null) + 1e-9);
+        } finally {
+            tuner.shutdown();
+            Files.delete(file);
+        }
+    }
+
+}
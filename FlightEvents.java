@@ -0,0 +1,115 @@
+package ataxx;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Java Flight Recorder events marking the phases of searches and games,
+ * so that a recording shows them in the same timeline as garbage
+ * collections and other JVM activity.  Record with, for example,
+ * <pre>
+ *     java -XX:StartFlightRecording=filename=ataxx.jfr ataxx.Main
+ * </pre>
+ * The events that time work carry thresholds, so that a continuous
+ * recording keeps only the slow cases; a recording's settings may lower
+ * or raise them (e.g., ataxx.SearchIteration#threshold=0 ms).  When
+ * nothing is being recorded, the events cost next to nothing.
+ * <p>
+ * Event fields are named as they appear in recordings.
+ *
+ * @author Shrey Malhotra
+ */
+final class FlightEvents {
+
+    /** Not instantiable. */
+    private FlightEvents() {
+    }
+
+    /** A search to one depth: one of the iterations of an analysis, or
+     *  the whole of a fixed-depth search. */
+    @Name("ataxx.SearchIteration")
+    @Label("Search Iteration")
+    @Category({ "Ataxx", "Search" })
+    @Description("A search of the current position to one depth")
+    @Threshold("20 ms")
+    static class SearchIteration extends Event {
+        /** Nominal depth of the iteration. */
+        @Label("Depth")
+        int depth;
+        /** Value found for the side to move. */
+        @Label("Score")
+        int score;
+        /** Positions visited. */
+        @Label("Nodes")
+        long nodes;
+    }
+
+    /** An exact solution of an endgame position. */
+    @Name("ataxx.EndgameSolve")
+    @Label("Endgame Solve")
+    @Category({ "Ataxx", "Search" })
+    @Description("An exact solution of a position with few empty squares")
+    @Threshold("20 ms")
+    static class EndgameSolve extends Event {
+        /** Empty squares in the position. */
+        @Label("Empty Squares")
+        int empties;
+        /** Final piece difference for the side to move. */
+        @Label("Score")
+        int score;
+        /** Positions visited. */
+        @Label("Nodes")
+        long nodes;
+    }
+
+    /** A lookup of the current position in the opening book or the
+     *  search cache. */
+    @Name("ataxx.TableLookup")
+    @Label("Table Lookup")
+    @Category({ "Ataxx", "Search" })
+    @Description("A lookup in the opening book or the search cache")
+    @Threshold("1 ms")
+    static class TableLookup extends Event {
+        /** "book" or "cache". */
+        @Label("Table")
+        String table;
+        /** True iff a move was found. */
+        @Label("Hit")
+        boolean hit;
+    }
+
+    /** A move made on the board of a game (not during a search),
+     *  including the updating of the board's observers. */
+    @Name("ataxx.MoveCommit")
+    @Label("Move Commit")
+    @Category({ "Ataxx", "Game" })
+    @Description("A move made in a game, including display updates")
+    @Threshold("5 ms")
+    static class MoveCommit extends Event {
+        /** The move, as for Move.toString. */
+        @Label("Move")
+        String move;
+        /** Number of the move in the game, from 1. */
+        @Label("Move Number")
+        int number;
+    }
+
+    /** A change in the state of a Game. */
+    @Name("ataxx.GameState")
+    @Label("Game State")
+    @Category({ "Ataxx", "Game" })
+    @Description("A change of a game's state")
+    static class GameState extends Event {
+        /** The previous state. */
+        @Label("From")
+        String from;
+        /** The new state. */
+        @Label("To")
+        String to;
+    }
+
+}
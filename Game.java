@@ -3,12 +3,14 @@ package ataxx;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.function.Consumer;
-import java.util.Stack;
 import static ataxx.PieceColor.*;
 import static ataxx.Game.State.*;
 import static ataxx.Command.Type.*;
@@ -23,6 +25,22 @@ import static ataxx.GameException.error;
  */
 class Game {
 
+    /**
+     * Default number of moves reported by 'analyze'.
+     */
+    static final int ANALYSIS_LINES = 3;
+
+    /**
+     * Default depth of 'analyze'.
+     */
+    static final int ANALYSIS_DEPTH = 5;
+
+    /**
+     * Greatest depth of 'analyze' when AIs search on a SearchPool, which
+     * the analysis shares with other games.
+     */
+    static final int MAX_SHARED_ANALYSIS_DEPTH = 6;
+
     /**
      * States of play.
      */
@@ -30,22 +48,56 @@ class Game {
         SETUP, PLAYING, FINISHED;
     }
 
+    /**
+     * Requests to a game in progress from other threads (see control).
+     */
+    static enum Control {
+        /** Stop the current search, playing the best move found so
+         *  far. */
+        STOP,
+        /** Stop the current search and quit. */
+        QUIT;
+    }
+
     /**
      * A new Game, using BOARD to play on, reading initially from
      * BASESOURCE and using REPORTER for error and informational messages.
      */
     Game(Board board, CommandSource baseSource, Reporter reporter) {
+        this(board, baseSource, reporter,
+             new PrintWriter(System.out, true));
+    }
+
+    /**
+     * A new Game like Game(BOARD, BASESOURCE, REPORTER) that prints
+     * help, boards, and winners on OUT.
+     */
+    Game(Board board, CommandSource baseSource, Reporter reporter,
+         PrintWriter out) {
         _inputs.addSource(baseSource);
-        _board = new Board();
+        _board = board;
         _reporter = reporter;
+        _out = out;
         redplayer = new Manual(this, RED);
         blueplayer = new AI(this, BLUE);
     }
 
     /**
-     * Run a session of Ataxx gaming.  Use an AtaxxGUI iff USEGUI.
+     * Run a session of Ataxx gaming, returning when it is quit.  Use an
+     * AtaxxGUI iff USEGUI.
      */
     void process(boolean useGUI) {
+        try {
+            play();
+        } catch (Quit excp) {
+            return;
+        }
+    }
+
+    /**
+     * Play games until quit.
+     */
+    private void play() {
         Player red, blue;
 
         red = blue = null;
@@ -59,29 +111,54 @@ class Game {
                 doCommand();
             }
 
-            _state = PLAYING;
+            setState(PLAYING);
             red = redplayer;
             blue = blueplayer;
+            if (_timing != null) {
+                _timing.reset();
+            }
 
-
-            while (_state != SETUP && !_board.gameOver()) {
-                Move move;
-                if (_board.whoseMove() == RED) {
-                    move = red.myMove();
-                } else {
-                    move = blue.myMove();
+            boolean metrics = Metrics.enabled();
+            if (metrics) {
+                Metrics.gameStarted();
+            }
+            try {
+                while (_state != SETUP && !_board.gameOver()) {
+                    Player player = _board.whoseMove() == RED ? red : blue;
+                    handleControls();
+                    long start = System.nanoTime();
+                    Move move = player.myMove();
+                    handleControls();
+                    if (_state == PLAYING) {
+                        long nanos = System.nanoTime() - start;
+                        SearchStats stats = player.lastSearch();
+                        if (_timing != null && stats != null) {
+                            _timing.record(player.myColor(), move,
+                                           _board.numMoves() + 1, nanos,
+                                           stats);
+                        }
+                        commitMove(move);
+                        if (metrics) {
+                            if (stats != null) {
+                                Metrics.moveChosen(nanos);
+                            }
+                            Metrics.movePlayed();
+                        }
+                    }
                 }
-                if (_state == PLAYING) {
-                    _board.makeMove(move);
+            } finally {
+                if (metrics) {
+                    Metrics.gameEnded();
                 }
             }
 
             if (_state != SETUP) {
                 reportWinner();
+                archiveGame();
             }
 
             if (_state == PLAYING) {
-                _state = FINISHED;
+                setState(FINISHED);
             }
 
             while (_state == FINISHED) {
@@ -104,9 +181,12 @@ class Game {
      */
     void doCommand() {
         try {
-            Command act =
-                    Command.parseCommand(_inputs.getLine("ataxx: "));
-            _commands.get(act.commandType()).accept(act.operands());
+            Command act = _inputs.getCommand("ataxx: ");
+            if (act.commandType() == PIECEMOVE) {
+                doMove(act.move());
+            } else {
+                _commands.get(act.commandType()).accept(act.operands());
+            }
         } catch (GameException excp) {
             _reporter.errMsg(excp.getMessage());
         }
@@ -122,7 +202,7 @@ class Game {
     Command getMoveCmnd(String prompt) {
         while (_state == PLAYING) {
             try {
-                Command act = Command.parseCommand(_inputs.getLine(prompt));
+                Command act = _inputs.getCommand(prompt);
                 if (act.commandType() == Command.Type.PIECEMOVE) {
                     return act;
                 } else {
@@ -161,18 +241,40 @@ class Game {
     /* Command Processors */
 
     /**
-     * Perform the command 'auto OPERANDS[0]'.
+     * Perform the command 'auto OPERANDS[0] [mcts [MILLIS]]', making the
+     * AI a MonteCarlo player thinking for MILLIS milliseconds (at most
+     * MonteCarlo.MAX_MILLIS) per move if mcts is given.  MonteCarlo
+     * players, whose threads are their own, are refused when AIs search
+     * on a SearchPool.
      */
     void doAuto(String[] operands) {
-        try {
-            _state = SETUP;
-            if (operands[0].equals("RED")) {
-                redplayer = new AI(this, BLUE);
+        setState(SETUP);
+        PieceColor color = PieceColor.playerValueOf(operands[0]);
+        if (operands.length > 1 && _searchPool != null) {
+            throw error("Monte Carlo players are not available here");
+        }
+        Player player;
+        if (operands.length > 2) {
+            long millis;
+            try {
+                millis = Long.parseLong(operands[2]);
+            } catch (NumberFormatException excp) {
+                throw error("Invalid number: %s", operands[2]);
+            }
+            if (millis < 1 || millis > MonteCarlo.MAX_MILLIS) {
+                throw error("Invalid time per move");
             }
-        } catch (IllegalArgumentException excp) {
-            error("unknown player: %s", operands[0]);
+            player = new MonteCarlo(this, color, millis);
+        } else if (operands.length > 1) {
+            player = new MonteCarlo(this, color);
+        } else {
+            player = new AI(this, color);
+        }
+        if (color == RED) {
+            redplayer = player;
+        } else {
+            blueplayer = player;
         }
-
     }
 
     /**
@@ -183,7 +285,7 @@ class Game {
                 Game.class.getClassLoader().getResourceAsStream("ataxx/"
                         + "help.txt");
         if (helpIn == null) {
-            System.err.println("No help available.");
+            _reporter.errMsg("No help available.");
         } else {
             try {
                 BufferedReader r
@@ -193,7 +295,7 @@ class Game {
                     if (line == null) {
                         break;
                     }
-                    System.out.println(line);
+                    _out.println(line);
                 }
                 r.close();
             } catch (IOException e) {
@@ -203,41 +305,321 @@ class Game {
     }
 
     /**
-     * Perform the command 'load OPERANDS[0]'.
+     * Perform the command 'load OPERANDS[0]': read further commands from
+     * the script OPERANDS[0] until it is exhausted.
      */
     void doLoad(String[] operands) {
+        checkFileAccess("load");
         try {
-            FileReader reader = new FileReader(operands[0]);
-            bufferread(new BufferedReader(reader));
-            System.out.println("File loading");
-        } catch (IOException e) {
+            _inputs.addSource(new ScriptSource(Paths.get(operands[0]),
+                                               _board));
+            _out.println("File loading");
+        } catch (IOException | InvalidPathException e) {
             throw error("Cannot open file %s", operands[0]);
         }
     }
 
     /**
-     * Perform the reading of the bufferstream.
-     * @param stream ** A BufferReader.**
+     * Perform the command 'record OPERANDS[0]': append each game
+     * finished from now on to the game archive OPERANDS[0].
+     */
+    void doRecord(String[] operands) {
+        checkFileAccess("record");
+        closeArchive();
+        try {
+            _archive = new GameArchiveWriter(Paths.get(operands[0]));
+        } catch (IOException e) {
+            throw error("Cannot open archive %s", operands[0]);
+        }
+    }
+
+    /**
+     * Perform the command 'book OPERANDS[0]': let AIs take their moves
+     * from the opening book OPERANDS[0] while their positions are in it.
+     */
+    void doBook(String[] operands) {
+        checkFileAccess("book");
+        try {
+            _book = new OpeningBookProber(Paths.get(operands[0]));
+        } catch (IOException e) {
+            throw error("Cannot open opening book %s", operands[0]);
+        }
+    }
+
+    /**
+     * Return the opening book set by the 'book' command, or null if
+     * there is none.
+     */
+    OpeningBookProber book() {
+        return _book;
+    }
+
+    /**
+     * Perform the command 'cache OPERANDS[0] [OPERANDS[1]]': let AIs
+     * look up positions in, and add their results to, the persistent
+     * search cache in directory OPERANDS[0], limited to OPERANDS[1]
+     * megabytes (default SearchCache.DEFAULT_MEGABYTES).
+     */
+    void doCache(String[] operands) {
+        checkFileAccess("cache");
+        int megabytes = SearchCache.DEFAULT_MEGABYTES;
+        try {
+            if (operands.length > 1) {
+                megabytes = Integer.parseInt(operands[1]);
+            }
+            if (megabytes < 1 || megabytes > SearchCache.MAX_MEGABYTES) {
+                throw error("Cache size must be from 1 to %d megabytes",
+                            SearchCache.MAX_MEGABYTES);
+            }
+            closeCache();
+            _cache = new SearchCache(Paths.get(operands[0]), megabytes);
+        } catch (NumberFormatException excp) {
+            throw error("Invalid number: %s", operands[1]);
+        } catch (IOException e) {
+            throw error("Cannot open search cache %s: %s", operands[0],
+                        e.getMessage());
+        }
+    }
+
+    /**
+     * Return the search cache set by the 'cache' command, or null if
+     * there is none.
+     */
+    SearchCache cache() {
+        return _cache;
+    }
+
+    /**
+     * Perform the command 'analyze [OPERANDS[0] [OPERANDS[1]]]': report
+     * the best OPERANDS[0] moves (default ANALYSIS_LINES) in the current
+     * position at each depth up to OPERANDS[1] (default ANALYSIS_DEPTH).
+     * If AIs search on a SearchPool, so does the analysis, to a depth of
+     * at most MAX_SHARED_ANALYSIS_DEPTH.
+     */
+    void doAnalyze(String[] operands) {
+        int lines = ANALYSIS_LINES, depth = ANALYSIS_DEPTH;
+        try {
+            if (operands.length > 0) {
+                lines = Integer.parseInt(operands[0]);
+            }
+            if (operands.length > 1) {
+                depth = Integer.parseInt(operands[1]);
+            }
+        } catch (NumberFormatException excp) {
+            throw error("Invalid number: %s", String.join(" ", operands));
+        }
+        if (lines < 1 || depth < 1) {
+            throw error("Invalid analysis size");
+        }
+        if (_searchPool != null && depth > MAX_SHARED_ANALYSIS_DEPTH) {
+            throw error("Analysis depth is at most %d here",
+                        MAX_SHARED_ANALYSIS_DEPTH);
+        }
+        AI ai = new AI(this, _board.whoseMove());
+        Board board = new Board(_board);
+        int count = lines, maxDepth = depth;
+        if (_searchPool == null) {
+            ai.analyze(board, count, maxDepth, _reporter);
+        } else {
+            _searchPool.call(() -> {
+                ai.analyze(board, count, maxDepth, _reporter);
+                return null;
+            }, ai::stop);
+        }
+    }
+
+    /**
+     * Perform the command 'ponder OPERANDS[0]': let AIs search on their
+     * opponents' time iff OPERANDS[0] is "on".  Pondering is refused
+     * when AIs search on a SearchPool, whose admission it would bypass.
+     */
+    void doPonder(String[] operands) {
+        boolean on = operands[0].equalsIgnoreCase("on");
+        if (on && _searchPool != null) {
+            throw error("Pondering is not available here");
+        }
+        _pondering = on;
+    }
+
+    /**
+     * Return true iff AIs are to ponder.
+     */
+    boolean pondering() {
+        return _pondering && _searchPool == null;
+    }
+
+    /**
+     * Report the cost of each searched move and summarize each game iff
+     * ON (see MoveTiming).
      */
+    void setTiming(boolean on) {
+        _timing = on ? new MoveTiming(_reporter) : null;
+    }
 
-    private void bufferread(BufferedReader stream) {
-        inputs.push(stream);
+    /**
+     * Let AIs run their searches on POOL, or on the thread playing the
+     * game if POOL is null.
+     */
+    void setSearchPool(SearchPool pool) {
+        _searchPool = pool;
+    }
+
+    /**
+     * Allow the commands that name files (load, record, book, and cache)
+     * iff ALLOWED.  They are allowed unless this is called.
+     */
+    void setFileAccess(boolean allowed) {
+        _fileAccess = allowed;
+    }
+
+    /**
+     * Return the pool on which AIs search, or null if they search on the
+     * thread playing the game.
+     */
+    SearchPool searchPool() {
+        return _searchPool;
+    }
+
+    /**
+     * Tell the AIs' searches for moves in my games of their progress
+     * through LISTENER (none if null).
+     */
+    void setSearchListener(SearchListener listener) {
+        _searchListener = listener;
+    }
+
+    /**
+     * Return the listener to AIs' searches, or null if none.
+     */
+    SearchListener searchListener() {
+        return _searchListener;
+    }
+
+    /**
+     * Queue the request CONTROL to the game in progress.  May be called
+     * from any thread, without waiting: a search under way stops at
+     * once, and the game acts on the request when the current move has
+     * been chosen.  Requests made while no move is being chosen are
+     * acted on (QUIT) or dropped (STOP) before the next.
+     */
+    void control(Control control) {
+        _controls.add(control);
+    }
+
+    /**
+     * Return true iff a request made through control is waiting, in
+     * which case searches stop.
+     */
+    boolean interrupted() {
+        return !_controls.isEmpty();
+    }
+
+    /**
+     * Act on and remove the waiting requests made through control.
+     */
+    private void handleControls() {
+        for (Control c = _controls.poll(); c != null; c = _controls.poll()) {
+            if (c == Control.QUIT) {
+                doQuit(null);
+            }
+        }
+    }
+
+    /**
+     * Close the current search cache, if any.
+     */
+    private void closeCache() {
+        if (_cache != null) {
+            try {
+                _cache.close();
+            } catch (IOException e) {
+                _reporter.errMsg("Cannot close search cache: %s",
+                                 e.getMessage());
+            }
+            _cache = null;
+        }
+    }
+
+    /**
+     * Append the game just finished to the current archive, if any.
+     */
+    private void archiveGame() {
+        if (_archive != null) {
+            try {
+                _archive.append(_board);
+            } catch (IOException e) {
+                _reporter.errMsg("Cannot write archive: %s", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Write the index of the current archive, if any, and close it.
+     */
+    private void closeArchive() {
+        if (_archive != null) {
+            try {
+                _archive.close();
+            } catch (IOException e) {
+                _reporter.errMsg("Cannot write archive: %s", e.getMessage());
+            }
+            _archive = null;
+        }
     }
 
     /**
      * Perform the command 'manual OPERANDS[0]'.
      */
     void doManual(String[] operands) {
-        if (operands[0].equals("BLUE")) {
+        setState(SETUP);
+        PieceColor color = PieceColor.playerValueOf(operands[0]);
+        if (color == RED) {
+            redplayer = new Manual(this, RED);
+        } else {
             blueplayer = new Manual(this, BLUE);
         }
     }
 
     /**
-     * Exit the program.
+     * End the session.
      */
     void doQuit(String[] unused) {
-        System.exit(0);
+        closeArchive();
+        closeCache();
+        _reporter.flush();
+        throw new Quit();
+    }
+
+    /**
+     * Change my state to STATE, recording the change for the flight
+     * recorder (see FlightEvents).
+     */
+    private void setState(State state) {
+        if (state == _state) {
+            return;
+        }
+        FlightEvents.GameState event = new FlightEvents.GameState();
+        if (event.shouldCommit()) {
+            event.from = _state == null ? "" : _state.toString();
+            event.to = state.toString();
+            event.commit();
+        }
+        _state = state;
+    }
+
+    /**
+     * Make MOVE on my board, recording it for the flight recorder if it
+     * is slow (see FlightEvents).
+     */
+    private void commitMove(Move move) {
+        FlightEvents.MoveCommit event = new FlightEvents.MoveCommit();
+        event.begin();
+        _board.makeMove(move);
+        if (event.shouldCommit()) {
+            event.move = move.toString();
+            event.number = _board.numMoves();
+            event.commit();
+        }
     }
 
     /**
@@ -245,29 +627,28 @@ class Game {
      */
     void doStart(String[] unused) {
         checkState("start", SETUP);
-        _state = PLAYING;
+        setState(PLAYING);
     }
 
     /**
-     * Perform the move OPERANDS[0].
+     * Perform the move NEWMOVE (null if its squares are too far apart).
      */
-    void doMove(String[] operands) {
-        if (_state == SETUP) {
-            Move newmove = Move.move(operands[0].charAt(0),
-                    operands[1].charAt(0), operands[2].charAt(0),
-                    operands[3].charAt(0));
-            if (_board.legalMove(newmove)) {
-                _board.makeMove(newmove);
-            }
-        } else {
-            throw new Error("Illegal Move");
+    void doMove(Move newmove) {
+        checkState("move", SETUP);
+        if (!_board.legalMove(newmove)) {
+            throw error("Illegal move");
         }
+        commitMove(newmove);
     }
 
     /**
      * Cause current player to pass.
      */
     void doPass(String[] unused) {
+        checkState("pass", SETUP, PLAYING);
+        if (!_board.legalMove(Move.pass())) {
+            throw error("Illegal move: cannot pass with a move available");
+        }
         _board.pass();
     }
 
@@ -276,7 +657,7 @@ class Game {
      */
     void doClear(String[] unused) {
         _board.clear();
-        _state = SETUP;
+        setState(SETUP);
     }
 
 
@@ -284,7 +665,24 @@ class Game {
      * Perform the command 'dump'.
      */
     void doDump(String[] unused) {
-        System.out.println(_board);
+        _out.println(_board);
+    }
+
+    /**
+     * Perform the command 'position': print the current position in
+     * position notation.
+     */
+    void doPosition(String[] unused) {
+        _reporter.moveMsg("%s", _board.position());
+    }
+
+    /**
+     * Perform the command 'position OPERANDS[0]': set up the position
+     * OPERANDS[0], given in position notation.
+     */
+    void doSetPosition(String[] operands) {
+        checkState("position", SETUP);
+        _board.setPosition(operands[0]);
     }
 
     /**
@@ -296,7 +694,7 @@ class Game {
         try {
             _randoms.setSeed(Long.parseLong(operands[0]));
         } catch (NumberFormatException excp) {
-            error("Invalid number: %s", operands[0]);
+            throw error("Invalid number: %s", operands[0]);
         }
     }
 
@@ -304,18 +702,12 @@ class Game {
      * Execute the command 'block OPERANDS[0]'.
      */
     void doBlock(String[] operands) {
-        _state = SETUP;
-        if (_state == SETUP) {
-            String checkblock = operands[0];
-            if (_board.legalBlock(checkblock.charAt(0), checkblock.charAt(1))) {
-                _board.setBlock(checkblock.charAt(0), checkblock.charAt(1));
-            } else {
-                throw new Error("Not Legal to place Block here");
-            }
-        } else {
-            throw new Error("Game is not in SETUP state ");
+        setState(SETUP);
+        char c = operands[0].charAt(0), r = operands[0].charAt(1);
+        if (!_board.legalBlock(c, r)) {
+            throw error("Cannot place a block at %s", operands[0]);
         }
-
+        _board.setBlock(c, r);
     }
 
     /**
@@ -329,15 +721,19 @@ class Game {
      * Report the outcome of the current game.
      */
     void reportWinner() {
-        _state = FINISHED;
+        setState(FINISHED);
         String msg;
         msg = "Game over.";
         if (_board.whoseMove() == BLUE) {
-            System.out.println("Blue wins.");
+            _out.println("Blue wins.");
         } else if (_board.whoseMove() == RED) {
-            System.out.println("Red wins.");
+            _out.println("Red wins.");
         }
         _reporter.outcomeMsg(msg);
+        if (_timing != null) {
+            _timing.summarize();
+        }
+        _reporter.flush();
     }
 
     /**
@@ -366,6 +762,29 @@ class Game {
         throw error("'%s' command is not allowed now.", cmnd);
     }
 
+    /**
+     * Check that commands naming files are allowed (see setFileAccess),
+     * using CMND in error messages as the name of the command to be
+     * executed.
+     */
+    private void checkFileAccess(String cmnd) {
+        if (!_fileAccess) {
+            throw error("'%s' command is not available here.", cmnd);
+        }
+    }
+
+    /**
+     * Thrown by doQuit to end process.
+     */
+    private static class Quit extends RuntimeException {
+        /**
+         * A Quit without a stack trace, which process does not need.
+         */
+        Quit() {
+            super(null, null, false, false);
+        }
+    }
+
     /**
      * Mapping of command types to methods that process them.
      */
@@ -377,13 +796,19 @@ class Game {
         _commands.put(BLOCK, this::doBlock);
         _commands.put(CLEAR, this::doClear);
         _commands.put(DUMP, this::doDump);
+        _commands.put(POSITION, this::doPosition);
+        _commands.put(SETPOSITION, this::doSetPosition);
         _commands.put(HELP, this::doHelp);
         _commands.put(MANUAL, this::doManual);
         _commands.put(PASS, this::doPass);
-        _commands.put(PIECEMOVE, this::doMove);
         _commands.put(SEED, this::doSeed);
         _commands.put(START, this::doStart);
         _commands.put(LOAD, this::doLoad);
+        _commands.put(RECORD, this::doRecord);
+        _commands.put(BOOK, this::doBook);
+        _commands.put(CACHE, this::doCache);
+        _commands.put(PONDER, this::doPonder);
+        _commands.put(ANALYZE, this::doAnalyze);
         _commands.put(QUIT, this::doQuit);
         _commands.put(ERROR, this::doError);
         _commands.put(EOF, this::doQuit);
@@ -406,6 +831,10 @@ class Game {
      * Used to send messages to the user.
      */
     private Reporter _reporter;
+    /**
+     * Destination of help, boards, and winners.
+     */
+    private final PrintWriter _out;
     /**
      * Source of pseudo-random numbers (used by AIs).
      */
@@ -420,8 +849,41 @@ class Game {
      */
     private Player blueplayer;
     /**
-     * An Input BufferReader Stack.
+     * Archive receiving finished games, or null.
+     */
+    private GameArchiveWriter _archive;
+    /**
+     * The opening book used by AIs, or null.
+     */
+    private OpeningBookProber _book;
+    /**
+     * The persistent search cache used by AIs, or null.
+     */
+    private SearchCache _cache;
+    /**
+     * True iff AIs search on their opponents' time.
+     */
+    private boolean _pondering;
+    /**
+     * The pool on which AIs search, or null.
+     */
+    private SearchPool _searchPool;
+    /**
+     * True iff the commands that name files are allowed.
+     */
+    private boolean _fileAccess = true;
+    /**
+     * Timing of moves, or null if not in timing mode.
+     */
+    private MoveTiming _timing;
+    /**
+     * Listener to AIs' searches, or null.
+     */
+    private SearchListener _searchListener;
+    /**
+     * Requests from other threads, made through control.
      */
-    private final Stack<BufferedReader> inputs = new Stack<BufferedReader>();
+    private final ConcurrentLinkedQueue<Control> _controls =
+        new ConcurrentLinkedQueue<>();
 
 }
@@ -0,0 +1,174 @@
+package ataxx;
+
+import static ataxx.PieceColor.BLOCKED;
+import static ataxx.PieceColor.BLUE;
+import static ataxx.PieceColor.RED;
+
+/**
+ * Layout of the compact binary game archive, and the routines that pack
+ * and unpack its fields.  An archive file consists of
+ * <ul>
+ * <li> A FILE_HEADER_SIZE-byte file header: the MAGIC number, the
+ *      VERSION, and the absolute offset of the index (0 if the file was
+ *      never closed properly).
+ * <li> A sequence of game records, each made of a GAME_HEADER_SIZE-byte
+ *      game header (result, number of plies, number of move bytes, and
+ *      the block layout as a 49-bit mask) followed by the moves.
+ * <li> The index: the number of games followed by the absolute offset of
+ *      each game record, so that any game can be reached directly.
+ * </ul>
+ * All multi-byte quantities are big-endian.
+ * <p>
+ * Squares are numbered 0 to 48 in row-major order from a1 (so that
+ * square 7 is a2).  A pass is stored as the single byte PASS_BYTE.  An
+ * extend is stored as one byte holding its destination square: the
+ * position that results is the same whichever adjacent piece is copied,
+ * so the source need not be recorded.  A jump is stored as two bytes:
+ * JUMP_BYTE plus the source square, then the destination square.
+ * <p>
+ * Readers hand moves to their clients as "move codes": PASS_CODE for a
+ * pass, the destination square for an extend, and JUMP_CODE plus the
+ * source square times 64 plus the destination square for a jump.
+ *
+ * @author Shrey Malhotra
+ */
+class GameArchive {
+
+    /** Identifies an archive file ("ATXA"). */
+    static final int MAGIC = 0x41545841;
+    /** Current format version. */
+    static final short VERSION = 1;
+    /** Size of the file header in bytes. */
+    static final int FILE_HEADER_SIZE = 16;
+    /** Size of each game header in bytes. */
+    static final int GAME_HEADER_SIZE = 12;
+    /** Offset of the index offset within the file header. */
+    static final int INDEX_OFFSET_POS = 8;
+    /** Upper bound on the number of bytes in one game record. */
+    static final int MAX_RECORD_SIZE = GAME_HEADER_SIZE + 0xFFFF;
+
+    /** Result of a game that was not played to completion. */
+    static final int UNFINISHED = 0;
+    /** Result of a game won by red. */
+    static final int RED_WINS = 1;
+    /** Result of a game won by blue. */
+    static final int BLUE_WINS = 2;
+    /** Result of a drawn game. */
+    static final int DRAW = 3;
+
+    /** Byte value of a pass. */
+    static final int PASS_BYTE = 0xFF;
+    /** Added to the source square in the first byte of a jump. */
+    static final int JUMP_BYTE = 0x40;
+
+    /** Move code of a pass. */
+    static final int PASS_CODE = -1;
+    /** Flag marking the move code of a jump. */
+    static final int JUMP_CODE = 1 << 12;
+
+    /** Number of squares on the board. */
+    static final int SQUARES = Board.SIDE * Board.SIDE;
+
+    /** Not instantiable. */
+    private GameArchive() {
+    }
+
+    /** Return the archive square number of linearized index SQ. */
+    static int square(int sq) {
+        return (sq / Board.EXTENDED_SIDE - 2) * Board.SIDE
+            + sq % Board.EXTENDED_SIDE - 2;
+    }
+
+    /** Return the linearized index of archive square number SQUARE. */
+    static int linearIndex(int square) {
+        return (square / Board.SIDE + 2) * Board.EXTENDED_SIDE
+            + square % Board.SIDE + 2;
+    }
+
+    /** Return the number of bytes used to store MOVE. */
+    static int encodedSize(Move move) {
+        return move.isJump() ? 2 : 1;
+    }
+
+    /** Store MOVE into BUF starting at POS, returning the position just
+     *  past it. */
+    static int encode(Move move, byte[] buf, int pos) {
+        if (move.isPass()) {
+            buf[pos] = (byte) PASS_BYTE;
+            return pos + 1;
+        } else if (move.isJump()) {
+            buf[pos] = (byte) (JUMP_BYTE + square(move.fromIndex()));
+            buf[pos + 1] = (byte) square(move.toIndex());
+            return pos + 2;
+        } else {
+            buf[pos] = (byte) square(move.toIndex());
+            return pos + 1;
+        }
+    }
+
+    /** Return true iff the move code CODE is a jump. */
+    static boolean isJump(int code) {
+        return code >= JUMP_CODE;
+    }
+
+    /** Return the source square of the jump with move code CODE. */
+    static int from(int code) {
+        return (code - JUMP_CODE) >> 6;
+    }
+
+    /** Return the destination square of the non-pass move code CODE. */
+    static int to(int code) {
+        return code & 0x3F;
+    }
+
+    /** Return the Move denoted by move code CODE when made on BOARD.  For
+     *  extends, the source is the first adjacent square holding a piece
+     *  of the side to move, or null if there is none. */
+    static Move toMove(int code, Board board) {
+        if (code == PASS_CODE) {
+            return Move.pass();
+        }
+        int to = linearIndex(to(code));
+        char c1 = (char) (to % Board.EXTENDED_SIDE - 2 + 'a'),
+            r1 = (char) (to / Board.EXTENDED_SIDE - 2 + '1');
+        if (isJump(code)) {
+            int from = linearIndex(from(code));
+            return Move.move((char) (from % Board.EXTENDED_SIDE - 2 + 'a'),
+                             (char) (from / Board.EXTENDED_SIDE - 2 + '1'),
+                             c1, r1);
+        }
+        for (int dc = -1; dc <= 1; dc += 1) {
+            for (int dr = -1; dr <= 1; dr += 1) {
+                char c0 = (char) (c1 + dc), r0 = (char) (r1 + dr);
+                if ((dc != 0 || dr != 0) && c0 >= 'a' && c0 <= 'g'
+                    && r0 >= '1' && r0 <= '7'
+                    && board.get(c0, r0) == board.whoseMove()) {
+                    return Move.move(c0, r0, c1, r1);
+                }
+            }
+        }
+        return null;
+    }
+
+    /** Return the block layout of BOARD as a mask with bit S set iff
+     *  archive square S is blocked. */
+    static long blockMask(Board board) {
+        long mask = 0;
+        for (int s = 0; s < SQUARES; s += 1) {
+            if (board.get(linearIndex(s)) == BLOCKED) {
+                mask |= 1L << s;
+            }
+        }
+        return mask;
+    }
+
+    /** Return the archive result code for the finished game on BOARD. */
+    static int result(Board board) {
+        if (!board.gameOver()) {
+            return UNFINISHED;
+        }
+        int red = board.numPieces(RED), blue = board.numPieces(BLUE);
+        return red > blue ? RED_WINS : blue > red ? BLUE_WINS : DRAW;
+    }
+
+}
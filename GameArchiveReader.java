@@ -0,0 +1,223 @@
+package ataxx;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.file.StandardOpenOption.READ;
+import static ataxx.GameArchive.*;
+
+/** A memory-mapped reader for binary game archives (see GameArchive).
+ *  The reader is a cursor: it denotes one game at a time, selected
+ *  either by number through seek or in file order through next, and
+ *  hands out the header fields and moves of that game.  Moving the
+ *  cursor allocates nothing, so a client can scan an archive of any size
+ *  at the speed of the page cache.
+ *  <p>
+ *  Archives may exceed the 2GB limit of a single mapping, so the file is
+ *  mapped in SEGMENT-byte windows, each overlapping its successor by
+ *  MAX_RECORD_SIZE bytes.  Any record (or index entry) then lies wholly
+ *  within the window containing its first byte.
+ *  @author Shrey Malhotra
+ */
+class GameArchiveReader implements Closeable {
+
+    /** Distance between the starts of successive mapped windows. */
+    private static final long SEGMENT = 1L << 30;
+
+    /** A reader on the archive FILE, positioned before its first game. */
+    GameArchiveReader(Path file) throws IOException {
+        _channel = FileChannel.open(file, READ);
+        _size = _channel.size();
+        _windows = new MappedByteBuffer[(int) (_size / SEGMENT) + 1];
+        if (_size < FILE_HEADER_SIZE || readInt(0) != MAGIC
+            || window(4).getShort(_rel) != VERSION) {
+            close();
+            throw new IOException("not a game archive");
+        }
+        _indexPos = readLong(INDEX_OFFSET_POS);
+        _dataEnd = _indexPos == 0 ? _size : _indexPos;
+        _games = _indexPos == 0 ? -1 : readLong(_indexPos);
+        _next = FILE_HEADER_SIZE;
+        _game = -1;
+    }
+
+    /** Return the number of games in the archive, or -1 if it has no
+     *  index (in which case only sequential access is possible). */
+    long size() {
+        return _games;
+    }
+
+    /** Position me at game number K (numbering from 0). */
+    void seek(long k) {
+        if (k < 0 || k >= _games) {
+            throw new IndexOutOfBoundsException("no game " + k);
+        }
+        load(readLong(_indexPos + Long.BYTES * (k + 1)));
+        _game = k;
+    }
+
+    /** Advance to the game following the current one (the first game
+     *  initially), returning false if there is none. */
+    boolean next() {
+        if (_next + GAME_HEADER_SIZE > _dataEnd) {
+            return false;
+        }
+        load(_next);
+        _game += 1;
+        return true;
+    }
+
+    /** Return the number of the current game. */
+    long game() {
+        return _game;
+    }
+
+    /** Return the result (GameArchive.RED_WINS, etc.) of the current
+     *  game. */
+    int result() {
+        return _buf.get(_start) & 0xFF;
+    }
+
+    /** Return the number of plies in the current game. */
+    int plies() {
+        return _plies;
+    }
+
+    /** Return the block mask (see GameArchive.blockMask) of the current
+     *  game. */
+    long blocks() {
+        long mask = 0;
+        for (int i = 0; i < 7; i += 1) {
+            mask = (mask << 8) | (_buf.get(_start + 5 + i) & 0xFF);
+        }
+        return mask;
+    }
+
+    /** Return true iff the current game has moves I have not returned
+     *  from nextMove. */
+    boolean hasNextMove() {
+        return _movePos < _moveEnd;
+    }
+
+    /** Return the move code (see GameArchive) of the next move of the
+     *  current game. */
+    int nextMove() {
+        int b0 = _buf.get(_movePos) & 0xFF;
+        if (b0 == PASS_BYTE) {
+            _movePos += 1;
+            return PASS_CODE;
+        } else if (b0 >= JUMP_BYTE) {
+            int b1 = _buf.get(_movePos + 1) & 0xFF;
+            _movePos += 2;
+            return JUMP_CODE + ((b0 - JUMP_BYTE) << 6) + b1;
+        } else {
+            _movePos += 1;
+            return b0;
+        }
+    }
+
+    /** Restart the moves of the current game from its first move. */
+    void rewind() {
+        _movePos = _start + GAME_HEADER_SIZE;
+    }
+
+    /** Clear BOARD, set up the block layout of the current game on it,
+     *  and make the first PLY moves of the game. */
+    void replay(Board board, int ply) {
+        board.clear();
+        long mask = blocks();
+        for (int s = 0; s < SQUARES; s += 1) {
+            if ((mask & (1L << s)) != 0) {
+                int sq = linearIndex(s);
+                char c = (char) (sq % Board.EXTENDED_SIDE - 2 + 'a'),
+                    r = (char) (sq / Board.EXTENDED_SIDE - 2 + '1');
+                if (board.legalBlock(c, r)) {
+                    board.setBlock(c, r);
+                }
+            }
+        }
+        rewind();
+        for (int k = 0; k < ply && hasNextMove(); k += 1) {
+            board.makeMove(toMove(nextMove(), board));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        _channel.close();
+    }
+
+    /** Make the record at absolute offset POS current. */
+    private void load(long pos) {
+        _buf = window(pos);
+        _start = _rel;
+        _plies = _buf.getShort(_start + 1) & 0xFFFF;
+        int size = _buf.getShort(_start + 3) & 0xFFFF;
+        _movePos = _start + GAME_HEADER_SIZE;
+        _moveEnd = _movePos + size;
+        _next = pos + GAME_HEADER_SIZE + size;
+    }
+
+    /** Return the int at absolute offset POS. */
+    private int readInt(long pos) {
+        return window(pos).getInt(_rel);
+    }
+
+    /** Return the long at absolute offset POS. */
+    private long readLong(long pos) {
+        return window(pos).getLong(_rel);
+    }
+
+    /** Return the window containing absolute offset POS, setting _rel
+     *  to the offset of POS within it. */
+    private MappedByteBuffer window(long pos) {
+        int k = (int) (pos / SEGMENT);
+        if (_windows[k] == null) {
+            long start = k * SEGMENT;
+            long len = Math.min(_size - start, SEGMENT + MAX_RECORD_SIZE);
+            try {
+                _windows[k] = _channel.map(READ_ONLY, start, len);
+            } catch (IOException excp) {
+                throw new IllegalStateException("cannot map game archive",
+                                                excp);
+            }
+        }
+        _rel = (int) (pos - k * SEGMENT);
+        return _windows[k];
+    }
+
+    /** The archive. */
+    private final FileChannel _channel;
+    /** Size of the archive in bytes. */
+    private final long _size;
+    /** Mapped windows on the archive, mapped on first use. */
+    private final MappedByteBuffer[] _windows;
+    /** Offset of the index, or 0 if none. */
+    private final long _indexPos;
+    /** Offset just past the last game record. */
+    private final long _dataEnd;
+    /** Number of games, or -1 if unknown. */
+    private final long _games;
+    /** Offset returned by the last call to window within its result. */
+    private int _rel;
+
+    /** Number of the current game. */
+    private long _game;
+    /** Window holding the current game. */
+    private MappedByteBuffer _buf;
+    /** Offset of the current game in _buf. */
+    private int _start;
+    /** Number of plies in the current game. */
+    private int _plies;
+    /** Offset of the next move to be returned in _buf. */
+    private int _movePos;
+    /** Offset just past the last move of the current game in _buf. */
+    private int _moveEnd;
+    /** Absolute offset of the game following the current one. */
+    private long _next;
+
+}
@@ -0,0 +1,107 @@
+package ataxx;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+import static ataxx.GameArchive.*;
+
+/**
+ * Tests of the binary game archive.
+ *
+ * @author Shrey Malhotra
+ */
+public class GameArchiveTest {
+
+    private static final Move[]
+        GAME1 = { Move.move('a', '7', 'b', '7'), Move.move('a', '1', 'a', '3'),
+                  Move.pass(), Move.move('g', '7', 'e', '5') },
+        GAME2 = { Move.move('g', '1', 'f', '2') };
+
+    /** Check that the moves of the current game of R are MOVES. */
+    private static void checkMoves(GameArchiveReader r, Move... moves) {
+        assertEquals("wrong ply count", moves.length, r.plies());
+        for (Move m : moves) {
+            assertTrue("too few moves", r.hasNextMove());
+            int code = r.nextMove();
+            if (m.isPass()) {
+                assertEquals("bad pass", PASS_CODE, code);
+            } else {
+                assertEquals("bad jump flag", m.isJump(), isJump(code));
+                assertEquals("bad destination", square(m.toIndex()),
+                             to(code));
+                if (m.isJump()) {
+                    assertEquals("bad source", square(m.fromIndex()),
+                                 from(code));
+                }
+            }
+        }
+        assertFalse("too many moves", r.hasNextMove());
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        Path file = Files.createTempFile("ataxx", ".arc");
+        try {
+            Files.delete(file);
+            try (GameArchiveWriter w = new GameArchiveWriter(file)) {
+                w.append(0x1L << 24, RED_WINS,
+                         new ArrayList<>(Arrays.asList(GAME1)));
+                w.append(0, DRAW, new ArrayList<>(Arrays.asList(GAME2)));
+            }
+            try (GameArchiveWriter w = new GameArchiveWriter(file)) {
+                w.append(0, BLUE_WINS, new ArrayList<>());
+            }
+            try (GameArchiveReader r = new GameArchiveReader(file)) {
+                assertEquals("wrong game count", 3, r.size());
+                r.seek(1);
+                assertEquals("bad result", DRAW, r.result());
+                checkMoves(r, GAME2);
+                r.seek(0);
+                assertEquals("bad blocks", 0x1L << 24, r.blocks());
+                checkMoves(r, GAME1);
+                assertTrue("missing game", r.next());
+                assertEquals("bad sequential access", 1, r.game());
+                assertTrue("missing game", r.next());
+                assertEquals("bad result", BLUE_WINS, r.result());
+                assertEquals("bad ply count", 0, r.plies());
+                assertFalse("extra game", r.next());
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testBadArchive() throws IOException {
+        Path dir = Files.createTempDirectory("ataxx");
+        Path file = dir.resolve("games.arc");
+        try {
+            Files.write(file, "not an archive, but long enough".getBytes());
+            try {
+                new GameArchiveWriter(file).close();
+                fail("opened a file that is not an archive");
+            } catch (IOException excp) {
+                /* Expected. */
+            }
+            int files = 0;
+            try (DirectoryStream<Path> entries =
+                 Files.newDirectoryStream(dir)) {
+                for (Path entry : entries) {
+                    files += 1;
+                }
+            }
+            assertEquals("index spool left behind", 1, files);
+        } finally {
+            Files.deleteIfExists(file);
+            Files.delete(dir);
+        }
+    }
+
+}
@@ -0,0 +1,209 @@
+package ataxx;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.DELETE_ON_CLOSE;
+import static ataxx.GameArchive.*;
+
+/** Appends games to a binary game archive (see GameArchive).  Game
+ *  records are staged in a buffer and written in large blocks; the
+ *  offsets of the games are spooled to a temporary file and copied to
+ *  the end of the archive as its index by close().
+ *  @author Shrey Malhotra
+ */
+class GameArchiveWriter implements Closeable {
+
+    /** Size of the staging buffers in bytes. */
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    /** An archive writer on FILE.  If FILE is an existing archive, new
+     *  games are appended to it; otherwise FILE is created. */
+    GameArchiveWriter(Path file) throws IOException {
+        boolean existing = Files.exists(file) && Files.size(file) > 0;
+        _out = FileChannel.open(file, CREATE, READ, WRITE);
+        try {
+            Path spool =
+                Files.createTempFile(file.toAbsolutePath().getParent(),
+                                     file.getFileName().toString(), ".idx");
+            try {
+                _spool = FileChannel.open(spool, READ, WRITE,
+                                          TRUNCATE_EXISTING, DELETE_ON_CLOSE);
+            } catch (IOException | RuntimeException excp) {
+                Files.deleteIfExists(spool);
+                throw excp;
+            }
+        } catch (IOException | RuntimeException excp) {
+            _out.close();
+            throw excp;
+        }
+        try {
+            if (existing) {
+                reopen();
+            } else {
+                ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+                header.putInt(MAGIC).putShort(VERSION).putShort((short) 0)
+                    .putLong(0).flip();
+                _out.write(header, 0);
+                _end = FILE_HEADER_SIZE;
+            }
+        } catch (IOException | RuntimeException excp) {
+            _spool.close();
+            _out.close();
+            throw excp;
+        }
+    }
+
+    /** Prepare to append to the existing archive in _out, moving its
+     *  index into the spool. */
+    private void reopen() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+        _out.read(header, 0);
+        header.flip();
+        if (header.remaining() < FILE_HEADER_SIZE || header.getInt() != MAGIC
+            || header.getShort() != VERSION) {
+            throw new IOException("not a game archive");
+        }
+        header.getShort();
+        long indexPos = header.getLong();
+        if (indexPos == 0) {
+            throw new IOException("game archive was not closed properly");
+        }
+        ByteBuffer count = ByteBuffer.allocate(Long.BYTES);
+        _out.read(count, indexPos);
+        _games = count.flip().getLong();
+        long indexBytes = _games * Long.BYTES;
+        for (long done = 0; done < indexBytes;) {
+            done += _out.transferTo(indexPos + Long.BYTES + done,
+                                    indexBytes - done, _spool);
+        }
+        _out.truncate(indexPos);
+        _end = indexPos;
+        writeIndexOffset(0);
+    }
+
+    /** Append the game recorded on BOARD: its block layout, its moves
+     *  since the last clear, and its result, if finished. */
+    void append(Board board) throws IOException {
+        append(GameArchive.blockMask(board), GameArchive.result(board),
+               board.allMoves());
+    }
+
+    /** Append a game with block layout BLOCKS (see
+     *  GameArchive.blockMask), result RESULT, and the sequence MOVES. */
+    void append(long blocks, int result, List<Move> moves)
+        throws IOException {
+        int size = 0;
+        for (Move move : moves) {
+            size += encodedSize(move);
+        }
+        if (moves.size() > 0xFFFF || size > 0xFFFF) {
+            throw new IOException("game too long to archive");
+        }
+        if (_data.length - _fill < GAME_HEADER_SIZE + size) {
+            flushData();
+        }
+        long start = _end + _fill;
+        int p = _fill;
+        _data[p] = (byte) result;
+        _data[p + 1] = (byte) (moves.size() >> 8);
+        _data[p + 2] = (byte) moves.size();
+        _data[p + 3] = (byte) (size >> 8);
+        _data[p + 4] = (byte) size;
+        for (int i = 0; i < 7; i += 1) {
+            _data[p + 5 + i] = (byte) (blocks >>> (8 * (6 - i)));
+        }
+        p += GAME_HEADER_SIZE;
+        for (Move move : moves) {
+            p = encode(move, _data, p);
+        }
+        _fill = p;
+        if (!_offsets.hasRemaining()) {
+            flushOffsets();
+        }
+        _offsets.putLong(start);
+        _games += 1;
+    }
+
+    /** Return the number of games in the archive. */
+    long size() {
+        return _games;
+    }
+
+    /** Write out all staged games. The index is written only by close. */
+    void flush() throws IOException {
+        flushData();
+        flushOffsets();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+            long indexPos = _end;
+            ByteBuffer count = ByteBuffer.allocate(Long.BYTES);
+            count.putLong(_games).flip();
+            _out.write(count, indexPos);
+            long indexBytes = _games * Long.BYTES;
+            for (long done = 0; done < indexBytes;) {
+                done += _spool.transferTo(done, indexBytes - done,
+                    _out.position(indexPos + Long.BYTES + done));
+            }
+            writeIndexOffset(indexPos);
+            _out.force(true);
+        } finally {
+            _spool.close();
+            _out.close();
+        }
+    }
+
+    /** Write the game records staged in _data to the archive. */
+    private void flushData() throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(_data, 0, _fill);
+        while (buf.hasRemaining()) {
+            _end += _out.write(buf, _end);
+        }
+        _fill = 0;
+    }
+
+    /** Write the game offsets staged in _offsets to the spool. */
+    private void flushOffsets() throws IOException {
+        _offsets.flip();
+        while (_offsets.hasRemaining()) {
+            _spool.write(_offsets);
+        }
+        _offsets.clear();
+    }
+
+    /** Record POS as the index offset in the file header. */
+    private void writeIndexOffset(long pos) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(Long.BYTES);
+        buf.putLong(pos).flip();
+        _out.write(buf, INDEX_OFFSET_POS);
+    }
+
+    /** The archive. */
+    private final FileChannel _out;
+    /** Temporary file holding the game offsets. */
+    private final FileChannel _spool;
+    /** Staged game records. */
+    private final byte[] _data = new byte[BUFFER_SIZE];
+    /** Number of bytes used in _data. */
+    private int _fill;
+    /** Staged game offsets. */
+    private final ByteBuffer _offsets = ByteBuffer.allocate(BUFFER_SIZE);
+    /** Offset in the archive at which _data will be written. */
+    private long _end;
+    /** Number of games in the archive. */
+    private long _games;
+
+}
@@ -0,0 +1,300 @@
+package ataxx;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves many games at once to clients on local sockets.  Each
+ * connection is a session: a Game with its own board, players, and
+ * settings, reading commands from the connection exactly as Main's
+ * game reads them from the terminal (without prompts), and writing its
+ * messages back to it, until the client quits or disconnects.  Commands
+ * that name files on the server (load, record, book, and cache) are
+ * refused, as are pondering and Monte Carlo players, whose threads
+ * would escape the SearchPool, and analysis deeper than
+ * Game.MAX_SHARED_ANALYSIS_DEPTH.  Sessions run on virtual threads
+ * where the JVM has them (Java 21 and later), and otherwise on daemon
+ * platform threads with small stacks; the searches and analyses of their
+ * AIs run on a SearchPool of platform threads.  So
+ * thousands of mostly idle sessions cost little more than their boards
+ * and buffers, and a slow search delays only its own session.
+ * <p>
+ * Each session is also held back by its own client: it reads a command
+ * only when it is ready for one, leaving the rest in the connection,
+ * and its output blocks when the client stops reading it, so that a
+ * client cannot make the server queue unbounded input or output for it.
+ * Usage:
+ * <pre>
+ *     java ataxx.GameServer [-p PORT] [-a AITHREADS] [-q QUEUE]
+ *                           [-i IDLEMILLIS] [-m FILE]
+ * </pre>
+ * listens on localhost port PORT (default DEFAULT_PORT) and runs
+ * searches on AITHREADS threads (default: one per processor), admitting
+ * QUEUE more (default DEFAULT_QUEUE) to wait for them.  Sessions idle
+ * for IDLEMILLIS milliseconds are closed (by default, never).  With
+ * -m, metrics of all sessions' games and searches are recorded (see
+ * Metrics) and appended to FILE at intervals.
+ *
+ * @author Shrey Malhotra
+ */
+class GameServer implements Closeable {
+
+    /** Default port. */
+    static final int DEFAULT_PORT = 7447;
+    /** Default number of searches waiting for a search thread. */
+    static final int DEFAULT_QUEUE = 64;
+    /** Longest command line read; the rest of a longer line is
+     *  dropped. */
+    static final int MAX_LINE = 256;
+    /** Number of connections that may await acceptance. */
+    private static final int BACKLOG = 1024;
+    /** Size of each session's output buffer in bytes. */
+    private static final int OUTPUT_BUFFER = 512;
+    /** Number of internal failures (unexpected exceptions from its
+     *  Game) after which a session is closed rather than continued with
+     *  a new game. */
+    private static final int MAX_FAILURES = 8;
+    /** Stack size of platform session threads in bytes. */
+    private static final long SESSION_STACK = 256 << 10;
+
+    /** Run the server as described in the class comment, using ARGS. */
+    public static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT, queue = DEFAULT_QUEUE, idleMillis = 0,
+            aiThreads = Runtime.getRuntime().availableProcessors();
+        for (int k = 0; k < args.length; k += 2) {
+            if (args[k].equals("-m") && k + 1 < args.length) {
+                Metrics.enable(Path.of(args[k + 1]), Metrics.EXPORT_MILLIS);
+                continue;
+            }
+            int val = k + 1 < args.length && args[k + 1].matches("\\d+")
+                ? Integer.parseInt(args[k + 1]) : -1;
+            switch (val < 0 ? "" : args[k]) {
+            case "-p":
+                port = val;
+                break;
+            case "-a":
+                aiThreads = Math.max(1, val);
+                break;
+            case "-q":
+                queue = val;
+                break;
+            case "-i":
+                idleMillis = val;
+                break;
+            default:
+                System.err.println("Usage: java ataxx.GameServer [-p PORT]"
+                                   + " [-a AITHREADS] [-q QUEUE]"
+                                   + " [-i IDLEMILLIS] [-m FILE]");
+                System.exit(1);
+            }
+        }
+        GameServer server = new GameServer(port, aiThreads, queue,
+                                           idleMillis);
+        System.out.printf("Serving on port %d%n", server.port());
+        server.serve();
+    }
+
+    /** A server listening on localhost port PORT (any free port if 0)
+     *  whose AIs search on AITHREADS threads, admitting QUEUE more
+     *  searches to wait for them, and that closes sessions idle for
+     *  IDLEMILLIS milliseconds (never, if 0). */
+    GameServer(int port, int aiThreads, int queue, int idleMillis)
+        throws IOException {
+        _listener = new ServerSocket(port, BACKLOG,
+                                     InetAddress.getLoopbackAddress());
+        _pool = new SearchPool(aiThreads, queue);
+        _idleMillis = idleMillis;
+    }
+
+    /** Return the port on which I listen. */
+    int port() {
+        return _listener.getLocalPort();
+    }
+
+    /** Return the number of open sessions. */
+    int sessions() {
+        return _sessions.get();
+    }
+
+    /** Accept connections and start their sessions until closed. */
+    void serve() throws IOException {
+        while (true) {
+            Socket client;
+            try {
+                client = _listener.accept();
+            } catch (SocketException excp) {
+                if (_listener.isClosed()) {
+                    return;
+                }
+                throw excp;
+            }
+            _sessions.incrementAndGet();
+            SESSION_THREADS.newThread(() -> session(client)).start();
+        }
+    }
+
+    /** Stop accepting connections and searches.  Open sessions last
+     *  until their clients leave. */
+    @Override
+    public void close() throws IOException {
+        _listener.close();
+        _pool.close();
+    }
+
+    /** Play games with CLIENT until it quits or disconnects.  An
+     *  unexpected failure of a game is reported to the client, and a new
+     *  game begun, up to MAX_FAILURES times. */
+    private void session(Socket client) {
+        try (Socket socket = client) {
+            socket.setSoTimeout(_idleMillis);
+            socket.setTcpNoDelay(true);
+            PrintWriter out =
+                new PrintWriter(new SessionWriter(socket.getOutputStream()),
+                                true);
+            Game game = new Game(new Board(),
+                                 new SessionSource(socket.getInputStream()),
+                                 new TextReporter(out), out);
+            game.setSearchPool(_pool);
+            game.setFileAccess(false);
+            for (int failures = 1; true; failures += 1) {
+                try {
+                    game.process(false);
+                    break;
+                } catch (RuntimeException excp) {
+                    if (failures == MAX_FAILURES) {
+                        break;
+                    }
+                    game.reportError("Internal error (%s); starting a new"
+                                     + " game", excp);
+                }
+            }
+        } catch (IOException excp) {
+            /* The client has gone. */
+        } finally {
+            _sessions.decrementAndGet();
+        }
+    }
+
+    /** Return a factory for session threads: virtual threads if this JVM
+     *  provides them, and otherwise small daemon platform threads. */
+    private static ThreadFactory sessionThreads() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> type = Class.forName("java.lang.Thread$Builder");
+            Method name = type.getMethod("name", String.class, long.class);
+            builder = name.invoke(builder, "session-", 0L);
+            return (ThreadFactory) type.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException excp) {
+            AtomicInteger count = new AtomicInteger();
+            return r -> {
+                Thread thread = new Thread(null, r, "session-"
+                                           + count.getAndIncrement(),
+                                           SESSION_STACK);
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
+    }
+
+    /** Provides command input from a client connection, one line at a
+     *  time, reading at most MAX_LINE bytes ahead. */
+    private static class SessionSource implements CommandSource {
+
+        /** A source reading from IN. */
+        SessionSource(InputStream in) {
+            _in = new BufferedInputStream(in, MAX_LINE);
+        }
+
+        @Override
+        public String getLine(String prompt) {
+            _line.setLength(0);
+            try {
+                while (true) {
+                    int c = _in.read();
+                    if (c == -1) {
+                        return _line.length() == 0 ? null : _line.toString();
+                    } else if (c == '\n') {
+                        return _line.toString();
+                    } else if (_line.length() < MAX_LINE) {
+                        _line.append((char) c);
+                    }
+                }
+            } catch (IOException excp) {
+                return null;
+            }
+        }
+
+        /** The connection. */
+        private final InputStream _in;
+        /** The line being read. */
+        private final StringBuilder _line = new StringBuilder();
+
+    }
+
+    /** Writes messages to a client connection.  The messages are ASCII,
+     *  so each character is written as one byte, which saves the buffers
+     *  of a general character encoder in each of many sessions. */
+    private static class SessionWriter extends Writer {
+
+        /** A writer to OUT. */
+        SessionWriter(OutputStream out) {
+            _out = new BufferedOutputStream(out, OUTPUT_BUFFER);
+        }
+
+        @Override
+        public void write(char[] buf, int off, int len) throws IOException {
+            for (int i = off; i < off + len; i += 1) {
+                _out.write(buf[i]);
+            }
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            for (int i = off; i < off + len; i += 1) {
+                _out.write(str.charAt(i));
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            _out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            _out.close();
+        }
+
+        /** The connection. */
+        private final OutputStream _out;
+
+    }
+
+    /** Creates the threads on which sessions run. */
+    private static final ThreadFactory SESSION_THREADS = sessionThreads();
+
+    /** Accepts connections. */
+    private final ServerSocket _listener;
+    /** Runs the searches of all sessions' AIs. */
+    private final SearchPool _pool;
+    /** Idle time after which a session is closed, in milliseconds, or 0
+     *  for none. */
+    private final int _idleMillis;
+    /** Number of open sessions. */
+    private final AtomicInteger _sessions = new AtomicInteger();
+
+}
@@ -0,0 +1,187 @@
+package ataxx;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Arrays;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+
+/**
+ * A load generator for GameServer.  Usage:
+ * <pre>
+ *     java ataxx.GameServerLoad [-p PORT] [-i IDLE] [-a ACTIVE]
+ *                               [-g GAMES]
+ * </pre>
+ * opens IDLE sessions (default 1000) on the server at localhost port
+ * PORT (default GameServer.DEFAULT_PORT) that send nothing, then has
+ * each of ACTIVE more sessions (default 4) play GAMES AI-versus-AI
+ * games (default 2) concurrently, and finally asks each idle session
+ * for its position.  It reports how long the connections took, the
+ * rate at which games were played and how long each took, and the
+ * latencies of the idle sessions' replies, and fails if any session
+ * does not answer.
+ *
+ * @author Shrey Malhotra
+ */
+class GameServerLoad {
+
+    /** Size of each connection's input buffer in characters. */
+    private static final int BUFFER_SIZE = 256;
+
+    /** Run the load generator as described in the class comment, using
+     *  ARGS. */
+    public static void main(String[] args) throws Exception {
+        int port = GameServer.DEFAULT_PORT, idle = 1000, active = 4,
+            games = 2;
+        for (int k = 0; k < args.length; k += 2) {
+            int val = k + 1 < args.length && args[k + 1].matches("\\d+")
+                ? Integer.parseInt(args[k + 1]) : -1;
+            switch (val < 0 ? "" : args[k]) {
+            case "-p":
+                port = val;
+                break;
+            case "-i":
+                idle = val;
+                break;
+            case "-a":
+                active = val;
+                break;
+            case "-g":
+                games = val;
+                break;
+            default:
+                System.err.println("Usage: java ataxx.GameServerLoad"
+                                   + " [-p PORT] [-i IDLE] [-a ACTIVE]"
+                                   + " [-g GAMES]");
+                System.exit(1);
+            }
+        }
+
+        long start = System.nanoTime();
+        Client[] idlers = new Client[idle];
+        for (int i = 0; i < idle; i += 1) {
+            idlers[i] = new Client(port);
+        }
+        System.out.printf("%d idle sessions opened in %.2f s%n", idle,
+                          seconds(start));
+
+        start = System.nanoTime();
+        long[][] gameTimes = new long[active][games];
+        Thread[] players = new Thread[active];
+        Exception[] failure = new Exception[1];
+        int serverPort = port;
+        for (int i = 0; i < active; i += 1) {
+            long[] times = gameTimes[i];
+            players[i] = new Thread(() -> {
+                try {
+                    play(serverPort, times);
+                } catch (IOException excp) {
+                    failure[0] = excp;
+                }
+            }, "player-" + i);
+            players[i].start();
+        }
+        for (Thread player : players) {
+            player.join();
+        }
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        double secs = seconds(start);
+        long[] all = Arrays.stream(gameTimes).flatMapToLong(Arrays::stream)
+            .sorted().toArray();
+        if (all.length > 0) {
+            System.out.printf("%d games in %.2f s (%.2f/s); per game:"
+                              + " median %.2f s, max %.2f s%n",
+                              all.length, secs, all.length / secs,
+                              all[all.length / 2] * 1e-9,
+                              all[all.length - 1] * 1e-9);
+        }
+
+        long[] latencies = new long[idle];
+        for (int i = 0; i < idle; i += 1) {
+            long t0 = System.nanoTime();
+            idlers[i].send("position");
+            idlers[i].await(" 0");
+            latencies[i] = System.nanoTime() - t0;
+            idlers[i].close();
+        }
+        Arrays.sort(latencies);
+        if (idle > 0) {
+            System.out.printf("%d idle sessions answered; latency: median"
+                              + " %.2f ms, 99%% %.2f ms, max %.2f ms%n",
+                              idle, latencies[idle / 2] * 1e-6,
+                              latencies[idle * 99 / 100] * 1e-6,
+                              latencies[idle - 1] * 1e-6);
+        }
+    }
+
+    /** Play TIMES.length AI-versus-AI games in a session on the server
+     *  at localhost port PORT, setting TIMES[G] to the nanoseconds taken
+     *  by game G. */
+    private static void play(int port, long[] times) throws IOException {
+        try (Client client = new Client(port)) {
+            for (int g = 0; g < times.length; g += 1) {
+                long start = System.nanoTime();
+                client.send("auto red\nstart");
+                client.await("Game over.");
+                times[g] = System.nanoTime() - start;
+            }
+            client.send("quit");
+        }
+    }
+
+    /** Return the seconds elapsed since System.nanoTime was START. */
+    private static double seconds(long start) {
+        return (System.nanoTime() - start) * 1e-9;
+    }
+
+    /** One session's connection. */
+    private static class Client implements AutoCloseable {
+
+        /** A connection to the server at localhost port PORT. */
+        Client(int port) throws IOException {
+            _socket = new Socket(InetAddress.getLoopbackAddress(), port);
+            _socket.setTcpNoDelay(true);
+            _out = _socket.getOutputStream();
+            _in = new BufferedReader(new InputStreamReader(
+                                         _socket.getInputStream(),
+                                         ISO_8859_1), BUFFER_SIZE);
+        }
+
+        /** Send the commands in LINES. */
+        void send(String lines) throws IOException {
+            _out.write((lines + "\n").getBytes(ISO_8859_1));
+            _out.flush();
+        }
+
+        /** Read lines until one that ends with SUFFIX. */
+        void await(String suffix) throws IOException {
+            String line;
+            do {
+                line = _in.readLine();
+                if (line == null) {
+                    throw new IOException("session closed unexpectedly");
+                }
+            } while (!line.endsWith(suffix));
+        }
+
+        @Override
+        public void close() throws IOException {
+            _socket.close();
+        }
+
+        /** The connection. */
+        private final Socket _socket;
+        /** Commands to the server. */
+        private final OutputStream _out;
+        /** Replies from the server. */
+        private final BufferedReader _in;
+
+    }
+
+}
@@ -0,0 +1,116 @@
+package ataxx;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+
+import static org.junit.Assert.*;
+import static ataxx.PieceColor.*;
+
+/**
+ * Tests of the multi-session game server.
+ *
+ * @author Shrey Malhotra
+ */
+public class GameServerTest {
+
+    @Test
+    public void testSessions() throws Exception {
+        try (GameServer server = new GameServer(0, 1, 1, 0)) {
+            Thread serving = new Thread(() -> {
+                try {
+                    server.serve();
+                } catch (IOException excp) {
+                    /* Checked by the sessions below. */
+                }
+            });
+            serving.setDaemon(true);
+            serving.start();
+            try (Socket a = connect(server); Socket b = connect(server)) {
+                PrintWriter toA = new PrintWriter(a.getOutputStream(), true),
+                    toB = new PrintWriter(b.getOutputStream(), true);
+                BufferedReader fromA = reader(a), fromB = reader(b);
+                toA.println("manual red\nstart\na7-b6\nposition");
+                toB.println("position");
+                String initial = new Board().position();
+                assertEquals("sessions not independent", initial,
+                             fromB.readLine());
+                Board board = new Board();
+                board.setPosition(fromA.readLine());
+                assertEquals("AI did not reply", RED, board.whoseMove());
+                assertEquals("wrong red pieces", 3, board.redPieces());
+                toB.println("quit");
+                assertNull("session not closed", fromB.readLine());
+                toA.println("position");
+                assertNotNull("other session closed", fromA.readLine());
+            }
+        }
+    }
+
+    @Test
+    public void testRefusals() throws Exception {
+        try (GameServer server = new GameServer(0, 1, 1, 0)) {
+            Thread serving = new Thread(() -> {
+                try {
+                    server.serve();
+                } catch (IOException excp) {
+                    /* Checked by the session below. */
+                }
+            });
+            serving.setDaemon(true);
+            serving.start();
+            try (Socket a = connect(server)) {
+                PrintWriter toA = new PrintWriter(a.getOutputStream(), true);
+                BufferedReader fromA = reader(a);
+                toA.println("ponder on\nposition");
+                assertTrue("pondering accepted",
+                           fromA.readLine().contains("Pondering"));
+                assertEquals("session broken", new Board().position(),
+                             fromA.readLine());
+                String[][] refusals = {
+                    { "load /etc/passwd", "not available" },
+                    { "record /tmp/x", "not available" },
+                    { "book /tmp/x", "not available" },
+                    { "cache /tmp/x", "not available" },
+                    { "auto red mcts 100000", "not available" },
+                    { "analyze 3 12", "at most" },
+                    { "block a7", "Cannot place" },
+                    { "d4-d5", "Illegal" },
+                    { "manual red\nstart\nd4-d5", "Illegal" },
+                    { "pass", "Illegal" },
+                };
+                for (String[] refusal : refusals) {
+                    toA.println(refusal[0] + "\nposition");
+                    assertTrue(refusal[0] + " accepted",
+                               fromA.readLine().contains(refusal[1]));
+                    assertEquals("session broken", new Board().position(),
+                                 fromA.readLine());
+                }
+                toA.println("analyze 1 2\nposition");
+                int lines;
+                for (lines = 0; !new Board().position()
+                         .equals(fromA.readLine()); lines += 1) {
+                    assertTrue("analysis does not end", lines < 100);
+                }
+                assertTrue("no analysis", lines > 0);
+            }
+        }
+    }
+
+    /** Return a connection to SERVER. */
+    private static Socket connect(GameServer server) throws IOException {
+        return new Socket(InetAddress.getLoopbackAddress(), server.port());
+    }
+
+    /** Return a reader of replies from SOCKET. */
+    private static BufferedReader reader(Socket socket) throws IOException {
+        return new BufferedReader(new InputStreamReader(
+                                      socket.getInputStream()));
+    }
+
+}
@@ -1,30 +1,75 @@
 package ataxx;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.InputStreamReader;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
 import java.io.PipedReader;
 import java.io.PipedWriter;
+import java.nio.file.Path;
 
 /** The main program for Ataxx.
  *  @author Shrey Malhotra
  */
 public class Main {
 
-    /** Run Ataxx game.  Use display if ARGS[k] is '--display'. */
+    /** Run Ataxx game.  Use display if ARGS[k] is '--display'.  Play as
+     *  an engine for match managers (see UaiEngine) if ARGS[k] is
+     *  '--uai'.  If ARGS[k] is '--quiet' and input is not interactive,
+     *  do not prompt, and write output in batches on another thread (see
+     *  BufferedReporter).  Report the cost of each move searched for and
+     *  summarize each game (see MoveTiming) if ARGS[k] is '--timing'.
+     *  Record metrics of searches and games as an MBean (see Metrics) if
+     *  ARGS[k] is '--metrics', and also append them to FILE every
+     *  Metrics.EXPORT_MILLIS milliseconds if it is '--metrics=FILE'. */
     public static void main(String[] args) {
-        boolean useGUI;
-        useGUI = false;
+        boolean useGUI, useUAI, quiet, timing;
+        useGUI = useUAI = quiet = timing = false;
         for (int i = 0; i < args.length; i += 1) {
             switch (args[i]) {
             case "--display":
                 useGUI = true;
                 break;
+            case "--uai":
+                useUAI = true;
+                break;
+            case "--quiet":
+                quiet = true;
+                break;
+            case "--timing":
+                timing = true;
+                break;
+            case "--metrics":
+                Metrics.enable(null, 0);
+                break;
             default:
-                usage();
+                if (args[i].startsWith("--metrics=")) {
+                    Metrics.enable(Path.of(args[i].substring(10)),
+                                   Metrics.EXPORT_MILLIS);
+                } else {
+                    usage();
+                }
                 break;
             }
         }
 
+        if (useUAI) {
+            try {
+                new UaiEngine(new BufferedReader(new InputStreamReader(
+                                  System.in)),
+                              new PrintWriter(new BufferedWriter(
+                                  new OutputStreamWriter(System.out))))
+                    .run();
+            } catch (IOException excp) {
+                System.err.printf("Error reading commands: %s%n",
+                                  excp.getMessage());
+                System.exit(1);
+            }
+            System.exit(0);
+        }
+
         Game game;
         Board board = new Board();
 
@@ -38,24 +83,33 @@ public class Main {
                                                                  BUFFER_LEN),
                                                  false),
                                 display);
+                display.attach(game);
                 display.display(true);
             } catch (IOException excp) {
                 System.err.printf("Could not connect to display.%n");
                 System.exit(1);
             }
+        } else if (quiet && System.console() == null) {
+            BufferedReporter reporter = new BufferedReporter(System.out);
+            game = new Game(board,
+                            new ReaderSource(new InputStreamReader(System.in),
+                                             false),
+                            reporter, new PrintWriter(reporter.writer()));
         } else {
             game = new Game(board,
                             new ReaderSource(new InputStreamReader(System.in),
                                              true),
                             new TextReporter());
         }
+        game.setTiming(timing);
         game.process(false);
+        System.exit(0);
     }
 
     /** Give usage message and exit. */
     static void usage() {
-        System.err.println("Usage: java ataxx.Main [--display] [--timing]"
-                           + " [--strict]");
+        System.err.println("Usage: java ataxx.Main [--display] [--uai]"
+                           + " [--quiet] [--timing] [--metrics[=FILE]]");
         System.exit(1);
     }
 
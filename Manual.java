@@ -15,20 +15,31 @@ class Manual extends Player {
      */
     Manual(Game game, PieceColor myColor) {
         super(game, myColor);
+        _prompt = myColor + ": ";
     }
 
+    /**
+     * Return the next legal move read from my game, reporting and
+     * skipping illegal ones, or null if the game leaves playing state
+     * first.
+     */
     @Override
     Move myMove() {
-        Move move;
-        Command cmnd = game().getMoveCmnd(myColor() + ": ");
-        String[] operands = cmnd.operands();
-        move = Move.move(operands[0].charAt(0), operands[1].charAt(0),
-                operands[2].charAt(0), operands[3].charAt(0));
-        if (game().board().legalMove(move)) {
-            return move;
-        } else {
-            throw new Error("Illegal Move Attempted");
+        while (true) {
+            Command cmnd = game().getMoveCmnd(_prompt);
+            if (cmnd == null) {
+                return null;
+            }
+            Move move = cmnd.move();
+            if (game().board().legalMove(move)) {
+                return move;
+            }
+            game().reportError("Illegal move");
         }
     }
-}
 
+    /**
+     * Prompt for my moves.
+     */
+    private final String _prompt;
+}
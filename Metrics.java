@@ -0,0 +1,358 @@
+package ataxx;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+
+/**
+ * Runtime metrics of searches and games (Main's --metrics flag):
+ * positions searched per second, the hit rate of the transposition
+ * tables (the search cache and the endgame solver's table; the main
+ * search has none), the fraction of cutoffs made by the first move
+ * tried, the effective branching factor, a histogram of the time taken
+ * to choose moves, and the numbers of games in progress and moves
+ * played.  They are published as the MBean NAME (see MetricsMBean), and
+ * may also be appended to a file at intervals.
+ * <p>
+ * Until enable is called, nothing is recorded: callers test enabled()
+ * first, once per move or game.  AIs count their nodes and cutoffs in
+ * plain fields as they search, and add them here once per move.  The
+ * totals here are LongAdders, so that the sessions of a GameServer
+ * add to them without contending.
+ *
+ * @author Shrey Malhotra
+ */
+class Metrics implements MetricsMBean {
+
+    /** The name under which metrics are registered. */
+    static final String NAME = "ataxx:type=Metrics";
+    /** Number of latency buckets (see MetricsMBean). */
+    static final int LATENCY_BUCKETS = 32;
+    /** Size of a metrics file, in bytes, beyond which it is renamed
+     *  with the suffix ".1" (replacing any older one) and a new file
+     *  begun. */
+    static final long MAX_FILE_SIZE = 1 << 20;
+    /** Default interval between lines of a metrics file, in
+     *  milliseconds. */
+    static final long EXPORT_MILLIS = 10_000;
+
+    /** The metrics, all zero. */
+    private Metrics() {
+        for (int k = 0; k < LATENCY_BUCKETS; k += 1) {
+            _latencies[k] = new LongAdder();
+        }
+    }
+
+    /** Return true iff metrics are being recorded. */
+    static boolean enabled() {
+        return _enabled;
+    }
+
+    /** Start recording metrics and register them with the platform MBean
+     *  server.  If FILE is not null, also append a line of metrics to it
+     *  every INTERVALMILLIS milliseconds, and when the program exits.
+     *  Has no effect if metrics are already enabled. */
+    static synchronized void enable(Path file, long intervalMillis) {
+        if (_enabled) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer()
+                .registerMBean(METRICS, new ObjectName(NAME));
+        } catch (JMException excp) {
+            System.err.printf("Cannot register metrics: %s%n",
+                              excp.getMessage());
+        }
+        METRICS._start = System.nanoTime();
+        _enabled = true;
+        if (file != null) {
+            _exporter = new Thread(() -> export(file, intervalMillis),
+                                   "metrics");
+            _exporter.setDaemon(true);
+            _exporter.start();
+            if (!_hooked) {
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    try {
+                        disable();
+                    } catch (InterruptedException excp) {
+                        /* Exiting anyway. */
+                    }
+                }));
+                _hooked = true;
+            }
+        }
+    }
+
+    /** Stop recording metrics, unregister them, and stop writing them to
+     *  a file, waiting until the last line is written. */
+    static synchronized void disable() throws InterruptedException {
+        if (!_enabled) {
+            return;
+        }
+        _enabled = false;
+        try {
+            ManagementFactory.getPlatformMBeanServer()
+                .unregisterMBean(new ObjectName(NAME));
+        } catch (JMException excp) {
+            /* Never registered. */
+        }
+        if (_exporter != null) {
+            LockSupport.unpark(_exporter);
+            _exporter.join();
+            _exporter = null;
+        }
+    }
+
+    /** Record a search that chose a move in NANOS nanoseconds, visiting
+     *  NODES positions to depth DEPTH, making PROBES transposition-table
+     *  lookups, of which HITS succeeded, and CUTOFFS beta cutoffs, of
+     *  which FIRSTCUTOFFS were by the first move tried. */
+    static void searched(long nodes, long nanos, int depth, long probes,
+                         long hits, long cutoffs, long firstCutoffs) {
+        METRICS._searches.increment();
+        METRICS._nodes.add(nodes);
+        METRICS._searchNanos.add(nanos);
+        METRICS._probes.add(probes);
+        METRICS._hits.add(hits);
+        METRICS._cutoffs.add(cutoffs);
+        METRICS._firstCutoffs.add(firstCutoffs);
+        if (depth > 0 && nodes > 1) {
+            METRICS._branching.add(Math.pow(nodes, 1.0 / depth));
+            METRICS._branchingCount.increment();
+        }
+    }
+
+    /** Record that a player that searches took NANOS nanoseconds to
+     *  choose a move. */
+    static void moveChosen(long nanos) {
+        long micros = nanos / 1000;
+        int k = 63 - Long.numberOfLeadingZeros(micros | 1);
+        METRICS._latencies[Math.min(k, LATENCY_BUCKETS - 1)].increment();
+    }
+
+    /** Record that a move was played. */
+    static void movePlayed() {
+        METRICS._moves.increment();
+    }
+
+    /** Record that a game has begun. */
+    static void gameStarted() {
+        METRICS._gamesInProgress.increment();
+    }
+
+    /** Record that a game has ended or been abandoned. */
+    static void gameEnded() {
+        METRICS._gamesInProgress.decrement();
+        METRICS._gamesFinished.increment();
+    }
+
+    /** Return a line giving the current metrics. */
+    static String snapshot() {
+        return String.format("searches=%d nodes=%d nps=%.0f probes=%d"
+                             + " hitRate=%.4f cutoffs=%d firstCutoffRate=%.4f"
+                             + " ebf=%.3f latencyP50=%.3f latencyP90=%.3f"
+                             + " latencyP99=%.3f games=%d finished=%d"
+                             + " moves=%d movesPerSecond=%.2f",
+                             METRICS.getSearches(), METRICS.getNodes(),
+                             METRICS.getNodesPerSecond(),
+                             METRICS.getTableProbes(),
+                             METRICS.getTableHitRate(),
+                             METRICS.getCutoffs(),
+                             METRICS.getFirstMoveCutoffRate(),
+                             METRICS.getEffectiveBranchingFactor(),
+                             METRICS.getMoveLatencyP50(),
+                             METRICS.getMoveLatencyP90(),
+                             METRICS.getMoveLatencyP99(),
+                             METRICS.getGamesInProgress(),
+                             METRICS.getGamesFinished(),
+                             METRICS.getMovesPlayed(),
+                             METRICS.getMovesPerSecond());
+    }
+
+    @Override
+    public long getSearches() {
+        return _searches.sum();
+    }
+
+    @Override
+    public long getNodes() {
+        return _nodes.sum();
+    }
+
+    @Override
+    public double getNodesPerSecond() {
+        return ratio(_nodes.sum() * 1e9, _searchNanos.sum());
+    }
+
+    @Override
+    public long getTableProbes() {
+        return _probes.sum();
+    }
+
+    @Override
+    public double getTableHitRate() {
+        return ratio(_hits.sum(), _probes.sum());
+    }
+
+    @Override
+    public long getCutoffs() {
+        return _cutoffs.sum();
+    }
+
+    @Override
+    public double getFirstMoveCutoffRate() {
+        return ratio(_firstCutoffs.sum(), _cutoffs.sum());
+    }
+
+    @Override
+    public double getEffectiveBranchingFactor() {
+        return ratio(_branching.sum(), _branchingCount.sum());
+    }
+
+    @Override
+    public long[] getMoveLatencyBuckets() {
+        long[] counts = new long[LATENCY_BUCKETS];
+        for (int k = 0; k < LATENCY_BUCKETS; k += 1) {
+            counts[k] = _latencies[k].sum();
+        }
+        return counts;
+    }
+
+    @Override
+    public double getMoveLatencyP50() {
+        return latencyPercentile(50);
+    }
+
+    @Override
+    public double getMoveLatencyP90() {
+        return latencyPercentile(90);
+    }
+
+    @Override
+    public double getMoveLatencyP99() {
+        return latencyPercentile(99);
+    }
+
+    @Override
+    public long getGamesInProgress() {
+        return _gamesInProgress.sum();
+    }
+
+    @Override
+    public long getGamesFinished() {
+        return _gamesFinished.sum();
+    }
+
+    @Override
+    public long getMovesPlayed() {
+        return _moves.sum();
+    }
+
+    @Override
+    public double getMovesPerSecond() {
+        return ratio(_moves.sum() * 1e9, System.nanoTime() - _start);
+    }
+
+    /** Return the P-th percentile move-selection latency in
+     *  milliseconds, as the upper bound of its bucket, or 0 if there
+     *  are none. */
+    private double latencyPercentile(double p) {
+        long[] counts = getMoveLatencyBuckets();
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        long rank = (long) Math.ceil(total * p / 100);
+        for (int k = 0; k < LATENCY_BUCKETS && total > 0; k += 1) {
+            rank -= counts[k];
+            if (rank <= 0) {
+                return (2L << k) * 1e-3;
+            }
+        }
+        return 0;
+    }
+
+    /** Return X / Y, or 0 if Y is 0. */
+    private static double ratio(double x, double y) {
+        return y == 0 ? 0 : x / y;
+    }
+
+    /** Append the time and the metrics to FILE every INTERVALMILLIS
+     *  milliseconds, and once more when metrics are disabled, starting a
+     *  new file when it grows beyond MAX_FILE_SIZE. */
+    private static void export(Path file, long intervalMillis) {
+        Path old = file.resolveSibling(file.getFileName() + ".1");
+        boolean last = false;
+        while (!last) {
+            long next = System.nanoTime() + intervalMillis * 1_000_000;
+            for (long wait = next - System.nanoTime(); _enabled && wait > 0;
+                 wait = next - System.nanoTime()) {
+                LockSupport.parkNanos(wait);
+            }
+            last = !_enabled;
+            try {
+                if (Files.exists(file) && Files.size(file) >= MAX_FILE_SIZE) {
+                    Files.move(file, old, REPLACE_EXISTING);
+                }
+                Files.writeString(file, Instant.now() + " " + snapshot()
+                                  + System.lineSeparator(), CREATE, APPEND);
+            } catch (IOException excp) {
+                System.err.printf("Cannot write metrics: %s%n",
+                                  excp.getMessage());
+            }
+        }
+    }
+
+    /** The metrics. */
+    private static final Metrics METRICS = new Metrics();
+
+    /** True iff metrics are being recorded. */
+    private static volatile boolean _enabled;
+    /** The thread writing metrics to a file, if any. */
+    private static Thread _exporter;
+    /** True iff a shutdown hook has been added to write the last line
+     *  of a metrics file. */
+    private static boolean _hooked;
+
+    /** Time (as given by System.nanoTime) at which metrics were
+     *  enabled. */
+    private volatile long _start;
+    /** Number of searches. */
+    private final LongAdder _searches = new LongAdder();
+    /** Positions visited by searches. */
+    private final LongAdder _nodes = new LongAdder();
+    /** Time taken by searches, in nanoseconds. */
+    private final LongAdder _searchNanos = new LongAdder();
+    /** Transposition-table lookups. */
+    private final LongAdder _probes = new LongAdder();
+    /** Successful transposition-table lookups. */
+    private final LongAdder _hits = new LongAdder();
+    /** Beta cutoffs. */
+    private final LongAdder _cutoffs = new LongAdder();
+    /** Beta cutoffs by the first move tried. */
+    private final LongAdder _firstCutoffs = new LongAdder();
+    /** Sum of the effective branching factors of searches. */
+    private final DoubleAdder _branching = new DoubleAdder();
+    /** Number of searches summed in _branching. */
+    private final LongAdder _branchingCount = new LongAdder();
+    /** Move-selection latencies in each bucket. */
+    private final LongAdder[] _latencies = new LongAdder[LATENCY_BUCKETS];
+    /** Games being played. */
+    private final LongAdder _gamesInProgress = new LongAdder();
+    /** Games ended. */
+    private final LongAdder _gamesFinished = new LongAdder();
+    /** Moves played. */
+    private final LongAdder _moves = new LongAdder();
+
+}
@@ -0,0 +1,67 @@
+package ataxx;
+
+/**
+ * The management interface of Metrics, as registered with the platform
+ * MBean server under the name Metrics.NAME.  Counts are totals since
+ * metrics were enabled; rates and averages are over the same period.
+ *
+ * @author Shrey Malhotra
+ */
+public interface MetricsMBean {
+
+    /** Return the number of moves chosen by searching AIs. */
+    long getSearches();
+
+    /** Return the number of positions visited by those searches. */
+    long getNodes();
+
+    /** Return the positions visited per second of search. */
+    double getNodesPerSecond();
+
+    /** Return the number of transposition-table lookups. */
+    long getTableProbes();
+
+    /** Return the fraction of transposition-table lookups that found
+     *  their position. */
+    double getTableHitRate();
+
+    /** Return the number of beta cutoffs. */
+    long getCutoffs();
+
+    /** Return the fraction of beta cutoffs caused by the first move
+     *  searched. */
+    double getFirstMoveCutoffRate();
+
+    /** Return the average effective branching factor of the searches. */
+    double getEffectiveBranchingFactor();
+
+    /** Return the number of move-selection latencies in each bucket: in
+     *  bucket 0, those under 2 microseconds, and in bucket K > 0, those
+     *  of at least 2**K and under 2**(K+1) microseconds. */
+    long[] getMoveLatencyBuckets();
+
+    /** Return the median move-selection latency in milliseconds, as the
+     *  upper bound of its bucket. */
+    double getMoveLatencyP50();
+
+    /** Return the 90th percentile move-selection latency, as for
+     *  getMoveLatencyP50. */
+    double getMoveLatencyP90();
+
+    /** Return the 99th percentile move-selection latency, as for
+     *  getMoveLatencyP50. */
+    double getMoveLatencyP99();
+
+    /** Return the number of games being played. */
+    long getGamesInProgress();
+
+    /** Return the number of games that have ended. */
+    long getGamesFinished();
+
+    /** Return the number of moves played. */
+    long getMovesPlayed();
+
+    /** Return the moves played per second. */
+    double getMovesPerSecond();
+
+}
@@ -0,0 +1,74 @@
+package ataxx;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of runtime metrics.
+ *
+ * @author Shrey Malhotra
+ */
+public class MetricsTest {
+
+    @Test
+    public void testGameMetrics() throws IOException, JMException,
+        InterruptedException {
+        Path file = Files.createTempFile("metrics", ".txt");
+        try {
+            Metrics.enable(file, Metrics.EXPORT_MILLIS);
+            ObjectName name = new ObjectName(Metrics.NAME);
+            long searches = attribute(name, "Searches"),
+                moves = attribute(name, "MovesPlayed"),
+                games = attribute(name, "GamesFinished");
+            PrintWriter out = new PrintWriter(Writer.nullWriter());
+            Game game =
+                new Game(new Board(),
+                         new ReaderSource(new StringReader("auto red\n"
+                                                           + "start\nquit\n"),
+                                          false),
+                         new TextReporter(out), out);
+            game.process(false);
+            assertEquals("games not counted", games + 1,
+                         attribute(name, "GamesFinished"));
+            assertEquals("game still in progress", 0,
+                         attribute(name, "GamesInProgress"));
+            long played = attribute(name, "MovesPlayed") - moves;
+            assertTrue("moves not counted", played > 0);
+            assertEquals("searches not counted", played,
+                         attribute(name, "Searches") - searches);
+            long[] buckets = (long[]) ManagementFactory
+                .getPlatformMBeanServer()
+                .getAttribute(name, "MoveLatencyBuckets");
+            long chosen = 0;
+            for (long count : buckets) {
+                chosen += count;
+            }
+            assertTrue("latencies not counted", chosen >= played);
+            Metrics.disable();
+            assertTrue("no metrics written",
+                       Files.readString(file).contains(" moves="));
+        } finally {
+            Metrics.disable();
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /** Return the long attribute ATTR of the MBean NAME. */
+    private static long attribute(ObjectName name, String attr)
+        throws JMException {
+        return (Long) ManagementFactory.getPlatformMBeanServer()
+            .getAttribute(name, attr);
+    }
+
+}
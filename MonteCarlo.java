@@ -0,0 +1,385 @@
+package ataxx;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import static ataxx.GameArchive.PASS_CODE;
+
+/**
+ * A Player that chooses moves by Monte Carlo tree search: UCT selection,
+ * expansion of a leaf on its second visit, a uniformly random playout
+ * to the end of the game, and backing up of the outcome.  Several
+ * threads search one shared tree, each adding a virtual loss to the
+ * nodes on its path until its playout is backed up, so that the
+ * threads spread over different lines.
+ * <p>
+ * The tree lives in an arena of primitive arrays allocated once per
+ * player: node K's move code, children, visit count and score are
+ * element K of the arrays below.  Children of a node occupy consecutive
+ * slots.  Playouts run on a per-thread Bitboard, so a search allocates
+ * nothing after its threads start.  The threads come from a pool shared
+ * by all MonteCarlo players, so that they are not created anew for each
+ * move.  A search ends at its time or playout limit, or as soon as a
+ * request is made to its game (see Game.control).
+ *
+ * @author Shrey Malhotra
+ */
+class MonteCarlo extends Player {
+
+    /** Default number of nodes in the arena. */
+    static final int DEFAULT_CAPACITY = 1 << 20;
+    /** Default time per move in milliseconds. */
+    static final long DEFAULT_MILLIS = 1000;
+    /** Greatest time per move that may be set in a game, in
+     *  milliseconds. */
+    static final long MAX_MILLIS = 60_000;
+    /** Interval in milliseconds at which a search checks for requests to
+     *  its game. */
+    private static final long POLL_MILLIS = 10;
+    /** Weight of the exploration term of UCT. */
+    private static final double EXPLORATION = 0.7;
+    /** Number of visits after which a leaf is expanded. */
+    private static final int EXPAND_VISITS = 2;
+    /** Maximum depth of a path in the tree. */
+    private static final int MAX_PATH = 256;
+    /** Value of FIRST for a node that has not been expanded. */
+    private static final int UNEXPANDED = -1;
+    /** Value of FIRST for a node being expanded, or one that cannot be
+     *  expanded because the arena is full. */
+    private static final int EXPANDING = -2;
+    /** Points for a win, draw, and loss. */
+    private static final int WIN = 2, DRAW = 1;
+
+    /** A new MonteCarlo player for GAME that will play MYCOLOR, thinking
+     *  for DEFAULT_MILLIS per move on all processors. */
+    MonteCarlo(Game game, PieceColor myColor) {
+        this(game, myColor, DEFAULT_MILLIS);
+    }
+
+    /** A new MonteCarlo player for GAME that will play MYCOLOR, thinking
+     *  for MILLIS milliseconds per move on all processors. */
+    MonteCarlo(Game game, PieceColor myColor, long millis) {
+        this(game, myColor, 0, millis,
+             Runtime.getRuntime().availableProcessors(), DEFAULT_CAPACITY);
+    }
+
+    /** A new MonteCarlo player for GAME (possibly null) that will play
+     *  MYCOLOR, performing up to PLAYOUTS playouts (if positive) in up to
+     *  MILLIS milliseconds (if positive) per move on THREADS threads,
+     *  with a tree of up to CAPACITY nodes. */
+    MonteCarlo(Game game, PieceColor myColor, long playouts, long millis,
+               int threads, int capacity) {
+        super(game, myColor);
+        _playoutLimit = playouts;
+        _millis = millis;
+        _move = new int[capacity];
+        _first = new int[capacity];
+        _count = new int[capacity];
+        _visits = new int[capacity];
+        _score = new long[capacity];
+        _workers = new Worker[threads];
+        for (int i = 0; i < threads; i += 1) {
+            _workers[i] = new Worker(0x9E3779B97F4A7C15L * (i + 1));
+        }
+    }
+
+    @Override
+    Move myMove() {
+        return findMove(board());
+    }
+
+    /** Return the move chosen for the side to move on BOARD, which is
+     *  not changed. */
+    Move findMove(Board board) {
+        _root.copy(board);
+        int n = _root.moves(_rootMoves);
+        if (n <= 1) {
+            return _root.toMove(n == 0 ? PASS_CODE : _rootMoves[0]);
+        }
+        _size.set(1);
+        _first[0] = UNEXPANDED;
+        _count[0] = 0;
+        _visits[0] = 0;
+        _score[0] = 0;
+        _stop = false;
+        Future<?>[] tasks = new Future<?>[_workers.length];
+        for (int i = 0; i < tasks.length; i += 1) {
+            tasks[i] = THREADS.submit(_workers[i]);
+        }
+        long deadline = System.nanoTime() + _millis * 1_000_000;
+        for (Future<?> task : tasks) {
+            await(task, deadline);
+        }
+        _lastPlayouts = 0;
+        for (Worker w : _workers) {
+            _lastPlayouts += w._playouts;
+        }
+        int first = _first[0], best = -1;
+        for (int c = first; first >= 0 && c < first + _count[0]; c += 1) {
+            if (best == -1 || _visits[c] > _visits[best]) {
+                best = c;
+            }
+        }
+        if (best == -1) {
+            return _root.toMove(_rootMoves[0]);
+        }
+        return _root.toMove(_move[best]);
+    }
+
+    /** Wait for TASK, one of my workers, to finish, stopping the search
+     *  once DEADLINE (in System.nanoTime's terms, if I have a time
+     *  limit) passes, a request is made to my game, or this thread is
+     *  interrupted.  The worker is always waited for, since the next
+     *  search reuses its state. */
+    private void await(Future<?> task, long deadline) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                if (_millis > 0 && System.nanoTime() - deadline >= 0
+                    || game() != null && game().interrupted()) {
+                    _stop = true;
+                }
+                try {
+                    task.get(POLL_MILLIS, MILLISECONDS);
+                    return;
+                } catch (TimeoutException excp) {
+                    continue;
+                } catch (InterruptedException excp) {
+                    _stop = interrupted = true;
+                } catch (ExecutionException excp) {
+                    throw new IllegalStateException(excp.getCause());
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /** Return the number of playouts performed for the last move. */
+    long lastPlayouts() {
+        return _lastPlayouts;
+    }
+
+    /** Return the number of tree nodes created for the last move. */
+    int lastTreeSize() {
+        return Math.min(_size.get(), _move.length);
+    }
+
+    /** A search thread. */
+    private class Worker implements Runnable {
+
+        /** A Worker whose random numbers start from SEED. */
+        Worker(long seed) {
+            _random = seed;
+        }
+
+        @Override
+        public void run() {
+            int share = (int) ((_playoutLimit + _workers.length - 1)
+                               / _workers.length);
+            _playouts = 0;
+            while (!_stop && (_playoutLimit <= 0 || _playouts < share)) {
+                iterate();
+                _playouts += 1;
+            }
+        }
+
+        /** Perform one selection, expansion, playout, and backup. */
+        private void iterate() {
+            Bitboard b = _board;
+            b.copy(_root);
+            int node = 0, depth = 0;
+            _path[0] = 0;
+            VISITS.getAndAdd(_visits, 0, 1);
+            while (depth < MAX_PATH - 1) {
+                int first = (int) FIRST.getAcquire(_first, node);
+                if (first < 0) {
+                    if (first == UNEXPANDED
+                        && (int) VISITS.getOpaque(_visits, node)
+                            >= EXPAND_VISITS
+                        && !b.gameOver()
+                        && FIRST.compareAndSet(_first, node, UNEXPANDED,
+                                               EXPANDING)) {
+                        first = expand(node, b);
+                    }
+                    if (first < 0) {
+                        break;
+                    }
+                }
+                node = select(node, first);
+                b.apply(_move[node]);
+                depth += 1;
+                _path[depth] = node;
+                VISITS.getAndAdd(_visits, node, 1);
+            }
+            int red = playout(b);
+            boolean blueMoved = _root.blueToMove();
+            for (int d = 1; d <= depth; d += 1) {
+                int points = red == 0 ? DRAW
+                    : (red > 0) != blueMoved ? WIN : 0;
+                if (points != 0) {
+                    SCORE.getAndAdd(_score, _path[d], (long) points);
+                }
+                blueMoved = !blueMoved;
+            }
+        }
+
+        /** Create the children of NODE, at position B, returning the
+         *  index of the first or EXPANDING if the arena is full. */
+        private int expand(int node, Bitboard b) {
+            int n = b.moves(_moves);
+            if (n == 0) {
+                _moves[0] = PASS_CODE;
+                n = 1;
+            }
+            if (_size.get() + n > _move.length) {
+                return EXPANDING;
+            }
+            int start = _size.getAndAdd(n);
+            if (start + n > _move.length) {
+                return EXPANDING;
+            }
+            for (int i = 0; i < n; i += 1) {
+                int c = start + i;
+                _move[c] = _moves[i];
+                _first[c] = UNEXPANDED;
+                _count[c] = 0;
+                _visits[c] = 0;
+                _score[c] = 0;
+            }
+            _count[node] = n;
+            FIRST.setRelease(_first, node, start);
+            return start;
+        }
+
+        /** Return the child of NODE, whose children start at FIRST, with
+         *  the greatest UCT value. */
+        private int select(int node, int first) {
+            int end = first + _count[node];
+            double logN = Math.log((int) VISITS.getOpaque(_visits, node));
+            double bestValue = Double.NEGATIVE_INFINITY;
+            int best = first;
+            for (int c = first; c < end; c += 1) {
+                int v = (int) VISITS.getOpaque(_visits, c);
+                if (v == 0) {
+                    return c;
+                }
+                double value = (long) SCORE.getOpaque(_score, c) / (2.0 * v)
+                    + EXPLORATION * Math.sqrt(logN / v);
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = c;
+                }
+            }
+            return best;
+        }
+
+        /** Play lightly weighted random moves on B until the game ends,
+         *  returning the sign of red's final piece count less blue's.
+         *  Each move is the better by gain (see gain) of two chosen
+         *  uniformly at random. */
+        private int playout(Bitboard b) {
+            while (!b.gameOver()) {
+                int n = b.moves(_moves);
+                if (n == 0) {
+                    b.apply(PASS_CODE);
+                } else {
+                    int m1 = _moves[nextInt(n)], m2 = _moves[nextInt(n)];
+                    b.apply(gain(b, m1) >= gain(b, m2) ? m1 : m2);
+                }
+            }
+            return Long.signum(Long.bitCount(b.red())
+                               - Long.bitCount(b.blue()));
+        }
+
+        /** Return the number of pieces the side to move on B gains by the
+         *  move with code CODE. */
+        private int gain(Bitboard b, int code) {
+            int captured = Long.bitCount(Bitboard.ADJACENT[code & 0x3F]
+                                         & b.theirs());
+            return code >= GameArchive.JUMP_CODE ? captured : captured + 1;
+        }
+
+        /** Return a pseudo-random integer in [0 .. N). */
+        private int nextInt(int n) {
+            _random ^= _random << 13;
+            _random ^= _random >>> 7;
+            _random ^= _random << 17;
+            return (int) (((_random >>> 32) * n) >>> 32);
+        }
+
+        /** My playout board. */
+        private final Bitboard _board = new Bitboard(0);
+        /** Nodes on my current path, from the root. */
+        private final int[] _path = new int[MAX_PATH];
+        /** Scratch move list. */
+        private final int[] _moves = new int[Bitboard.MAX_MOVES];
+        /** State of my random number generator. */
+        private long _random;
+        /** Number of playouts I performed in the current search. */
+        private long _playouts;
+    }
+
+    /** The search threads of all MonteCarlo players, kept for a while
+     *  between moves. */
+    private static final ExecutorService THREADS;
+
+    static {
+        AtomicInteger count = new AtomicInteger();
+        THREADS = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "mcts-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /** Atomic access to elements of _first. */
+    private static final VarHandle FIRST =
+        MethodHandles.arrayElementVarHandle(int[].class);
+    /** Atomic access to elements of _visits. */
+    private static final VarHandle VISITS =
+        MethodHandles.arrayElementVarHandle(int[].class);
+    /** Atomic access to elements of _score. */
+    private static final VarHandle SCORE =
+        MethodHandles.arrayElementVarHandle(long[].class);
+
+    /** Playout limit per move, or 0 for none. */
+    private final long _playoutLimit;
+    /** Time limit per move in milliseconds, or 0 for none. */
+    private final long _millis;
+    /** The position searched. */
+    private final Bitboard _root = new Bitboard(0);
+    /** Moves at the root. */
+    private final int[] _rootMoves = new int[Bitboard.MAX_MOVES];
+    /** Move code leading to each node. */
+    private final int[] _move;
+    /** Index of the first child of each node, or UNEXPANDED or
+     *  EXPANDING. */
+    private final int[] _first;
+    /** Number of children of each node. */
+    private final int[] _count;
+    /** Number of visits to each node, including virtual losses. */
+    private final int[] _visits;
+    /** Total points (WIN, DRAW, or 0 per playout) of each node for the
+     *  side that moved into it. */
+    private final long[] _score;
+    /** Number of arena slots allocated. */
+    private final AtomicInteger _size = new AtomicInteger();
+    /** The search threads' state. */
+    private final Worker[] _workers;
+    /** Set to stop the search. */
+    private volatile boolean _stop;
+    /** Number of playouts in the last search. */
+    private long _lastPlayouts;
+
+}
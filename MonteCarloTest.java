@@ -0,0 +1,69 @@
+package ataxx;
+
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+import static ataxx.PieceColor.*;
+
+/**
+ * Tests of the Monte Carlo tree search player.
+ *
+ * @author Shrey Malhotra
+ */
+public class MonteCarloTest {
+
+    /** Return a Game reading COMMANDS and reporting on OUT. */
+    private static Game game(String commands, PrintWriter out) {
+        return new Game(new Board(),
+                        new ReaderSource(new StringReader(commands), false),
+                        new TextReporter(out), out);
+    }
+
+    @Test
+    public void testLegalMoves() {
+        Random random = new Random(5);
+        Move[] scratch = new Move[Board.MAX_MOVES];
+        Board board = new Board();
+        MonteCarlo red = new MonteCarlo(null, RED, 500, 0, 2, 1 << 14),
+            blue = new MonteCarlo(null, BLUE, 500, 0, 2, 1 << 14);
+        for (int k = 0; k < 3; k += 1) {
+            SelfPlay.randomStart(board, random, scratch);
+            while (!board.gameOver()) {
+                MonteCarlo player = board.whoseMove() == RED ? red : blue;
+                Move move = player.findMove(board);
+                assertTrue("illegal move " + move, board.legalMove(move));
+                assertTrue("too many nodes",
+                           player.lastTreeSize() <= 1 << 14);
+                board.makeMove(move);
+            }
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testStopsOnRequest() {
+        StringWriter text = new StringWriter();
+        PrintWriter out = new PrintWriter(text);
+        Game game = game("", out);
+        MonteCarlo player = new MonteCarlo(game, RED, 0, 0, 2, 1 << 14);
+        game.control(Game.Control.STOP);
+        Board board = new Board();
+        assertTrue("illegal move", board.legalMove(player.findMove(board)));
+    }
+
+    @Test
+    public void testTimeSetting() {
+        StringWriter text = new StringWriter();
+        PrintWriter out = new PrintWriter(text);
+        Game game = game("auto red mcts 0\nauto blue mcts 20\nquit\n", out);
+        game.process(false);
+        out.flush();
+        assertTrue("no error reported",
+                   text.toString().contains("Invalid time per move"));
+    }
+
+}
@@ -54,6 +54,18 @@ class Move {
                         [col1 - 'a' + 2][row1 - '1' + 2];
     }
 
+    /**
+     * A factory method that returns the Move from the square with
+     * linearized index FROM to that with linearized index TO, assuming
+     * FROM is on the normal board and TO is within two rows and columns
+     * of it.
+     */
+    static Move move(int from, int to) {
+        return
+                ALL_MOVES[from % EXTENDED_SIDE][from / EXTENDED_SIDE]
+                        [to % EXTENDED_SIDE][to / EXTENDED_SIDE];
+    }
+
     /**
      * Returns a pass.
      */
@@ -72,10 +84,7 @@ class Move {
      * Return true if this is an extension (move to adjacent square).
      */
     boolean isExtend() {
-        if (abs(row0() - row1()) == 1 || abs(col0() - col1()) == 1) {
-            return true;
-        }
-        return false;
+        return !isPass() && !isJump();
     }
 
     /**
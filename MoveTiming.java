@@ -0,0 +1,110 @@
+package ataxx;
+
+import java.util.Arrays;
+
+/**
+ * Timing mode (Main's --timing flag): reports the cost of each move
+ * chosen by a player that searches, and a summary at the end of each
+ * game.  For each move it gives the wall-clock time taken, the
+ * processor time of the search, the positions visited and their rate
+ * per wall-clock second, the depth reached, and the numbers of Board
+ * operations performed.  The summary gives totals and percentiles of
+ * the times and rates.
+ *
+ * @author Shrey Malhotra
+ */
+class MoveTiming {
+
+    /** Percentiles given in summaries. */
+    private static final double[] PERCENTILES = { 50, 90, 99, 100 };
+
+    /** A timer reporting on REPORTER. */
+    MoveTiming(Reporter reporter) {
+        _reporter = reporter;
+    }
+
+    /** Forget the moves recorded so far. */
+    void reset() {
+        _count = 0;
+    }
+
+    /** Record and report that SIDE chose MOVE, the NUMBERth move of the
+     *  game, in WALLNANOS nanoseconds of elapsed time, with STATS
+     *  describing its search. */
+    void record(PieceColor side, Move move, int number, long wallNanos,
+                SearchStats stats) {
+        if (_count == _wall.length) {
+            int size = 2 * _count;
+            _wall = Arrays.copyOf(_wall, size);
+            _cpu = Arrays.copyOf(_cpu, size);
+            _nps = Arrays.copyOf(_nps, size);
+            _nodes = Arrays.copyOf(_nodes, size);
+        }
+        long nps = nps(stats.nodes(), wallNanos);
+        _wall[_count] = wallNanos;
+        _cpu[_count] = stats.cpuNanos();
+        _nps[_count] = nps;
+        _nodes[_count] = stats.nodes();
+        _count += 1;
+        _reporter.infoMsg("Timing: move %d %s %s: wall %.2f ms, cpu %.2f ms,"
+                          + " %d nodes, %d nps, depth %d; makeMove %d,"
+                          + " legalMoves %d, samepieces %d",
+                          number, side, move, wallNanos * 1e-6,
+                          stats.cpuNanos() * 1e-6, stats.nodes(), nps,
+                          stats.depth(), stats.makeMoves(),
+                          stats.legalMoves(), stats.samePieces());
+    }
+
+    /** Report a summary of the moves recorded since the last reset, if
+     *  any, and reset. */
+    void summarize() {
+        if (_count == 0) {
+            return;
+        }
+        long wall = 0, cpu = 0, nodes = 0;
+        for (int i = 0; i < _count; i += 1) {
+            wall += _wall[i];
+            cpu += _cpu[i];
+            nodes += _nodes[i];
+        }
+        _reporter.infoMsg("Timing: %d moves, wall %.3f s, cpu %.3f s,"
+                          + " %d nodes, %d nps",
+                          _count, wall * 1e-9, cpu * 1e-9, nodes,
+                          nps(nodes, wall));
+        _reporter.infoMsg("Timing: wall ms %s", percentiles(_wall, 1e-6));
+        _reporter.infoMsg("Timing: cpu ms %s", percentiles(_cpu, 1e-6));
+        _reporter.infoMsg("Timing: nps %s", percentiles(_nps, 1));
+        reset();
+    }
+
+    /** Return the rate of NODES per second in NANOS nanoseconds. */
+    private static long nps(long nodes, long nanos) {
+        return nanos <= 0 ? 0 : (long) (nodes * 1e9 / nanos);
+    }
+
+    /** Return the PERCENTILES of the first _count VALUES, each times
+     *  SCALE, as text. */
+    private String percentiles(long[] values, double scale) {
+        long[] sorted = Arrays.copyOf(values, _count);
+        Arrays.sort(sorted);
+        StringBuilder text = new StringBuilder();
+        for (double p : PERCENTILES) {
+            int k = Math.max(0, (int) Math.ceil(p / 100 * _count) - 1);
+            text.append(text.length() == 0 ? "" : ", ")
+                .append(p == 100 ? "max" : "p" + (int) p)
+                .append(String.format(scale == 1 ? " %.0f" : " %.2f",
+                                      sorted[k] * scale));
+        }
+        return text.toString();
+    }
+
+    /** Where reports go. */
+    private final Reporter _reporter;
+    /** Number of moves recorded. */
+    private int _count;
+    /** Wall-clock and processor nanoseconds, positions per second, and
+     *  positions of the moves recorded. */
+    private long[] _wall = new long[64], _cpu = new long[64],
+        _nps = new long[64], _nodes = new long[64];
+
+}
@@ -0,0 +1,47 @@
+package ataxx;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+import static ataxx.PieceColor.*;
+
+/**
+ * Tests of timing mode.
+ *
+ * @author Shrey Malhotra
+ */
+public class MoveTimingTest {
+
+    @Test
+    public void testReports() {
+        ArrayList<String> lines = new ArrayList<>();
+        Reporter reporter = new TextReporter() {
+            @Override
+            public void infoMsg(String format, Object... args) {
+                lines.add(String.format(format, args));
+            }
+        };
+        MoveTiming timing = new MoveTiming(reporter);
+        Move move = Move.move('a', '7', 'b', '6');
+        for (int i = 1; i <= 4; i += 1) {
+            timing.record(RED, move, i, i * 1000000L,
+                          new SearchStats(i * 1000, 3, 500000, 7, 2, 0));
+        }
+        assertEquals("per-move report", "Timing: move 2 Red a7-b6: wall"
+                     + " 2.00 ms, cpu 0.50 ms, 2000 nodes, 1000000 nps,"
+                     + " depth 3; makeMove 7, legalMoves 2, samepieces 0",
+                     lines.get(1));
+        timing.summarize();
+        assertEquals("totals", "Timing: 4 moves, wall 0.010 s, cpu 0.002 s,"
+                     + " 10000 nodes, 1000000 nps", lines.get(4));
+        assertEquals("percentiles",
+                     "Timing: wall ms p50 2.00, p90 4.00, p99 4.00,"
+                     + " max 4.00", lines.get(5));
+        lines.clear();
+        timing.summarize();
+        assertTrue("summary not reset", lines.isEmpty());
+    }
+
+}
@@ -0,0 +1,177 @@
+package ataxx;
+
+import java.nio.ByteBuffer;
+
+import static ataxx.GameArchive.JUMP_CODE;
+import static ataxx.GameArchive.PASS_CODE;
+import static ataxx.GameArchive.SQUARES;
+
+/**
+ * Layout of opening-book files, and the canonical position keys under
+ * which they record moves (see OpeningBookBuilder and
+ * OpeningBookProber).  A book file consists of
+ * <ul>
+ * <li> A HEADER_SIZE-byte header: the MAGIC number, the VERSION, two
+ *      unused bytes, and the number of records.
+ * <li> The records, each RECORD_SIZE bytes: the key of a position (its
+ *      blocks, the pieces of the side to move, and those of its
+ *      opponent, as masks of GameArchive squares), the move code (see
+ *      GameArchive) of a move played there, the number of times it was
+ *      played, and the points it scored for the side that played it (two
+ *      for a win and one for a draw).
+ * </ul>
+ * The records are sorted by key (blocks first, so that the positions of
+ * each block layout are contiguous), then by move code, all compared as
+ * signed numbers.  All multi-byte quantities are big-endian.
+ * <p>
+ * The key of a position is the least, over the eight symmetries of the
+ * square, of its transformed masks, compared in the same order.  Since
+ * the pieces are recorded as those of the side to move and of its
+ * opponent, a position and its color reversal also share a key.  Moves
+ * are recorded as they appear on the transformed board (see keyMove).
+ * The jump count is not part of the key: book positions lie far from the
+ * jump limit.
+ *
+ * @author Shrey Malhotra
+ */
+class OpeningBook {
+
+    /** Identifies a book file ("ATOB"). */
+    static final int MAGIC = 0x41544F42;
+    /** Current format version. */
+    static final short VERSION = 1;
+    /** Size of the file header in bytes. */
+    static final int HEADER_SIZE = 16;
+    /** Offset of the record count within the header. */
+    static final int COUNT_POS = 8;
+    /** Size of each record in bytes. */
+    static final int RECORD_SIZE = 36;
+    /** Offsets of the fields of a record. */
+    static final int BLOCKS_POS = 0, MINE_POS = 8, THEIRS_POS = 16,
+        MOVE_POS = 24, PLAYS_POS = 28, POINTS_POS = 32;
+    /** Number of symmetries of the board. */
+    static final int SYMMETRIES = 8;
+
+    /** Not instantiable. */
+    private OpeningBook() {
+    }
+
+    /** Set KEY[0], KEY[1], and KEY[2] to the key (blocks, mine, and
+     *  theirs) of position B, and return the symmetry that produces
+     *  it. */
+    static int key(Bitboard b, long[] key) {
+        long blocks = b.blocked(), mine = b.mine(), theirs = b.theirs();
+        int best = 0;
+        key[0] = blocks;
+        key[1] = mine;
+        key[2] = theirs;
+        for (int t = 1; t < SYMMETRIES; t += 1) {
+            long tb = transform(blocks, t);
+            if (tb > key[0]) {
+                continue;
+            }
+            long tm = transform(mine, t);
+            if (tb == key[0] && tm > key[1]) {
+                continue;
+            }
+            long tt = transform(theirs, t);
+            if (tb == key[0] && tm == key[1] && tt >= key[2]) {
+                continue;
+            }
+            best = t;
+            key[0] = tb;
+            key[1] = tm;
+            key[2] = tt;
+        }
+        return best;
+    }
+
+    /** Set KEY as for key(B, KEY), and return the code under which the
+     *  move with code CODE on B is recorded: its least image under the
+     *  symmetries that produce KEY, so that equivalent moves in a
+     *  symmetric position are recorded together. */
+    static int keyMove(Bitboard b, long[] key, int code) {
+        int best = transformMove(code, key(b, key));
+        for (int t = 0; t < SYMMETRIES; t += 1) {
+            if (transform(b.blocked(), t) == key[0]
+                && transform(b.mine(), t) == key[1]
+                && transform(b.theirs(), t) == key[2]) {
+                best = Math.min(best, transformMove(code, t));
+            }
+        }
+        return best;
+    }
+
+    /** Return the image of the squares in MASK under symmetry T. */
+    static long transform(long mask, int t) {
+        int[] map = MAP[t];
+        long result = 0;
+        for (long x = mask; x != 0; x &= x - 1) {
+            result |= 1L << map[Long.numberOfTrailingZeros(x)];
+        }
+        return result;
+    }
+
+    /** Return the image of the move with code CODE under symmetry T. */
+    static int transformMove(int code, int t) {
+        return transformMove(code, MAP[t]);
+    }
+
+    /** Return the original of the move with code CODE on a board
+     *  transformed by symmetry T. */
+    static int untransformMove(int code, int t) {
+        return transformMove(code, INVERSE[t]);
+    }
+
+    /** Return the image of the move with code CODE when square S goes
+     *  to MAP[S]. */
+    private static int transformMove(int code, int[] map) {
+        if (code == PASS_CODE) {
+            return code;
+        } else if (code >= JUMP_CODE) {
+            return JUMP_CODE + (map[(code - JUMP_CODE) >> 6] << 6)
+                + map[code & 0x3F];
+        } else {
+            return map[code];
+        }
+    }
+
+    /** Return the result of comparing the key of the record at offset
+     *  POS in BUF with KEY, as for Comparable.compareTo. */
+    static int compareKey(ByteBuffer buf, int pos, long[] key) {
+        int c = Long.compare(buf.getLong(pos + BLOCKS_POS), key[0]);
+        if (c == 0) {
+            c = Long.compare(buf.getLong(pos + MINE_POS), key[1]);
+        }
+        if (c == 0) {
+            c = Long.compare(buf.getLong(pos + THEIRS_POS), key[2]);
+        }
+        return c;
+    }
+
+    /** MAP[T][S] is the image of square S under symmetry T, which
+     *  reflects the columns if bit 0 of T is set, then the rows if bit 1
+     *  is set, then across the a1-g7 diagonal if bit 2 is set. */
+    private static final int[][] MAP = new int[SYMMETRIES][SQUARES];
+    /** INVERSE[T] is the inverse of MAP[T]. */
+    private static final int[][] INVERSE = new int[SYMMETRIES][SQUARES];
+
+    static {
+        int n = Board.SIDE;
+        for (int t = 0; t < SYMMETRIES; t += 1) {
+            for (int s = 0; s < SQUARES; s += 1) {
+                int c = s % n, r = s / n;
+                if ((t & 1) != 0) {
+                    c = n - 1 - c;
+                }
+                if ((t & 2) != 0) {
+                    r = n - 1 - r;
+                }
+                int image = (t & 4) != 0 ? c * n + r : r * n + c;
+                MAP[t][s] = image;
+                INVERSE[t][image] = s;
+            }
+        }
+    }
+
+}
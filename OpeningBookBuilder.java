@@ -0,0 +1,350 @@
+package ataxx;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static ataxx.PieceColor.*;
+import static ataxx.OpeningBook.*;
+
+/**
+ * Builds opening books (see OpeningBook) from the first moves of many
+ * games, tallying for each position key and move how often the move was
+ * played and how many points it scored.  The games come from game
+ * archives (see GameArchive) and from AI-versus-AI games that the
+ * builder plays itself on several threads, each from a random block
+ * layout, occasionally substituting a random move for the AI's within
+ * the book's depth so that the book covers more than one line.  Usage:
+ * <pre>
+ *     java ataxx.OpeningBookBuilder [-p PLIES] [-m MINPLAYS] [-g GAMES]
+ *                                   [-t THREADS] [-d DEPTH] [-s SEED]
+ *                                   FILE [ARCHIVE ...]
+ * </pre>
+ * records the first PLIES moves of each game in the ARCHIVEs and of
+ * GAMES self-play games searched to DEPTH, and writes to FILE each move
+ * played at least MINPLAYS times.
+ *
+ * @author Shrey Malhotra
+ */
+class OpeningBookBuilder {
+
+    /** Default number of plies of each game recorded. */
+    static final int DEFAULT_PLIES = 12;
+    /** Default number of plays needed for a move to be written. */
+    static final int DEFAULT_MIN_PLAYS = 2;
+    /** Default self-play search depth. */
+    private static final int DEFAULT_DEPTH = 2;
+    /** Probability that a self-play move within the book's depth is
+     *  random. */
+    private static final double EXPLORE_RATE = 0.1;
+    /** Size of the output buffer in bytes. */
+    private static final int BUFFER_SIZE = RECORD_SIZE << 10;
+
+    /** Run the builder as described in the class comment, using ARGS. */
+    public static void main(String[] args) throws Exception {
+        int plies = DEFAULT_PLIES, minPlays = DEFAULT_MIN_PLAYS,
+            depth = DEFAULT_DEPTH,
+            threads = Runtime.getRuntime().availableProcessors();
+        long games = 0, seed = System.nanoTime();
+        int k;
+        for (k = 0; k + 1 < args.length && args[k].startsWith("-");
+             k += 2) {
+            String val = args[k + 1];
+            switch (args[k]) {
+            case "-p":
+                plies = Integer.parseInt(val);
+                break;
+            case "-m":
+                minPlays = Integer.parseInt(val);
+                break;
+            case "-g":
+                games = Long.parseLong(val);
+                break;
+            case "-t":
+                threads = Integer.parseInt(val);
+                break;
+            case "-d":
+                depth = Integer.parseInt(val);
+                break;
+            case "-s":
+                seed = Long.parseLong(val);
+                break;
+            default:
+                k = args.length;
+                break;
+            }
+        }
+        if (k >= args.length) {
+            System.err.println("Usage: java ataxx.OpeningBookBuilder"
+                               + " [-p PLIES] [-m MINPLAYS] [-g GAMES]"
+                               + " [-t THREADS] [-d DEPTH] [-s SEED]"
+                               + " FILE [ARCHIVE ...]");
+            System.exit(1);
+        }
+        long start = System.nanoTime();
+        OpeningBookBuilder builder = new OpeningBookBuilder(plies);
+        for (int i = k + 1; i < args.length; i += 1) {
+            builder.addArchive(Paths.get(args[i]));
+        }
+        builder.selfPlay(games, threads, depth, seed);
+        long records = builder.write(Paths.get(args[k]), minPlays);
+        System.out.printf("%d games, %d positions and moves, %d records"
+                          + " written in %.1f s%n", builder.games(),
+                          builder._entries.size(), records,
+                          (System.nanoTime() - start) * 1e-9);
+    }
+
+    /** A builder recording the first PLIES moves of each game. */
+    OpeningBookBuilder(int plies) {
+        _plies = plies;
+        _pending = new Entry[plies];
+        _pendingBlue = new boolean[plies];
+    }
+
+    /** Return the number of games recorded. */
+    long games() {
+        return _games;
+    }
+
+    /** Record the finished games in the archive FILE. */
+    void addArchive(Path file) throws IOException {
+        Board board = new Board();
+        try (GameArchiveReader in = new GameArchiveReader(file)) {
+            while (in.next()) {
+                int result = in.result();
+                if (result == GameArchive.UNFINISHED) {
+                    continue;
+                }
+                in.replay(board, 0);
+                for (int ply = 0; ply < _plies && in.hasNextMove();
+                     ply += 1) {
+                    Move move = GameArchive.toMove(in.nextMove(), board);
+                    if (move == null || !board.legalMove(move)) {
+                        break;
+                    }
+                    record(board, move);
+                    board.makeMove(move);
+                }
+                finish(result);
+            }
+        }
+    }
+
+    /** Play and record GAMES self-play games on THREADS threads,
+     *  searching DEPTH plies per move and seeding the random choices
+     *  from SEED. */
+    void selfPlay(long games, int threads, int depth, long seed)
+        throws InterruptedException {
+        AtomicLong gamesLeft = new AtomicLong(games);
+        OpeningBookBuilder[] parts = new OpeningBookBuilder[threads];
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i += 1) {
+            OpeningBookBuilder part =
+                parts[i] = new OpeningBookBuilder(_plies);
+            Random random = new Random(seed + i);
+            workers[i] = new Thread(() -> {
+                AI ai = new AI(RED);
+                Board board = new Board();
+                Move[] moves = new Move[Board.MAX_MOVES];
+                while (gamesLeft.getAndDecrement() > 0) {
+                    part.playGame(board, ai, depth, random, moves);
+                }
+            }, "book-" + i);
+            workers[i].start();
+        }
+        for (int i = 0; i < threads; i += 1) {
+            workers[i].join();
+            merge(parts[i]);
+        }
+    }
+
+    /** Write the book to FILE, including only moves played at least
+     *  MINPLAYS times, and return the number of records written. */
+    long write(Path file, int minPlays) throws IOException {
+        ArrayList<Entry> entries = new ArrayList<>();
+        for (Entry e : _entries.values()) {
+            if (e.plays >= minPlays) {
+                entries.add(e);
+            }
+        }
+        entries.sort(null);
+        try (FileChannel out = FileChannel.open(file, WRITE, CREATE,
+                                                TRUNCATE_EXISTING)) {
+            ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+            buf.putInt(MAGIC).putShort(VERSION).putShort((short) 0)
+                .putLong(entries.size());
+            for (Entry e : entries) {
+                if (buf.remaining() < RECORD_SIZE) {
+                    flush(out, buf);
+                }
+                buf.putLong(e.blocks).putLong(e.mine).putLong(e.theirs)
+                    .putInt(e.code).putInt(e.plays).putInt(e.points);
+            }
+            flush(out, buf);
+        }
+        return entries.size();
+    }
+
+    /** Play one game on BOARD with AI, searching DEPTH plies per move,
+     *  making random choices with RANDOM and using MOVES as scratch
+     *  space, and record it. */
+    private void playGame(Board board, AI ai, int depth, Random random,
+                          Move[] moves) {
+        SelfPlay.randomBlocks(board, random);
+        for (int ply = 0; !board.gameOver(); ply += 1) {
+            Move move;
+            if (ply < _plies && random.nextDouble() < EXPLORE_RATE) {
+                move = SelfPlay.randomMove(board, random, moves);
+            } else {
+                move = ai.findMove(board, depth);
+            }
+            if (ply < _plies) {
+                record(board, move);
+            }
+            board.makeMove(move);
+        }
+        finish(GameArchive.result(board));
+    }
+
+    /** Note that MOVE was played in the position on BOARD in the current
+     *  game. */
+    private void record(Board board, Move move) {
+        if (move.isPass()) {
+            return;
+        }
+        _position.copy(board);
+        int code = keyMove(_position, _key, Bitboard.code(move));
+        _pending[_numPending] = new Entry(_key, code);
+        _pendingBlue[_numPending] = board.whoseMove() == BLUE;
+        _numPending += 1;
+    }
+
+    /** Add the moves of the current game, which had result RESULT (see
+     *  GameArchive), to the tallies, and start a new game. */
+    private void finish(int result) {
+        for (int i = 0; i < _numPending; i += 1) {
+            int points = result == GameArchive.DRAW ? 1
+                : (result == GameArchive.BLUE_WINS) == _pendingBlue[i] ? 2
+                : 0;
+            tally(_pending[i], 1, points);
+        }
+        _numPending = 0;
+        _games += 1;
+    }
+
+    /** Add the tallies of OTHER to mine. */
+    private void merge(OpeningBookBuilder other) {
+        for (Entry e : other._entries.values()) {
+            tally(e, e.plays, e.points);
+        }
+        _games += other._games;
+    }
+
+    /** Add PLAYS plays scoring POINTS to the tally for the position and
+     *  move of KEY. */
+    private void tally(Entry key, int plays, int points) {
+        Entry e = _entries.get(key);
+        if (e == null) {
+            e = new Entry(key);
+            _entries.put(e, e);
+        }
+        e.plays += plays;
+        e.points += points;
+    }
+
+    /** Write the contents of BUF to OUT and clear it. */
+    private static void flush(FileChannel out, ByteBuffer buf)
+        throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) {
+            out.write(buf);
+        }
+        buf.clear();
+    }
+
+    /** The tally for one position key and move, compared and hashed by
+     *  key and move alone. */
+    private static final class Entry implements Comparable<Entry> {
+
+        /** The entry for move CODE in the position with key KEY. */
+        Entry(long[] key, int code) {
+            this.blocks = key[0];
+            this.mine = key[1];
+            this.theirs = key[2];
+            this.code = code;
+        }
+
+        /** An empty tally with the same key and move as E. */
+        Entry(Entry e) {
+            this.blocks = e.blocks;
+            this.mine = e.mine;
+            this.theirs = e.theirs;
+            this.code = e.code;
+        }
+
+        @Override
+        public int compareTo(Entry e) {
+            int c = Long.compare(blocks, e.blocks);
+            if (c == 0) {
+                c = Long.compare(mine, e.mine);
+            }
+            if (c == 0) {
+                c = Long.compare(theirs, e.theirs);
+            }
+            return c != 0 ? c : Integer.compare(code, e.code);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Entry)) {
+                return false;
+            }
+            Entry e = (Entry) obj;
+            return blocks == e.blocks && mine == e.mine
+                && theirs == e.theirs && code == e.code;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(blocks * 31 + mine * 0x9E3779B97F4A7C15L
+                                 + theirs * 0xC2B2AE3D27D4EB4FL) ^ code;
+        }
+
+        /** Key of the position. */
+        private final long blocks, mine, theirs;
+        /** Move code on the board of the key. */
+        private final int code;
+        /** Number of plays. */
+        private int plays;
+        /** Points scored by the side that played it. */
+        private int points;
+
+    }
+
+    /** Number of plies of each game recorded. */
+    private final int _plies;
+    /** Tallies, each mapped to itself. */
+    private final HashMap<Entry, Entry> _entries = new HashMap<>();
+    /** Positions and moves of the current game. */
+    private final Entry[] _pending;
+    /** _pendingBlue[I] is true iff blue made move _pending[I]. */
+    private final boolean[] _pendingBlue;
+    /** Number of entries in _pending. */
+    private int _numPending;
+    /** Number of games recorded. */
+    private long _games;
+    /** Scratch position. */
+    private final Bitboard _position = new Bitboard(0);
+    /** Scratch key. */
+    private final long[] _key = new long[3];
+
+}
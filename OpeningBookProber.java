@@ -0,0 +1,179 @@
+package ataxx;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.function.IntUnaryOperator;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.file.StandardOpenOption.READ;
+import static ataxx.OpeningBook.*;
+
+/**
+ * Chooses moves from a memory-mapped opening-book file (see
+ * OpeningBook) without searching.  A probe finds the records of a
+ * position by binary search and picks one of their moves at random,
+ * with probability proportional to its weight: the number of times it
+ * was played times the square of the fraction of the available points
+ * it scored, so that popular moves are favored but poor ones seldom
+ * chosen.  As a command,
+ * <pre>
+ *     java ataxx.OpeningBookProber FILE POSITION
+ * </pre>
+ * lists the book moves for POSITION (in the notation of Board.position)
+ * with their statistics.
+ *
+ * @author Shrey Malhotra
+ */
+class OpeningBookProber {
+
+    /** Run the prober as described in the class comment, using ARGS. */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 4) {
+            System.err.println("Usage: java ataxx.OpeningBookProber FILE"
+                               + " POSITION");
+            System.exit(1);
+        }
+        Board board = new Board();
+        try {
+            board.setPosition(args[1] + " " + args[2] + " " + args[3]);
+        } catch (GameException excp) {
+            System.err.println(excp.getMessage());
+            System.exit(1);
+        }
+        OpeningBookProber book = new OpeningBookProber(Paths.get(args[0]));
+        int n = book.find(board);
+        for (int i = 0; i < n; i += 1) {
+            Move move = book.move(i);
+            System.out.printf("  %s: %d games, %.1f%%, weight %d%n",
+                              move == null ? "?" : move, book._plays[i],
+                              50.0 * book._points[i] / book._plays[i],
+                              book._weights[i]);
+        }
+        if (n == 0) {
+            System.out.println("Not in book");
+        }
+    }
+
+    /** A prober on the book FILE.  The file is mapped and need not be
+     *  kept open. */
+    OpeningBookProber(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("opening book too large");
+            }
+            _buf = channel.map(READ_ONLY, 0, size);
+        }
+        if (_buf.limit() < HEADER_SIZE || _buf.getInt(0) != MAGIC
+            || _buf.getShort(4) != VERSION) {
+            throw new IOException("not an opening book");
+        }
+        long records = _buf.getLong(COUNT_POS);
+        if (records < 0
+            || HEADER_SIZE + records * RECORD_SIZE != _buf.limit()) {
+            throw new IOException("truncated opening book");
+        }
+        _records = (int) records;
+    }
+
+    /** Return the number of records in the book. */
+    int size() {
+        return _records;
+    }
+
+    /** Return a move chosen from the book for the side to move on BOARD,
+     *  using RANDOM, which returns a random number in [0, N) when applied
+     *  to N, or null if BOARD is not in the book or none of its book moves
+     *  is worth playing. */
+    synchronized Move probe(Board board, IntUnaryOperator random) {
+        int n = find(board);
+        long total = 0;
+        for (int i = 0; i < n; i += 1) {
+            total += _weights[i];
+        }
+        if (total == 0) {
+            return null;
+        }
+        long r = total <= Integer.MAX_VALUE
+            ? random.applyAsInt((int) total)
+            : (long) (random.applyAsInt(Integer.MAX_VALUE)
+                      * ((double) total / Integer.MAX_VALUE));
+        for (int i = 0; i < n; i += 1) {
+            r -= _weights[i];
+            if (r < 0) {
+                Move move = move(i);
+                return move != null && board.legalMove(move) ? move : null;
+            }
+        }
+        return null;
+    }
+
+    /** Return a move chosen from the book for BOARD using RANDOM, as for
+     *  probe(BOARD, IntUnaryOperator). */
+    Move probe(Board board, Random random) {
+        return probe(board, random::nextInt);
+    }
+
+    /** Load the records of BOARD into _codes, _plays, _points, and
+     *  _weights, recording its symmetry in _symmetry, and return their
+     *  number. */
+    private int find(Board board) {
+        _position.copy(board);
+        _symmetry = key(_position, _key);
+        int lo = 0, hi = _records;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compareKey(_buf, offset(mid), _key) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        int n = 0;
+        for (int k = lo; k < _records && n < _codes.length
+                 && compareKey(_buf, offset(k), _key) == 0; k += 1) {
+            int pos = offset(k);
+            _codes[n] = _buf.getInt(pos + MOVE_POS);
+            _plays[n] = _buf.getInt(pos + PLAYS_POS);
+            _points[n] = _buf.getInt(pos + POINTS_POS);
+            _weights[n] = _plays[n] == 0 ? 0
+                : (long) _points[n] * _points[n] / (4L * _plays[n]);
+            n += 1;
+        }
+        return n;
+    }
+
+    /** Return record I of the last find as a move on the board it was
+     *  given, or null if it is not a move there. */
+    private Move move(int i) {
+        return _position.toMove(untransformMove(_codes[i], _symmetry));
+    }
+
+    /** Return the offset of record K. */
+    private static int offset(int k) {
+        return HEADER_SIZE + k * RECORD_SIZE;
+    }
+
+    /** The mapped book. */
+    private final MappedByteBuffer _buf;
+    /** Number of records. */
+    private final int _records;
+    /** The position last found. */
+    private final Bitboard _position = new Bitboard(0);
+    /** Key of the position last found. */
+    private final long[] _key = new long[3];
+    /** Symmetry taking the position last found to its key. */
+    private int _symmetry;
+    /** Move codes, plays, and points of the book moves of the position
+     *  last found. */
+    private final int[] _codes = new int[Bitboard.MAX_MOVES],
+        _plays = new int[Bitboard.MAX_MOVES],
+        _points = new int[Bitboard.MAX_MOVES];
+    /** Weights of the book moves of the position last found. */
+    private final long[] _weights = new long[Bitboard.MAX_MOVES];
+
+}
@@ -0,0 +1,83 @@
+package ataxx;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the opening book.
+ *
+ * @author Shrey Malhotra
+ */
+public class OpeningBookTest {
+
+    @Test
+    public void testSymmetricKeys() {
+        Bitboard b = new Bitboard(0);
+        long[] key1 = new long[3], key2 = new long[3];
+        Board board = new Board();
+        board.makeMove(Move.move('a', '7', 'b', '6'));
+        b.copy(board);
+        int t1 = OpeningBook.key(b, key1);
+        board.clear();
+        board.makeMove(Move.move('g', '1', 'f', '2'));
+        b.copy(board);
+        int t2 = OpeningBook.key(b, key2);
+        assertTrue("reflections have different keys",
+                   Arrays.equals(key1, key2));
+        assertEquals("bad move transformation",
+                     OpeningBook.transformMove(GameArchive.square(
+                         Move.move('g', '7', 'f', '6').toIndex()), t1),
+                     OpeningBook.transformMove(GameArchive.square(
+                         Move.move('a', '1', 'b', '2').toIndex()), t2));
+    }
+
+    @Test
+    public void testBuildAndProbe() throws IOException {
+        Path archive = Files.createTempFile("ataxx", ".arc"),
+            book = Files.createTempFile("ataxx", ".book");
+        try {
+            Files.delete(archive);
+            try (GameArchiveWriter w = new GameArchiveWriter(archive)) {
+                w.append(0, GameArchive.RED_WINS, moves(
+                    Move.move('a', '7', 'b', '7')));
+                w.append(0, GameArchive.DRAW, moves(
+                    Move.move('g', '1', 'f', '1')));
+                w.append(0, GameArchive.BLUE_WINS, moves(
+                    Move.move('a', '7', 'a', '5')));
+                w.append(0x1L << 24, GameArchive.RED_WINS, moves(
+                    Move.move('a', '7', 'a', '5')));
+            }
+            OpeningBookBuilder builder = new OpeningBookBuilder(1);
+            builder.addArchive(archive);
+            assertEquals("wrong game count", 4, builder.games());
+            assertEquals("wrong record count", 1, builder.write(book, 2));
+            OpeningBookProber prober = new OpeningBookProber(book);
+            assertEquals("wrong record count", 1, prober.size());
+            Board board = new Board();
+            Move move = prober.probe(board, new Random(0));
+            assertTrue("bad book move",
+                       move == Move.move('a', '7', 'b', '7')
+                       || move == Move.move('g', '1', 'f', '1'));
+            board.setBlock('d', '4');
+            assertNull("position with blocks in book",
+                       prober.probe(board, new Random(0)));
+        } finally {
+            Files.deleteIfExists(archive);
+            Files.deleteIfExists(book);
+        }
+    }
+
+    /** Return a list of MOVES. */
+    private static ArrayList<Move> moves(Move... moves) {
+        return new ArrayList<>(Arrays.asList(moves));
+    }
+
+}
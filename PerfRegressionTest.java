@@ -0,0 +1,116 @@
+package ataxx;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * Performance regression tests: the hot paths of move making, move
+ * generation, and search must not allocate, and fixed-depth searches
+ * must visit the recorded numbers of positions.  A change to move
+ * ordering, evaluation, or pruning that alters the node counts should
+ * update SEARCHES deliberately.  Allocation is measured per thread, so
+ * these tests are skipped on JVMs that cannot measure it.
+ *
+ * @author Shrey Malhotra
+ */
+public class PerfRegressionTest {
+
+    /** Repetitions of each measured loop. */
+    private static final int REPEATS = 10000;
+
+    /** Bytes a warmed-up search may allocate: the Flight Recorder event
+     *  it creates (see FlightEvents), and nothing per position. */
+    private static final long SEARCH_BUDGET = 256;
+
+    /** Searches with their recorded results: the moves leading to the
+     *  position searched, the depth, the number of positions visited,
+     *  and the move found. */
+    private static final String[][] SEARCHES = {
+        { "", "5", "9405", "g1-f2" },
+        { "a7-b6 a1-b2", "4", "14737", "b6-d5" },
+        { "a7-b6 a1-b2 g1-f2 g7-e5 b6-c5 b2-c3", "5", "9008", "c5-d4" },
+    };
+
+    @Test
+    public void testMakeMoveAllocation() {
+        Board board = new Board();
+        Move[] moves = new Move[Board.MAX_MOVES];
+        checkAllocation("makeMove/undo", 0, () -> {
+            for (int i = 0; i < REPEATS; i += 1) {
+                int n = board.legalMoves(moves);
+                board.makeMove(moves[i % n]);
+                board.undo();
+            }
+        });
+    }
+
+    @Test
+    public void testMoveGenerationAllocation() {
+        Board board = position("a7-b6 a1-b2 g1-f2 g7-e5");
+        Move[] moves = new Move[Board.MAX_MOVES];
+        checkAllocation("legalMoves", 0, () -> {
+            for (int i = 0; i < REPEATS; i += 1) {
+                board.legalMoves(moves);
+            }
+        });
+    }
+
+    @Test
+    public void testSearchAllocation() {
+        Board board = position(SEARCHES[1][0]);
+        AI ai = new AI(PieceColor.RED);
+        checkAllocation("findMove", SEARCH_BUDGET,
+                        () -> ai.findMove(board, 4));
+    }
+
+    @Test
+    public void testSearchNodes() {
+        for (String[] search : SEARCHES) {
+            AI ai = new AI(PieceColor.RED);
+            Move move = ai.findMove(position(search[0]),
+                                    Integer.parseInt(search[1]));
+            String what = "depth " + search[1] + " after '" + search[0] + "'";
+            assertEquals("nodes at " + what, Long.parseLong(search[2]),
+                         ai.nodes());
+            assertEquals("move at " + what, search[3], move.toString());
+        }
+    }
+
+    /** Return a new board after the MOVES, separated by blanks. */
+    private static Board position(String moves) {
+        Board board = new Board();
+        for (String move : moves.split(" ")) {
+            if (!move.isEmpty()) {
+                board.makeMove(move.charAt(0), move.charAt(1),
+                               move.charAt(3), move.charAt(4));
+            }
+        }
+        return board;
+    }
+
+    /** Check that WORK, after being run once to warm up, allocates at
+     *  most BUDGET bytes when run again, reporting failures as WHAT. */
+    private static void checkAllocation(String what, long budget,
+                                        Runnable work) {
+        if (THREADS == null || !THREADS.isThreadAllocatedMemorySupported()
+            || !THREADS.isThreadAllocatedMemoryEnabled()) {
+            return;
+        }
+        work.run();
+        long start = THREADS.getCurrentThreadAllocatedBytes();
+        work.run();
+        long used = THREADS.getCurrentThreadAllocatedBytes() - start;
+        assertTrue(what + " allocated " + used + " bytes", used <= budget);
+    }
+
+    /** Source of per-thread allocation counts, or null if none. */
+    private static final com.sun.management.ThreadMXBean THREADS =
+        ManagementFactory.getThreadMXBean()
+        instanceof com.sun.management.ThreadMXBean
+        ? (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()
+        : null;
+
+}
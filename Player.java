@@ -43,6 +43,14 @@ abstract class Player {
      */
     abstract Move myMove();
 
+    /**
+     * Return statistics of the search for my last move, or null if I do
+     * not search.
+     */
+    SearchStats lastSearch() {
+        return null;
+    }
+
     /**
      * The game I am playing in.
      */
@@ -0,0 +1,363 @@
+package ataxx;
+
+import java.io.PrintStream;
+
+import static ataxx.GameArchive.PASS_CODE;
+
+/**
+ * Proves or disproves that the side to move can force a win (more
+ * pieces than its opponent at the end of the game), by depth-first
+ * proof-number search (df-pn).  All legal moves are searched, and
+ * passes and the jump limit are handled as in Board.  Draws count as
+ * failures to win.  Usage:
+ * <pre>
+ *     java ataxx.ProofSolver [-m MEGABYTES] [-n NODES] POSITION
+ * </pre>
+ * where POSITION is in the notation of Board.position (three words).
+ * The transposition table uses about MEGABYTES megabytes (default
+ * DEFAULT_MEGABYTES); when it is full, the entries representing the
+ * least work are replaced.  The search gives up after NODES positions,
+ * if given.  Progress is reported every PROGRESS_MILLIS milliseconds.
+ * <p>
+ * Positions are searched on a Bitboard copy of the Board.  The states
+ * of the game form a DAG (each extend fills a square, and between
+ * extends the jump count only increases), so there are no cycles to
+ * guard against.
+ *
+ * @author Shrey Malhotra
+ */
+class ProofSolver {
+
+    /** Proof and disproof numbers of solved positions. */
+    static final int INFINITY = 100_000_000;
+    /** Results of prove. */
+    static final int PROVEN = 1, DISPROVEN = -1, UNKNOWN = 0;
+    /** Default table size in megabytes. */
+    static final int DEFAULT_MEGABYTES = 64;
+    /** Bytes per table entry. */
+    private static final int ENTRY_BYTES = 32;
+    /** Interval between progress reports in milliseconds. */
+    private static final long PROGRESS_MILLIS = 5000;
+    /** Number of positions between checks of the clock. */
+    private static final int CLOCK_INTERVAL = 1 << 14;
+    /** Maximum depth of the search. */
+    private static final int MAX_DEPTH =
+        (GameArchive.SQUARES + 1) * (Board.JUMP_LIMIT + 2);
+
+    /** Run the solver as described in the class comment, using ARGS. */
+    public static void main(String[] args) {
+        long megabytes = DEFAULT_MEGABYTES, maxNodes = 0;
+        int k;
+        for (k = 0; k + 1 < args.length && args[k].startsWith("-");
+             k += 2) {
+            if (args[k].equals("-m")) {
+                megabytes = Long.parseLong(args[k + 1]);
+            } else if (args[k].equals("-n")) {
+                maxNodes = Long.parseLong(args[k + 1]);
+            } else {
+                k = args.length;
+            }
+        }
+        if (args.length - k != 3) {
+            System.err.println("Usage: java ataxx.ProofSolver [-m MEGABYTES]"
+                               + " [-n NODES] POSITION");
+            System.exit(1);
+        }
+        Board board = new Board();
+        try {
+            board.setPosition(args[k] + " " + args[k + 1] + " "
+                              + args[k + 2]);
+        } catch (GameException excp) {
+            System.err.println(excp.getMessage());
+            System.exit(1);
+        }
+        ProofSolver solver = new ProofSolver(megabytes, System.out);
+        long start = System.nanoTime();
+        int result = solver.prove(board, maxNodes);
+        double secs = (System.nanoTime() - start) * 1e-9;
+        String side = board.whoseMove().toString().toLowerCase();
+        if (result == PROVEN) {
+            System.out.printf("Win for %s: %s%n", side, solver.bestMove());
+        } else if (result == DISPROVEN) {
+            System.out.printf("No win for %s%n", side);
+        } else {
+            System.out.println("Unknown");
+        }
+        System.out.printf("%d positions in %.1f s%n", solver.nodes(), secs);
+    }
+
+    /** A solver whose table occupies about MEGABYTES megabytes, reporting
+     *  its progress to PROGRESS (if non-null). */
+    ProofSolver(long megabytes, PrintStream progress) {
+        long entries = Long.highestOneBit(Math.max(2, (megabytes << 20)
+                                                   / ENTRY_BYTES));
+        int size = (int) Math.min(entries, 1 << 30);
+        _red = new long[size];
+        _blue = new long[size];
+        _state = new int[size];
+        _pn = new int[size];
+        _dn = new int[size];
+        _work = new int[size];
+        _mask = size - 2;
+        _progress = progress;
+    }
+
+    /** Search BOARD, which is not changed, for a forced win for the side
+     *  to move, visiting at most MAXNODES positions if MAXNODES is
+     *  positive.  Return PROVEN, DISPROVEN, or UNKNOWN. */
+    int prove(Board board, long maxNodes) {
+        _board.copy(board);
+        _root.copy(board);
+        _attackerBlue = _board.blueToMove();
+        _maxNodes = maxNodes;
+        _stopped = false;
+        _start = System.nanoTime();
+        _lastReport = _start;
+        _bestCode = PASS_CODE;
+        _rootPn = _rootDn = 1;
+        while (!_stopped) {
+            mid(0, INFINITY, INFINITY);
+            if (lookup(_root)) {
+                if (_foundPn == 0) {
+                    return PROVEN;
+                } else if (_foundDn == 0) {
+                    return DISPROVEN;
+                }
+            }
+        }
+        return UNKNOWN;
+    }
+
+    /** Return the winning move found by the last prove that returned
+     *  PROVEN. */
+    Move bestMove() {
+        return _root.toMove(_bestCode);
+    }
+
+    /** Return the number of positions visited by my searches so far. */
+    long nodes() {
+        return _nodes;
+    }
+
+    /** Expand the position on _board, DEPTH plies from the root, until
+     *  its proof number reaches THPN or its disproof number reaches
+     *  THDN, and record the result in the table. */
+    private void mid(int depth, int thpn, int thdn) {
+        Bitboard b = _board;
+        _nodes += 1;
+        if ((_nodes & (CLOCK_INTERVAL - 1)) == 0) {
+            checkLimits();
+        }
+        if (b.gameOver()) {
+            boolean win = attackerWins(b);
+            store(b, win ? 0 : INFINITY, win ? INFINITY : 0, 1);
+            return;
+        }
+        if (_moves[depth] == null) {
+            _moves[depth] = new int[Bitboard.MAX_MOVES];
+        }
+        int[] moves = _moves[depth];
+        int n = b.moves(moves);
+        if (n == 0) {
+            moves[0] = PASS_CODE;
+            n = 1;
+        }
+        boolean or = b.blueToMove() == _attackerBlue;
+        long nodes0 = _nodes;
+        while (true) {
+            int best = 0, min = INFINITY + 1, second = INFINITY, sum = 0;
+            int bestOther = 0;
+            for (int i = 0; i < n; i += 1) {
+                b.make(moves[i]);
+                childNumbers(b);
+                b.unmake();
+                int v = or ? _foundPn : _foundDn,
+                    other = or ? _foundDn : _foundPn;
+                sum = Math.min(INFINITY, sum + other);
+                if (v < min) {
+                    second = min;
+                    min = v;
+                    best = i;
+                    bestOther = other;
+                } else if (v < second) {
+                    second = v;
+                }
+            }
+            second = Math.min(second, INFINITY);
+            int pn = or ? min : sum, dn = or ? sum : min;
+            if (depth == 0) {
+                _rootPn = pn;
+                _rootDn = dn;
+                if (pn == 0) {
+                    _bestCode = moves[best];
+                }
+            }
+            if (pn >= thpn || dn >= thdn || _stopped) {
+                int work = (int) Math.min(Integer.MAX_VALUE,
+                                          _nodes - nodes0 + 1);
+                store(b, pn, dn, work);
+                return;
+            }
+            int limit = second >= INFINITY ? INFINITY
+                : second + second / 4 + 1;
+            int childPn, childDn;
+            if (or) {
+                childPn = Math.min(thpn, limit);
+                childDn = thdn - dn + bestOther;
+            } else {
+                childPn = thpn - pn + bestOther;
+                childDn = Math.min(thdn, limit);
+            }
+            b.make(moves[best]);
+            mid(depth + 1, childPn, childDn);
+            b.unmake();
+        }
+    }
+
+    /** Set _foundPn and _foundDn to the numbers of the position on B:
+     *  those of the table if it is there, those of a finished game if
+     *  it is over, and 1 otherwise. */
+    private void childNumbers(Bitboard b) {
+        if (lookup(b)) {
+            return;
+        }
+        if (b.gameOver()) {
+            boolean win = attackerWins(b);
+            _foundPn = win ? 0 : INFINITY;
+            _foundDn = win ? INFINITY : 0;
+        } else {
+            _foundPn = _foundDn = 1;
+        }
+    }
+
+    /** Return true iff the side to move at the root has more pieces than
+     *  its opponent in the finished game on B. */
+    private boolean attackerWins(Bitboard b) {
+        int diff = Long.bitCount(b.red()) - Long.bitCount(b.blue());
+        return _attackerBlue ? diff < 0 : diff > 0;
+    }
+
+    /** Stop the search if its node limit is exceeded, and report
+     *  progress if it is time. */
+    private void checkLimits() {
+        if (_maxNodes > 0 && _nodes >= _maxNodes) {
+            _stopped = true;
+        }
+        long now = System.nanoTime();
+        if (_progress != null
+            && now - _lastReport >= PROGRESS_MILLIS * 1_000_000) {
+            _lastReport = now;
+            double secs = (now - _start) * 1e-9;
+            _progress.printf("%d positions, %.0f/s, root pn %d dn %d,"
+                             + " table %d%% full%n", _nodes, _nodes / secs,
+                             _rootPn, _rootDn, 100L * _used / _red.length);
+        }
+    }
+
+    /** Return the table state word of B. */
+    private static int state(Bitboard b) {
+        return 1 << 6 | (b.blueToMove() ? 1 << 5 : 0) | b.jumps();
+    }
+
+    /** Return the index of the first entry of the bucket for the position
+     *  with pieces RED and BLUE and state word STATE. */
+    private int bucket(long red, long blue, int state) {
+        long h = red * 0x9E3779B97F4A7C15L
+            ^ Long.rotateLeft(blue * 0xC2B2AE3D27D4EB4FL, 29) ^ state;
+        h ^= h >>> 32;
+        return (int) (h * 0xFF51AFD7ED558CCDL >>> 32) & _mask;
+    }
+
+    /** Set _foundPn and _foundDn to the numbers recorded for the position
+     *  on B, returning true, or return false if there are none. */
+    private boolean lookup(Bitboard b) {
+        return lookup(b.red(), b.blue(), state(b));
+    }
+
+    /** Set _foundPn and _foundDn to the numbers recorded for the position
+     *  with pieces RED and BLUE and state word STATE, returning true, or
+     *  return false if there are none. */
+    private boolean lookup(long red, long blue, int state) {
+        int k = bucket(red, blue, state);
+        for (int i = k; i < k + 2; i += 1) {
+            if (_state[i] == state && _red[i] == red && _blue[i] == blue) {
+                _foundPn = _pn[i];
+                _foundDn = _dn[i];
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Record proof number PN and disproof number DN for the position on
+     *  B, found with WORK positions of search, replacing the entry of its
+     *  bucket with the least work if necessary. */
+    private void store(Bitboard b, int pn, int dn, int work) {
+        long red = b.red(), blue = b.blue();
+        int state = state(b), k = bucket(red, blue, state), slot = k;
+        for (int i = k; i < k + 2; i += 1) {
+            if (_state[i] == state && _red[i] == red && _blue[i] == blue) {
+                slot = i;
+                work = (int) Math.min(Integer.MAX_VALUE,
+                                      (long) work + _work[i]);
+                break;
+            } else if (_state[i] == 0) {
+                slot = i;
+                _used += 1;
+                break;
+            } else if (_work[i] < _work[slot]) {
+                slot = i;
+            }
+        }
+        _red[slot] = red;
+        _blue[slot] = blue;
+        _state[slot] = state;
+        _pn[slot] = pn;
+        _dn[slot] = dn;
+        _work[slot] = work;
+    }
+
+    /** The position being searched. */
+    private final Bitboard _board = new Bitboard(MAX_DEPTH);
+    /** The position at the root of the search. */
+    private final Bitboard _root = new Bitboard(0);
+    /** Move lists for each depth, allocated as needed. */
+    private final int[][] _moves = new int[MAX_DEPTH][];
+    /** Red pieces of each table entry. */
+    private final long[] _red;
+    /** Blue pieces of each table entry. */
+    private final long[] _blue;
+    /** State word (see state) of each table entry, or 0 if unused. */
+    private final int[] _state;
+    /** Proof number of each table entry. */
+    private final int[] _pn;
+    /** Disproof number of each table entry. */
+    private final int[] _dn;
+    /** Positions searched to compute each table entry. */
+    private final int[] _work;
+    /** Mask reducing a hash to the index of a bucket of two entries. */
+    private final int _mask;
+    /** Destination of progress reports, or null. */
+    private final PrintStream _progress;
+    /** Number of table entries in use. */
+    private int _used;
+    /** True iff blue is to move at the root. */
+    private boolean _attackerBlue;
+    /** Node limit, or 0 for none. */
+    private long _maxNodes;
+    /** True when the search is to be abandoned. */
+    private boolean _stopped;
+    /** Number of positions visited. */
+    private long _nodes;
+    /** Time at which the current proof began (System.nanoTime). */
+    private long _start;
+    /** Time of the last progress report (System.nanoTime). */
+    private long _lastReport;
+    /** Move code of the winning move at the root. */
+    private int _bestCode;
+    /** Latest proof and disproof numbers of the root. */
+    private int _rootPn, _rootDn;
+    /** Numbers found by the last lookup. */
+    private int _foundPn, _foundDn;
+
+}
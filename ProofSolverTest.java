@@ -0,0 +1,37 @@
+package ataxx;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the proof-number solver.
+ *
+ * @author Shrey Malhotra
+ */
+public class ProofSolverTest {
+
+    /** A position in which the side to move fills the last square. */
+    private static final String FILL =
+        "rrrrrrr/rrrrrrr/rrrrrrr/rrrrrrr/rrrrrrr/bbbbbb1/bbbbbbb";
+
+    @Test
+    public void testProven() {
+        Board b = new Board();
+        b.setPosition(FILL + " r 0");
+        ProofSolver solver = new ProofSolver(1, null);
+        assertEquals("not proven", ProofSolver.PROVEN, solver.prove(b, 0));
+        assertEquals("wrong move", Board.index('g', '2'),
+                     solver.bestMove().toIndex());
+    }
+
+    @Test
+    public void testDisproven() {
+        Board b = new Board();
+        b.setPosition(FILL + " b 0");
+        ProofSolver solver = new ProofSolver(1, null);
+        assertEquals("not disproven", ProofSolver.DISPROVEN,
+                     solver.prove(b, 0));
+    }
+
+}
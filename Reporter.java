@@ -17,4 +17,13 @@ interface Reporter {
      *  formed from FORMAT and OPERANDS as for String.format. */
     void moveMsg(String format, Object... operands);
 
+    /** Display a progress message from an analysis, formed from FORMAT
+     *  and OPERANDS as for String.format. */
+    void infoMsg(String format, Object... operands);
+
+    /** Deliver any messages held back.  The game does this when each game
+     *  ends. */
+    default void flush() {
+    }
+
 }
@@ -0,0 +1,152 @@
+package ataxx;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/** Writes fixed-size records to a file on a background thread.  Producers
+ *  fill Blocks taken from a fixed pool and submit them; a single writer
+ *  thread writes them out in submission order and returns them to the
+ *  pool.  Producers therefore never wait for I/O, only (when the disk
+ *  falls behind far enough to exhaust the pool) for a free Block.
+ *  @author Shrey Malhotra
+ */
+class SampleWriter implements Closeable {
+
+    /** A buffer of records. */
+    static class Block {
+        /** The records. */
+        final byte[] data;
+        /** Number of bytes of DATA in use. */
+        int fill;
+
+        /** A Block of SIZE bytes. */
+        Block(int size) {
+            data = new byte[size];
+        }
+
+        /** Return the number of unused bytes in DATA. */
+        int remaining() {
+            return data.length - fill;
+        }
+    }
+
+    /** A writer on FILE, which is created or truncated, whose first bytes
+     *  are HEADER, using a pool of BLOCKS blocks of BLOCKSIZE bytes. */
+    SampleWriter(Path file, byte[] header, int blocks, int blockSize)
+        throws IOException {
+        _out = FileChannel.open(file, CREATE, WRITE, TRUNCATE_EXISTING);
+        write(ByteBuffer.wrap(header));
+        _free = new ArrayBlockingQueue<>(blocks);
+        _full = new ArrayBlockingQueue<>(blocks + 1);
+        for (int i = 0; i < blocks; i += 1) {
+            _free.add(new Block(blockSize));
+        }
+        _thread = new Thread(this::drain, "sample-writer");
+        _thread.setDaemon(true);
+        _thread.start();
+    }
+
+    /** Return an empty Block, waiting for one if necessary. */
+    Block take() throws InterruptedIOException {
+        try {
+            Block block = _free.take();
+            block.fill = 0;
+            return block;
+        } catch (InterruptedException excp) {
+            throw new InterruptedIOException();
+        }
+    }
+
+    /** Queue the contents of BLOCK for writing.  BLOCK returns to the
+     *  pool once written and must not be used by the caller again. */
+    void submit(Block block) throws IOException {
+        checkError();
+        try {
+            _full.put(block);
+        } catch (InterruptedException excp) {
+            throw new InterruptedIOException();
+        }
+    }
+
+    /** Return the number of bytes written so far, including the header. */
+    long written() {
+        return _written;
+    }
+
+    /** Write all submitted blocks and close the file. */
+    @Override
+    public void close() throws IOException {
+        try {
+            _full.put(END);
+            _thread.join();
+        } catch (InterruptedException excp) {
+            throw new InterruptedIOException();
+        } finally {
+            _out.close();
+        }
+        checkError();
+    }
+
+    /** Body of the writer thread. */
+    private void drain() {
+        try {
+            while (true) {
+                Block block = _full.take();
+                if (block == END) {
+                    return;
+                }
+                if (_error == null) {
+                    try {
+                        write(ByteBuffer.wrap(block.data, 0, block.fill));
+                    } catch (IOException excp) {
+                        _error = excp;
+                    }
+                }
+                _free.put(block);
+            }
+        } catch (InterruptedException excp) {
+            _error = new InterruptedIOException();
+        }
+    }
+
+    /** Write all of BUF to the file. */
+    private void write(ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) {
+            _written += _out.write(buf);
+        }
+    }
+
+    /** Rethrow any error encountered by the writer thread. */
+    private void checkError() throws IOException {
+        if (_error != null) {
+            throw _error;
+        }
+    }
+
+    /** Marks the end of the submitted blocks. */
+    private static final Block END = new Block(0);
+
+    /** The output file. */
+    private final FileChannel _out;
+    /** Empty blocks. */
+    private final BlockingQueue<Block> _free;
+    /** Blocks waiting to be written. */
+    private final BlockingQueue<Block> _full;
+    /** The writer thread. */
+    private final Thread _thread;
+    /** Bytes written so far. */
+    private volatile long _written;
+    /** First error encountered by the writer thread, or null. */
+    private volatile IOException _error;
+
+}
@@ -0,0 +1,118 @@
+package ataxx;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+
+/** Provides command input from a script file, as for the 'load'
+ *  command.  The file is mapped into memory and scanned in place:
+ *  comments and blank lines are skipped and whitespace trimmed without
+ *  making Strings, and moves are handed over as shared Commands, so
+ *  that replaying a long script of moves allocates nothing per line.
+ *  While the script lasts, the observers of the game's board are told
+ *  of its changes only once, when the script ends.
+ *  @author Shrey Malhotra
+ */
+class ScriptSource implements CommandSource {
+
+    /** A source reading the script in FILE, for a game on BOARD. */
+    ScriptSource(Path file, Board board) throws IOException {
+        try (FileChannel in = FileChannel.open(file)) {
+            long size = in.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("script too large");
+            }
+            _text = in.map(READ_ONLY, 0, size);
+        }
+        _board = board;
+        _board.beginChanges();
+    }
+
+    @Override
+    public String getLine(String prompt) {
+        return nextLine() ? line() : null;
+    }
+
+    @Override
+    public Command getCommand(String prompt) {
+        if (!nextLine()) {
+            return Command.parseCommand(null);
+        }
+        if (_end - _start == Command.MOVE_LENGTH) {
+            Command move = Command.moveCommand(charAt(_start),
+                                               charAt(_start + 1),
+                                               charAt(_start + 2),
+                                               charAt(_start + 3),
+                                               charAt(_start + 4));
+            if (move != null) {
+                return move;
+            }
+        }
+        return Command.parseCommand(line());
+    }
+
+    /** Set _start and _end to the bounds of the next line that is not
+     *  blank once its comment and surrounding whitespace are removed,
+     *  and return true; or, if there is none, end the script and return
+     *  false. */
+    private boolean nextLine() {
+        if (_next < 0) {
+            return false;
+        }
+        int limit = _text.limit();
+        while (_next < limit) {
+            int start = _next, end = start;
+            while (end < limit && charAt(end) != '\n') {
+                end += 1;
+            }
+            _next = end + 1;
+            for (int i = start; i < end; i += 1) {
+                if (charAt(i) == '#') {
+                    end = i;
+                    break;
+                }
+            }
+            while (start < end && Character.isWhitespace(charAt(start))) {
+                start += 1;
+            }
+            while (end > start && Character.isWhitespace(charAt(end - 1))) {
+                end -= 1;
+            }
+            if (start < end) {
+                _start = start;
+                _end = end;
+                return true;
+            }
+        }
+        _next = -1;
+        _board.endChanges();
+        return false;
+    }
+
+    /** Return the current line. */
+    private String line() {
+        byte[] chars = new byte[_end - _start];
+        _text.get(_start, chars);
+        return new String(chars, ISO_8859_1);
+    }
+
+    /** Return the character at position K of the script. */
+    private char charAt(int k) {
+        return (char) (_text.get(k) & 0xFF);
+    }
+
+    /** The script. */
+    private final MappedByteBuffer _text;
+    /** The board whose notifications are deferred. */
+    private final Board _board;
+    /** Bounds of the current line. */
+    private int _start, _end;
+    /** Position of the line after the current one, or -1 once the
+     *  script has ended. */
+    private int _next;
+
+}
@@ -0,0 +1,56 @@
+package ataxx;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+import static ataxx.Command.Type.*;
+
+/**
+ * Tests of command scripts.
+ *
+ * @author Shrey Malhotra
+ */
+public class ScriptSourceTest {
+
+    @Test
+    public void testScript() throws IOException {
+        Path outer = Files.createTempFile("outer", ".txt"),
+            inner = Files.createTempFile("inner", ".txt");
+        try {
+            Files.writeString(inner, "g1-f2\r\n\n  # moves\na1-b2 # c3\n");
+            Files.writeString(outer, "manual red\n  \nload " + inner
+                              + "\n\tstart\t\na1-g7\nseed 3");
+            Board board = new Board();
+            int[] notices = new int[1];
+            board.addObserver((obs, arg) -> notices[0] += 1);
+            CommandSources inputs = new CommandSources();
+            inputs.addSource(new ScriptSource(outer, board));
+            assertEquals(MANUAL, inputs.getCommand("").commandType());
+            Command load = inputs.getCommand("");
+            assertEquals(LOAD, load.commandType());
+            inputs.addSource(new ScriptSource(Path.of(load.operands()[0]),
+                                              board));
+            Command move = inputs.getCommand("");
+            assertSame("bad move", Move.move('g', '1', 'f', '2'), move.move());
+            board.makeMove(move.move());
+            move = inputs.getCommand("");
+            assertSame("bad move", Move.move('a', '1', 'b', '2'), move.move());
+            board.makeMove(move.move());
+            assertEquals("notified during script", 0, notices[0]);
+            assertEquals(START, inputs.getCommand("").commandType());
+            assertEquals(PIECEMOVE, inputs.getCommand("").commandType());
+            assertArrayEquals(new String[] { "3" },
+                              inputs.getCommand("").operands());
+            assertEquals(EOF, inputs.getCommand("").commandType());
+            assertEquals("not notified once at end", 1, notices[0]);
+        } finally {
+            Files.delete(outer);
+            Files.delete(inner);
+        }
+    }
+
+}
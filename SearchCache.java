@@ -0,0 +1,412 @@
+package ataxx;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * A persistent cache of search results, kept in a directory so that
+ * positions searched in one run cost only a lookup in the next.  Each
+ * result records the hash of a position, the depth to which it was
+ * searched, its value for the side to move, and the best move found.
+ * <p>
+ * Results are appended to segment files of SEGMENT_SIZE bytes, named
+ * by sequence number, that are memory-mapped while the cache is open.
+ * A segment holds a HEADER_SIZE-byte header (MAGIC, VERSION, two unused
+ * bytes, and the sequence number) followed by RECORD_SIZE-byte records:
+ * the hash, the value, the move code (see GameArchive), the depth, and a
+ * check word computed from the rest.  Records are never changed once
+ * written, and the unused tail of a segment is zero, so after a crash the
+ * valid records of a segment are exactly those before the first whose
+ * check word is wrong; opening the cache rebuilds its in-memory index
+ * from them.  When the cache would exceed its size bound, the oldest
+ * segment is deleted; segments older than a gap in the sequence numbers
+ * (left by a crash during a deletion) are deleted on opening, as is a
+ * newest segment whose header was never written.  Positions are
+ * identified by their 64-bit hash alone, so probes check that the move
+ * they return is legal.
+ * <p>
+ * A cache directory may be open in only one process at a time; the
+ * methods of an open cache are synchronized, so AIs in one process may
+ * share it.
+ *
+ * @author Shrey Malhotra
+ */
+class SearchCache implements Closeable {
+
+    /** Identifies a segment file ("ATSC"). */
+    static final int MAGIC = 0x41545343;
+    /** Current format version. */
+    static final short VERSION = 1;
+    /** Size of a segment header in bytes. */
+    static final int HEADER_SIZE = 16;
+    /** Size of a record in bytes. */
+    static final int RECORD_SIZE = 24;
+    /** Size of a segment file in bytes. */
+    static final int SEGMENT_SIZE = 1 << 20;
+    /** Least search depth worth caching. */
+    static final int MIN_DEPTH = 3;
+    /** Default bound on the total size of the segments in megabytes. */
+    static final int DEFAULT_MEGABYTES = 8;
+    /** Greatest allowed bound on the total size of the segments in
+     *  megabytes. */
+    static final int MAX_MEGABYTES = 1024;
+    /** Number of slots in the index of an empty cache.  The index
+     *  doubles as it fills, so its size follows the number of results
+     *  rather than the size bound. */
+    private static final int INITIAL_SLOTS = 1 << 10;
+    /** Number of records in a segment. */
+    private static final int RECORDS = (SEGMENT_SIZE - HEADER_SIZE)
+        / RECORD_SIZE;
+    /** Name of the lock file. */
+    private static final String LOCK_NAME = "lock";
+    /** Suffix of segment file names. */
+    private static final String SUFFIX = ".seg";
+
+    /** A cache in directory DIR of at most MEGABYTES megabytes, which
+     *  must be between 1 and MAX_MEGABYTES, creating DIR if needed. */
+    SearchCache(Path dir, int megabytes) throws IOException {
+        if (megabytes < 1 || megabytes > MAX_MEGABYTES) {
+            throw new IllegalArgumentException("bad cache size: "
+                                               + megabytes);
+        }
+        _dir = dir;
+        _maxSegments = Math.max(1, (int) ((long) megabytes * (1 << 20)
+                                          / SEGMENT_SIZE));
+        _hashes = new long[INITIAL_SLOTS];
+        _locations = new long[INITIAL_SLOTS];
+        Files.createDirectories(dir);
+        _lockChannel = FileChannel.open(dir.resolve(LOCK_NAME), WRITE,
+                                        CREATE);
+        _lock = _lockChannel.tryLock();
+        if (_lock == null) {
+            _lockChannel.close();
+            throw new IOException("search cache in use: " + dir);
+        }
+        ArrayList<Long> seqs = new ArrayList<>();
+        try (DirectoryStream<Path> files =
+             Files.newDirectoryStream(dir, "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    seqs.add(Long.parseLong(name.substring(0, name.length()
+                                                           - SUFFIX.length()),
+                                            16));
+                } catch (NumberFormatException excp) {
+                    continue;
+                }
+            }
+        }
+        Collections.sort(seqs);
+        int start = seqs.size();
+        while (start > 0 && (start == seqs.size()
+                             || seqs.get(start - 1) == seqs.get(start) - 1)) {
+            start -= 1;
+        }
+        for (long seq : seqs.subList(0, start)) {
+            Files.delete(file(seq));
+        }
+        for (long seq : seqs.subList(start, seqs.size())) {
+            MappedByteBuffer seg = map(seq);
+            if (seg.getInt(0) != MAGIC || seg.getShort(4) != VERSION
+                || seg.getLong(8) != seq) {
+                if (seq == seqs.get(seqs.size() - 1)) {
+                    Files.delete(file(seq));
+                    break;
+                }
+                close();
+                throw new IOException("bad cache segment: " + file(seq));
+            }
+            if (_segments.isEmpty()) {
+                _firstSeq = seq;
+            }
+            _segments.add(seg);
+            _fill = 0;
+            while (_fill < RECORDS && valid(seg, _fill)) {
+                index(seg.getLong(offset(_fill)), seq, _fill);
+                _fill += 1;
+            }
+        }
+        while (_segments.size() > _maxSegments) {
+            evict();
+        }
+        if (_segments.isEmpty()) {
+            _nextSeq = seqs.isEmpty() ? 1 : seqs.get(seqs.size() - 1) + 1;
+            _fill = RECORDS;
+        } else {
+            _nextSeq = _firstSeq + _segments.size();
+        }
+    }
+
+    /** Return the number of results in my index. */
+    synchronized int size() {
+        return _size;
+    }
+
+    /** Return the cached best move for BOARD if it was searched to at
+     *  least DEPTH plies and the move is legal, and otherwise null.  If
+     *  VALUE is not null and a move is returned, set VALUE[0] to the
+     *  value of BOARD for the side to move. */
+    synchronized Move probe(Board board, int depth, int[] value) {
+        _position.copy(board);
+        int slot = find(hash(_position));
+        if (slot < 0) {
+            return null;
+        }
+        MappedByteBuffer seg = segment(_locations[slot]);
+        int pos = offset(record(_locations[slot]));
+        if (seg.getShort(pos + 14) < depth) {
+            return null;
+        }
+        Move move = _position.toMove(seg.getShort(pos + 12));
+        if (move == null || !board.legalMove(move)) {
+            return null;
+        }
+        if (value != null) {
+            value[0] = seg.getInt(pos + 8);
+        }
+        return move;
+    }
+
+    /** Record that BOARD, searched to DEPTH plies, has value VALUE for
+     *  the side to move and best move MOVE, unless it is already cached
+     *  to at least that depth. */
+    synchronized void store(Board board, int depth, int value, Move move)
+        throws IOException {
+        _position.copy(board);
+        long hash = hash(_position);
+        int slot = find(hash);
+        if (slot >= 0) {
+            int pos = offset(record(_locations[slot]));
+            if (segment(_locations[slot]).getShort(pos + 14) >= depth) {
+                return;
+            }
+        }
+        if (_fill == RECORDS) {
+            addSegment();
+        }
+        MappedByteBuffer seg = _segments.get(_segments.size() - 1);
+        int pos = offset(_fill);
+        short code = (short) Bitboard.code(move);
+        seg.putLong(pos, hash);
+        seg.putInt(pos + 8, value);
+        seg.putShort(pos + 12, code);
+        seg.putShort(pos + 14, (short) depth);
+        seg.putLong(pos + 16, check(hash, value, code, depth));
+        index(hash, _nextSeq - 1, _fill);
+        _fill += 1;
+    }
+
+    /** Write my segments to disk. */
+    synchronized void flush() {
+        for (MappedByteBuffer seg : _segments) {
+            seg.force();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+        _segments.clear();
+        if (_lock.isValid()) {
+            _lock.release();
+        }
+        _lockChannel.close();
+    }
+
+    /** Start a new segment, evicting the oldest if I am full. */
+    private void addSegment() throws IOException {
+        if (_segments.size() == _maxSegments) {
+            evict();
+        }
+        long seq = _nextSeq;
+        MappedByteBuffer seg = map(seq);
+        seg.putInt(0, MAGIC).putShort(4, VERSION).putLong(8, seq);
+        if (_segments.isEmpty()) {
+            _firstSeq = seq;
+        }
+        _segments.add(seg);
+        _nextSeq += 1;
+        _fill = 0;
+    }
+
+    /** Delete my oldest segment and the index entries that refer to
+     *  it. */
+    private void evict() throws IOException {
+        MappedByteBuffer seg = _segments.remove(0);
+        for (int k = 0; k < RECORDS && valid(seg, k); k += 1) {
+            int slot = find(seg.getLong(offset(k)));
+            if (slot >= 0 && _locations[slot] == location(_firstSeq, k)) {
+                remove(slot);
+            }
+        }
+        Files.deleteIfExists(file(_firstSeq));
+        _firstSeq += 1;
+    }
+
+    /** Map the segment with sequence number SEQ, creating it if
+     *  needed. */
+    private MappedByteBuffer map(long seq) throws IOException {
+        try (FileChannel channel = FileChannel.open(file(seq), READ, WRITE,
+                                                    CREATE)) {
+            return channel.map(READ_WRITE, 0, SEGMENT_SIZE);
+        }
+    }
+
+    /** Return the file holding segment SEQ. */
+    private Path file(long seq) {
+        return _dir.resolve(String.format("%016x%s", seq, SUFFIX));
+    }
+
+    /** Return the segment holding LOCATION. */
+    private MappedByteBuffer segment(long location) {
+        return _segments.get((int) ((location >>> 32) - _firstSeq));
+    }
+
+    /** Point the index entry for HASH at record K of segment SEQ,
+     *  doubling the index first if it is two-thirds full. */
+    private void index(long hash, long seq, int k) {
+        if (3L * (_size + 1) > 2L * _hashes.length) {
+            long[] hashes = _hashes, locations = _locations;
+            _hashes = new long[2 * hashes.length];
+            _locations = new long[2 * hashes.length];
+            _size = 0;
+            for (int s = 0; s < hashes.length; s += 1) {
+                if (locations[s] != 0) {
+                    put(hashes[s], locations[s]);
+                }
+            }
+        }
+        put(hash, location(seq, k));
+    }
+
+    /** Point the index entry for HASH at LOCATION, assuming there is
+     *  room. */
+    private void put(long hash, long location) {
+        int mask = _hashes.length - 1;
+        int slot = (int) mix(hash) & mask;
+        while (_locations[slot] != 0 && _hashes[slot] != hash) {
+            slot = (slot + 1) & mask;
+        }
+        if (_locations[slot] == 0) {
+            _size += 1;
+        }
+        _hashes[slot] = hash;
+        _locations[slot] = location;
+    }
+
+    /** Return the index slot for HASH, or -1 if there is none. */
+    private int find(long hash) {
+        int mask = _hashes.length - 1;
+        for (int slot = (int) mix(hash) & mask; _locations[slot] != 0;
+             slot = (slot + 1) & mask) {
+            if (_hashes[slot] == hash) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /** Remove the index entry in SLOT, moving later entries of its run
+     *  back so that linear probing still finds them. */
+    private void remove(int slot) {
+        int mask = _hashes.length - 1;
+        int hole = slot;
+        for (int s = (slot + 1) & mask; _locations[s] != 0;
+             s = (s + 1) & mask) {
+            int home = (int) mix(_hashes[s]) & mask;
+            if (((s - home) & mask) >= ((s - hole) & mask)) {
+                _hashes[hole] = _hashes[s];
+                _locations[hole] = _locations[s];
+                hole = s;
+            }
+        }
+        _locations[hole] = 0;
+        _size -= 1;
+    }
+
+    /** Return true iff record K of SEG is valid. */
+    private static boolean valid(MappedByteBuffer seg, int k) {
+        int pos = offset(k);
+        return seg.getLong(pos + 16)
+            == check(seg.getLong(pos), seg.getInt(pos + 8),
+                     seg.getShort(pos + 12), seg.getShort(pos + 14));
+    }
+
+    /** Return the offset of record K in a segment. */
+    private static int offset(int k) {
+        return HEADER_SIZE + k * RECORD_SIZE;
+    }
+
+    /** Return the index location of record K of segment SEQ. */
+    private static long location(long seq, int k) {
+        return seq << 32 | k;
+    }
+
+    /** Return the record number of LOCATION. */
+    private static int record(long location) {
+        return (int) location;
+    }
+
+    /** Return the check word of a record with hash HASH, value VALUE,
+     *  move code CODE, and depth DEPTH, which is never 0. */
+    private static long check(long hash, int value, int code, int depth) {
+        long x = mix(hash ^ ((long) value << 32 | (code & 0xFFFF) << 16
+                             | (depth & 0xFFFF)));
+        return x | 1;
+    }
+
+    /** Return the hash of the position B. */
+    private static long hash(Bitboard b) {
+        long h = mix(b.red() ^ 0x9E3779B97F4A7C15L);
+        h = mix(h ^ b.blue());
+        h = mix(h ^ b.blocked());
+        return mix(h ^ (b.jumps() << 1 | (b.blueToMove() ? 1 : 0)));
+    }
+
+    /** Return a scrambled version of X. */
+    private static long mix(long x) {
+        x = (x ^ (x >>> 33)) * 0xFF51AFD7ED558CCDL;
+        x = (x ^ (x >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return x ^ (x >>> 33);
+    }
+
+    /** The cache directory. */
+    private final Path _dir;
+    /** Maximum number of segments. */
+    private final int _maxSegments;
+    /** The mapped segments, oldest first. */
+    private final ArrayList<MappedByteBuffer> _segments = new ArrayList<>();
+    /** Sequence number of the oldest segment. */
+    private long _firstSeq;
+    /** Sequence number of the next segment to be created. */
+    private long _nextSeq;
+    /** Number of records in the newest segment. */
+    private int _fill;
+    /** Hashes of the index entries. */
+    private long[] _hashes;
+    /** Locations (segment sequence number and record number) of the index
+     *  entries, or 0 for an empty slot. */
+    private long[] _locations;
+    /** Number of index entries. */
+    private int _size;
+    /** Channel on the lock file. */
+    private final FileChannel _lockChannel;
+    /** Lock held on the lock file while I am open. */
+    private final FileLock _lock;
+    /** Scratch position. */
+    private final Bitboard _position = new Bitboard(0);
+
+}
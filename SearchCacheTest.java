@@ -0,0 +1,165 @@
+package ataxx;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the persistent search cache.
+ *
+ * @author Shrey Malhotra
+ */
+public class SearchCacheTest {
+
+    /** Return a board with red pieces on the squares (numbered as in
+     *  GameArchive) in RED, a blue piece on g7, and red to move. */
+    private static Board board(long red) {
+        StringBuilder pos = new StringBuilder();
+        for (int r = Board.SIDE - 1; r >= 0; r -= 1) {
+            int empty = 0;
+            for (int c = 0; c < Board.SIDE; c += 1) {
+                int s = r * Board.SIDE + c;
+                char ch = s == GameArchive.SQUARES - 1 ? 'b'
+                    : (red >>> s & 1) != 0 ? 'r' : 0;
+                if (ch == 0) {
+                    empty += 1;
+                    continue;
+                }
+                if (empty > 0) {
+                    pos.append(empty);
+                    empty = 0;
+                }
+                pos.append(ch);
+            }
+            if (empty > 0) {
+                pos.append(empty);
+            }
+            pos.append(r > 0 ? "/" : " b 0");
+        }
+        Board board = new Board();
+        board.setPosition(pos.toString());
+        return board;
+    }
+
+    /** Delete DIR and its files. */
+    private static void delete(Path dir) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+    }
+
+    @Test
+    public void testPersistence() throws IOException {
+        Path dir = Files.createTempDirectory("ataxx");
+        Move m1 = Move.move('g', '7', 'f', '6'),
+            m2 = Move.move('g', '7', 'e', '5');
+        try {
+            try (SearchCache cache = new SearchCache(dir, 1)) {
+                cache.store(board(1), 4, 17, m1);
+                cache.store(board(1), 3, 5, m2);
+                cache.store(board(1L << 1), 4, -3, m2);
+            }
+            try (SearchCache cache = new SearchCache(dir, 1)) {
+                int[] value = new int[1];
+                assertEquals("wrong size", 2, cache.size());
+                assertEquals("bad move", m1, cache.probe(board(1), 4, value));
+                assertEquals("bad value", 17, value[0]);
+                assertNull("too shallow", cache.probe(board(1), 5, value));
+                assertNull("not stored", cache.probe(board(1L << 2), 1,
+                                                      value));
+            }
+            Path seg = dir.resolve(String.format("%016x.seg", 1));
+            try (RandomAccessFile f = new RandomAccessFile(seg.toFile(),
+                                                           "rw")) {
+                f.seek(SearchCache.HEADER_SIZE + SearchCache.RECORD_SIZE
+                       + 8);
+                f.writeInt(18);
+            }
+            try (SearchCache cache = new SearchCache(dir, 1)) {
+                assertEquals("torn record kept", 1, cache.size());
+                assertNotNull("record lost", cache.probe(board(1), 4, null));
+                cache.store(board(1L << 3), 4, 0, m1);
+                assertEquals("record not appended", 2, cache.size());
+            }
+        } finally {
+            delete(dir);
+        }
+    }
+
+    @Test
+    public void testEviction() throws IOException {
+        Path dir = Files.createTempDirectory("ataxx");
+        Move move = Move.move('g', '7', 'f', '6');
+        int records = (SearchCache.SEGMENT_SIZE - SearchCache.HEADER_SIZE)
+            / SearchCache.RECORD_SIZE;
+        try {
+            try (SearchCache cache = new SearchCache(dir, 1)) {
+                for (long k = 1; k <= records + 1; k += 1) {
+                    cache.store(board(k), 4, 0, move);
+                }
+                assertEquals("wrong size", 1, cache.size());
+                assertNull("not evicted", cache.probe(board(1), 4, null));
+                assertNotNull("lost", cache.probe(board(records + 1), 4,
+                                                  null));
+            }
+        } finally {
+            delete(dir);
+        }
+    }
+
+    @Test
+    public void testSizeBounds() throws IOException {
+        Path dir = Files.createTempDirectory("ataxx");
+        Move move = Move.move('g', '7', 'f', '6');
+        try {
+            for (int megabytes : new int[] { 0, -1,
+                                             SearchCache.MAX_MEGABYTES + 1,
+                                             Integer.MAX_VALUE }) {
+                try {
+                    new SearchCache(dir, megabytes).close();
+                    fail("accepted size " + megabytes);
+                } catch (IllegalArgumentException excp) {
+                    /* Expected. */
+                }
+            }
+            try (SearchCache cache =
+                 new SearchCache(dir, SearchCache.MAX_MEGABYTES)) {
+                for (long k = 1; k <= 5000; k += 1) {
+                    cache.store(board(k), 4, (int) k, move);
+                }
+                int[] value = new int[1];
+                assertEquals("wrong size", 5000, cache.size());
+                assertEquals("lost record", move,
+                             cache.probe(board(1), 4, value));
+                assertEquals("bad value", 1, value[0]);
+            }
+            StringWriter text = new StringWriter();
+            PrintWriter out = new PrintWriter(text);
+            Game game = new Game(new Board(),
+                                 new ReaderSource(new StringReader(
+                                     "cache " + dir + " 20000\nquit\n"),
+                                                  false),
+                                 new TextReporter(out), out);
+            game.process(false);
+            out.flush();
+            assertNull("cache opened", game.cache());
+            assertTrue("no error reported",
+                       text.toString().contains("Cache size"));
+        } finally {
+            delete(dir);
+        }
+    }
+
+}
@@ -0,0 +1,23 @@
+package ataxx;
+
+/** An object told of the progress of AIs' searches for moves in a game
+ *  (see Game.setSearchListener).  Its methods are called on the thread
+ *  doing the search, so they must be quick and must not wait for the
+ *  display.
+ *  @author Shrey Malhotra
+ */
+interface SearchListener {
+
+    /** A search for a move from the current position has begun. */
+    void searchStarted();
+
+    /** The search has valued the move MOVE from the current position at
+     *  VALUE for the side to move (or, for moves that cannot be best, at
+     *  most VALUE), having visited NODES positions so far.  BEST is the
+     *  best move found so far. */
+    void candidate(Move move, int value, Move best, long nodes);
+
+    /** The search has ended, choosing MOVE. */
+    void searchEnded(Move move);
+
+}
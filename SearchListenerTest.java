@@ -0,0 +1,92 @@
+package ataxx;
+
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of search progress reports and of requests to games in
+ * progress.
+ *
+ * @author Shrey Malhotra
+ */
+public class SearchListenerTest {
+
+    /** Play an AI-versus-AI game as GAME[0], having LISTENER follow its
+     *  searches, and return its output. */
+    private static String play(Game[] game, SearchListener listener) {
+        StringWriter text = new StringWriter();
+        PrintWriter out = new PrintWriter(text);
+        game[0] = new Game(new Board(),
+                           new ReaderSource(new StringReader("auto red\n"
+                                                             + "start\n"
+                                                             + "quit\n"),
+                                            false),
+                           new TextReporter(out), out);
+        game[0].setSearchListener(listener);
+        game[0].process(false);
+        out.flush();
+        return text.toString();
+    }
+
+    @Test
+    public void testStop() {
+        Game[] game = new Game[1];
+        int[] counts = new int[3];
+        String output = play(game, new SearchListener() {
+            @Override
+            public void searchStarted() {
+                counts[0] += 1;
+            }
+
+            @Override
+            public void candidate(Move move, int value, Move best,
+                                  long nodes) {
+                counts[1] += 1;
+                assertNotNull("no best move", best);
+                if (counts[0] % 2 == 0) {
+                    game[0].control(Game.Control.STOP);
+                }
+            }
+
+            @Override
+            public void searchEnded(Move move) {
+                counts[2] += 1;
+            }
+        });
+        assertTrue("game not finished", output.contains("Game over."));
+        assertTrue("no searches", counts[0] > 0);
+        assertEquals("searches not ended", counts[0], counts[2]);
+        assertTrue("no candidates", counts[1] > 0);
+    }
+
+    @Test
+    public void testQuit() {
+        Game[] game = new Game[1];
+        String output = play(game, new SearchListener() {
+            @Override
+            public void searchStarted() {
+            }
+
+            @Override
+            public void candidate(Move move, int value, Move best,
+                                  long nodes) {
+                if (game[0].board().numMoves() == 4) {
+                    game[0].control(Game.Control.QUIT);
+                }
+            }
+
+            @Override
+            public void searchEnded(Move move) {
+            }
+        });
+        assertFalse("game not abandoned", output.contains("Game over."));
+        assertEquals("quit at wrong move", 4,
+                     game[0].board().numMoves());
+    }
+
+}
@@ -0,0 +1,141 @@
+package ataxx;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+/**
+ * The numeric parameters of AI's search.  Each has a name (NAMES), a
+ * default value, and a legal range.  Parameters are read from a Java
+ * properties file by load; missing entries keep their default values,
+ * and values are clamped to their ranges.  STANDARD, the set used by
+ * default, is loaded at startup from the file named by the system
+ * property ataxx.params (default PARAMS_FILE), if it exists.
+ *
+ * @author Shrey Malhotra
+ */
+class SearchParams {
+
+    /** Index of the nominal search depth. */
+    static final int DEPTH = 0;
+    /** Index of the number of moves searched at full depth at each node
+     *  before later moves are searched at reduced depth. */
+    static final int LMR_MOVES = 1;
+    /** Index of the depth reduction of late moves. */
+    static final int LMR_REDUCTION = 2;
+    /** Index of the ordering weight of each piece captured by a move. */
+    static final int CAPTURE_WEIGHT = 3;
+    /** Index of the ordering penalty of a jump. */
+    static final int JUMP_PENALTY = 4;
+    /** Index of the number of empty squares at or below which positions
+     *  are solved exactly (see EndgameSolver), or 0 to never solve. */
+    static final int ENDGAME_EMPTIES = 5;
+    /** Number of parameters. */
+    static final int COUNT = 6;
+
+    /** Names of the parameters in parameter files. */
+    static final String[] NAMES = {
+        "depth", "lmrMoves", "lmrReduction", "captureWeight", "jumpPenalty",
+        "endgameEmpties"
+    };
+    /** Default values. */
+    private static final int[] DEFAULTS = { 4, 8, 1, 4, 6, 2 };
+    /** Least legal values. */
+    static final int[] MIN = { 1, 1, 0, 0, 0, 0 };
+    /** Greatest legal values. */
+    static final int[] MAX = {
+        AI.MAX_PLY - 1, Board.MAX_MOVES, 3, 64, 64, 20
+    };
+    /** Default name of the parameter file. */
+    static final String PARAMS_FILE = "ataxx-params.properties";
+
+    /** A parameter set with values VALUES, indexed as in NAMES and
+     *  clamped to their ranges. */
+    SearchParams(int[] values) {
+        assert values.length == COUNT;
+        _values = new int[COUNT];
+        for (int k = 0; k < COUNT; k += 1) {
+            _values[k] = Math.max(MIN[k], Math.min(MAX[k], values[k]));
+        }
+    }
+
+    /** Return the default parameter set. */
+    static SearchParams defaults() {
+        return new SearchParams(DEFAULTS);
+    }
+
+    /** Return the parameter set in FILE, taking defaults for the
+     *  parameters it lacks. */
+    static SearchParams load(Path file) throws IOException {
+        Properties props = new Properties();
+        try (Reader in = Files.newBufferedReader(file)) {
+            props.load(in);
+        }
+        int[] values = DEFAULTS.clone();
+        for (int k = 0; k < COUNT; k += 1) {
+            String value = props.getProperty(NAMES[k]);
+            if (value != null) {
+                try {
+                    values[k] = Integer.parseInt(value.trim());
+                } catch (NumberFormatException excp) {
+                    throw new IOException("bad value for " + NAMES[k]);
+                }
+            }
+        }
+        return new SearchParams(values);
+    }
+
+    /** Write my values to FILE, headed by the comment COMMENT. */
+    void save(Path file, String comment) throws IOException {
+        Properties props = new Properties();
+        for (int k = 0; k < COUNT; k += 1) {
+            props.setProperty(NAMES[k], Integer.toString(_values[k]));
+        }
+        try (Writer out = Files.newBufferedWriter(file)) {
+            props.store(out, comment);
+        }
+    }
+
+    /** Return parameter K (indexed as in NAMES). */
+    int get(int k) {
+        return _values[k];
+    }
+
+    /** Return a copy of my values. */
+    int[] values() {
+        return _values.clone();
+    }
+
+    /** Return a copy of me with parameter K set to VALUE. */
+    SearchParams with(int k, int value) {
+        int[] values = values();
+        values[k] = value;
+        return new SearchParams(values);
+    }
+
+    /** The parameters used by AIs unless told otherwise. */
+    static final SearchParams STANDARD = loadStandard();
+
+    /** Return the parameter set described for STANDARD. */
+    private static SearchParams loadStandard() {
+        Path file = Paths.get(System.getProperty("ataxx.params",
+                                                 PARAMS_FILE));
+        if (Files.isReadable(file)) {
+            try {
+                return load(file);
+            } catch (IOException excp) {
+                System.err.printf("Could not load parameters from %s: %s%n",
+                                  file, excp.getMessage());
+            }
+        }
+        return defaults();
+    }
+
+    /** My values. */
+    private final int[] _values;
+
+}
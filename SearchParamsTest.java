@@ -0,0 +1,151 @@
+package ataxx;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the search parameters, the SPSA tuner, and the parts of AI's
+ * search that they control.
+ *
+ * @author Shrey Malhotra
+ */
+public class SearchParamsTest {
+
+    @Test
+    public void testClamp() {
+        SearchParams params =
+            new SearchParams(new int[] { 0, 1000, -1, 4, 6, 99 });
+        assertEquals("depth not clamped", 1, params.get(SearchParams.DEPTH));
+        assertEquals("moves not clamped", Board.MAX_MOVES,
+                     params.get(SearchParams.LMR_MOVES));
+        assertEquals("reduction not clamped", 0,
+                     params.get(SearchParams.LMR_REDUCTION));
+        assertEquals("empties not clamped",
+                     SearchParams.MAX[SearchParams.ENDGAME_EMPTIES],
+                     params.get(SearchParams.ENDGAME_EMPTIES));
+        assertEquals("with not clamped", SearchParams.MAX[SearchParams.DEPTH],
+                     params.with(SearchParams.DEPTH, 1000)
+                     .get(SearchParams.DEPTH));
+    }
+
+    @Test
+    public void testLoadSave() throws IOException {
+        Path file = Files.createTempFile("ataxx-params", ".properties");
+        try {
+            SearchParams params =
+                SearchParams.defaults().with(SearchParams.JUMP_PENALTY, 11);
+            params.save(file, "test");
+            assertArrayEquals("bad round trip", params.values(),
+                              SearchParams.load(file).values());
+            Files.write(file, "lmrMoves = 3\n".getBytes());
+            assertArrayEquals("missing entries not defaulted",
+                              SearchParams.defaults()
+                              .with(SearchParams.LMR_MOVES, 3).values(),
+                              SearchParams.load(file).values());
+            Files.write(file, "depth = deep\n".getBytes());
+            try {
+                SearchParams.load(file);
+                fail("accepted bad value");
+            } catch (IOException excp) {
+                /* Expected. */
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testLargestReduction() {
+        Board board = new Board();
+        board.setPosition("r5b/7/2rrb2/2bXr2/2rbb2/7/b5r r 0");
+        for (int depth = 1; depth <= 4; depth += 1) {
+            AI ai = new AI(PieceColor.RED, Evaluator.STANDARD,
+                           new SearchParams(new int[] {
+                                   depth, 1, SearchParams.MAX[
+                                       SearchParams.LMR_REDUCTION],
+                                   4, 6, 0 }));
+            Move move = ai.findMove(board, depth);
+            assertTrue("illegal move at depth " + depth,
+                       board.legalMove(move));
+        }
+    }
+
+    @Test
+    public void testReductionKeepsResult() {
+        Board board = new Board();
+        board.setPosition("rrrrrrr/rrbbbrr/rrb1brr/rrbbbrr/rrrrrrr/rrrrrrr"
+                          + "/rrrrrr1 r 0");
+        for (int reduction = 0;
+             reduction <= SearchParams.MAX[SearchParams.LMR_REDUCTION];
+             reduction += 1) {
+            AI ai = new AI(PieceColor.RED, Evaluator.STANDARD,
+                           new SearchParams(new int[] {
+                                   3, 1, reduction, 4, 6, 0 }));
+            Board b = new Board(board);
+            b.makeMove(ai.findMove(b, 3));
+            assertEquals("missed win with reduction " + reduction,
+                         0, b.bluePieces());
+        }
+    }
+
+    @Test
+    public void testOrdering() {
+        Board board = new Board();
+        board.setPosition("r5b/7/7/3b3/b6/1r5/b5r r 0");
+        Move[] moves = new Move[Board.MAX_MOVES];
+        int n = board.legalMoves(moves);
+        SearchParams params = SearchParams.defaults();
+        AI ai = new AI(PieceColor.RED, Evaluator.STANDARD, params);
+        ai.orderMoves(board, moves, new int[Board.MAX_MOVES], n);
+        int last = Integer.MAX_VALUE;
+        for (int i = 0; i < n; i += 1) {
+            int key = params.get(SearchParams.CAPTURE_WEIGHT)
+                * captures(board, moves[i])
+                - (moves[i].isJump()
+                   ? params.get(SearchParams.JUMP_PENALTY) : 0);
+            assertTrue("moves out of order at " + moves[i], key <= last);
+            last = key;
+        }
+        assertEquals("best capture not first", 2,
+                     captures(board, moves[0]));
+        assertTrue("best capture not an extend", moves[0].isExtend());
+    }
+
+    @Test
+    public void testTuner() throws InterruptedException {
+        StringWriter log = new StringWriter();
+        SpsaTuner tuner = new SpsaTuner(SearchParams.defaults(), 4, 1,
+                                        new PrintWriter(log));
+        tuner.run(2, 1);
+        SearchParams result = tuner.result();
+        for (int k = 0; k < SearchParams.COUNT; k += 1) {
+            assertTrue("parameter out of range: " + SearchParams.NAMES[k],
+                       result.get(k) >= SearchParams.MIN[k]
+                       && result.get(k) <= SearchParams.MAX[k]);
+        }
+        assertEquals("untuned parameter changed",
+                     SearchParams.defaults().get(SearchParams.DEPTH),
+                     result.get(SearchParams.DEPTH));
+        String[] lines = log.toString().split("\n");
+        assertTrue("bad log header", lines[0].startsWith("iteration,"));
+        assertTrue("no final log entry", lines[lines.length - 1]
+                   .startsWith("4,"));
+    }
+
+    /** Return the number of pieces captured by MOVE on BOARD. */
+    private static int captures(Board board, Move move) {
+        Board b = new Board(board);
+        PieceColor me = b.whoseMove();
+        int before = b.numPieces(me);
+        b.makeMove(move);
+        return b.numPieces(me) - before - (move.isJump() ? 0 : 1);
+    }
+
+}
@@ -0,0 +1,109 @@
+package ataxx;
+
+import java.io.Closeable;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static ataxx.GameException.error;
+
+/**
+ * A fixed number of platform threads on which the AIs of many games
+ * (see GameServer) run their searches, so that searches compete for the
+ * processors in bounded numbers however many games there are, and a
+ * long search never occupies the thread serving a game's input and
+ * output.  At most the number of threads plus a given queue length of
+ * searches are admitted at once; a game whose AI wants to search while
+ * the pool is full waits for admission, so that the work offered to the
+ * pool is limited by its capacity rather than by the number of games.
+ *
+ * @author Shrey Malhotra
+ */
+class SearchPool implements Closeable {
+
+    /** A pool of THREADS search threads admitting QUEUE searches beyond
+     *  those running. */
+    SearchPool(int threads, int queue) {
+        AtomicInteger count = new AtomicInteger();
+        _executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread =
+                new Thread(r, "search-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        _capacity = threads + queue;
+        _admission = new Semaphore(_capacity, true);
+    }
+
+    /** Run SEARCH on one of my threads once admitted, wait for it to
+     *  finish, and return its result.  If the calling thread is
+     *  interrupted while SEARCH runs, STOP is run to end it, and SEARCH
+     *  keeps its admission until it has actually finished. */
+    <T> T call(Callable<T> search, Runnable stop) {
+        try {
+            _admission.acquire();
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+            throw error("Search interrupted");
+        }
+        try {
+            Future<T> result = _executor.submit(search);
+            try {
+                return result.get();
+            } catch (InterruptedException excp) {
+                stop.run();
+                finish(result);
+                Thread.currentThread().interrupt();
+                throw error("Search interrupted");
+            }
+        } catch (ExecutionException excp) {
+            Throwable cause = excp.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            _admission.release();
+        }
+    }
+
+    /** Wait, ignoring interrupts, for the search whose result is RESULT
+     *  to end. */
+    private static void finish(Future<?> result) {
+        while (true) {
+            try {
+                result.get();
+                return;
+            } catch (InterruptedException excp) {
+                continue;
+            } catch (ExecutionException excp) {
+                return;
+            }
+        }
+    }
+
+    /** Return the number of searches admitted and not yet finished. */
+    int busy() {
+        return _capacity - _admission.availablePermits();
+    }
+
+    /** Stop accepting searches. */
+    @Override
+    public void close() {
+        _executor.shutdown();
+    }
+
+    /** The search threads. */
+    private final ExecutorService _executor;
+    /** Number of searches admitted at once. */
+    private final int _capacity;
+    /** Permits for the searches admitted. */
+    private final Semaphore _admission;
+
+}
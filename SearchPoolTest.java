@@ -0,0 +1,51 @@
+package ataxx;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the shared pool of search threads.
+ *
+ * @author Shrey Malhotra
+ */
+public class SearchPoolTest {
+
+    @Test(timeout = 10000)
+    public void testInterruptedCall() throws Exception {
+        try (SearchPool pool = new SearchPool(1, 0)) {
+            AtomicBoolean stopped = new AtomicBoolean(),
+                finished = new AtomicBoolean();
+            CountDownLatch started = new CountDownLatch(1);
+            Thread caller = new Thread(() -> {
+                try {
+                    pool.call(() -> {
+                        started.countDown();
+                        while (!stopped.get()) {
+                            Thread.onSpinWait();
+                        }
+                        finished.set(true);
+                        return null;
+                    }, () -> stopped.set(true));
+                    fail("interrupted call returned");
+                } catch (GameException excp) {
+                    /* Expected. */
+                }
+            });
+            caller.start();
+            started.await();
+            caller.interrupt();
+            caller.join();
+            assertTrue("search not stopped", stopped.get());
+            assertTrue("admission released before the search ended",
+                       finished.get());
+            assertEquals("admission kept", 0, pool.busy());
+            assertEquals("pool unusable", "ok",
+                         pool.call(() -> "ok", () -> { }));
+        }
+    }
+
+}
@@ -0,0 +1,79 @@
+package ataxx;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Measurements of the work done by a Player to choose one move, as
+ * reported in timing mode (see MoveTiming).
+ *
+ * @author Shrey Malhotra
+ */
+class SearchStats {
+
+    /** Statistics for a search that visited NODES positions, reached
+     *  DEPTH plies from the root, used CPUNANOS nanoseconds of processor
+     *  time, and called Board's makeMove MAKEMOVES times, legalMoves (or
+     *  legalmoves) LEGALMOVES times, and samepieces SAMEPIECES times. */
+    SearchStats(long nodes, int depth, long cpuNanos, long makeMoves,
+                long legalMoves, long samePieces) {
+        _nodes = nodes;
+        _depth = depth;
+        _cpuNanos = cpuNanos;
+        _makeMoves = makeMoves;
+        _legalMoves = legalMoves;
+        _samePieces = samePieces;
+    }
+
+    /** Return the processor time used so far by the current thread, in
+     *  nanoseconds, or 0 if it cannot be measured. */
+    static long cpuTime() {
+        return THREADS.isCurrentThreadCpuTimeSupported()
+            ? Math.max(0, THREADS.getCurrentThreadCpuTime()) : 0;
+    }
+
+    /** Return the number of positions visited. */
+    long nodes() {
+        return _nodes;
+    }
+
+    /** Return the greatest number of plies from the root reached. */
+    int depth() {
+        return _depth;
+    }
+
+    /** Return the processor time used, in nanoseconds. */
+    long cpuNanos() {
+        return _cpuNanos;
+    }
+
+    /** Return the number of calls of Board.makeMove. */
+    long makeMoves() {
+        return _makeMoves;
+    }
+
+    /** Return the number of calls of Board.legalMoves and
+     *  Board.legalmoves. */
+    long legalMoves() {
+        return _legalMoves;
+    }
+
+    /** Return the number of calls of Board.samepieces. */
+    long samePieces() {
+        return _samePieces;
+    }
+
+    /** Source of thread processor times. */
+    private static final ThreadMXBean THREADS =
+        ManagementFactory.getThreadMXBean();
+
+    /** Number of positions visited. */
+    private final long _nodes;
+    /** Greatest depth reached. */
+    private final int _depth;
+    /** Processor time used, in nanoseconds. */
+    private final long _cpuNanos;
+    /** Board operation counts. */
+    private final long _makeMoves, _legalMoves, _samePieces;
+
+}
@@ -0,0 +1,214 @@
+package ataxx;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * A binary trace of the trees searched by AIs, for finding where the
+ * positions of a slow search went (see SearchTraceSummary).  Tracing is
+ * switched on by the system property ataxx.trace, naming the trace
+ * file:
+ * <pre>
+ *     java -Dataxx.trace=FILE [-Dataxx.trace.plies=N]
+ *          [-Dataxx.trace.sample=K] ataxx.Main
+ * </pre>
+ * Every position searched less than N plies (default 2) from the root
+ * is recorded, and if K is positive, so is every Kth position visited.
+ * Since TRACE is a constant, the checks for it in the search are
+ * compiled away when tracing is off.
+ * <p>
+ * The file is a header (MAGIC and RECORD_SIZE as ints) followed by
+ * records of RECORD_SIZE bytes, each written when the search of its
+ * position ends, in this order: the search number (int), the number
+ * of the position in its AI's count of positions visited (long), the
+ * number of positions in its subtree, itself included (long), alpha,
+ * beta, and the value returned (ints), the move that led to it (short:
+ * 128 * from + to, as Board indices, or -1 for a pass or none), the
+ * index among its moves of the one that caused a cutoff (short, -1 if
+ * none), and its ply and remaining depth (bytes).  Each AI fills its own
+ * buffer of records and hands it to a writer thread when full and at
+ * the end of each search, so the search never waits on the file unless
+ * the writer falls BUFFERS buffers behind.
+ *
+ * @author Shrey Malhotra
+ */
+class SearchTrace implements Closeable {
+
+    /** First int of a trace file. */
+    static final int MAGIC = 0x41545854;
+    /** Size of a record in bytes. */
+    static final int RECORD_SIZE = 36;
+    /** Size of a buffer of records in bytes. */
+    static final int BUFFER_SIZE = RECORD_SIZE * 2048;
+    /** Number of full buffers that may await writing. */
+    static final int BUFFERS = 8;
+    /** Positions fewer than this many plies from the root are all
+     *  recorded. */
+    static final int PLIES = Integer.getInteger("ataxx.trace.plies", 2);
+    /** If positive, every SAMPLEth position visited is recorded. */
+    static final int SAMPLE = Integer.getInteger("ataxx.trace.sample", 0);
+    /** The trace being recorded, or null if tracing is off. */
+    static final SearchTrace TRACE = open(System.getProperty("ataxx.trace"));
+
+    /** A trace written to FILE, replacing its contents. */
+    SearchTrace(Path file) throws IOException {
+        _out = FileChannel.open(file, CREATE, WRITE, TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(8);
+        header.putInt(MAGIC).putInt(RECORD_SIZE).flip();
+        while (header.hasRemaining()) {
+            _out.write(header);
+        }
+        _writer = new Thread(this::writeBuffers, "trace");
+        _writer.setDaemon(true);
+        _writer.start();
+    }
+
+    /** Return the number of a new search. */
+    int nextSearch() {
+        return _searches.getAndIncrement();
+    }
+
+    /** Return an empty buffer for records. */
+    ByteBuffer buffer() {
+        ByteBuffer buf = _free.poll();
+        return buf != null ? buf : ByteBuffer.allocate(BUFFER_SIZE);
+    }
+
+    /** Queue BUF, whose records are no longer to be added to, for
+     *  writing, waiting if BUFFERS buffers are already waiting. */
+    void write(ByteBuffer buf) {
+        buf.flip();
+        try {
+            synchronized (_progress) {
+                _handedOff += 1;
+            }
+            _full.put(buf);
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Add to BUF the record of position START of search SEARCH, whose
+     *  subtree had NODES positions, searched from ALPHA and BETA to the
+     *  value SCORE, reached by the last move in MOVES (or none, if
+     *  empty), with a cutoff by move CUTOFF (-1 if none), PLY plies from
+     *  the root with DEPTH plies to go.  Assumes BUF has room. */
+    static void record(ByteBuffer buf, int search, long start, long nodes,
+                       int alpha, int beta, int score, List<Move> moves,
+                       int cutoff, int ply, int depth) {
+        Move move = moves.isEmpty() ? null : moves.get(moves.size() - 1);
+        buf.putInt(search).putLong(start).putLong(nodes)
+            .putInt(alpha).putInt(beta).putInt(score)
+            .putShort((short) (move == null || move.isPass() ? -1
+                               : move.fromIndex() * 128 + move.toIndex()))
+            .putShort((short) cutoff).put((byte) ply).put((byte) depth);
+    }
+
+    /** Write out all buffers queued so far, waiting until they are
+     *  written. */
+    void flush() {
+        try {
+            synchronized (_progress) {
+                while (_written < _handedOff) {
+                    _progress.wait();
+                }
+            }
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Write out the queued buffers and close the file. */
+    @Override
+    public void close() throws IOException {
+        flush();
+        _writer.interrupt();
+        try {
+            _writer.join();
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+        }
+        _out.close();
+    }
+
+    /** Return a trace written to the file named FILE, closed when the
+     *  program exits, or null if FILE is null or cannot be written. */
+    private static SearchTrace open(String file) {
+        if (file == null) {
+            return null;
+        }
+        try {
+            SearchTrace trace = new SearchTrace(Path.of(file));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    trace.close();
+                } catch (IOException excp) {
+                    /* Exiting anyway. */
+                }
+            }));
+            return trace;
+        } catch (IOException excp) {
+            System.err.printf("Cannot write search trace: %s%n",
+                              excp.getMessage());
+            return null;
+        }
+    }
+
+    /** Write the buffers queued by write until interrupted. */
+    private void writeBuffers() {
+        while (true) {
+            ByteBuffer buf;
+            try {
+                buf = _full.take();
+            } catch (InterruptedException excp) {
+                return;
+            }
+            try {
+                while (buf.hasRemaining()) {
+                    _out.write(buf);
+                }
+            } catch (IOException excp) {
+                System.err.printf("Cannot write search trace: %s%n",
+                                  excp.getMessage());
+            }
+            buf.clear();
+            _free.offer(buf);
+            synchronized (_progress) {
+                _written += 1;
+                _progress.notifyAll();
+            }
+        }
+    }
+
+    /** The trace file. */
+    private final FileChannel _out;
+    /** Buffers waiting to be written. */
+    private final BlockingQueue<ByteBuffer> _full =
+        new ArrayBlockingQueue<>(BUFFERS);
+    /** Written buffers available for reuse. */
+    private final BlockingQueue<ByteBuffer> _free =
+        new ArrayBlockingQueue<>(BUFFERS);
+    /** Number of the next search. */
+    private final AtomicInteger _searches = new AtomicInteger();
+    /** Lock for _handedOff and _written, notified as buffers are
+     *  written. */
+    private final Object _progress = new Object();
+    /** Number of buffers queued for writing. */
+    private long _handedOff;
+    /** Number of buffers written. */
+    private long _written;
+    /** Writes the buffers. */
+    private final Thread _writer;
+
+}
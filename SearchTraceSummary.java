@@ -0,0 +1,218 @@
+package ataxx;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Summarizes a search trace (see SearchTrace).  Usage:
+ * <pre>
+ *     java ataxx.SearchTraceSummary FILE [TOP]
+ * </pre>
+ * reports, for each ply, how many positions were recorded, how many
+ * positions their subtrees held in all and on average, how many of
+ * them ended in a cutoff, how often the first move tried caused it, and
+ * the average index of the move that did; and then the TOP (default
+ * DEFAULT_TOP) largest recorded subtrees below the roots, each with
+ * the moves leading to it (".." marking unrecorded plies) and its
+ * share of its search.
+ *
+ * @author Shrey Malhotra
+ */
+class SearchTraceSummary {
+
+    /** Default number of largest subtrees listed. */
+    static final int DEFAULT_TOP = 10;
+
+    /** Summarize the trace named by ARGS[0] as described in the class
+     *  comment, listing ARGS[1] subtrees if given. */
+    public static void main(String[] args) {
+        if (args.length < 1 || args.length > 2
+            || args.length == 2 && !args[1].matches("\\d+")) {
+            System.err.println("Usage: java ataxx.SearchTraceSummary FILE"
+                               + " [TOP]");
+            System.exit(1);
+        }
+        PrintWriter out = new PrintWriter(System.out);
+        try {
+            summarize(Path.of(args[0]), args.length == 2
+                      ? Integer.parseInt(args[1]) : DEFAULT_TOP, out);
+        } catch (IOException excp) {
+            System.err.printf("Cannot read trace: %s%n", excp.getMessage());
+            System.exit(1);
+        }
+        out.flush();
+    }
+
+    /** Write to OUT the summary of the trace in FILE, listing its TOP
+     *  largest subtrees. */
+    static void summarize(Path file, int top, PrintWriter out)
+        throws IOException {
+        List<Node> nodes = read(file);
+        link(nodes);
+
+        HashMap<Integer, Long> searchSizes = new HashMap<>();
+        int maxPly = 0;
+        for (Node node : nodes) {
+            maxPly = Math.max(maxPly, node.ply);
+            if (node.parent == null) {
+                searchSizes.merge(node.search, node.nodes, Long::sum);
+            }
+        }
+        long total = 0;
+        for (long size : searchSizes.values()) {
+            total += size;
+        }
+        out.printf("%d searches, %d records, %d positions searched%n",
+                   searchSizes.size(), nodes.size(), total);
+
+        int plies = maxPly + 1;
+        long[] records = new long[plies], positions = new long[plies],
+            cutoffs = new long[plies], firsts = new long[plies],
+            indices = new long[plies];
+        for (Node node : nodes) {
+            records[node.ply] += 1;
+            positions[node.ply] += node.nodes;
+            if (node.cutoff >= 0) {
+                cutoffs[node.ply] += 1;
+                indices[node.ply] += node.cutoff;
+                if (node.cutoff == 0) {
+                    firsts[node.ply] += 1;
+                }
+            }
+        }
+        out.printf("%3s %9s %12s %12s %9s %10s %10s%n", "ply", "records",
+                   "positions", "mean size", "cutoffs", "first move",
+                   "mean index");
+        for (int ply = 0; ply <= maxPly; ply += 1) {
+            if (records[ply] > 0) {
+                out.printf("%3d %9d %12d %12.1f %9d %9.1f%% %10.2f%n", ply,
+                           records[ply], positions[ply],
+                           (double) positions[ply] / records[ply],
+                           cutoffs[ply], percent(firsts[ply], cutoffs[ply]),
+                           cutoffs[ply] == 0 ? 0.0
+                           : (double) indices[ply] / cutoffs[ply]);
+            }
+        }
+
+        ArrayList<Node> subtrees = new ArrayList<>();
+        for (Node node : nodes) {
+            if (node.parent != null) {
+                subtrees.add(node);
+            }
+        }
+        subtrees.sort(Comparator.comparingLong((Node n) -> n.nodes)
+                      .reversed());
+        if (!subtrees.isEmpty() && top > 0) {
+            out.println("Largest subtrees:");
+        }
+        for (Node node : subtrees.subList(0, Math.min(top,
+                                                      subtrees.size()))) {
+            out.printf("  search %d ply %d depth %d %s: %d positions"
+                       + " (%.1f%% of search); alpha %d beta %d value %d,"
+                       + " %s%n", node.search, node.ply, node.depth,
+                       path(node), node.nodes,
+                       percent(node.nodes, searchSizes.get(node.search)),
+                       node.alpha, node.beta, node.value,
+                       node.cutoff < 0 ? "no cutoff"
+                       : "cutoff by move " + node.cutoff);
+        }
+    }
+
+    /** Return the records in FILE. */
+    private static List<Node> read(Path file) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (buf.remaining() < 8 || buf.getInt() != SearchTrace.MAGIC
+            || buf.getInt() != SearchTrace.RECORD_SIZE) {
+            throw new IOException("not a search trace");
+        }
+        ArrayList<Node> nodes = new ArrayList<>();
+        while (buf.remaining() >= SearchTrace.RECORD_SIZE) {
+            Node node = new Node();
+            node.search = buf.getInt();
+            node.start = buf.getLong();
+            node.nodes = buf.getLong();
+            node.alpha = buf.getInt();
+            node.beta = buf.getInt();
+            node.value = buf.getInt();
+            node.move = buf.getShort();
+            node.cutoff = buf.getShort();
+            node.ply = buf.get();
+            node.depth = buf.get();
+            nodes.add(node);
+        }
+        return nodes;
+    }
+
+    /** Set the parent of each of NODES to its nearest recorded
+     *  ancestor: the innermost record of the same search whose
+     *  positions include it. */
+    private static void link(List<Node> nodes) {
+        ArrayList<Node> sorted = new ArrayList<>(nodes);
+        sorted.sort(Comparator.comparingInt((Node n) -> n.search)
+                    .thenComparingLong(n -> n.start));
+        ArrayList<Node> open = new ArrayList<>();
+        for (Node node : sorted) {
+            while (!open.isEmpty()) {
+                Node last = open.get(open.size() - 1);
+                if (last.search == node.search
+                    && node.start < last.start + last.nodes) {
+                    break;
+                }
+                open.remove(open.size() - 1);
+            }
+            node.parent = open.isEmpty() ? null : open.get(open.size() - 1);
+            open.add(node);
+        }
+    }
+
+    /** Return the moves leading from the root of NODE's search to it. */
+    private static String path(Node node) {
+        StringBuilder path = new StringBuilder(moveString(node.move));
+        for (Node child = node, parent = node.parent; parent != null;
+             child = parent, parent = parent.parent) {
+            if (parent.ply < child.ply - 1) {
+                path.insert(0, ".. ");
+            }
+            if (parent.ply > 0) {
+                path.insert(0, moveString(parent.move) + " ");
+            }
+        }
+        return path.toString();
+    }
+
+    /** Return the move whose trace code is CODE, as a string. */
+    private static String moveString(int code) {
+        return code < 0 ? "-" : Move.move(code / 128, code % 128).toString();
+    }
+
+    /** Return X as a percentage of Y, or 0 if Y is 0. */
+    private static double percent(long x, long y) {
+        return y == 0 ? 0 : 100.0 * x / y;
+    }
+
+    /** A record of a trace. */
+    private static class Node {
+        /** The search number. */
+        private int search;
+        /** The number of the position. */
+        private long start;
+        /** The number of positions in its subtree. */
+        private long nodes;
+        /** The bounds searched and the value found. */
+        private int alpha, beta, value;
+        /** The move leading to it, and the index of the cutoff move. */
+        private int move, cutoff;
+        /** Its distance from the root and the depth to go. */
+        private int ply, depth;
+        /** Its nearest recorded ancestor, or null. */
+        private Node parent;
+    }
+
+}
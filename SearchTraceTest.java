@@ -0,0 +1,64 @@
+package ataxx;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of search traces and their summaries.
+ *
+ * @author Shrey Malhotra
+ */
+public class SearchTraceTest {
+
+    @Test
+    public void testSummary() throws IOException {
+        Path file = Files.createTempFile("search", ".trace");
+        try {
+            Move a7b6 = Move.move('a', '7', 'b', '6'),
+                a1b2 = Move.move('a', '1', 'b', '2'),
+                g1f2 = Move.move('g', '1', 'f', '2');
+            SearchTrace trace = new SearchTrace(file);
+            int search = trace.nextSearch();
+            ByteBuffer buf = trace.buffer();
+            SearchTrace.record(buf, search, 2, 2, -5, 5, 1, List.of(a7b6),
+                               -1, 1, 1);
+            SearchTrace.record(buf, search, 5, 1, -5, 5, 3,
+                               List.of(g1f2, a1b2), -1, 2, 0);
+            SearchTrace.record(buf, search, 4, 4, -5, 5, -3, List.of(g1f2),
+                               0, 1, 1);
+            SearchTrace.record(buf, search, 1, 8, -9, 9, 3, List.of(),
+                               1, 0, 2);
+            trace.write(buf);
+            trace.close();
+
+            StringWriter text = new StringWriter();
+            PrintWriter out = new PrintWriter(text);
+            SearchTraceSummary.summarize(file, 2, out);
+            out.flush();
+            String[] lines = text.toString().split("\\R");
+            assertEquals("1 searches, 4 records, 8 positions searched",
+                         lines[0]);
+            assertTrue("ply 1 line: " + lines[3],
+                       lines[3].matches(" +1 +2 +6 +3\\.0 +1 +100\\.0% "
+                                        + "+0\\.00"));
+            assertEquals("  search 0 ply 1 depth 1 g1-f2: 4 positions"
+                         + " (50.0% of search); alpha -5 beta 5 value -3,"
+                         + " cutoff by move 0", lines[6]);
+            assertEquals("  search 0 ply 1 depth 1 a7-b6: 2 positions"
+                         + " (25.0% of search); alpha -5 beta 5 value 1,"
+                         + " no cutoff", lines[7]);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+}
@@ -0,0 +1,218 @@
+package ataxx;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static ataxx.PieceColor.*;
+
+/** Generates labeled positions for tuning the evaluation by playing
+ *  randomized AI-versus-AI games on several threads at once.  Each game
+ *  starts from a random block layout and a few random moves, and the
+ *  players occasionally substitute a random move for the one they
+ *  found.  A random sample of the positions searched is written (see
+ *  TrainingData) with its search value and, once the game is over, its
+ *  outcome.  Usage:
+ *  <pre>
+ *      java ataxx.SelfPlay FILE GAMES [THREADS [DEPTH [SEED]]]
+ *  </pre>
+ *  @author Shrey Malhotra
+ */
+class SelfPlay {
+
+    /** Default search depth. */
+    private static final int DEFAULT_DEPTH = 2;
+    /** Probability that a position is written. */
+    private static final double SAMPLE_RATE = 0.5;
+    /** Probability that a player makes a random move. */
+    private static final double RANDOM_MOVE_RATE = 0.05;
+    /** Maximum number of random moves at the start of a game. */
+    private static final int MAX_OPENING_MOVES = 4;
+    /** Maximum number of block placements (each with its reflections). */
+    private static final int MAX_BLOCKS = 4;
+    /** Number of buffers per thread in the writer's pool. */
+    private static final int BLOCKS_PER_THREAD = 4;
+    /** Size of the writer's buffers in bytes. */
+    private static final int BLOCK_SIZE = TrainingData.RECORD_SIZE << 12;
+
+    /** Run the generator as described in the class comment, using ARGS. */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2 || args.length > 5) {
+            System.err.println("Usage: java ataxx.SelfPlay FILE GAMES"
+                               + " [THREADS [DEPTH [SEED]]]");
+            System.exit(1);
+        }
+        int threads = args.length > 2 ? Integer.parseInt(args[2])
+            : Runtime.getRuntime().availableProcessors();
+        int depth = args.length > 3 ? Integer.parseInt(args[3])
+            : DEFAULT_DEPTH;
+        long seed = args.length > 4 ? Long.parseLong(args[4])
+            : System.nanoTime();
+        byte[] header = new byte[TrainingData.HEADER_SIZE];
+        TrainingData.header(header);
+        long start = System.nanoTime();
+        long positions;
+        try (SampleWriter out =
+             new SampleWriter(Paths.get(args[0]), header,
+                              BLOCKS_PER_THREAD * threads, BLOCK_SIZE)) {
+            positions = generate(out, Long.parseLong(args[1]), threads,
+                                 depth, seed);
+        }
+        double secs = (System.nanoTime() - start) * 1e-9;
+        System.out.printf("%d positions in %.1f s (%.0f/s)%n",
+                          positions, secs, positions / secs);
+    }
+
+    /** Play GAMES games on THREADS threads, searching DEPTH plies per move
+     *  and seeding the random choices from SEED, and write their sampled
+     *  positions to OUT.  Return the number of positions written. */
+    static long generate(SampleWriter out, long games, int threads,
+                         int depth, long seed)
+        throws IOException, InterruptedException {
+        AtomicLong gamesLeft = new AtomicLong(games);
+        AtomicLong positions = new AtomicLong();
+        Thread[] workers = new Thread[threads];
+        IOException[] errors = new IOException[threads];
+        for (int i = 0; i < threads; i += 1) {
+            SelfPlay player = new SelfPlay(out, depth, seed + i);
+            final int k = i;
+            workers[i] = new Thread(() -> {
+                try {
+                    positions.addAndGet(player.play(gamesLeft));
+                } catch (IOException excp) {
+                    errors[k] = excp;
+                }
+            }, "self-play-" + i);
+            workers[i].start();
+        }
+        for (int i = 0; i < threads; i += 1) {
+            workers[i].join();
+            if (errors[i] != null) {
+                throw errors[i];
+            }
+        }
+        return positions.get();
+    }
+
+    /** A game player sending its samples to OUT, searching DEPTH plies
+     *  per move, and using SEED for its random choices. */
+    SelfPlay(SampleWriter out, int depth, long seed) {
+        _out = out;
+        _depth = depth;
+        _random = new Random(seed);
+    }
+
+    /** Play games until GAMESLEFT is exhausted, decrementing it for each
+     *  game started, and return the number of positions written. */
+    long play(AtomicLong gamesLeft) throws IOException {
+        long total = 0;
+        SampleWriter.Block block = _out.take();
+        try {
+            while (gamesLeft.getAndDecrement() > 0) {
+                int n = playGame();
+                total += n;
+                int bytes = n * TrainingData.RECORD_SIZE;
+                for (int pos = 0; pos < bytes;) {
+                    if (block.remaining() == 0) {
+                        _out.submit(block);
+                        block = _out.take();
+                    }
+                    int len = Math.min(bytes - pos, block.remaining());
+                    System.arraycopy(_samples, pos, block.data, block.fill,
+                                     len);
+                    block.fill += len;
+                    pos += len;
+                }
+            }
+        } finally {
+            _out.submit(block);
+        }
+        return total;
+    }
+
+    /** Play one game, leaving its sampled positions in _samples, and
+     *  return their number. */
+    private int playGame() {
+        Board board = _board;
+        randomStart(board, _random, _moves);
+
+        int n = 0;
+        while (!board.gameOver()) {
+            Move move = _ai.findMove(board, _depth);
+            if (_random.nextDouble() < SAMPLE_RATE) {
+                int pos = n * TrainingData.RECORD_SIZE;
+                if (pos == _samples.length) {
+                    _samples = Arrays.copyOf(_samples, 2 * pos);
+                }
+                TrainingData.encode(board, _ai.lastValue(), _samples, pos);
+                n += 1;
+            }
+            if (_random.nextDouble() < RANDOM_MOVE_RATE) {
+                move = randomMove(board, _random, _moves);
+            }
+            board.makeMove(move);
+        }
+
+        int red = board.numPieces(RED), blue = board.numPieces(BLUE);
+        for (int i = 0; i < n; i += 1) {
+            int pos = i * TrainingData.RECORD_SIZE;
+            int mine = TrainingData.blueToMove(_samples, pos) ? blue : red,
+                theirs = red + blue - mine;
+            TrainingData.setOutcome(_samples, pos,
+                                    mine > theirs ? TrainingData.WIN
+                                    : mine < theirs ? TrainingData.LOSS
+                                    : TrainingData.DRAW);
+        }
+        return n;
+    }
+
+    /** Clear BOARD and set up a random block layout and a few random
+     *  moves on it, making choices with RANDOM and using MOVES (of length
+     *  Board.MAX_MOVES) as scratch space. */
+    static void randomStart(Board board, Random random, Move[] moves) {
+        randomBlocks(board, random);
+        for (int k = random.nextInt(MAX_OPENING_MOVES + 1);
+             k > 0 && !board.gameOver(); k -= 1) {
+            board.makeMove(randomMove(board, random, moves));
+        }
+    }
+
+    /** Clear BOARD and set up a random block layout on it, making
+     *  choices with RANDOM. */
+    static void randomBlocks(Board board, Random random) {
+        board.clear();
+        for (int k = random.nextInt(MAX_BLOCKS + 1); k > 0; k -= 1) {
+            char c = (char) ('a' + random.nextInt(Board.SIDE)),
+                r = (char) ('1' + random.nextInt(Board.SIDE));
+            if (board.legalBlock(c, r)) {
+                board.setBlock(c, r);
+            }
+        }
+    }
+
+    /** Return a legal move (possibly a pass) on BOARD chosen with
+     *  RANDOM, using MOVES (of length Board.MAX_MOVES) as scratch
+     *  space. */
+    static Move randomMove(Board board, Random random, Move[] moves) {
+        int n = board.legalMoves(moves);
+        return n == 0 ? Move.pass() : moves[random.nextInt(n)];
+    }
+
+    /** Destination of my samples. */
+    private final SampleWriter _out;
+    /** Search depth. */
+    private final int _depth;
+    /** Source of random choices. */
+    private final Random _random;
+    /** The board on which I play. */
+    private final Board _board = new Board();
+    /** The engine playing both sides. */
+    private final AI _ai = new AI(RED);
+    /** Scratch move list. */
+    private final Move[] _moves = new Move[Board.MAX_MOVES];
+    /** Records of the positions sampled from the current game. */
+    private byte[] _samples = new byte[TrainingData.RECORD_SIZE << 8];
+
+}
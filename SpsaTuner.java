@@ -0,0 +1,214 @@
+package ataxx;
+
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Random;
+
+import static ataxx.PieceColor.*;
+
+/** Tunes the search parameters (see SearchParams) by simultaneous
+ *  perturbation stochastic approximation (SPSA).  Each iteration
+ *  perturbs every tuned parameter up or down at random by its current
+ *  perturbation size, plays a pair of games (one with each color)
+ *  between the raised and the lowered variants from the same random
+ *  start, and moves the parameters toward the winner.  Iterations run
+ *  concurrently on several threads and share one parameter vector.
+ *  Usage:
+ *  <pre>
+ *      java ataxx.SpsaTuner OUT LOG ITERATIONS [THREADS [DEPTH [SEED]]]
+ *  </pre>
+ *  Games are searched to depth DEPTH.  The tuned parameters start from
+ *  SearchParams.STANDARD; the result goes to OUT, and the parameter
+ *  trajectory to LOG as comma-separated values.
+ *  @author Shrey Malhotra
+ */
+class SpsaTuner {
+
+    /** The tuned parameters. */
+    private static final int[] TUNED = {
+        SearchParams.LMR_MOVES, SearchParams.LMR_REDUCTION,
+        SearchParams.CAPTURE_WEIGHT, SearchParams.JUMP_PENALTY
+    };
+    /** Initial perturbation size of each tuned parameter. */
+    private static final double[] PERTURBATION = { 3, 1, 3, 3 };
+    /** Decay exponents of the step and perturbation sizes. */
+    private static final double ALPHA = 0.602, GAMMA = 0.101;
+    /** Size of the first step, in multiples of the perturbation size. */
+    private static final double FIRST_STEP = 0.5;
+    /** Stability constant, as a fraction of the iteration count. */
+    private static final double STABILITY = 0.1;
+    /** Default search depth of the games. */
+    private static final int DEFAULT_DEPTH = 3;
+    /** Number of iterations between log entries. */
+    private static final int LOG_INTERVAL = 10;
+
+    /** Run the tuner as described in the class comment, using ARGS. */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3 || args.length > 6) {
+            System.err.println("Usage: java ataxx.SpsaTuner OUT LOG"
+                               + " ITERATIONS [THREADS [DEPTH [SEED]]]");
+            System.exit(1);
+        }
+        int iterations = Integer.parseInt(args[2]);
+        int threads = args.length > 3 ? Integer.parseInt(args[3])
+            : Runtime.getRuntime().availableProcessors();
+        int depth = args.length > 4 ? Integer.parseInt(args[4])
+            : DEFAULT_DEPTH;
+        long seed = args.length > 5 ? Long.parseLong(args[5])
+            : System.nanoTime();
+        try (PrintWriter log =
+             new PrintWriter(Files.newBufferedWriter(Paths.get(args[1])))) {
+            SpsaTuner tuner = new SpsaTuner(SearchParams.STANDARD,
+                                            iterations, depth, log);
+            tuner.run(threads, seed);
+            tuner.result().save(Paths.get(args[0]),
+                                String.format("SPSA, %d iterations at"
+                                              + " depth %d",
+                                              iterations, depth));
+        }
+    }
+
+    /** A tuner starting from START that performs ITERATIONS iterations
+     *  with games searched to DEPTH, logging its progress to LOG. */
+    SpsaTuner(SearchParams start, int iterations, int depth,
+              PrintWriter log) {
+        _start = start;
+        _iterations = iterations;
+        _depth = depth;
+        _log = log;
+        _theta = new double[TUNED.length];
+        for (int i = 0; i < TUNED.length; i += 1) {
+            _theta[i] = start.get(TUNED[i]);
+        }
+        _stability = STABILITY * iterations;
+        log.print("iteration");
+        for (int p : TUNED) {
+            log.print("," + SearchParams.NAMES[p]);
+        }
+        log.println();
+    }
+
+    /** Perform all iterations on THREADS threads, using SEED to seed
+     *  their random choices. */
+    void run(int threads, long seed) throws InterruptedException {
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i += 1) {
+            Random random = new Random(seed + i);
+            workers[i] = new Thread(() -> work(random), "spsa-" + i);
+            workers[i].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        if (_done % LOG_INTERVAL != 0) {
+            logState(_done);
+        }
+    }
+
+    /** Return the current parameter values. */
+    synchronized SearchParams result() {
+        int[] values = _start.values();
+        for (int i = 0; i < TUNED.length; i += 1) {
+            values[TUNED[i]] = (int) Math.round(_theta[i]);
+        }
+        return new SearchParams(values);
+    }
+
+    /** Body of a worker thread, making random choices with RANDOM. */
+    private void work(Random random) {
+        Board board = new Board();
+        Move[] scratch = new Move[Board.MAX_MOVES];
+        double[] c = new double[TUNED.length];
+        int[] delta = new int[TUNED.length];
+        double[] theta = new double[TUNED.length];
+        while (true) {
+            int k;
+            synchronized (this) {
+                if (_started == _iterations) {
+                    return;
+                }
+                k = _started;
+                _started += 1;
+                System.arraycopy(_theta, 0, theta, 0, theta.length);
+            }
+            int[] plus = _start.values(), minus = _start.values();
+            for (int i = 0; i < TUNED.length; i += 1) {
+                c[i] = PERTURBATION[i] / Math.pow(k + 1, GAMMA);
+                delta[i] = random.nextBoolean() ? 1 : -1;
+                plus[TUNED[i]] = (int) Math.round(theta[i] + c[i] * delta[i]);
+                minus[TUNED[i]] =
+                    (int) Math.round(theta[i] - c[i] * delta[i]);
+            }
+            AI up = new AI(RED, Evaluator.STANDARD, new SearchParams(plus)),
+                down = new AI(RED, Evaluator.STANDARD,
+                              new SearchParams(minus));
+            long gameSeed = random.nextLong();
+            int r = play(board, up, down, gameSeed, scratch)
+                - play(board, down, up, gameSeed, scratch);
+            update(k, r, c, delta);
+        }
+    }
+
+    /** Apply the result R (the excess of wins over losses of the raised
+     *  variant) of iteration K, whose perturbation sizes were C and whose
+     *  perturbation directions were DELTA. */
+    private synchronized void update(int k, int r, double[] c, int[] delta) {
+        double a = Math.pow(_stability + 1, ALPHA)
+            / Math.pow(_stability + k + 1, ALPHA);
+        for (int i = 0; i < TUNED.length; i += 1) {
+            double step = FIRST_STEP * PERTURBATION[i] * PERTURBATION[i]
+                * a * r / (2 * c[i] * delta[i]);
+            _theta[i] = Math.max(SearchParams.MIN[TUNED[i]],
+                                 Math.min(SearchParams.MAX[TUNED[i]],
+                                          _theta[i] + step));
+        }
+        _done += 1;
+        if (_done % LOG_INTERVAL == 0) {
+            logState(_done);
+        }
+    }
+
+    /** Write the current parameter vector to the log as of iteration
+     *  K. */
+    private synchronized void logState(int k) {
+        _log.print(k);
+        for (double t : _theta) {
+            _log.printf(",%.3f", t);
+        }
+        _log.println();
+        _log.flush();
+    }
+
+    /** Play a game on BOARD from a random start chosen using SEED, with
+     *  RED playing red and BLUE playing blue, using SCRATCH (of length
+     *  Board.MAX_MOVES) as scratch space.  Return 1 if red wins, -1 if
+     *  blue wins, and 0 for a draw. */
+    private int play(Board board, AI red, AI blue, long seed,
+                     Move[] scratch) {
+        SelfPlay.randomStart(board, new Random(seed), scratch);
+        while (!board.gameOver()) {
+            AI player = board.whoseMove() == RED ? red : blue;
+            board.makeMove(player.findMove(board, _depth));
+        }
+        return Integer.signum(board.numPieces(RED) - board.numPieces(BLUE));
+    }
+
+    /** Starting parameters, which supply the untuned parameters. */
+    private final SearchParams _start;
+    /** Number of iterations to perform. */
+    private final int _iterations;
+    /** Search depth of games. */
+    private final int _depth;
+    /** Progress log. */
+    private final PrintWriter _log;
+    /** Stability constant of the step-size sequence. */
+    private final double _stability;
+    /** Current values of the tuned parameters. */
+    private final double[] _theta;
+    /** Number of iterations begun. */
+    private int _started;
+    /** Number of iterations completed. */
+    private int _done;
+
+}
@@ -0,0 +1,214 @@
+package ataxx;
+
+/**
+ * The rules, position index, and file layout of the tablebases for
+ * Ataxx on small square boards (see TablebaseGenerator and
+ * TablebaseProber).  The board is SIDE x SIDE with no blocks, and its
+ * squares are numbered in row-major order from a1.  A position is given
+ * by two masks of squares: the pieces of the side to move ("mine") and
+ * those of its opponent ("theirs"), so that a position and its color
+ * reversal share one entry.
+ * <p>
+ * The game is played as on the full board, except that there is no
+ * limit on consecutive jumps; a game that goes on forever is a draw.
+ * The value of a position is WIN, LOSS, or DRAW for the side to move.
+ * <p>
+ * The index of a position is the base-3 number whose digit for square
+ * S is 0 if S is empty, 1 if it holds one of mine, and 2 if it holds one
+ * of theirs, square 0 being the least significant digit; the SIDE *
+ * SIDE squares thus give a perfect index of size 3 ** (SIDE * SIDE).  A
+ * tablebase file consists of a HEADER_SIZE-byte header (MAGIC, VERSION,
+ * and SIDE, big-endian) followed by the value of each index in turn, two
+ * bits apiece, four to a byte, the lowest index in the low-order bits.
+ *
+ * @author Shrey Malhotra
+ */
+class Tablebase {
+
+    /** Identifies a tablebase file ("ATTB"). */
+    static final int MAGIC = 0x41545442;
+    /** Current format version. */
+    static final short VERSION = 1;
+    /** Size of the file header in bytes. */
+    static final int HEADER_SIZE = 8;
+    /** Values of positions. */
+    static final int DRAW = 0, WIN = 1, LOSS = 2;
+    /** Least and greatest supported board sizes. */
+    static final int MIN_SIDE = 2, MAX_SIDE = 5;
+    /** Number of squares indexed together through INDEX_CHUNK. */
+    private static final int CHUNK = 8;
+    /** 3 ** CHUNK. */
+    private static final int CHUNK_SIZE = 6561;
+
+    /** Rules and index for SIDE x SIDE boards. */
+    Tablebase(int side) {
+        if (side < MIN_SIDE || side > MAX_SIDE) {
+            throw new IllegalArgumentException("unsupported board size");
+        }
+        _side = side;
+        _squares = side * side;
+        _full = (1L << _squares) - 1;
+        long size = 1;
+        _powers = new long[_squares + 1];
+        for (int s = 0; s <= _squares; s += 1) {
+            _powers[s] = size;
+            size *= 3;
+        }
+        _adjacent = new long[_squares];
+        _ring = new long[_squares];
+        for (int s = 0; s < _squares; s += 1) {
+            for (int t = 0; t < _squares; t += 1) {
+                int d = Math.max(Math.abs(s / side - t / side),
+                                 Math.abs(s % side - t % side));
+                if (d == 1) {
+                    _adjacent[s] |= 1L << t;
+                } else if (d == 2) {
+                    _ring[s] |= 1L << t;
+                }
+            }
+        }
+    }
+
+    /** Return the number of squares on a side. */
+    int side() {
+        return _side;
+    }
+
+    /** Return the number of positions (indices). */
+    long size() {
+        return _powers[_squares];
+    }
+
+    /** Return the mask of the squares adjacent to square S. */
+    long adjacent(int s) {
+        return _adjacent[s];
+    }
+
+    /** Return the mask of the squares two rows or columns from S. */
+    long ring(int s) {
+        return _ring[s];
+    }
+
+    /** Return the mask of empty squares given pieces MINE and THEIRS. */
+    long empty(long mine, long theirs) {
+        return ~(mine | theirs) & _full;
+    }
+
+    /** Return true iff the side with pieces MINE can move when the empty
+     *  squares are EMPTY. */
+    boolean canMove(long mine, long empty) {
+        for (long p = mine; p != 0; p &= p - 1) {
+            int s = Long.numberOfTrailingZeros(p);
+            if (((_adjacent[s] | _ring[s]) & empty) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Return the index of the position with pieces MINE and THEIRS. */
+    long index(long mine, long theirs) {
+        long index = 0;
+        for (int s = 0; s < _squares; s += CHUNK) {
+            int key = (int) ((mine >>> s) & 0xFF)
+                | (int) ((theirs >>> s) & 0xFF) << CHUNK;
+            index += INDEX_CHUNK[key] * _powers[s];
+        }
+        return index;
+    }
+
+    /** Return the pieces of the side to move in the position with index
+     *  INDEX. */
+    long mine(long index) {
+        long mine = 0;
+        for (int s = 0; s < _squares; s += CHUNK) {
+            mine |= (long) CHUNK_MINE[(int) (index % CHUNK_SIZE)] << s;
+            index /= CHUNK_SIZE;
+        }
+        return mine;
+    }
+
+    /** Return the pieces of the opponent of the side to move in the
+     *  position with index INDEX. */
+    long theirs(long index) {
+        long theirs = 0;
+        for (int s = 0; s < _squares; s += CHUNK) {
+            theirs |= (long) CHUNK_THEIRS[(int) (index % CHUNK_SIZE)] << s;
+            index /= CHUNK_SIZE;
+        }
+        return theirs;
+    }
+
+    /** Return the position given in the notation of Board.position
+     *  (rows from the top separated by '/', then r or b for the side to
+     *  move; no blocks or jump count) as {mine, theirs}. */
+    long[] parse(String position) {
+        String[] parts = position.trim().split("\\s+");
+        String[] rows = parts[0].split("/");
+        if (parts.length != 2 || rows.length != _side
+            || !parts[1].matches("[rb]")) {
+            throw GameException.error("bad position: %s", position);
+        }
+        long red = 0, blue = 0;
+        for (int r = 0; r < _side; r += 1) {
+            int s = (_side - 1 - r) * _side, c = 0;
+            for (char ch : rows[r].toCharArray()) {
+                if (ch >= '1' && ch <= '9') {
+                    c += ch - '0';
+                    continue;
+                } else if (c < _side && ch == 'r') {
+                    red |= 1L << (s + c);
+                } else if (c < _side && ch == 'b') {
+                    blue |= 1L << (s + c);
+                } else {
+                    throw GameException.error("bad position: %s", position);
+                }
+                c += 1;
+            }
+            if (c != _side) {
+                throw GameException.error("bad position: %s", position);
+            }
+        }
+        return parts[1].equals("r") ? new long[] { red, blue }
+            : new long[] { blue, red };
+    }
+
+    /** INDEX_CHUNK[M | T << CHUNK] is the index of the CHUNK-square
+     *  position with pieces M and T. */
+    private static final long[] INDEX_CHUNK = new long[1 << (2 * CHUNK)];
+    /** CHUNK_MINE[K] and CHUNK_THEIRS[K] are the pieces of the side to
+     *  move and of its opponent in the CHUNK-square position with index
+     *  K. */
+    private static final int[] CHUNK_MINE = new int[CHUNK_SIZE],
+        CHUNK_THEIRS = new int[CHUNK_SIZE];
+
+    static {
+        for (int k = 0; k < CHUNK_SIZE; k += 1) {
+            int m = 0, t = 0;
+            for (int s = 0, x = k; s < CHUNK; s += 1, x /= 3) {
+                if (x % 3 == 1) {
+                    m |= 1 << s;
+                } else if (x % 3 == 2) {
+                    t |= 1 << s;
+                }
+            }
+            CHUNK_MINE[k] = m;
+            CHUNK_THEIRS[k] = t;
+            INDEX_CHUNK[m | t << CHUNK] = k;
+        }
+    }
+
+    /** Number of squares on a side. */
+    private final int _side;
+    /** Number of squares. */
+    private final int _squares;
+    /** Mask of all squares. */
+    private final long _full;
+    /** _powers[K] is 3 ** K. */
+    private final long[] _powers;
+    /** Masks of adjacent squares. */
+    private final long[] _adjacent;
+    /** Masks of squares at distance two. */
+    private final long[] _ring;
+
+}
@@ -0,0 +1,233 @@
+package ataxx;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static ataxx.Tablebase.*;
+
+/**
+ * Generates the tablebase for one small board size (see Tablebase) by
+ * retrograde analysis.  The first pass values the finished games.  Each
+ * later pass revisits every unvalued position and values it as a WIN if
+ * some move leads to a LOSS for the opponent, and as a LOSS if every move
+ * leads to a WIN for the opponent, until a pass values nothing new; the
+ * positions still unvalued are DRAWs.  Each pass divides the index range
+ * among several threads.  Since a position's value, once set, never
+ * changes, a thread that reads a neighbor's value from this pass or the
+ * last one is right either way.  Usage:
+ * <pre>
+ *     java ataxx.TablebaseGenerator SIDE FILE [THREADS]
+ * </pre>
+ * Generation holds a byte per position in memory, so the largest board
+ * it can handle is 4 x 4 (3 ** 16 positions).
+ *
+ * @author Shrey Malhotra
+ */
+class TablebaseGenerator {
+
+    /** Value of a position not yet valued. */
+    private static final byte UNKNOWN = 0;
+    /** Working value of a finished game that is drawn. */
+    private static final byte FINAL_DRAW = 3;
+    /** Number of positions handed to a thread at a time. */
+    private static final int CHUNK = 1 << 16;
+    /** Size of the output buffer in bytes. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** Run the generator as described in the class comment, using
+     *  ARGS. */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2 || args.length > 3) {
+            System.err.println("Usage: java ataxx.TablebaseGenerator SIDE"
+                               + " FILE [THREADS]");
+            System.exit(1);
+        }
+        int threads = args.length > 2 ? Integer.parseInt(args[2])
+            : Runtime.getRuntime().availableProcessors();
+        TablebaseGenerator gen =
+            new TablebaseGenerator(new Tablebase(Integer.parseInt(args[0])));
+        long start = System.nanoTime();
+        int passes = gen.generate(threads);
+        gen.write(Paths.get(args[1]));
+        System.out.printf("%d positions, %d passes in %.1f s: %d wins,"
+                          + " %d losses, %d draws%n", gen._values.length,
+                          passes, (System.nanoTime() - start) * 1e-9,
+                          gen.count(WIN), gen.count(LOSS),
+                          gen.count(DRAW));
+    }
+
+    /** A generator for the positions of TB. */
+    TablebaseGenerator(Tablebase tb) {
+        if (tb.size() > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("board too large to"
+                                               + " generate");
+        }
+        _tb = tb;
+        _values = new byte[(int) tb.size()];
+    }
+
+    /** Value every position using THREADS threads, and return the number
+     *  of passes made. */
+    int generate(int threads) throws InterruptedException {
+        int passes = 0;
+        long valued;
+        do {
+            valued = pass(passes == 0, threads);
+            passes += 1;
+        } while (valued > 0);
+        return passes;
+    }
+
+    /** Return the value (Tablebase.WIN, etc.) of the position with index
+     *  INDEX, after generate. */
+    int value(long index) {
+        byte v = _values[(int) index];
+        return v == WIN || v == LOSS ? v : DRAW;
+    }
+
+    /** Return the number of positions with value VALUE, after
+     *  generate. */
+    long count(int value) {
+        long n = 0;
+        for (long k = 0; k < _values.length; k += 1) {
+            if (value(k) == value) {
+                n += 1;
+            }
+        }
+        return n;
+    }
+
+    /** Write the tablebase to FILE, after generate. */
+    void write(Path file) throws IOException {
+        try (FileChannel out = FileChannel.open(file, WRITE, CREATE,
+                                                TRUNCATE_EXISTING)) {
+            ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+            buf.putInt(MAGIC).putShort(VERSION).putShort((short) _tb.side());
+            for (long k = 0; k < _values.length; k += 4) {
+                int b = 0;
+                for (int i = 0; i < 4 && k + i < _values.length; i += 1) {
+                    b |= value(k + i) << (2 * i);
+                }
+                buf.put((byte) b);
+                if (!buf.hasRemaining()) {
+                    buf.flip();
+                    while (buf.hasRemaining()) {
+                        out.write(buf);
+                    }
+                    buf.clear();
+                }
+            }
+            buf.flip();
+            while (buf.hasRemaining()) {
+                out.write(buf);
+            }
+        }
+    }
+
+    /** Perform one pass on THREADS threads, valuing finished games if
+     *  FIRST and otherwise positions decided by their successors.
+     *  Return the number of positions valued. */
+    private long pass(boolean first, int threads)
+        throws InterruptedException {
+        AtomicLong next = new AtomicLong(), valued = new AtomicLong();
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i += 1) {
+            workers[i] = new Thread(() -> {
+                long n = 0;
+                while (true) {
+                    long lo = next.getAndAdd(CHUNK);
+                    if (lo >= _values.length) {
+                        break;
+                    }
+                    long hi = Math.min(_values.length, lo + CHUNK);
+                    for (long k = lo; k < hi; k += 1) {
+                        if (_values[(int) k] == UNKNOWN) {
+                            byte v = first ? finalValue(k) : backedUp(k);
+                            if (v != UNKNOWN) {
+                                _values[(int) k] = v;
+                                n += 1;
+                            }
+                        }
+                    }
+                }
+                valued.addAndGet(n);
+            }, "tablebase-" + i);
+            workers[i].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return valued.get();
+    }
+
+    /** Return the value of the position with index K if the game is
+     *  over, and otherwise UNKNOWN. */
+    private byte finalValue(long k) {
+        long mine = _tb.mine(k), theirs = _tb.theirs(k),
+            empty = _tb.empty(mine, theirs);
+        if (mine != 0 && theirs != 0
+            && (_tb.canMove(mine, empty) || _tb.canMove(theirs, empty))) {
+            return UNKNOWN;
+        }
+        int diff = Long.bitCount(mine) - Long.bitCount(theirs);
+        return diff > 0 ? WIN : diff < 0 ? LOSS : FINAL_DRAW;
+    }
+
+    /** Return the value of the unfinished position with index K as
+     *  determined by the current values of its successors, or UNKNOWN if
+     *  they do not yet determine it. */
+    private byte backedUp(long k) {
+        long mine = _tb.mine(k), theirs = _tb.theirs(k),
+            empty = _tb.empty(mine, theirs);
+        if (!_tb.canMove(mine, empty)) {
+            byte v = _values[(int) _tb.index(theirs, mine)];
+            return v == LOSS ? WIN : v == WIN ? LOSS : UNKNOWN;
+        }
+        boolean allWin = true;
+        long targets = 0;
+        for (long p = mine; p != 0; p &= p - 1) {
+            int from = Long.numberOfTrailingZeros(p);
+            targets |= _tb.adjacent(from) & empty;
+            for (long x = _tb.ring(from) & empty; x != 0; x &= x - 1) {
+                int to = Long.numberOfTrailingZeros(x);
+                byte v = successor(mine & ~(1L << from), theirs, to);
+                if (v == LOSS) {
+                    return WIN;
+                }
+                allWin &= v == WIN;
+            }
+        }
+        for (long x = targets; x != 0; x &= x - 1) {
+            byte v = successor(mine, theirs, Long.numberOfTrailingZeros(x));
+            if (v == LOSS) {
+                return WIN;
+            }
+            allWin &= v == WIN;
+        }
+        return allWin ? LOSS : UNKNOWN;
+    }
+
+    /** Return the current working value, for its side to move, of the
+     *  position after the side with pieces MINE moves (from a square
+     *  already removed from MINE, if a jump) to square TO against
+     *  THEIRS. */
+    private byte successor(long mine, long theirs, int to) {
+        long flipped = _tb.adjacent(to) & theirs;
+        return _values[(int) _tb.index(theirs & ~flipped,
+                                       mine | flipped | (1L << to))];
+    }
+
+    /** Rules and index. */
+    private final Tablebase _tb;
+    /** Working value of each position: UNKNOWN, WIN, LOSS, or
+     *  FINAL_DRAW. */
+    private final byte[] _values;
+
+}
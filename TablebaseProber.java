@@ -0,0 +1,145 @@
+package ataxx;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.file.StandardOpenOption.READ;
+import static ataxx.Tablebase.*;
+
+/**
+ * Looks up positions in a tablebase file (see Tablebase), which is
+ * memory-mapped, so that a probe costs an index computation and one
+ * byte read.  Files may exceed the 2GB limit of a single mapping, so the
+ * file is mapped in SEGMENT-byte windows.  As a command,
+ * <pre>
+ *     java ataxx.TablebaseProber FILE POSITION
+ * </pre>
+ * prints the value of POSITION (see Tablebase.parse) and of each of its
+ * moves.
+ *
+ * @author Shrey Malhotra
+ */
+class TablebaseProber implements Closeable {
+
+    /** Size of the mapped windows. */
+    private static final long SEGMENT = 1L << 30;
+    /** Names of the values, indexed by value. */
+    private static final String[] NAMES = { "draw", "win", "loss" };
+
+    /** Run the prober as described in the class comment, using ARGS. */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("Usage: java ataxx.TablebaseProber FILE"
+                               + " POSITION");
+            System.exit(1);
+        }
+        try (TablebaseProber tb = new TablebaseProber(Paths.get(args[0]))) {
+            long[] pos = tb.rules().parse(args[1] + " " + args[2]);
+            long mine = pos[0], theirs = pos[1];
+            System.out.println(NAMES[tb.probe(mine, theirs)]);
+            Tablebase rules = tb.rules();
+            long empty = rules.empty(mine, theirs);
+            int side = rules.side();
+            for (int to = 0; to < side * side; to += 1) {
+                if ((empty >>> to & 1) == 0) {
+                    continue;
+                }
+                long flipped = rules.adjacent(to) & theirs;
+                long sources = rules.adjacent(to) & mine;
+                if (sources != 0) {
+                    int v = tb.probe(theirs & ~flipped,
+                                     mine | flipped | (1L << to));
+                    printMove(Long.numberOfTrailingZeros(sources), to, side,
+                              v);
+                }
+                for (long p = rules.ring(to) & mine; p != 0; p &= p - 1) {
+                    int from = Long.numberOfTrailingZeros(p);
+                    int v = tb.probe(theirs & ~flipped,
+                                     mine & ~(1L << from) | flipped
+                                     | (1L << to));
+                    printMove(from, to, side, v);
+                }
+            }
+        }
+    }
+
+    /** Print the move FROM-TO on a board with SIDE columns, whose
+     *  successor has value V for the opponent. */
+    private static void printMove(int from, int to, int side, int v) {
+        System.out.printf("  %s-%s: %s%n", square(from, side),
+                          square(to, side),
+                          NAMES[v == WIN ? LOSS : v == LOSS ? WIN : DRAW]);
+    }
+
+    /** Return the name of square S on a board with SIDE columns. */
+    private static String square(int s, int side) {
+        return "" + (char) ('a' + s % side) + (char) ('1' + s / side);
+    }
+
+    /** A prober on the tablebase FILE. */
+    TablebaseProber(Path file) throws IOException {
+        _channel = FileChannel.open(file, READ);
+        long size = _channel.size();
+        try {
+            MappedByteBuffer head =
+                _channel.map(READ_ONLY, 0, Math.min(size, HEADER_SIZE));
+            if (size < HEADER_SIZE || head.getInt(0) != MAGIC
+                || head.getShort(4) != VERSION) {
+                throw new IOException("not a tablebase");
+            }
+            _rules = new Tablebase(head.getShort(6));
+            if (size != HEADER_SIZE + (_rules.size() + 3) / 4) {
+                throw new IOException("truncated tablebase");
+            }
+        } catch (IOException | IllegalArgumentException excp) {
+            _channel.close();
+            throw excp instanceof IOException ? (IOException) excp
+                : new IOException("bad tablebase: " + excp.getMessage());
+        }
+        long data = size - HEADER_SIZE;
+        _windows = new MappedByteBuffer[(int) ((data + SEGMENT - 1)
+                                               / SEGMENT)];
+        for (int k = 0; k < _windows.length; k += 1) {
+            long start = k * SEGMENT;
+            _windows[k] = _channel.map(READ_ONLY, HEADER_SIZE + start,
+                                       Math.min(SEGMENT, data - start));
+        }
+    }
+
+    /** Return the rules and index of my board size. */
+    Tablebase rules() {
+        return _rules;
+    }
+
+    /** Return the value (Tablebase.WIN, LOSS, or DRAW) for the side to
+     *  move of the position with its pieces MINE and its opponent's
+     *  THEIRS. */
+    int probe(long mine, long theirs) {
+        return probe(_rules.index(mine, theirs));
+    }
+
+    /** Return the value of the position with index INDEX. */
+    int probe(long index) {
+        long pos = index >>> 2;
+        int b = _windows[(int) (pos / SEGMENT)].get((int) (pos % SEGMENT));
+        return (b >>> (2 * (int) (index & 3))) & 3;
+    }
+
+    @Override
+    public void close() throws IOException {
+        _channel.close();
+    }
+
+    /** The tablebase file. */
+    private final FileChannel _channel;
+    /** Rules and index. */
+    private final Tablebase _rules;
+    /** Mapped windows on the values. */
+    private final MappedByteBuffer[] _windows;
+
+}
@@ -0,0 +1,91 @@
+package ataxx;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+import static ataxx.Tablebase.*;
+
+/**
+ * Tests of the small-board tablebases.
+ *
+ * @author Shrey Malhotra
+ */
+public class TablebaseTest {
+
+    @Test
+    public void testIndex() {
+        Tablebase tb = new Tablebase(3);
+        for (long k = 0; k < tb.size(); k += 1) {
+            assertEquals("bad index", k, tb.index(tb.mine(k), tb.theirs(k)));
+        }
+        long[] pos = tb.parse("r1b/3/b1r b");
+        assertEquals("bad mine", 1L | 1L << 8, pos[0]);
+        assertEquals("bad theirs", 1L << 2 | 1L << 6, pos[1]);
+    }
+
+    @Test
+    public void testGenerateAndProbe() throws Exception {
+        Tablebase tb = new Tablebase(3);
+        TablebaseGenerator gen = new TablebaseGenerator(tb);
+        gen.generate(2);
+        Path file = Files.createTempFile("tablebase", ".bin");
+        try {
+            gen.write(file);
+            try (TablebaseProber prober = new TablebaseProber(file)) {
+                for (long k = 0; k < tb.size(); k += 1) {
+                    assertEquals("bad probe", gen.value(k), prober.probe(k));
+                    checkConsistent(tb, prober, k);
+                }
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /** Check that the value of position K in PROBER agrees with those of
+     *  its successors, where TB gives the rules. */
+    private void checkConsistent(Tablebase tb, TablebaseProber prober,
+                                 long k) throws IOException {
+        long mine = tb.mine(k), theirs = tb.theirs(k),
+            empty = tb.empty(mine, theirs);
+        if (mine == 0 || theirs == 0
+            || !tb.canMove(mine, empty) && !tb.canMove(theirs, empty)) {
+            int diff = Long.bitCount(mine) - Long.bitCount(theirs);
+            assertEquals("bad final value",
+                         diff > 0 ? WIN : diff < 0 ? LOSS : DRAW,
+                         prober.probe(k));
+            return;
+        }
+        boolean anyLoss = false, allWin = true;
+        if (!tb.canMove(mine, empty)) {
+            int v = prober.probe(theirs, mine);
+            anyLoss = v == LOSS;
+            allWin = v == WIN;
+        }
+        for (long x = tb.canMove(mine, empty) ? empty : 0; x != 0;
+             x &= x - 1) {
+            int to = Long.numberOfTrailingZeros(x);
+            long flipped = tb.adjacent(to) & theirs,
+                after = theirs & ~flipped;
+            if ((tb.adjacent(to) & mine) != 0) {
+                int v = prober.probe(after, mine | flipped | 1L << to);
+                anyLoss |= v == LOSS;
+                allWin &= v == WIN;
+            }
+            for (long p = tb.ring(to) & mine; p != 0; p &= p - 1) {
+                int from = Long.numberOfTrailingZeros(p);
+                int v = prober.probe(after, mine & ~(1L << from) | flipped
+                                     | 1L << to);
+                anyLoss |= v == LOSS;
+                allWin &= v == WIN;
+            }
+        }
+        int expected = anyLoss ? WIN : allWin ? LOSS : DRAW;
+        assertEquals("inconsistent value", expected, prober.probe(k));
+    }
+
+}
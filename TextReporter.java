@@ -1,27 +1,49 @@
 package ataxx;
 
-/** A Reporter that uses System.out for messages.
+import java.io.PrintWriter;
+
+/** A Reporter that uses System.out, or another PrintWriter, for
+ *  messages.
  *  @author P. N. Hilfinger
  */
 class TextReporter implements Reporter {
 
+    /** A reporter on System.out. */
+    TextReporter() {
+        this(new PrintWriter(System.out, true));
+    }
+
+    /** A reporter on OUT, which should flush its output at the end of
+     *  each line. */
+    TextReporter(PrintWriter out) {
+        _out = out;
+    }
+
     @Override
     public void errMsg(String format, Object... args) {
-        System.out.printf(format, args);
-        System.out.println();
+        _out.printf(format, args);
+        _out.println();
     }
 
     @Override
     public void outcomeMsg(String format, Object... args) {
-        System.out.printf(format, args);
-        System.out.println();
+        _out.printf(format, args);
+        _out.println();
     }
 
     @Override
     public void moveMsg(String format, Object... args) {
-        System.out.printf(format, args);
-        System.out.println();
+        _out.printf(format, args);
+        _out.println();
     }
 
-}
+    @Override
+    public void infoMsg(String format, Object... args) {
+        _out.printf(format, args);
+        _out.println();
+    }
 
+    /** Destination of messages. */
+    private final PrintWriter _out;
+
+}
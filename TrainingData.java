@@ -0,0 +1,117 @@
+package ataxx;
+
+import static ataxx.PieceColor.BLUE;
+
+/**
+ * Layout of labeled-position (training data) files.  A file consists of
+ * a HEADER_SIZE-byte header (the MAGIC number, the VERSION, and
+ * RECORD_SIZE) followed by fixed-size records, one per position:
+ * <ul>
+ * <li> Bytes 0-12: the 49 squares in row-major order from a1, two bits
+ *      each, least significant bits first, each holding the ordinal of
+ *      the square's PieceColor.
+ * <li> Byte 13: the side to move (bit 0, set for blue), the outcome of
+ *      the game for the side to move (bits 1-2: LOSS, DRAW, or WIN), and
+ *      the jump count (bits 3-7).
+ * <li> Bytes 14-15: the search value of the position for the side to
+ *      move, limited to +-MAX_SCORE (big-endian).
+ * </ul>
+ *
+ * @author Shrey Malhotra
+ */
+class TrainingData {
+
+    /** Identifies a training data file ("ATXT"). */
+    static final int MAGIC = 0x41545854;
+    /** Current format version. */
+    static final short VERSION = 1;
+    /** Size of the file header in bytes. */
+    static final int HEADER_SIZE = 8;
+    /** Size of one record in bytes. */
+    static final int RECORD_SIZE = 16;
+    /** Offset of the flags byte within a record. */
+    static final int FLAGS = 13;
+    /** Offset of the search value within a record. */
+    static final int SCORE = 14;
+    /** Largest magnitude of a stored search value. */
+    static final int MAX_SCORE = Short.MAX_VALUE;
+
+    /** Outcome of a lost game. */
+    static final int LOSS = 0;
+    /** Outcome of a drawn game. */
+    static final int DRAW = 1;
+    /** Outcome of a won game. */
+    static final int WIN = 2;
+
+    /** Not instantiable. */
+    private TrainingData() {
+    }
+
+    /** Store the header of a training data file into BUF at 0. */
+    static void header(byte[] buf) {
+        putInt(buf, 0, MAGIC);
+        buf[4] = (byte) (VERSION >> 8);
+        buf[5] = (byte) VERSION;
+        buf[6] = 0;
+        buf[7] = RECORD_SIZE;
+    }
+
+    /** Store a record for the position on BOARD, with search value SCORE
+     *  and outcome DRAW, into BUF at POS. */
+    static void encode(Board board, int score, byte[] buf, int pos) {
+        for (int i = 0; i < FLAGS; i += 1) {
+            buf[pos + i] = 0;
+        }
+        for (int s = 0; s < GameArchive.SQUARES; s += 1) {
+            int code = board.get(GameArchive.linearIndex(s)).ordinal();
+            buf[pos + (s >> 2)] |= (byte) (code << (2 * (s & 3)));
+        }
+        buf[pos + FLAGS] = (byte) ((board.whoseMove() == BLUE ? 1 : 0)
+                                   | (DRAW << 1) | (board.numJumps() << 3));
+        score = Math.max(-MAX_SCORE, Math.min(MAX_SCORE, score));
+        buf[pos + SCORE] = (byte) (score >> 8);
+        buf[pos + SCORE + 1] = (byte) score;
+    }
+
+    /** Set the outcome of the record in BUF at POS to OUTCOME. */
+    static void setOutcome(byte[] buf, int pos, int outcome) {
+        buf[pos + FLAGS] = (byte) ((buf[pos + FLAGS] & ~6) | (outcome << 1));
+    }
+
+    /** Return the ordinal of the contents of square S (numbered as in
+     *  GameArchive) in the record in BUF at POS. */
+    static int square(byte[] buf, int pos, int s) {
+        return (buf[pos + (s >> 2)] >> (2 * (s & 3))) & 3;
+    }
+
+    /** Return true iff blue is to move in the record in BUF at POS. */
+    static boolean blueToMove(byte[] buf, int pos) {
+        return (buf[pos + FLAGS] & 1) != 0;
+    }
+
+    /** Return the outcome for the side to move of the record in BUF at
+     *  POS. */
+    static int outcome(byte[] buf, int pos) {
+        return (buf[pos + FLAGS] >> 1) & 3;
+    }
+
+    /** Return the jump count of the record in BUF at POS. */
+    static int jumps(byte[] buf, int pos) {
+        return (buf[pos + FLAGS] & 0xFF) >> 3;
+    }
+
+    /** Return the search value of the record in BUF at POS. */
+    static int score(byte[] buf, int pos) {
+        return (short) (((buf[pos + SCORE] & 0xFF) << 8)
+                        | (buf[pos + SCORE + 1] & 0xFF));
+    }
+
+    /** Store X into BUF at POS as a big-endian int. */
+    private static void putInt(byte[] buf, int pos, int x) {
+        buf[pos] = (byte) (x >> 24);
+        buf[pos + 1] = (byte) (x >> 16);
+        buf[pos + 2] = (byte) (x >> 8);
+        buf[pos + 3] = (byte) x;
+    }
+
+}
@@ -0,0 +1,60 @@
+package ataxx;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the training data record layout.
+ *
+ * @author Shrey Malhotra
+ */
+public class TrainingDataTest {
+
+    @Test
+    public void testRoundTrip() {
+        Board board = new Board();
+        board.setPosition("rrX1Xbb/2r4/7/X5X/7/1bb4/b1X1X1r b 12");
+        byte[] buf = new byte[TrainingData.HEADER_SIZE
+                              + 2 * TrainingData.RECORD_SIZE];
+        Arrays.fill(buf, (byte) -1);
+        int pos = TrainingData.HEADER_SIZE + TrainingData.RECORD_SIZE;
+        TrainingData.encode(board, -1234, buf, pos);
+        for (int s = 0; s < GameArchive.SQUARES; s += 1) {
+            assertEquals("bad square " + s,
+                         board.get(GameArchive.linearIndex(s)).ordinal(),
+                         TrainingData.square(buf, pos, s));
+        }
+        assertTrue("bad side to move", TrainingData.blueToMove(buf, pos));
+        assertEquals("bad jump count", 12, TrainingData.jumps(buf, pos));
+        assertEquals("bad score", -1234, TrainingData.score(buf, pos));
+        assertEquals("bad initial outcome", TrainingData.DRAW,
+                     TrainingData.outcome(buf, pos));
+        TrainingData.setOutcome(buf, pos, TrainingData.WIN);
+        assertEquals("bad outcome", TrainingData.WIN,
+                     TrainingData.outcome(buf, pos));
+        assertTrue("outcome changed side", TrainingData.blueToMove(buf, pos));
+        assertEquals("outcome changed jumps", 12,
+                     TrainingData.jumps(buf, pos));
+        TrainingData.setOutcome(buf, pos, TrainingData.LOSS);
+        assertEquals("bad outcome", TrainingData.LOSS,
+                     TrainingData.outcome(buf, pos));
+
+        TrainingData.encode(board, Integer.MIN_VALUE, buf, pos);
+        assertEquals("score not limited", -TrainingData.MAX_SCORE,
+                     TrainingData.score(buf, pos));
+        TrainingData.encode(new Board(), Integer.MAX_VALUE, buf, pos);
+        assertEquals("score not limited", TrainingData.MAX_SCORE,
+                     TrainingData.score(buf, pos));
+        assertFalse("bad side to move", TrainingData.blueToMove(buf, pos));
+        assertEquals("bad jump count", 0, TrainingData.jumps(buf, pos));
+
+        TrainingData.header(buf);
+        assertEquals("bad record size", TrainingData.RECORD_SIZE, buf[7]);
+        assertEquals("bad magic", 'A', buf[0]);
+        assertEquals("bad magic", 'T', buf[3]);
+    }
+
+}
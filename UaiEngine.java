@@ -0,0 +1,336 @@
+package ataxx;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+import static ataxx.PieceColor.*;
+
+/**
+ * Plays Ataxx as an engine for match managers, speaking the UAI
+ * protocol (a version of the UCI chess protocol) on a pair of streams,
+ * with no prompts or echo.  The commands understood are
+ * <pre>
+ *     uai                          identify the engine, then "uaiok"
+ *     isready                      reply "readyok"
+ *     uainewgame                   forget the previous game
+ *     setoption name MultiPV value K
+ *     position startpos|fen F [moves M ...]
+ *     go [depth D] [nodes N] [movetime T] [wtime T] [btime T]
+ *        [winc T] [binc T] [movestogo N] [infinite]
+ *     stop                         end the current search
+ *     quit
+ * </pre>
+ * Other commands are ignored.  A FEN gives the rows from 7 to 1 ('x' for
+ * the first player, red, 'o' for blue, '-' for a block, and digits for
+ * runs of empty squares), the side to move, the number of consecutive
+ * jumps (which UAI calls the halfmove clock), and an ignored move
+ * number, the last two of which may be omitted.  Moves are written as
+ * the destination square for an extend (e.g. "b6"), the source and
+ * destination for a jump ("a7c5"), and "0000" for a pass.  A search
+ * runs on its own thread, streaming "info" lines after each depth and
+ * ending with "bestmove M".  After "go infinite", which ignores time and
+ * node limits, the bestmove is held back until "stop" (or another
+ * command that ends the search), even if the search finishes first.
+ *
+ * @author Shrey Malhotra
+ */
+class UaiEngine {
+
+    /** The FEN of the initial position. */
+    static final String START_FEN = "x5o/7/7/7/7/7/o5x x 0 1";
+    /** Moves assumed left in the game when allotting clock time. */
+    private static final int DEFAULT_MOVES_TO_GO = 30;
+    /** Time kept in reserve against overheads, in milliseconds. */
+    private static final long SAFETY_MILLIS = 20;
+    /** Number of fields in a full FEN. */
+    private static final int FEN_FIELDS = 4;
+
+    /** An engine reading commands from IN and writing replies to
+     *  OUT. */
+    UaiEngine(BufferedReader in, PrintWriter out) {
+        _in = in;
+        _out = out;
+    }
+
+    /** Process commands until "quit" or the end of input. */
+    void run() throws IOException {
+        String line;
+        while ((line = _in.readLine()) != null) {
+            String[] words = line.trim().split("\\s+");
+            switch (words[0]) {
+            case "uai":
+                send("id name Ataxx");
+                send("id author Shrey Malhotra");
+                send("option name MultiPV type spin default 1 min 1 max"
+                     + " " + Bitboard.MAX_MOVES);
+                send("uaiok");
+                break;
+            case "isready":
+                send("readyok");
+                break;
+            case "uainewgame":
+                stopSearch();
+                _board = new Board();
+                break;
+            case "setoption":
+                setOption(words);
+                break;
+            case "position":
+                stopSearch();
+                try {
+                    position(words);
+                } catch (GameException excp) {
+                    send("info string " + excp.getMessage());
+                }
+                break;
+            case "go":
+                stopSearch();
+                go(words);
+                break;
+            case "stop":
+                stopSearch();
+                break;
+            case "quit":
+                stopSearch();
+                return;
+            default:
+                break;
+            }
+        }
+        stopSearch();
+    }
+
+    /** Perform "setoption" as given by WORDS. */
+    private void setOption(String[] words) {
+        if (words.length == 5 && words[1].equals("name")
+            && words[2].equalsIgnoreCase("MultiPV")
+            && words[3].equals("value")) {
+            try {
+                _lines = Math.max(1, Integer.parseInt(words[4]));
+            } catch (NumberFormatException excp) {
+                send("info string bad MultiPV value");
+            }
+        }
+    }
+
+    /** Perform "position" as given by WORDS. */
+    private void position(String[] words) {
+        int k = 1;
+        String fen;
+        if (words.length > 1 && words[1].equals("startpos")) {
+            fen = START_FEN;
+            k = 2;
+        } else if (words.length > 3 && words[1].equals("fen")) {
+            k = 2;
+            while (k < words.length && k < FEN_FIELDS + 2
+                   && !words[k].equals("moves")) {
+                k += 1;
+            }
+            fen = String.join(" ", Arrays.copyOfRange(words, 2, k));
+        } else {
+            throw GameException.error("bad position command");
+        }
+        Board board = new Board();
+        board.setPosition(toPosition(fen));
+        if (k < words.length && words[k].equals("moves")) {
+            for (k += 1; k < words.length; k += 1) {
+                Move move = parseMove(board, words[k]);
+                if (move == null) {
+                    throw GameException.error("illegal move: %s", words[k]);
+                }
+                board.makeMove(move);
+            }
+        }
+        _board = board;
+    }
+
+    /** Perform "go" as given by WORDS. */
+    private void go(String[] words) {
+        int depth = AI.MAX_PLY - 1;
+        long nodes = 0, moveTime = 0, movesToGo = DEFAULT_MOVES_TO_GO;
+        long[] time = new long[2], inc = new long[2];
+        boolean infinite = false;
+        try {
+            for (int k = 1; k < words.length; k += 1) {
+                String arg = k + 1 < words.length ? words[k + 1] : "0";
+                switch (words[k]) {
+                case "depth":
+                    depth = Math.min(depth, Integer.parseInt(arg));
+                    k += 1;
+                    break;
+                case "nodes":
+                    nodes = Long.parseLong(arg);
+                    k += 1;
+                    break;
+                case "movetime":
+                    moveTime = Long.parseLong(arg);
+                    k += 1;
+                    break;
+                case "wtime": case "btime":
+                    time[words[k].charAt(0) == 'w' ? 0 : 1] =
+                        Long.parseLong(arg);
+                    k += 1;
+                    break;
+                case "winc": case "binc":
+                    inc[words[k].charAt(0) == 'w' ? 0 : 1] =
+                        Long.parseLong(arg);
+                    k += 1;
+                    break;
+                case "movestogo":
+                    movesToGo = Math.max(1, Long.parseLong(arg));
+                    k += 1;
+                    break;
+                case "infinite":
+                    infinite = true;
+                    break;
+                default:
+                    break;
+                }
+            }
+        } catch (NumberFormatException excp) {
+            send("info string bad go command");
+        }
+        int side = _board.whoseMove() == RED ? 0 : 1;
+        if (infinite) {
+            nodes = moveTime = 0;
+        } else if (moveTime == 0 && time[side] > 0) {
+            moveTime = Math.max(1, Math.min(time[side] / 2,
+                                            time[side] / movesToGo
+                                            + inc[side] * 3 / 4)
+                                - SAFETY_MILLIS);
+        }
+        Board board = new Board(_board);
+        int searchDepth = Math.max(1, depth);
+        _ai.limit(nodes, moveTime);
+        CountDownLatch release = new CountDownLatch(infinite ? 1 : 0);
+        _release = release;
+        _search = new Thread(() -> {
+            Move best = _ai.analyze(board, _lines, searchDepth,
+                                    _reporter, UaiEngine::moveString);
+            try {
+                release.await();
+            } catch (InterruptedException excp) {
+                Thread.currentThread().interrupt();
+            }
+            send("bestmove " + (best == null ? "0000" : moveString(best)));
+        }, "uai-search");
+        _search.start();
+    }
+
+    /** Stop the current search, if any, and wait for it to end. */
+    private void stopSearch() {
+        if (_search != null) {
+            _ai.stop();
+            _release.countDown();
+            try {
+                _search.join();
+            } catch (InterruptedException excp) {
+                Thread.currentThread().interrupt();
+            }
+            _search = null;
+        }
+    }
+
+    /** Write LINE to the output and flush it. */
+    private void send(String line) {
+        synchronized (_out) {
+            _out.println(line);
+            _out.flush();
+        }
+    }
+
+    /** Return the position in FEN (the board, side, and jump count) in
+     *  the notation of Board.setPosition. */
+    static String toPosition(String fen) {
+        String[] parts = fen.trim().split("\\s+");
+        if (parts.length < 2) {
+            throw GameException.error("bad FEN: %s", fen);
+        }
+        String rows = parts[0].replace('x', 'r').replace('o', 'b')
+            .replace('-', 'X');
+        String side = parts[1].equals("x") ? "r"
+            : parts[1].equals("o") ? "b" : parts[1];
+        int jumps = 0;
+        if (parts.length > 2) {
+            try {
+                jumps = Math.min(Integer.parseInt(parts[2]),
+                                 Board.JUMP_LIMIT - 1);
+            } catch (NumberFormatException excp) {
+                throw GameException.error("bad FEN: %s", fen);
+            }
+        }
+        return rows + " " + side + " " + jumps;
+    }
+
+    /** Return the legal move on BOARD denoted by TEXT in UAI notation,
+     *  or null if there is none. */
+    static Move parseMove(Board board, String text) {
+        Move move;
+        if (text.equals("0000")) {
+            move = Move.pass();
+        } else if (text.matches("[a-g][1-7]")) {
+            Bitboard b = new Bitboard(0);
+            b.copy(board);
+            int to = (text.charAt(1) - '1') * Board.SIDE
+                + text.charAt(0) - 'a';
+            move = b.toMove(to);
+        } else if (text.matches("[a-g][1-7][a-g][1-7]")) {
+            move = Move.move(text.charAt(0), text.charAt(1),
+                             text.charAt(2), text.charAt(3));
+        } else {
+            return null;
+        }
+        return board.legalMove(move) ? move : null;
+    }
+
+    /** Return MOVE in UAI notation. */
+    static String moveString(Move move) {
+        if (move.isPass()) {
+            return "0000";
+        }
+        String text = move.toString();
+        return move.isJump() ? text.replace("-", "") : text.substring(3);
+    }
+
+    /** Sends "info" lines for the search. */
+    private final Reporter _reporter = new Reporter() {
+        @Override
+        public void errMsg(String format, Object... args) {
+            send("info string " + String.format(format, args));
+        }
+
+        @Override
+        public void outcomeMsg(String format, Object... args) {
+            send("info string " + String.format(format, args));
+        }
+
+        @Override
+        public void moveMsg(String format, Object... args) {
+            send("info string " + String.format(format, args));
+        }
+
+        @Override
+        public void infoMsg(String format, Object... args) {
+            send(String.format(format, args));
+        }
+    };
+
+    /** Source of commands. */
+    private final BufferedReader _in;
+    /** Destination of replies. */
+    private final PrintWriter _out;
+    /** The engine. */
+    private final AI _ai = new AI(RED);
+    /** The current position. */
+    private Board _board = new Board();
+    /** Number of principal variations reported. */
+    private int _lines = 1;
+    /** The thread running the current search, or null. */
+    private Thread _search;
+    /** Released when the current search is to report its bestmove. */
+    private CountDownLatch _release;
+
+}
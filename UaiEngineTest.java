@@ -0,0 +1,99 @@
+package ataxx;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PipedReader;
+import java.io.PipedWriter;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the UAI engine protocol.
+ *
+ * @author Shrey Malhotra
+ */
+public class UaiEngineTest {
+
+    @Test
+    public void testNotation() {
+        assertEquals("bad start position", new Board().position(),
+                     UaiEngine.toPosition(UaiEngine.START_FEN));
+        Board board = new Board();
+        Move extend = UaiEngine.parseMove(board, "b6");
+        assertEquals("bad extend", Move.move('a', '7', 'b', '6'), extend);
+        assertEquals("bad extend text", "b6", UaiEngine.moveString(extend));
+        Move jump = UaiEngine.parseMove(board, "g1e3");
+        assertEquals("bad jump", Move.move('g', '1', 'e', '3'), jump);
+        assertEquals("bad jump text", "g1e3", UaiEngine.moveString(jump));
+        assertNull("illegal move accepted", UaiEngine.parseMove(board, "d4"));
+        assertNull("illegal pass accepted",
+                   UaiEngine.parseMove(board, "0000"));
+    }
+
+    @Test
+    public void testSession() throws IOException {
+        StringWriter out = new StringWriter();
+        new UaiEngine(new BufferedReader(new StringReader(
+            "uai\nisready\nposition startpos moves b6 f6\ngo depth 2\n"
+            + "position fen x5o/7/7/7/7/7/o5o x 0 1 moves g2\n"
+            + "go nodes 100\nquit\n")), new PrintWriter(out)).run();
+        String[] lines = out.toString().split("\\R");
+        assertEquals("bad handshake", "uaiok", lines[3]);
+        assertEquals("not ready", "readyok", lines[4]);
+        int bestmoves = 0;
+        for (String line : lines) {
+            assertTrue("unexpected output: " + line,
+                       line.startsWith("info ") || line.startsWith("id ")
+                       || line.startsWith("option ")
+                       || line.matches("uaiok|readyok|bestmove \\w+"));
+            if (line.startsWith("bestmove")) {
+                bestmoves += 1;
+            }
+        }
+        assertEquals("wrong number of searches", 2, bestmoves);
+    }
+
+    @Test
+    public void testShortFen() throws IOException {
+        StringWriter out = new StringWriter();
+        new UaiEngine(new BufferedReader(new StringReader(
+            "position fen x5o/7/7/7/7/7/o5x x moves b6\ngo depth 1\n"
+            + "quit\n")), new PrintWriter(out)).run();
+        assertFalse("FEN rejected: " + out,
+                    out.toString().contains("info string"));
+        assertTrue("no search", out.toString().contains("bestmove"));
+    }
+
+    @Test(timeout = 10000)
+    public void testGoInfinite() throws Exception {
+        StringWriter out = new StringWriter();
+        PipedWriter commands = new PipedWriter();
+        UaiEngine engine =
+            new UaiEngine(new BufferedReader(new PipedReader(commands)),
+                          new PrintWriter(out));
+        Thread running = new Thread(() -> {
+            try {
+                engine.run();
+            } catch (IOException excp) {
+                /* Checked below. */
+            }
+        });
+        running.start();
+        commands.write("position startpos\ngo infinite depth 1\n");
+        commands.flush();
+        Thread.sleep(500);
+        assertFalse("bestmove before stop",
+                    out.toString().contains("bestmove"));
+        commands.write("stop\nquit\n");
+        commands.close();
+        running.join();
+        assertTrue("no bestmove after stop",
+                   out.toString().contains("bestmove"));
+    }
+
+}
@@ -11,7 +11,18 @@ public class UnitTest {
      *  the arguments of runClasses to run other JUnit tests. */
     public static void main(String[] ignored) {
         textui.runClasses(CommandTest.class, MoveTest.class,
-                          BoardTest.class);
+                          BoardTest.class, GameArchiveTest.class,
+                          EndgameSolverTest.class, BitboardTest.class,
+                          ProofSolverTest.class, TablebaseTest.class,
+                          OpeningBookTest.class, SearchCacheTest.class,
+                          UaiEngineTest.class, GameServerTest.class,
+                          ScriptSourceTest.class, BufferedReporterTest.class,
+                          MoveTimingTest.class, MetricsTest.class,
+                          PerfRegressionTest.class, SearchTraceTest.class,
+                          SearchListenerTest.class, SearchParamsTest.class,
+                          TrainingDataTest.class, EvaluatorTest.class,
+                          MonteCarloTest.class, SearchPoolTest.class,
+                          AtaxxBoardWidgetTest.class);
     }
 
 }